@@ -0,0 +1,28 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <h1>BenchmarkRunner</h1>
+ * <p>Entry point of the benchmarks jar. Accepts the usual JMH command line options and always attaches the<br>
+ * GC allocation profiler, so every result reports allocation rate next to the timing</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner(){}
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import collision.CollisionEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import shapes.Rectangle;
+import shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>CollisionBenchmark</h1>
+ * <p>Measures a frame of collision detection: moving some rectangles of a scene back and forth, then reporting<br>
+ * every colliding pair to a consumer which does not touch the shapes. With no moves the kept pairs<br>
+ * are only reported, a few thousand moves are tested again incrementally and a fifth of the scene moving makes the<br>
+ * engine find every pair from scratch</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx3g"})
+public class CollisionBenchmark {
+
+    /**Stores size of the square world the shapes are spread over*/
+    private static final int WORLD_SIZE = 40_000;
+
+    /**Stores number of shapes in the scene*/
+    @Param({"1000000"})
+    public int sceneSize;
+
+    /**Stores number of rectangles moved per frame*/
+    @Param({"0", "1000", "10000", "200000"})
+    public int moved;
+
+    private CollisionEngine engine;
+    private Rectangle[] rectangles;
+    private int units;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        engine = new CollisionEngine();
+        ArrayList<Rectangle> movable = new ArrayList<>();
+        for(Shape shape : SceneFactory.createShapes(sceneSize, 42, SceneFactory.DEFAULT_MIX, WORLD_SIZE,
+                WORLD_SIZE)){
+            engine.add(shape);
+            if(shape instanceof Rectangle && movable.size() < moved) movable.add((Rectangle) shape);
+        }
+        rectangles = movable.toArray(new Rectangle[0]);
+        units = 10;
+        engine.countCollidingPairs();
+    }
+
+    @Benchmark
+    public void collidingPairs(Blackhole blackhole){
+        for(Rectangle rectangle : rectangles){
+            rectangle.moveXUnits(units);
+            engine.update(rectangle);
+        }
+        units = -units;
+        engine.forEachCollidingPair((first, second) -> blackhole.consume(second));
+    }
+}
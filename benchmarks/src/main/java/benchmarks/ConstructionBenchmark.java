@@ -0,0 +1,31 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import shapes.Shape;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>ConstructionBenchmark</h1>
+ * <p>Measures construction of a scene of random shapes, including the bounding boxes</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ConstructionBenchmark {
+
+    /**Stores number of shapes constructed per invocation*/
+    @Param({"10", "1000", "100000", "1000000"})
+    public int sceneSize;
+
+    @Benchmark
+    public Shape[] constructShapes(){
+        return SceneFactory.createShapes(sceneSize, 42);
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import constant.Constants;
+import manager.ShapesManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import shapes.Shape;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>HitTestBenchmark</h1>
+ * <p>Measures a single mouse click hit test: a linear sweep calling BoundingBox.isWithinBounds on every shape,<br>
+ * as well as the lookup through the spatial index of ShapesManager</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class HitTestBenchmark {
+
+    /**Stores number of click points cycled through*/
+    private static final int POINT_COUNT = 1024;
+
+    /**Stores number of shapes in the scene*/
+    @Param({"10", "1000", "100000", "1000000"})
+    public int sceneSize;
+
+    private Shape[] shapes;
+    private ShapesManager manager;
+    private int[] xPoints, yPoints;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        shapes = SceneFactory.createShapes(sceneSize, 42);
+        manager = new ShapesManager();
+        for(Shape shape : shapes){
+            manager.addShape(shape);
+        }
+        Random random = new Random(7);
+        xPoints = new int[POINT_COUNT];
+        yPoints = new int[POINT_COUNT];
+        for(int i = 0; i < POINT_COUNT; i++){
+            xPoints[i] = random.nextInt(Constants.FRAME_WIDTH);
+            yPoints[i] = random.nextInt(Constants.FRAME_HEIGHT);
+        }
+    }
+
+    @Benchmark
+    public int linearSweep(){
+        int i = next++ & (POINT_COUNT - 1);
+        int x = xPoints[i], y = yPoints[i];
+        int hits = 0;
+        for(Shape shape : shapes){
+            if(shape.getBoundingBox().isWithinBounds(x, y)) hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public void spatialIndex(Blackhole blackhole){
+        int i = next++ & (POINT_COUNT - 1);
+        blackhole.consume(manager.getShapesAt(xPoints[i], yPoints[i]));
+    }
+}
@@ -0,0 +1,99 @@
+package benchmarks;
+
+import manager.ShapesManager;
+import org.openjdk.jmh.annotations.*;
+import persistence.MutationJournal;
+import shapes.Rectangle;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>JournalBenchmark</h1>
+ * <p>Measures the cost of journaling mutations: fill toggles, moves and mouse clicks on a scene of rectangles,<br>
+ * with and without a MutationJournal using its default sync interval and snapshot threshold.<br>
+ * The journal writes to a temporary directory, which is deleted after every trial</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class JournalBenchmark {
+
+    /**Stores number of shapes mutated per invocation*/
+    @Param({"1000"})
+    public int batchSize;
+
+    /**Stores whether the mutations are journaled*/
+    @Param({"false", "true"})
+    public boolean journaled;
+
+    private Rectangle[] rectangles;
+    private ShapesManager manager;
+    private MutationJournal journal;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        manager = new ShapesManager();
+        if(journaled){
+            directory = Files.createTempDirectory("journal-benchmark");
+            journal = MutationJournal.open(directory, manager);
+        }
+        Random random = new Random(42);
+        rectangles = new Rectangle[batchSize];
+        for(int i = 0; i < batchSize; i++){
+            rectangles[i] = new Rectangle(Color.BLUE, random.nextInt(1024), random.nextInt(768), 20, 10);
+            manager.addShape(rectangles[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if(journal == null) return;
+        journal.close();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)){
+            for(Path path : stream){
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Rectangle[] toggleFilled(){
+        for(Rectangle rect : rectangles){
+            rect.updateFilled();
+        }
+        manager.takeDirtyRegions();
+        return rectangles;
+    }
+
+    @Benchmark
+    public Rectangle[] move(){
+        for(Rectangle rect : rectangles){
+            rect.moveTenXUnits();
+        }
+        manager.takeDirtyRegions();
+        return rectangles;
+    }
+
+    @Benchmark
+    public Rectangle[] toggleFilledAt(){
+        for(Rectangle rect : rectangles){
+            manager.toggleFilledAt(rect.getxCenter(), rect.getyCenter());
+        }
+        manager.takeDirtyRegions();
+        return rectangles;
+    }
+}
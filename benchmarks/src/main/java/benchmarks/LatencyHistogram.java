@@ -0,0 +1,197 @@
+package benchmarks;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * <h1>LatencyHistogram</h1>
+ * <p>Records latencies in nanoseconds into log-linear buckets: values below 128 ns are exact, larger values<br>
+ * share a bucket with values less than 1.6% apart. Recording does not allocate, so the histogram does not<br>
+ * disturb the latencies it measures. Percentiles are reported as the upper end of their bucket</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see SoakHarness
+ */
+public final class LatencyHistogram {
+
+    /**Stores number of bits of a value kept exactly within its power of two*/
+    private static final int SUB_BUCKET_BITS = 6;
+
+    /**Stores number of buckets per power of two*/
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**Stores number of buckets covering every positive long value*/
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**Stores upper end of the first row of the printed distribution, 1/8 ms*/
+    private static final long FIRST_ROW_LIMIT = 125_000;
+
+    /**Stores number of recorded values of each bucket*/
+    private final long[] counts = new long[BUCKETS];
+
+    /**Stores number of recorded values*/
+    private long count;
+
+    /**Stores sum of recorded values*/
+    private long sum;
+
+    /**Stores largest recorded value*/
+    private long max;
+
+    /**
+     * Records latency
+     *
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos){
+        long value = Math.max(nanos, 0);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every value recorded by given histogram
+     *
+     * @param other LatencyHistogram object
+     */
+    public void add(LatencyHistogram other){
+        for(int i = 0; i < BUCKETS; i++){
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes every recorded value
+     */
+    public void reset(){
+        Arrays.fill(counts, 0);
+        count = sum = max = 0;
+    }
+
+    /**
+     * Getter method to retrieve number of recorded values
+     *
+     * @return number of values(long)
+     */
+    public long getCount(){
+        return count;
+    }
+
+    /**
+     * Getter method to retrieve largest recorded value
+     *
+     * @return latency in nanoseconds, 0 if nothing is recorded
+     */
+    public long getMax(){
+        return max;
+    }
+
+    /**
+     * Calculates mean of recorded values
+     *
+     * @return latency in nanoseconds, 0 if nothing is recorded
+     */
+    public double getMean(){
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Finds latency given fraction of recorded values does not exceed
+     *
+     * @param quantile fraction between 0 and 1, e.g. 0.999 for p999
+     * @return latency in nanoseconds, 0 if nothing is recorded
+     */
+    public long getValueAtQuantile(double quantile){
+        if(count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += counts[i];
+            if(seen >= rank) return Math.min(highestValueOf(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Prints summary line in milliseconds: count, mean, p50, p99, p999 and max
+     *
+     * @param out stream the line is printed to
+     * @param name name of the measured latency
+     */
+    public void printSummary(PrintStream out, String name){
+        out.printf("%-12s count=%-9d mean=%8.3f p50=%8.3f p99=%8.3f p999=%8.3f max=%8.3f ms%n", name, count,
+                getMean() / 1e6, getValueAtQuantile(0.5) / 1e6, getValueAtQuantile(0.99) / 1e6,
+                getValueAtQuantile(0.999) / 1e6, max / 1e6);
+    }
+
+    /**
+     * Prints distribution of recorded values, one line per power of two of milliseconds
+     *
+     * @param out stream the distribution is printed to
+     * @param name name of the measured latency
+     */
+    public void printDistribution(PrintStream out, String name){
+        out.println(name + " distribution:");
+        long limit = FIRST_ROW_LIMIT, rowCount = 0, seen = 0;
+        for(int i = 0; seen + rowCount < count; i++){
+            if(counts[i] == 0) continue;
+            while(highestValueOf(i) >= limit){
+                seen = printRow(out, limit, rowCount, seen);
+                rowCount = 0;
+                limit *= 2;
+            }
+            rowCount += counts[i];
+        }
+        printRow(out, limit, rowCount, seen);
+    }
+
+    /**
+     * Prints single row of the distribution, rows below the smallest recorded value are skipped
+     *
+     * @param out stream the row is printed to
+     * @param limit upper end of the row in nanoseconds
+     * @param rowCount number of values of the row
+     * @param seen number of values of previous rows
+     * @return number of values of the row and previous rows
+     */
+    private long printRow(PrintStream out, long limit, long rowCount, long seen){
+        seen += rowCount;
+        if(seen == 0) return 0;
+        int bar = (int) Math.round(40.0 * rowCount / count);
+        char[] chars = new char[bar];
+        Arrays.fill(chars, '#');
+        out.printf("  < %10.3f ms %10d %7.3f%% %s%n", limit / 1e6, rowCount, 100.0 * seen / count,
+                new String(chars));
+        return seen;
+    }
+
+    /**
+     * Finds bucket of given value
+     *
+     * @param value non-negative value
+     * @return index of the bucket
+     */
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS * 2) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Finds largest value of given bucket
+     *
+     * @param bucket index of the bucket
+     * @return value(long)
+     */
+    private static long highestValueOf(int bucket){
+        if(bucket < SUB_BUCKETS * 2) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << shift) - 1;
+    }
+}
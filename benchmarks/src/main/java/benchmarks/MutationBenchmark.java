@@ -0,0 +1,84 @@
+package benchmarks;
+
+import manager.ShapesManager;
+import org.openjdk.jmh.annotations.*;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+
+import java.awt.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>MutationBenchmark</h1>
+ * <p>Measures high frequency programmatic mutation: moves, rotations and fill toggles of a batch of shapes,<br>
+ * either standalone or registered in a ShapesManager (spatial index and damaged area tracking).<br>
+ * Run with the GC allocation profiler to check gc.alloc.rate.norm stays at zero bytes per operation</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MutationBenchmark {
+
+    /**Stores number of shapes mutated per invocation*/
+    @Param({"1000"})
+    public int batchSize;
+
+    /**Stores whether the shapes are registered in a ShapesManager*/
+    @Param({"false", "true"})
+    public boolean managed;
+
+    private Quadrilateral[] quadrilaterals;
+    private Rectangle[] rectangles;
+    private ShapesManager manager;
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        Random random = new Random(42);
+        quadrilaterals = new Quadrilateral[batchSize];
+        rectangles = new Rectangle[batchSize];
+        manager = new ShapesManager();
+        for(int i = 0; i < batchSize; i++){
+            int x = random.nextInt(1024), y = random.nextInt(768);
+            quadrilaterals[i] = SceneFactory.createQuadrilateral(Color.RED, x, y, 20, random);
+            rectangles[i] = new Rectangle(Color.BLUE, x, y, 20, 10);
+            if(managed){
+                manager.addShape(quadrilaterals[i]);
+                manager.addShape(rectangles[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public Quadrilateral[] rotate(){
+        for(Quadrilateral quad : quadrilaterals){
+            quad.rotateNinetyDegrees();
+        }
+        manager.takeDirtyRegions();
+        return quadrilaterals;
+    }
+
+    @Benchmark
+    public Rectangle[] move(){
+        for(Rectangle rect : rectangles){
+            rect.moveTenXUnits();
+        }
+        manager.takeDirtyRegions();
+        return rectangles;
+    }
+
+    @Benchmark
+    public Rectangle[] toggleFilled(){
+        for(Rectangle rect : rectangles){
+            rect.updateFilled();
+        }
+        manager.takeDirtyRegions();
+        return rectangles;
+    }
+}
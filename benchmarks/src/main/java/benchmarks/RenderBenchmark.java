@@ -0,0 +1,60 @@
+package benchmarks;
+
+import constant.Constants;
+import manager.ShapesManager;
+import org.openjdk.jmh.annotations.*;
+import shapes.Shape;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>RenderBenchmark</h1>
+ * <p>Measures ShapesManager.drawShapes into the Graphics2D of a window sized BufferedImage</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    /**Stores number of shapes in the scene*/
+    @Param({"10", "1000", "100000", "1000000"})
+    public int sceneSize;
+
+    /**Stores whether shape names are drawn*/
+    @Param({"false", "true"})
+    public boolean displayNames;
+
+    private ShapesManager manager;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        manager = new ShapesManager();
+        for(Shape shape : SceneFactory.createShapes(sceneSize, 42)){
+            manager.addShape(shape);
+        }
+        manager.setDisplayName(displayNames);
+        image = new BufferedImage(Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage drawShapes(){
+        manager.drawShapes(graphics);
+        return image;
+    }
+}
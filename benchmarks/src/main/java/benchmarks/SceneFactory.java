@@ -0,0 +1,136 @@
+package benchmarks;
+
+import bounding.Point;
+import constant.Constants;
+import shapes.Circle;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+
+import java.awt.*;
+import java.util.Random;
+
+/**
+ * <h1>SceneFactory</h1>
+ * <p>Creates reproducible scenes of random shapes spread over the window area.<br>
+ * The default mix is 30% rectangles, 20% squares, 25% circles and 25% quadrilaterals, other mixes are given as<br>
+ * relative weights of the four kinds in the same order</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public final class SceneFactory {
+
+    /**Stores colors the shapes are picked from*/
+    private static final Color[] COLORS = {Color.RED, Color.BLUE, Color.GREEN, Color.MAGENTA, Color.ORANGE,
+            Color.CYAN, Color.PINK, Color.DARK_GRAY};
+
+    /**Stores maximum edge length of a shape*/
+    private static final int MAX_SIZE = 40;
+
+    /**Stores default weights of rectangles, squares, circles and quadrilaterals*/
+    public static final int[] DEFAULT_MIX = {30, 20, 25, 25};
+
+    private SceneFactory(){}
+
+    /**
+     * Creates given number of random shapes
+     *
+     * @param count number of shapes
+     * @param seed seed of the random generator
+     * @return array of shapes
+     */
+    public static Shape[] createShapes(int count, long seed){
+        return createShapes(count, seed, DEFAULT_MIX);
+    }
+
+    /**
+     * Creates given number of random shapes of given mix
+     *
+     * @param count number of shapes
+     * @param seed seed of the random generator
+     * @param mix weights of rectangles, squares, circles and quadrilaterals
+     * @return array of shapes
+     */
+    public static Shape[] createShapes(int count, long seed, int[] mix){
+        return createShapes(count, seed, mix, Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT);
+    }
+
+    /**
+     * Creates given number of random shapes of given mix spread over a world of given size
+     *
+     * @param count number of shapes
+     * @param seed seed of the random generator
+     * @param mix weights of rectangles, squares, circles and quadrilaterals
+     * @param width width of the world
+     * @param height height of the world
+     * @return array of shapes
+     */
+    public static Shape[] createShapes(int count, long seed, int[] mix, int width, int height){
+        if(mix.length != 4) throw new IllegalArgumentException("Mix needs 4 weights: " + mix.length);
+        int total = 0;
+        for(int weight : mix){
+            if(weight < 0) throw new IllegalArgumentException("Negative weight: " + weight);
+            total += weight;
+        }
+        if(total == 0) throw new IllegalArgumentException("Mix is empty");
+        Random random = new Random(seed);
+        Shape[] shapes = new Shape[count];
+        for(int i = 0; i < count; i++){
+            shapes[i] = createShape(random, mix, total, width, height);
+        }
+        return shapes;
+    }
+
+    /**
+     * Creates a single random shape
+     *
+     * @param random random generator
+     * @return shape object
+     */
+    public static Shape createShape(Random random){
+        return createShape(random, DEFAULT_MIX, 100, Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT);
+    }
+
+    /**
+     * Creates a single random shape of given mix
+     *
+     * @param random random generator
+     * @param mix weights of rectangles, squares, circles and quadrilaterals
+     * @param total sum of the weights
+     * @param width width of the world
+     * @param height height of the world
+     * @return shape object
+     */
+    private static Shape createShape(Random random, int[] mix, int total, int width, int height){
+        Color color = COLORS[random.nextInt(COLORS.length)];
+        int xCenter = random.nextInt(width);
+        int yCenter = random.nextInt(height);
+        int size = 4 + random.nextInt(MAX_SIZE - 4);
+        int kind = random.nextInt(total);
+        if(kind < mix[0]) return new Rectangle(color, xCenter, yCenter, size, 4 + random.nextInt(MAX_SIZE - 4));
+        if(kind < mix[0] + mix[1]) return new Square(color, xCenter, yCenter, size);
+        if(kind < mix[0] + mix[1] + mix[2]) return new Circle(color, xCenter, yCenter, size / 2);
+        return createQuadrilateral(color, xCenter, yCenter, size / 2, random);
+    }
+
+    /**
+     * Creates quadrilateral with one vertex in each quadrant around the center
+     *
+     * @param color used to render the shape
+     * @param xCenter x coordinate of center of the shape
+     * @param yCenter y coordinate of center of the shape
+     * @param radius maximum distance of a vertex from the center
+     * @param random random generator
+     * @return quadrilateral object
+     */
+    public static Quadrilateral createQuadrilateral(Color color, int xCenter, int yCenter, int radius, Random random){
+        int r = Math.max(radius, 2);
+        return new Quadrilateral(color, new Point(xCenter, yCenter), new Point[]{
+                new Point(xCenter - 1 - random.nextInt(r), yCenter - 1 - random.nextInt(r)),
+                new Point(xCenter + 1 + random.nextInt(r), yCenter - 1 - random.nextInt(r)),
+                new Point(xCenter + 1 + random.nextInt(r), yCenter + 1 + random.nextInt(r)),
+                new Point(xCenter - 1 - random.nextInt(r), yCenter + 1 + random.nextInt(r))});
+    }
+}
@@ -0,0 +1,344 @@
+package benchmarks;
+
+import constant.Constants;
+import manager.ShapesManager;
+import shapes.Shape;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>SoakHarness</h1>
+ * <p>End-to-end soak run of ShapesManager, rendering headless into a window sized BufferedImage.<br>
+ * Synthesizes a reproducible scene of given size and shape mix, then for the given time replays a randomized<br>
+ * stream of clicks the way CustomPanel handles them (left click toggles filled state, right click performs the<br>
+ * special action) and renders a frame after every few clicks. Frames either repaint the whole window like the<br>
+ * active RenderLoop, or only the damaged areas like CustomPanel does without active rendering.<br>
+ * Reports p50/p99/p999 frame and interaction latencies every interval and as histograms at the end. With a<br>
+ * target frame rate, frames are paced and their latency is measured from the scheduled start, so frames<br>
+ * falling behind count the time they waited. Exits with status 1 if a given p99 limit is exceeded, so the run<br>
+ * can reject regressions.<br>
+ * Usage: java -cp benchmarks.jar benchmarks.SoakHarness [--option=value ...], see printUsage for the options</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see LatencyHistogram
+ * @see SceneFactory
+ */
+public final class SoakHarness {
+
+    /**Stores number of nanoseconds in one second*/
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**Stores number of shapes of the scene*/
+    private int shapes = 100_000;
+
+    /**Stores weights of rectangles, squares, circles and quadrilaterals*/
+    private int[] mix = SceneFactory.DEFAULT_MIX;
+
+    /**Stores seed of the scene and of the click stream*/
+    private long seed = 42;
+
+    /**Stores length of the measured run and of the warm up in seconds*/
+    private int seconds = 60, warmup = 10;
+
+    /**Stores number of seconds between progress reports*/
+    private int interval = 10;
+
+    /**Stores number of clicks replayed before each frame*/
+    private int clicks = 4;
+
+    /**Stores percentage of clicks performing the special action instead of toggling filled state*/
+    private int specialActions = 50;
+
+    /**Stores target frame rate, 0 to render frames back to back*/
+    private int fps;
+
+    /**Stores whether only damaged areas are repainted*/
+    private boolean damaged;
+
+    /**Stores ShapesManager settings*/
+    private boolean names, boxes, batched;
+
+    /**Stores p99 limits in milliseconds, 0 for no limit*/
+    private double maxFrameP99, maxInteractionP99;
+
+    private SoakHarness(){}
+
+    public static void main(String[] args){
+        System.setProperty("java.awt.headless", "true");
+        SoakHarness harness = new SoakHarness();
+        try {
+            harness.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+        System.exit(harness.run() ? 0 : 1);
+    }
+
+    /**
+     * Reads options given as --option=value
+     *
+     * @param args command line arguments
+     */
+    private void parse(String[] args){
+        for(String arg : args){
+            int separator = arg.indexOf('=');
+            if(!arg.startsWith("--") || separator < 0) throw new IllegalArgumentException("Invalid argument: " + arg);
+            String name = arg.substring(2, separator), value = arg.substring(separator + 1);
+            switch(name){
+                case "shapes": shapes = positive(name, value); break;
+                case "mix": mix = parseMix(value); break;
+                case "seed": seed = Long.parseLong(value); break;
+                case "seconds": seconds = positive(name, value); break;
+                case "warmup": warmup = Integer.parseInt(value); break;
+                case "interval": interval = positive(name, value); break;
+                case "clicks": clicks = Integer.parseInt(value); break;
+                case "special": specialActions = Integer.parseInt(value); break;
+                case "fps": fps = Integer.parseInt(value); break;
+                case "damaged": damaged = Boolean.parseBoolean(value); break;
+                case "names": names = Boolean.parseBoolean(value); break;
+                case "boxes": boxes = Boolean.parseBoolean(value); break;
+                case "batched": batched = Boolean.parseBoolean(value); break;
+                case "max-frame-p99": maxFrameP99 = Double.parseDouble(value); break;
+                case "max-interaction-p99": maxInteractionP99 = Double.parseDouble(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        if(warmup < 0 || clicks < 0 || fps < 0) throw new IllegalArgumentException("Negative option value");
+        if(specialActions < 0 || specialActions > 100) throw new IllegalArgumentException("special is a percentage");
+    }
+
+    /**
+     * Prints the options
+     */
+    private static void printUsage(){
+        System.err.println("Options (--option=value):");
+        System.err.println("  shapes               number of shapes of the scene (100000)");
+        System.err.println("  mix                  weights of rectangles,squares,circles,quadrilaterals (30,20,25,25)");
+        System.err.println("  seed                 seed of the scene and of the click stream (42)");
+        System.err.println("  seconds, warmup      length of the measured run and of the warm up (60, 10)");
+        System.err.println("  interval             seconds between progress reports (10)");
+        System.err.println("  clicks               clicks replayed before each frame (4)");
+        System.err.println("  special              percentage of clicks performing the special action (50)");
+        System.err.println("  fps                  target frame rate, 0 renders frames back to back (0)");
+        System.err.println("  damaged              repaint only damaged areas instead of the whole window (false)");
+        System.err.println("  names, boxes         display names and bounding boxes (false)");
+        System.err.println("  batched              batched rendering (false)");
+        System.err.println("  max-frame-p99        fail if frame p99 exceeds given milliseconds (no limit)");
+        System.err.println("  max-interaction-p99  fail if interaction p99 exceeds given milliseconds (no limit)");
+    }
+
+    /**
+     * Builds the scene, warms up, runs the measured soak and prints the report
+     *
+     * @return false if a p99 limit is exceeded
+     */
+    private boolean run(){
+        System.out.printf("Scene: %d shapes, mix %s, seed %d%n", shapes, Arrays.toString(mix), seed);
+        System.out.printf("Run: %d s after %d s warm up, %d clicks per frame, %d%% special actions, %s, %s%n",
+                seconds, warmup, clicks, specialActions, fps > 0 ? fps + " fps" : "frames back to back",
+                damaged ? "damaged areas" : "whole window");
+        ShapesManager manager = new ShapesManager();
+        for(Shape shape : SceneFactory.createShapes(shapes, seed, mix)){
+            manager.addShape(shape);
+        }
+        manager.setDisplayName(names);
+        manager.setDisplayBoundingBox(boxes);
+        manager.setBatchedRendering(batched);
+        BufferedImage image = new BufferedImage(Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D metricsGraphics = image.createGraphics();
+        manager.setLabelMetrics(metricsGraphics.getFontMetrics());
+        metricsGraphics.dispose();
+        Session session = new Session(manager, image, new Random(seed + 1));
+
+        session.soak(warmup * NANOS_PER_SECOND, 0);
+        LatencyHistogram frames = new LatencyHistogram(), interactions = new LatencyHistogram();
+        long gcCount = gcCount(), gcTime = gcTime();
+        session.missedFrames = 0;
+        for(int elapsed = 0; elapsed < seconds; elapsed += interval){
+            int length = Math.min(interval, seconds - elapsed);
+            session.frames.reset();
+            session.interactions.reset();
+            session.soak(length * NANOS_PER_SECOND, elapsed + length);
+            frames.add(session.frames);
+            interactions.add(session.interactions);
+        }
+        System.out.println();
+        frames.printSummary(System.out, "frame");
+        interactions.printSummary(System.out, "interaction");
+        System.out.printf("throughput   %.1f frames/s, %.1f clicks/s, %d missed frames%n",
+                frames.getCount() / (double) seconds, interactions.getCount() / (double) seconds,
+                session.missedFrames);
+        System.out.printf("gc           %d collections, %d ms%n", gcCount() - gcCount, gcTime() - gcTime);
+        System.out.println();
+        frames.printDistribution(System.out, "frame");
+        interactions.printDistribution(System.out, "interaction");
+
+        boolean passed = true;
+        if(maxFrameP99 > 0 && frames.getValueAtQuantile(0.99) / 1e6 > maxFrameP99){
+            System.out.printf("FAILED: frame p99 exceeds %.3f ms%n", maxFrameP99);
+            passed = false;
+        }
+        if(maxInteractionP99 > 0 && interactions.getValueAtQuantile(0.99) / 1e6 > maxInteractionP99){
+            System.out.printf("FAILED: interaction p99 exceeds %.3f ms%n", maxInteractionP99);
+            passed = false;
+        }
+        return passed;
+    }
+
+    /**
+     * Parses weights of the shape mix
+     *
+     * @param value weights separated by commas
+     * @return array of 4 weights
+     */
+    private static int[] parseMix(String value){
+        String[] parts = value.split(",");
+        if(parts.length != 4) throw new IllegalArgumentException("mix needs 4 weights: " + value);
+        int[] weights = new int[4];
+        for(int i = 0; i < 4; i++){
+            weights[i] = Integer.parseInt(parts[i].trim());
+        }
+        return weights;
+    }
+
+    /**
+     * Parses positive option value
+     *
+     * @param name name of the option
+     * @param value written value
+     * @return value(int)
+     */
+    private static int positive(String name, String value){
+        int number = Integer.parseInt(value);
+        if(number <= 0) throw new IllegalArgumentException(name + " has to be positive: " + value);
+        return number;
+    }
+
+    /**
+     * Sums number of collections of every garbage collector
+     *
+     * @return number of collections(long)
+     */
+    private static long gcCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()){
+            count += Math.max(bean.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    /**
+     * Sums time spent by every garbage collector
+     *
+     * @return time in milliseconds(long)
+     */
+    private static long gcTime(){
+        long time = 0;
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()){
+            time += Math.max(bean.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    /**
+     * Replays clicks and renders frames into the image, recording their latencies
+     */
+    private final class Session {
+
+        private final ShapesManager manager;
+        private final BufferedImage image;
+        private final Random random;
+        private final LatencyHistogram frames = new LatencyHistogram(), interactions = new LatencyHistogram();
+        private final List<Rectangle> regions = new ArrayList<>();
+        private long missedFrames;
+
+        private Session(ShapesManager manager, BufferedImage image, Random random){
+            this.manager = manager;
+            this.image = image;
+            this.random = random;
+        }
+
+        /**
+         * Replays clicks and renders frames for given time
+         *
+         * @param duration time in nanoseconds
+         * @param report seconds of the measured run to report after the time, 0 to report nothing
+         */
+        private void soak(long duration, int report){
+            long frameInterval = fps > 0 ? NANOS_PER_SECOND / fps : 0;
+            long start = System.nanoTime(), end = start + duration, scheduled = start;
+            while(System.nanoTime() < end){
+                for(int i = 0; i < clicks; i++){
+                    click();
+                }
+                long frameStart = System.nanoTime();
+                if(frameInterval > 0){
+                    if(frameStart < scheduled){
+                        LockSupport.parkNanos(scheduled - frameStart);
+                        while(System.nanoTime() < scheduled) Thread.yield();
+                    } else if(frameStart - scheduled > frameInterval){
+                        missedFrames++;
+                    }
+                    frameStart = scheduled;
+                    scheduled += frameInterval;
+                }
+                renderFrame();
+                frames.record(System.nanoTime() - frameStart);
+            }
+            if(report == 0) return;
+            System.out.printf("%5d s  frames=%-7d frame p50=%8.3f p99=%8.3f p999=%8.3f  click p99=%8.3f ms%n",
+                    report, frames.getCount(), frames.getValueAtQuantile(0.5) / 1e6,
+                    frames.getValueAtQuantile(0.99) / 1e6, frames.getValueAtQuantile(0.999) / 1e6,
+                    interactions.getValueAtQuantile(0.99) / 1e6);
+        }
+
+        /**
+         * Replays a single click at a random position of the window
+         */
+        private void click(){
+            int x = random.nextInt(Constants.FRAME_WIDTH), y = random.nextInt(Constants.FRAME_HEIGHT);
+            boolean special = random.nextInt(100) < specialActions;
+            long start = System.nanoTime();
+            if(special) manager.performSpecialActionAt(x, y);
+            else manager.toggleFilledAt(x, y);
+            interactions.record(System.nanoTime() - start);
+        }
+
+        /**
+         * Renders a frame, either of the whole window or of the areas damaged since the last frame
+         */
+        private void renderFrame(){
+            regions.clear();
+            if(damaged){
+                regions.addAll(manager.takeDirtyRegions());
+            } else {
+                regions.add(new Rectangle(0, 0, Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT));
+            }
+            for(Rectangle region : regions){
+                Graphics2D graphics = image.createGraphics();
+                try {
+                    graphics.clipRect(region.x, region.y, region.width, region.height);
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(region.x, region.y, region.width, region.height);
+                    graphics.setColor(Color.BLACK);
+                    manager.drawShapes(graphics);
+                } finally {
+                    graphics.dispose();
+                }
+            }
+            if(!damaged) manager.takeDirtyRegions();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+
+import java.awt.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>TransformBenchmark</h1>
+ * <p>Measures the special actions of the shapes over a whole scene: Quadrilateral.rotateNinetyDegrees and<br>
+ * Rectangle.moveTenXUnits</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TransformBenchmark {
+
+    /**Stores number of shapes transformed per invocation*/
+    @Param({"10", "1000", "100000", "1000000"})
+    public int sceneSize;
+
+    private Quadrilateral[] quadrilaterals;
+    private Rectangle[] rectangles;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        Random random = new Random(42);
+        quadrilaterals = new Quadrilateral[sceneSize];
+        rectangles = new Rectangle[sceneSize];
+        for(int i = 0; i < sceneSize; i++){
+            int x = random.nextInt(1024), y = random.nextInt(768);
+            quadrilaterals[i] = SceneFactory.createQuadrilateral(Color.RED, x, y, 20, random);
+            rectangles[i] = new Rectangle(Color.BLUE, x, y, 20, 10);
+        }
+    }
+
+    @Benchmark
+    public Quadrilateral[] rotateNinetyDegrees(){
+        for(Quadrilateral quad : quadrilaterals){
+            quad.rotateNinetyDegrees();
+        }
+        return quadrilaterals;
+    }
+
+    @Benchmark
+    public Rectangle[] moveTenXUnits(){
+        for(Rectangle rect : rectangles){
+            rect.moveTenXUnits();
+        }
+        return rectangles;
+    }
+}
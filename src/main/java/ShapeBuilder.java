@@ -1,12 +1,16 @@
 import bounding.Point;
 import guicomponents.CustomWindow;
 import manager.ShapesManager;
+import persistence.SceneImporter;
+import rendering.LevelOfDetail;
 import shapes.*;
 import shapes.Rectangle;
 import shapes.Shape;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class ShapeBuilder {
 
@@ -35,11 +39,26 @@ public class ShapeBuilder {
         // Set states for display name and bounding box visibility decisions
         shapesManager.setDisplayName(true);
         shapesManager.setDisplayBoundingBox(false);
+        // Collapse shapes too small on screen when zoomed out
+        shapesManager.setLevelOfDetail(new LevelOfDetail());
 
         // Init new window
         CustomWindow window = new CustomWindow(shapesManager);
         window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         window.setTitle("ShapeBuilder_TestAPP_CA1");
         window.setVisible(true);
+
+        // Import scene exported as CSV/JSON, if given, painting shapes while the file is read
+        if(args.length > 0){
+            Thread importer = new Thread(() -> {
+                try {
+                    new SceneImporter().importFile(Paths.get(args[0]), window.getPanel()::addShapesLater);
+                } catch (IOException e) {
+                    System.err.println("Failed to import " + args[0] + ": " + e.getMessage());
+                }
+            }, "scene-importer");
+            importer.setDaemon(true);
+            importer.start();
+        }
     }
 }
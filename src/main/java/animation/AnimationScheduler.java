@@ -0,0 +1,82 @@
+package animation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <h1>AnimationScheduler</h1>
+ * <p>Drives running tweens. Advanced by a fixed time step on every update of the frame loop.<br>
+ * Tweens can be scheduled from any thread; they are picked up on the next update</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Tween
+ */
+public class AnimationScheduler {
+
+    /**Stores tweens scheduled since the last update*/
+    private final ConcurrentLinkedQueue<Tween> scheduled;
+
+    /**Stores running tweens*/
+    private final ArrayList<Tween> tweens;
+
+    /**Stores elapsed time of each running tween in seconds, in the same order as tweens*/
+    private double[] elapsed;
+
+    /**
+     * Default constructor
+     */
+    public AnimationScheduler(){
+        scheduled = new ConcurrentLinkedQueue<>();
+        tweens = new ArrayList<>();
+        elapsed = new double[64];
+    }
+
+    /**
+     * Schedules tween to start on the next update
+     *
+     * @param tween tween object
+     */
+    public void schedule(Tween tween){
+        scheduled.add(tween);
+    }
+
+    /**
+     * Advances every running tween by given time step. Finished tweens are removed
+     *
+     * @param step time step in seconds
+     */
+    public void update(double step){
+        for(Tween tween = scheduled.poll(); tween != null; tween = scheduled.poll()){
+            if(tweens.size() == elapsed.length) elapsed = Arrays.copyOf(elapsed, elapsed.length * 2);
+            elapsed[tweens.size()] = 0;
+            tweens.add(tween);
+        }
+        int i = 0;
+        while(i < tweens.size()){
+            Tween tween = tweens.get(i);
+            elapsed[i] += step;
+            double duration = tween.getDuration();
+            double progress = duration <= 0 ? 1 : Math.min(1, elapsed[i] / duration);
+            tween.update(progress);
+            if(progress >= 1){
+                int last = tweens.size() - 1;
+                tweens.set(i, tweens.get(last));
+                elapsed[i] = elapsed[last];
+                tweens.remove(last);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Getter method to retrieve number of running tweens
+     *
+     * @return number of tweens(int)
+     */
+    public int getRunningCount(){
+        return tweens.size();
+    }
+}
@@ -0,0 +1,61 @@
+package animation;
+
+import shapes.Rectangle;
+
+/**
+ * <h1>MoveTween</h1>
+ * <p>Moves a rectangular shape horizontally by given number of units over a period of time.<br>
+ * The shape is moved in whole units, so it ends exactly at the target position</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Tween
+ */
+public class MoveTween implements Tween {
+
+    /**Stores moved shape*/
+    private final Rectangle shape;
+
+    /**Stores total amount to move*/
+    private final int units;
+
+    /**Stores duration in seconds*/
+    private final double duration;
+
+    /**Stores amount moved so far*/
+    private int moved;
+
+    /**
+     * Constructor to initialize the tween with given values
+     *
+     * @param shape moved shape
+     * @param units total amount to move as whole number(int)
+     * @param duration duration in seconds
+     */
+    public MoveTween(Rectangle shape, int units, double duration){
+        this.shape = shape;
+        this.units = units;
+        this.duration = duration;
+    }
+
+    /**
+     * Implementation of the interface method
+     * Moves the shape by the difference between the target position at given progress and the current position
+     */
+    @Override
+    public void update(double progress) {
+        int target = (int) Math.round(units * progress);
+        if(target != moved){
+            shape.moveXUnits(target - moved);
+            moved = target;
+        }
+    }
+
+    /**
+     * Implementation of the interface method
+     */
+    @Override
+    public double getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,100 @@
+package animation;
+
+import interfaces.Rotatable;
+
+/**
+ * <h1>RotateTween</h1>
+ * <p>Rotates a shape by given number of quarter turns over a period of time.<br>
+ * The turns are spread evenly over the duration. A continuous tween rotates the shape by any angle a little<br>
+ * on every update instead; shapes keep their accumulated rotation exactly, so many small steps do not drift</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Tween
+ */
+public class RotateTween implements Tween {
+
+    /**Stores rotated shape*/
+    private final Rotatable shape;
+
+    /**Stores total number of quarter turns*/
+    private final int quarterTurns;
+
+    /**Stores duration in seconds*/
+    private final double duration;
+
+    /**Stores number of quarter turns done so far*/
+    private int done;
+
+    /**Stores total angle of a continuous tween in degrees, NaN for quarter turns*/
+    private final double degrees;
+
+    /**Stores angle a continuous tween has rotated by so far*/
+    private double rotated;
+
+    /**
+     * Constructor to initialize the tween with given values
+     *
+     * @param shape rotated shape
+     * @param quarterTurns number of 90 degree rotations
+     * @param duration duration in seconds
+     */
+    public RotateTween(Rotatable shape, int quarterTurns, double duration){
+        this(shape, quarterTurns, Double.NaN, duration);
+    }
+
+    /**
+     * Constructor to initialize the tween with given values
+     *
+     * @param shape rotated shape
+     * @param quarterTurns number of 90 degree rotations
+     * @param degrees total angle of a continuous tween, NaN for quarter turns
+     * @param duration duration in seconds
+     */
+    private RotateTween(Rotatable shape, int quarterTurns, double degrees, double duration){
+        this.shape = shape;
+        this.quarterTurns = quarterTurns;
+        this.degrees = degrees;
+        this.duration = duration;
+    }
+
+    /**
+     * Creates tween rotating the shape continuously by given angle
+     *
+     * @param shape rotated shape
+     * @param degrees clockwise angle in degrees
+     * @param duration duration in seconds
+     * @return RotateTween object
+     */
+    public static RotateTween continuous(Rotatable shape, double degrees, double duration){
+        if(Double.isNaN(degrees)) throw new IllegalArgumentException("Invalid angle: " + degrees);
+        return new RotateTween(shape, 0, degrees, duration);
+    }
+
+    /**
+     * Implementation of the interface method
+     * Performs the quarter turns due at given progress, or rotates a continuous tween to given progress
+     */
+    @Override
+    public void update(double progress) {
+        if(!Double.isNaN(degrees)){
+            double angle = degrees * progress;
+            shape.rotate(angle - rotated);
+            rotated = angle;
+            return;
+        }
+        int target = (int) Math.floor(quarterTurns * progress);
+        while(done < target){
+            shape.rotateNinetyDegrees();
+            done++;
+        }
+    }
+
+    /**
+     * Implementation of the interface method
+     */
+    @Override
+    public double getDuration() {
+        return duration;
+    }
+}
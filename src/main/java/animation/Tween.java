@@ -0,0 +1,26 @@
+package animation;
+
+/**
+ * <h1>Tween</h1>
+ * <p>Used to change a shape gradually over a period of time</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see AnimationScheduler
+ */
+public interface Tween {
+
+    /**
+     * Advances the tween to given progress
+     *
+     * @param progress value between 0 (start) and 1 (end)
+     */
+    void update(double progress);
+
+    /**
+     * Getter method to retrieve duration of the tween
+     *
+     * @return duration in seconds
+     */
+    double getDuration();
+}
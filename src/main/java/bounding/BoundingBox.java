@@ -6,8 +6,9 @@ import java.awt.event.MouseEvent;
 /**
  * <h1>BoundingBox</h1>
  * <p>By default - invisible box, which is used to register mouse click events in the area where the box is located<br>
- * Can be drawn on canvas for visual representation. Employs Point class to store bottom left and top right corners<br>
- * in form of x,y coordinate, to register mouse click events in its area</p>
+ * Can be drawn on canvas for visual representation. Stores top left corner, width and height as whole numbers,<br>
+ * so the box can be updated in place. Can be initialized out of bottom left and top right corners in form of<br>
+ * Point objects</p>
  *
  * @author Levan.Voronin
  * @version 1.0.0
@@ -15,11 +16,13 @@ import java.awt.event.MouseEvent;
  */
 public class BoundingBox {
 
-    /**Stores bottom left coordinates*/
-    private Point bottomLeft;
-
-    /**Stores top right coordinates*/
-    private Point topRight;
+    /**Stores dashed stroke used to draw bounding boxes*/
+    public static final BasicStroke DASHED_STROKE = new BasicStroke(
+            1,
+            BasicStroke.CAP_BUTT,
+            BasicStroke.JOIN_ROUND,
+            1.0f, new float[]{ 2f, 0f, 2f },
+            2f);
 
     /**Stores x and y coordinates of top left corner of the box*/
     private int x, y;
@@ -36,11 +39,7 @@ public class BoundingBox {
      * @param diameter whole number(int), diameter of a circle
      */
     public BoundingBox(int x, int y, int diameter){
-        calculatePointsBasedOnDiameter(x, y, diameter);
-        this.x = x;
-        this.y = y;
-        width = diameter;
-        height = diameter;
+        setBounds(x, y, diameter, diameter);
     }
 
     /**
@@ -52,11 +51,7 @@ public class BoundingBox {
      * @param height height value of the object as whole number(int)
      */
     public BoundingBox(int x, int y, int width, int height){
-        calculatePoints(x, y, width, height);
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
+        setBounds(x, y, width, height);
     }
 
     /**
@@ -66,59 +61,82 @@ public class BoundingBox {
      * @param topRight Point object storing x,y coordinates
      */
     public BoundingBox(Point bottomLeft, Point topRight){
-        this.bottomLeft = bottomLeft;
-        this.topRight = topRight;
-        calculateBoundingBoxValues();
+        setBounds(bottomLeft.getX(), topRight.getY(),
+                topRight.getX() - bottomLeft.getX(), bottomLeft.getY() - topRight.getY());
     }
 
     /**
-     * Calculates bottom-left and top-right coordinates with given top-left x,y coordinates and diameter.<br>
-     * Used for circle shape
+     * Updates the box in place with given top-left x,y coordinates, width and height.<br>
+     * Used to move or resize the box without allocating a new one
      *
      * @param x x coordinate of top-left corner of the box
      * @param y y coordinate of top-left corner of the box
-     * @param diameter whole number(int), diameter of a circle
+     * @param width width value of the object as whole number(int)
+     * @param height height value of the object as whole number(int)
      */
-    private void calculatePointsBasedOnDiameter(int x, int y, int diameter){
-        bottomLeft = new Point(x, y + diameter);
-        topRight = new Point(x + diameter, y);
+    public void setBounds(int x, int y, int width, int height){
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
     }
 
     /**
-     * Calculates bottom-left and top-right coordinates with given top-left x,y coordinates, width and height.<br>
+     * Checks whether the given mouse click event happened within the area of the bounding box
      *
-     * @param x x coordinate of top-left corner of the box
-     * @param y y coordinate of top-left corner of the box
-     * @param width width value of the object as whole number(int)
-     * @param height height value of the object as whole number(int)
+     * @param event given mouse click event
+     * @return state based on click within or out of the box
      */
-    private void calculatePoints(int x, int y, int width, int height){
-        bottomLeft = new Point(x, y + height);
-        topRight = new Point(x + width, y);
+    public boolean isWithinBounds(MouseEvent event){
+        return isWithinBounds(event.getX(), event.getY());
     }
 
     /**
-     * Calculates top-left corner coordinates, width and height of the box out of the bottom-left and top-right<br>
-     * coordinates
+     * Checks whether the given x,y coordinates are within the area of the bounding box
+     *
+     * @param pointX x coordinate(int)
+     * @param pointY y coordinate(int)
+     * @return state based on point within or out of the box
      */
-    private void calculateBoundingBoxValues(){
-        x = bottomLeft.getX();
-        y = topRight.getY();
-        width = topRight.getX() - bottomLeft.getX();
-        height = bottomLeft.getY() - topRight.getY();
+    public boolean isWithinBounds(int pointX, int pointY){
+        return (pointX >= x && pointX <= x + width) &&
+                (pointY >= y && pointY <= y + height);
     }
 
     /**
-     * Checks whether the given mouse click event happened within the area of the bounding box
+     * Getter method to retrieve x coordinate of top left corner of the box
      *
-     * @param event given mouse click event
-     * @return state based on click within or out of the box
+     * @return x coordinate(int)
      */
-    public boolean isWithinBounds(MouseEvent event){
-        int mouseX = event.getX();
-        int mouseY = event.getY();
-        return (mouseX >= bottomLeft.getX() && mouseX <= topRight.getX()) &&
-                (mouseY >= topRight.getY() && mouseY <= bottomLeft.getY());
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Getter method to retrieve y coordinate of top left corner of the box
+     *
+     * @return y coordinate(int)
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Getter method to retrieve width of the box
+     *
+     * @return width(int)
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter method to retrieve height of the box
+     *
+     * @return height(int)
+     */
+    public int getHeight() {
+        return height;
     }
 
     /**
@@ -127,16 +145,22 @@ public class BoundingBox {
      * @param g used for rendering of the box
      */
     public void drawBoundingBox(Graphics g){
+        drawBox(g, x, y, width, height);
+    }
+
+    /**
+     * Draws box with given bounds as dashed box on canvas for illustrative purpose
+     *
+     * @param g used for rendering of the box
+     * @param x x coordinate of top left corner of the box
+     * @param y y coordinate of top left corner of the box
+     * @param width width of the box
+     * @param height height of the box
+     */
+    public static void drawBox(Graphics g, int x, int y, int width, int height){
         Graphics2D g2d = (Graphics2D) g;
-        float[] dash1 = { 2f, 0f, 2f };
         Stroke defaultStroke = g2d.getStroke();
-        BasicStroke bs1 = new BasicStroke(
-                1,
-                BasicStroke.CAP_BUTT,
-                BasicStroke.JOIN_ROUND,
-                1.0f, dash1,
-                2f);
-        g2d.setStroke(bs1);
+        g2d.setStroke(DASHED_STROKE);
         g2d.drawRect(x, y, width, height);
         g2d.setStroke(defaultStroke);
     }
@@ -0,0 +1,126 @@
+package collision;
+
+import bounding.BoundingBox;
+import shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+
+/**
+ * <h1>CollisionEngine</h1>
+ * <p>Finds shapes which areas overlap, either every overlapping pair of the scene or the shapes overlapping<br>
+ * a single shape. Pairs of overlapping bounding boxes are found by a sweep and prune broad phase, only those are<br>
+ * tested exactly by the narrow phase.<br>
+ * The broad phase is updated incrementally: the owner of the shapes calls update whenever a bounding box changes,<br>
+ * e.g. from ShapeObserver.boundsChanged after moveTenXUnits or rotateNinetyDegrees. Colliding pairs are kept<br>
+ * between frames, only the changed shapes are tested again. Not thread safe, has to be used by one thread at a<br>
+ * time; the pool only sweeps the bands when every pair has to be found from scratch</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see SweepAndPrune
+ * @see NarrowPhase
+ */
+public class CollisionEngine {
+
+    /**Stores broad phase over the bounding boxes of the shapes*/
+    private final SweepAndPrune broadPhase;
+
+    /**
+     * Default constructor, sweeps on the common ForkJoinPool
+     */
+    public CollisionEngine(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor to initialize the engine sweeping on given pool
+     *
+     * @param pool pool sweeping the bands when every colliding pair has to be found from scratch
+     */
+    public CollisionEngine(ForkJoinPool pool){
+        broadPhase = new SweepAndPrune(SweepAndPrune.DEFAULT_BAND_HEIGHT, pool);
+    }
+
+    /**
+     * Registers shape. Shapes without bounding box are ignored
+     *
+     * @param shape shape object
+     */
+    public void add(Shape shape){
+        broadPhase.insert(shape);
+    }
+
+    /**
+     * Updates registered shape after its bounding box has been replaced or updated
+     *
+     * @param shape shape object
+     */
+    public void update(Shape shape){
+        broadPhase.update(shape);
+    }
+
+    /**
+     * Removes shape
+     *
+     * @param shape shape object
+     */
+    public void remove(Shape shape){
+        broadPhase.remove(shape);
+    }
+
+    /**
+     * Removes every shape
+     */
+    public void clear(){
+        broadPhase.clear();
+    }
+
+    /**
+     * Getter method to retrieve number of registered shapes
+     *
+     * @return number of shapes(int)
+     */
+    public int size(){
+        return broadPhase.size();
+    }
+
+    /**
+     * Reports every pair of registered shapes which areas overlap. Every pair is reported once
+     *
+     * @param consumer receives the pairs
+     */
+    public void forEachCollidingPair(BiConsumer<Shape, Shape> consumer){
+        broadPhase.forEachCollision(consumer);
+    }
+
+    /**
+     * Counts pairs of registered shapes which areas overlap
+     *
+     * @return number of pairs(long)
+     */
+    public long countCollidingPairs(){
+        long[] count = new long[1];
+        forEachCollidingPair((first, second) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Retrieves registered shapes which areas overlap the area of given shape. The shape itself is not reported,<br>
+     * it does not have to be registered
+     *
+     * @param shape shape object
+     * @return overlapping shapes
+     */
+    public List<Shape> findCollisions(Shape shape){
+        ArrayList<Shape> collisions = new ArrayList<>();
+        BoundingBox box = shape.getBoundingBox();
+        if(box == null) return collisions;
+        broadPhase.query(box.getX(), box.getY(), box.getWidth(), box.getHeight(), candidate -> {
+            if(candidate != shape && NarrowPhase.intersects(shape, candidate)) collisions.add(candidate);
+        });
+        return collisions;
+    }
+}
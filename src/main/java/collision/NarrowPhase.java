@@ -0,0 +1,315 @@
+package collision;
+
+import bounding.BoundingBox;
+import shapes.Circle;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+
+/**
+ * <h1>NarrowPhase</h1>
+ * <p>Exact intersection tests between the areas covered by two shapes, used on the pairs found by the broad phase.<br>
+ * A Circle covers the points within its radius from its center, a Rectangle its bounding box and a Quadrilateral<br>
+ * the polygon of its vertices, which may be concave. Points on the outline belong to the shape, so touching shapes<br>
+ * intersect. Shapes of any other type are approximated by their bounding boxes</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see CollisionEngine
+ */
+public final class NarrowPhase {
+
+    /**Stores kinds of shapes: shapes covering their bounding box, circles and other shapes*/
+    static final byte BOX = 0, CIRCLE = 1, OTHER = 2;
+
+    /**
+     * Private constructor, only static methods are available
+     */
+    private NarrowPhase(){}
+
+    /**
+     * Checks whether the areas of two shapes intersect
+     *
+     * @param first shape object
+     * @param second shape object
+     * @return true if the shapes share at least one point
+     */
+    public static boolean intersects(Shape first, Shape second){
+        if(first instanceof Circle){
+            Circle circle = (Circle) first;
+            return circleIntersects(circle.getxCenter(), circle.getyCenter(), circle.getRadius(), second);
+        }
+        if(second instanceof Circle){
+            Circle circle = (Circle) second;
+            return circleIntersects(circle.getxCenter(), circle.getyCenter(), circle.getRadius(), first);
+        }
+        if(first instanceof Quadrilateral){
+            Quadrilateral polygon = (Quadrilateral) first;
+            return polygonIntersects(polygon.getXCoordinates(), polygon.getYCoordinates(), second);
+        }
+        if(second instanceof Quadrilateral){
+            Quadrilateral polygon = (Quadrilateral) second;
+            return polygonIntersects(polygon.getXCoordinates(), polygon.getYCoordinates(), first);
+        }
+        return boxesIntersect(first.getBoundingBox(), second.getBoundingBox());
+    }
+
+    /**
+     * Classifies the shape for the exact tests on bounding boxes. The area of a Rectangle equals its bounding box,<br>
+     * the area of a Circle is the circle inscribed in its bounding box
+     *
+     * @param shape shape object
+     * @return BOX, CIRCLE or OTHER
+     */
+    static byte kindOf(Shape shape){
+        if(shape instanceof Circle) return CIRCLE;
+        return shape instanceof Rectangle ? BOX : OTHER;
+    }
+
+    /**
+     * Checks whether the areas of two shapes of kind BOX or CIRCLE intersect, given only their bounding boxes.
+     * Circles are tested in doubled coordinates, so centers of odd sized boxes stay whole numbers
+     *
+     * @param kind1 kind of the first shape
+     * @param left1 x coordinate of the left edge of the first box
+     * @param top1 y coordinate of the top edge of the first box
+     * @param right1 x coordinate of the right edge of the first box
+     * @param bottom1 y coordinate of the bottom edge of the first box
+     * @param kind2 kind of the second shape
+     * @param left2 x coordinate of the left edge of the second box
+     * @param top2 y coordinate of the top edge of the second box
+     * @param right2 x coordinate of the right edge of the second box
+     * @param bottom2 y coordinate of the bottom edge of the second box
+     * @return true if the shapes share at least one point
+     */
+    static boolean intersects(byte kind1, int left1, int top1, int right1, int bottom1,
+                              byte kind2, int left2, int top2, int right2, int bottom2){
+        boolean overlap = left1 <= right2 && left2 <= right1 && top1 <= bottom2 && top2 <= bottom1;
+        if(!overlap || kind1 == BOX && kind2 == BOX) return overlap;
+        if(kind1 == BOX) return intersects(kind2, left2, top2, right2, bottom2, kind1, left1, top1, right1, bottom1);
+        long centerX = (long) left1 + right1, centerY = (long) top1 + bottom1, diameter = (long) right1 - left1;
+        long dx, dy, reach;
+        if(kind2 == CIRCLE){
+            dx = centerX - ((long) left2 + right2);
+            dy = centerY - ((long) top2 + bottom2);
+            reach = diameter + right2 - left2;
+        } else {
+            dx = centerX - Math.max(2L * left2, Math.min(centerX, 2L * right2));
+            dy = centerY - Math.max(2L * top2, Math.min(centerY, 2L * bottom2));
+            reach = diameter;
+        }
+        return dx * dx + dy * dy <= reach * reach;
+    }
+
+    /**
+     * Checks whether a circle intersects the area of the shape
+     *
+     * @param centerX x coordinate of the center of the circle
+     * @param centerY y coordinate of the center of the circle
+     * @param radius radius of the circle
+     * @param shape shape object
+     * @return true if the circle and the shape share at least one point
+     */
+    private static boolean circleIntersects(int centerX, int centerY, int radius, Shape shape){
+        if(shape instanceof Circle){
+            Circle circle = (Circle) shape;
+            long dx = (long) circle.getxCenter() - centerX, dy = (long) circle.getyCenter() - centerY;
+            long reach = (long) circle.getRadius() + radius;
+            return dx * dx + dy * dy <= reach * reach;
+        }
+        if(shape instanceof Quadrilateral){
+            Quadrilateral polygon = (Quadrilateral) shape;
+            return circleIntersectsPolygon(centerX, centerY, radius,
+                    polygon.getXCoordinates(), polygon.getYCoordinates());
+        }
+        BoundingBox box = shape.getBoundingBox();
+        long dx = centerX - Math.max(box.getX(), Math.min(centerX, (long) box.getX() + box.getWidth()));
+        long dy = centerY - Math.max(box.getY(), Math.min(centerY, (long) box.getY() + box.getHeight()));
+        return dx * dx + dy * dy <= (long) radius * radius;
+    }
+
+    /**
+     * Checks whether a polygon intersects the area of a shape which is not a circle
+     *
+     * @param xs x coordinates of the vertices
+     * @param ys y coordinates of the vertices
+     * @param shape shape object
+     * @return true if the polygon and the shape share at least one point
+     */
+    private static boolean polygonIntersects(int[] xs, int[] ys, Shape shape){
+        if(shape instanceof Quadrilateral){
+            Quadrilateral polygon = (Quadrilateral) shape;
+            return polygonsIntersect(xs, ys, polygon.getXCoordinates(), polygon.getYCoordinates());
+        }
+        BoundingBox box = shape.getBoundingBox();
+        return polygonIntersectsBox(xs, ys, box.getX(), box.getY(), box.getX() + box.getWidth(),
+                box.getY() + box.getHeight());
+    }
+
+    /**
+     * Checks whether the polygon intersects the box: either a vertex lies within the box, an edge crosses an edge<br>
+     * of the box or the box lies within the polygon
+     *
+     * @param xs x coordinates of the vertices
+     * @param ys y coordinates of the vertices
+     * @param left x coordinate of the left edge of the box
+     * @param top y coordinate of the top edge of the box
+     * @param right x coordinate of the right edge of the box
+     * @param bottom y coordinate of the bottom edge of the box
+     * @return true if the polygon and the box share at least one point
+     */
+    private static boolean polygonIntersectsBox(int[] xs, int[] ys, int left, int top, int right, int bottom){
+        int length = xs.length;
+        if(length == 0) return false;
+        for(int i = 0; i < length; i++){
+            if(xs[i] >= left && xs[i] <= right && ys[i] >= top && ys[i] <= bottom) return true;
+        }
+        for(int i = 0, previous = length - 1; i < length; previous = i++){
+            int ax = xs[previous], ay = ys[previous], bx = xs[i], by = ys[i];
+            if(segmentsIntersect(ax, ay, bx, by, left, top, right, top) ||
+                    segmentsIntersect(ax, ay, bx, by, right, top, right, bottom) ||
+                    segmentsIntersect(ax, ay, bx, by, left, bottom, right, bottom) ||
+                    segmentsIntersect(ax, ay, bx, by, left, top, left, bottom)){
+                return true;
+            }
+        }
+        return contains(xs, ys, left, top);
+    }
+
+    /**
+     * Checks whether the circle intersects the polygon: either its center lies within the polygon or an edge of<br>
+     * the polygon is within its radius
+     *
+     * @param centerX x coordinate of the center of the circle
+     * @param centerY y coordinate of the center of the circle
+     * @param radius radius of the circle
+     * @param xs x coordinates of the vertices
+     * @param ys y coordinates of the vertices
+     * @return true if the circle and the polygon share at least one point
+     */
+    private static boolean circleIntersectsPolygon(int centerX, int centerY, int radius, int[] xs, int[] ys){
+        int length = xs.length;
+        if(length == 0) return false;
+        double reach = (double) radius * radius;
+        for(int i = 0, previous = length - 1; i < length; previous = i++){
+            if(distanceSquared(centerX, centerY, xs[previous], ys[previous], xs[i], ys[i]) <= reach) return true;
+        }
+        return contains(xs, ys, centerX, centerY);
+    }
+
+    /**
+     * Checks whether two polygons intersect: either two of their edges cross or one polygon lies within the other
+     *
+     * @param xs1 x coordinates of the vertices of the first polygon
+     * @param ys1 y coordinates of the vertices of the first polygon
+     * @param xs2 x coordinates of the vertices of the second polygon
+     * @param ys2 y coordinates of the vertices of the second polygon
+     * @return true if the polygons share at least one point
+     */
+    private static boolean polygonsIntersect(int[] xs1, int[] ys1, int[] xs2, int[] ys2){
+        int length1 = xs1.length, length2 = xs2.length;
+        if(length1 == 0 || length2 == 0) return false;
+        for(int i = 0, previous = length1 - 1; i < length1; previous = i++){
+            for(int j = 0, before = length2 - 1; j < length2; before = j++){
+                if(segmentsIntersect(xs1[previous], ys1[previous], xs1[i], ys1[i],
+                        xs2[before], ys2[before], xs2[j], ys2[j])){
+                    return true;
+                }
+            }
+        }
+        return contains(xs1, ys1, xs2[0], ys2[0]) || contains(xs2, ys2, xs1[0], ys1[0]);
+    }
+
+    /**
+     * Checks whether two segments share at least one point, including touching ends and collinear overlaps
+     *
+     * @param ax x coordinate of the start of the first segment
+     * @param ay y coordinate of the start of the first segment
+     * @param bx x coordinate of the end of the first segment
+     * @param by y coordinate of the end of the first segment
+     * @param cx x coordinate of the start of the second segment
+     * @param cy y coordinate of the start of the second segment
+     * @param dx x coordinate of the end of the second segment
+     * @param dy y coordinate of the end of the second segment
+     * @return true if the segments intersect
+     */
+    private static boolean segmentsIntersect(int ax, int ay, int bx, int by, int cx, int cy, int dx, int dy){
+        if(Math.max(ax, bx) < Math.min(cx, dx) || Math.max(cx, dx) < Math.min(ax, bx) ||
+                Math.max(ay, by) < Math.min(cy, dy) || Math.max(cy, dy) < Math.min(ay, by)){
+            return false;
+        }
+        long c = orientation(ax, ay, bx, by, cx, cy), d = orientation(ax, ay, bx, by, dx, dy);
+        long a = orientation(cx, cy, dx, dy, ax, ay), b = orientation(cx, cy, dx, dy, bx, by);
+        return Long.signum(c) * Long.signum(d) <= 0 && Long.signum(a) * Long.signum(b) <= 0;
+    }
+
+    /**
+     * Calculates on which side of the line through a and b the point p lies
+     *
+     * @param ax x coordinate of a
+     * @param ay y coordinate of a
+     * @param bx x coordinate of b
+     * @param by y coordinate of b
+     * @param px x coordinate of p
+     * @param py y coordinate of p
+     * @return positive, negative or zero if the point lies on the line
+     */
+    private static long orientation(int ax, int ay, int bx, int by, int px, int py){
+        return ((long) bx - ax) * ((long) py - ay) - ((long) by - ay) * ((long) px - ax);
+    }
+
+    /**
+     * Calculates squared distance between a point and a segment
+     *
+     * @param px x coordinate of the point
+     * @param py y coordinate of the point
+     * @param ax x coordinate of the start of the segment
+     * @param ay y coordinate of the start of the segment
+     * @param bx x coordinate of the end of the segment
+     * @param by y coordinate of the end of the segment
+     * @return squared distance
+     */
+    private static double distanceSquared(int px, int py, int ax, int ay, int bx, int by){
+        double dx = (double) bx - ax, dy = (double) by - ay;
+        double length = dx * dx + dy * dy;
+        double t = length == 0 ? 0 : ((px - (double) ax) * dx + (py - (double) ay) * dy) / length;
+        t = Math.max(0, Math.min(1, t));
+        double ex = ax + t * dx - px, ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * Checks whether the point lies within the polygon by counting crossings of a ray to the right (even-odd rule).
+     * Points on the outline may be reported either way, callers test the edges separately
+     *
+     * @param xs x coordinates of the vertices
+     * @param ys y coordinates of the vertices
+     * @param px x coordinate of the point
+     * @param py y coordinate of the point
+     * @return true if the point lies within the polygon
+     */
+    private static boolean contains(int[] xs, int[] ys, int px, int py){
+        boolean inside = false;
+        for(int i = 0, previous = xs.length - 1; i < xs.length; previous = i++){
+            if((ys[i] > py) == (ys[previous] > py)) continue;
+            double crossing = xs[i] + ((double) xs[previous] - xs[i]) * ((double) py - ys[i]) /
+                    ((double) ys[previous] - ys[i]);
+            if(px < crossing) inside = !inside;
+        }
+        return inside;
+    }
+
+    /**
+     * Checks whether two bounding boxes overlap, touching edges included
+     *
+     * @param first BoundingBox object
+     * @param second BoundingBox object
+     * @return true if the boxes overlap
+     */
+    private static boolean boxesIntersect(BoundingBox first, BoundingBox second){
+        if(first == null || second == null) return false;
+        return first.getX() <= second.getX() + second.getWidth() && second.getX() <= first.getX() + first.getWidth() &&
+                first.getY() <= second.getY() + second.getHeight() &&
+                second.getY() <= first.getY() + first.getHeight();
+    }
+}
@@ -0,0 +1,817 @@
+package collision;
+
+import bounding.BoundingBox;
+import shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * <h1>SweepAndPrune</h1>
+ * <p>Broad phase of the collision detection. Splits the plane into horizontal bands of equal height, every band<br>
+ * keeps the bounding boxes of the shapes crossing it in primitive arrays sorted by their left edge. Every pair of<br>
+ * overlapping boxes is found by a single sweep per band: a box is only compared with the boxes of the band which<br>
+ * left edge lies before its right edge. Bands keep the sweep short when many shapes share the same x range.<br>
+ * The order is kept between sweeps. A moved shape is shifted back into place when it is updated, which takes a few<br>
+ * steps when shapes move a little between frames. Added shapes are sorted in by the next insertion sort, many added<br>
+ * shapes at once are sorted from scratch instead. Removed shapes are dropped during the next sort. Touching edges<br>
+ * count as overlap.<br>
+ * Bands also keep the kind of every shape, so overlapping boxes of rectangles and circles are resolved exactly<br>
+ * from the arrays, only pairs with other shapes are handed to the NarrowPhase.<br>
+ * Colliding pairs are kept between calls of forEachCollision, every shape knows the indexes of its pairs. Only the<br>
+ * shapes added, moved or removed since the last call drop their pairs and are tested again against the shapes of<br>
+ * their bands, so a frame costs the work for the changed shapes plus reporting the pairs. The pairs are found<br>
+ * from scratch the first time and whenever more than 1/MAX_CHANGED_FRACTION of the shapes changed; the bands are<br>
+ * then sorted and swept in parallel on a ForkJoinPool</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see BoundingBox
+ * @see NarrowPhase
+ * @see spatial.UniformGrid
+ */
+public class SweepAndPrune {
+
+    /**Stores default band height*/
+    public static final int DEFAULT_BAND_HEIGHT = 64;
+
+    /**Stores number of shapes added to a band since its last sort above which it is sorted from scratch*/
+    private static final int MAX_INSERTIONS = 64;
+
+    /**Stores inverse of the part of the shapes which may change between two calls of forEachCollision before<br>
+     * the colliding pairs are found from scratch*/
+    private static final int MAX_CHANGED_FRACTION = 8;
+
+    /**Stores number of bands swept by a single task of the pool*/
+    private static final int BANDS_PER_TASK = 16;
+
+    /**Stores band height*/
+    private final int bandHeight;
+
+    /**Stores bands by band index*/
+    private final HashMap<Integer, Band> bands;
+
+    /**Stores index entry of every registered shape*/
+    private final IdentityHashMap<Shape, Entry> entries;
+
+    /**Stores pool sweeping the bands when the colliding pairs are found from scratch*/
+    private final ForkJoinPool pool;
+
+    /**Stores colliding pairs found by the last call of forEachCollision*/
+    private final PairList pairs;
+
+    /**Tracks if the stored pairs are up to date apart from the pairs of the changed shapes*/
+    private boolean pairsValid;
+
+    /**Stores entries by id, null for free ids*/
+    private Entry[] byId;
+
+    /**Stores changed state by entry id*/
+    private boolean[] changed;
+
+    /**Stores entries changed since the last call of forEachCollision, including removed ones*/
+    private Entry[] changedEntries;
+    private int changedCount;
+
+    /**Stores ids of removed entries, which are reused once no stored pair refers to them*/
+    private int[] releasedIds, freeIds;
+    private int releasedCount, freeCount;
+
+    /**Stores id given to the next entry unless a free id is left*/
+    private int nextId;
+
+    /**
+     * Default constructor, uses default band height and the common ForkJoinPool
+     */
+    public SweepAndPrune(){
+        this(DEFAULT_BAND_HEIGHT, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor to initialize the broad phase with given band height
+     *
+     * @param bandHeight band height as whole number(int)
+     * @param pool pool sweeping the bands when the colliding pairs are found from scratch
+     */
+    public SweepAndPrune(int bandHeight, ForkJoinPool pool){
+        if(bandHeight <= 0) throw new IllegalArgumentException("Band height must be positive: " + bandHeight);
+        this.bandHeight = bandHeight;
+        this.pool = pool;
+        bands = new HashMap<>();
+        entries = new IdentityHashMap<>();
+        pairs = new PairList();
+        byId = new Entry[64];
+        changed = new boolean[64];
+        changedEntries = new Entry[64];
+        releasedIds = new int[16];
+        freeIds = new int[16];
+    }
+
+    /**
+     * Registers shape with its current BoundingBox.
+     * Shapes without BoundingBox or already registered are ignored
+     *
+     * @param shape shape object
+     */
+    public void insert(Shape shape){
+        BoundingBox box = shape.getBoundingBox();
+        if(box == null || entries.containsKey(shape)) return;
+        Entry entry = new Entry(shape, NarrowPhase.kindOf(shape), freeCount > 0 ? freeIds[--freeCount] : nextId++);
+        if(entry.id == changed.length){
+            changed = Arrays.copyOf(changed, entry.id * 2);
+            byId = Arrays.copyOf(byId, entry.id * 2);
+        }
+        byId[entry.id] = entry;
+        entries.put(shape, entry);
+        assignBands(entry, box);
+        markChanged(entry);
+    }
+
+    /**
+     * Copies current BoundingBox of registered shape. Has to be called whenever the box is replaced or updated
+     *
+     * @param shape shape object
+     */
+    public void update(Shape shape){
+        Entry entry = entries.get(shape);
+        BoundingBox box = shape.getBoundingBox();
+        if(entry == null || box == null) return;
+        markChanged(entry);
+        if(entry.minBand != band(box.getY()) || entry.maxBand != band(box.getY() + box.getHeight())){
+            releaseBands(entry);
+            assignBands(entry, box);
+            return;
+        }
+        for(int i = 0; i < entry.bands.length; i++){
+            entry.bands[i].update(entry.positions[i], box);
+        }
+    }
+
+    /**
+     * Removes shape. The positions of the shape are released during the next sort
+     *
+     * @param shape shape object
+     */
+    public void remove(Shape shape){
+        Entry entry = entries.remove(shape);
+        if(entry == null) return;
+        releaseBands(entry);
+        entry.bands = null;
+        markChanged(entry);
+        if(releasedCount == releasedIds.length) releasedIds = Arrays.copyOf(releasedIds, releasedCount * 2);
+        releasedIds[releasedCount++] = entry.id;
+    }
+
+    /**
+     * Removes every shape
+     */
+    public void clear(){
+        bands.clear();
+        entries.clear();
+        pairs.clear();
+        pairsValid = false;
+        Arrays.fill(byId, null);
+        Arrays.fill(changed, false);
+        Arrays.fill(changedEntries, 0, changedCount, null);
+        changedCount = releasedCount = freeCount = nextId = 0;
+    }
+
+    /**
+     * Checks whether the shape is registered
+     *
+     * @param shape shape object
+     * @return true if registered
+     */
+    public boolean contains(Shape shape){
+        return entries.containsKey(shape);
+    }
+
+    /**
+     * Getter method to retrieve number of registered shapes
+     *
+     * @return number of shapes(int)
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * Reports every pair of shapes which bounding boxes overlap. Every pair is reported once, by the band in which<br>
+     * the overlap of the boxes starts
+     *
+     * @param consumer receives the pairs
+     */
+    public void forEachOverlap(BiConsumer<Shape, Shape> consumer){
+        for(Band band : bands.values()){
+            band.sort();
+            band.sweep(consumer);
+        }
+    }
+
+    /**
+     * Reports every pair of shapes which areas overlap, testing the pairs of overlapping boxes exactly.
+     * Every pair is reported once. Only the pairs of shapes changed since the last call are found again
+     *
+     * @param consumer receives the pairs
+     */
+    public void forEachCollision(BiConsumer<Shape, Shape> consumer){
+        if(!pairsValid){
+            findAllPairs();
+        } else if(changedCount > 0){
+            findChangedPairs();
+        }
+        pairs.forEach(consumer);
+    }
+
+    /**
+     * Reports every shape which bounding box overlaps given area. In every band crossed by the area, only the<br>
+     * shapes which left edge lies within the width of the widest box of the band from the area are compared
+     *
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width width of the area
+     * @param height height of the area
+     * @param consumer receives the shapes
+     */
+    public void query(int x, int y, int width, int height, Consumer<Shape> consumer){
+        for(int index = band(y), last = band(y + height); index <= last; index++){
+            Band band = bands.get(index);
+            if(band == null) continue;
+            band.sort();
+            band.query(x, y, width, height, consumer);
+        }
+    }
+
+    /**
+     * Finds every colliding pair from scratch, sorting and sweeping groups of bands in parallel
+     */
+    private void findAllPairs(){
+        Band[] all = bands.values().toArray(new Band[0]);
+        pairs.clear();
+        if(pool.getParallelism() == 1 || all.length <= BANDS_PER_TASK){
+            for(Band band : all){
+                band.sort();
+                band.collect(pairs);
+            }
+        } else {
+            List<Callable<PairList>> tasks = new ArrayList<>();
+            for(int first = 0; first < all.length; first += BANDS_PER_TASK){
+                int start = first, end = Math.min(first + BANDS_PER_TASK, all.length);
+                tasks.add(() -> {
+                    PairList found = new PairList();
+                    for(int i = start; i < end; i++){
+                        all[i].sort();
+                        all[i].collect(found);
+                    }
+                    return found;
+                });
+            }
+            for(Future<PairList> future : pool.invokeAll(tasks)){
+                pairs.addAll(await(future));
+            }
+        }
+        for(int id = 0; id < nextId; id++){
+            if(byId[id] != null) byId[id].pairCount = 0;
+        }
+        for(int pair = 0; pair < pairs.size; pair++){
+            byId[pairs.ids[pair * 2]].link(pair);
+            byId[pairs.ids[pair * 2 + 1]].link(pair);
+        }
+        clearChanges();
+        pairsValid = true;
+    }
+
+    /**
+     * Drops the stored pairs of the changed shapes and finds the pairs of the changed shapes which are still<br>
+     * registered. A pair of two changed shapes is found by the shape with the lower id only
+     */
+    private void findChangedPairs(){
+        for(int c = 0; c < changedCount; c++){
+            Entry entry = changedEntries[c];
+            while(entry.pairCount > 0){
+                removePair(entry.pairs[entry.pairCount - 1]);
+            }
+        }
+        int found = pairs.size;
+        for(int c = 0; c < changedCount; c++){
+            Entry entry = changedEntries[c];
+            if(entry.bands == null) continue;
+            for(int i = 0; i < entry.bands.length; i++){
+                Band band = entry.bands[i];
+                band.sort();
+                band.collide(entry.positions[i], changed, pairs);
+            }
+        }
+        for(int pair = found; pair < pairs.size; pair++){
+            byId[pairs.ids[pair * 2]].link(pair);
+            byId[pairs.ids[pair * 2 + 1]].link(pair);
+        }
+        clearChanges();
+    }
+
+    /**
+     * Removes stored pair by moving the last pair into its place
+     *
+     * @param pair index of the pair
+     */
+    private void removePair(int pair){
+        byId[pairs.ids[pair * 2]].unlink(pair);
+        byId[pairs.ids[pair * 2 + 1]].unlink(pair);
+        int last = pairs.size - 1;
+        if(pair != last){
+            byId[pairs.ids[last * 2]].relink(last, pair);
+            byId[pairs.ids[last * 2 + 1]].relink(last, pair);
+        }
+        pairs.removeSwap(pair);
+    }
+
+    /**
+     * Marks the entry as changed since the last call of forEachCollision. Once too many entries changed, the<br>
+     * colliding pairs are found from scratch instead
+     *
+     * @param entry index entry of the shape
+     */
+    private void markChanged(Entry entry){
+        if(!pairsValid || changed[entry.id]) return;
+        if(changedCount >= entries.size() / MAX_CHANGED_FRACTION + 1){
+            pairsValid = false;
+            clearChanges();
+            return;
+        }
+        changed[entry.id] = true;
+        if(changedCount == changedEntries.length) changedEntries = Arrays.copyOf(changedEntries, changedCount * 2);
+        changedEntries[changedCount++] = entry;
+    }
+
+    /**
+     * Forgets the changed entries and frees the ids of the removed ones, which no stored pair refers to anymore
+     */
+    private void clearChanges(){
+        for(int c = 0; c < changedCount; c++){
+            changed[changedEntries[c].id] = false;
+            changedEntries[c] = null;
+        }
+        changedCount = 0;
+        for(int r = 0; r < releasedCount; r++){
+            byId[releasedIds[r]] = null;
+        }
+        if(freeCount + releasedCount > freeIds.length){
+            freeIds = Arrays.copyOf(freeIds, Math.max(freeIds.length * 2, freeCount + releasedCount));
+        }
+        System.arraycopy(releasedIds, 0, freeIds, freeCount, releasedCount);
+        freeCount += releasedCount;
+        releasedCount = 0;
+    }
+
+    /**
+     * Waits for pairs found by a task of the pool
+     *
+     * @param future result of the task
+     * @return pairs found by the task
+     */
+    private static PairList await(Future<PairList> future){
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sweeping bands", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to sweep band", e.getCause());
+        }
+    }
+
+    /**
+     * Registers entry in every band crossed by given box
+     *
+     * @param entry index entry of the shape
+     * @param box current BoundingBox of the shape
+     */
+    private void assignBands(Entry entry, BoundingBox box){
+        entry.minBand = band(box.getY());
+        entry.maxBand = band(box.getY() + box.getHeight());
+        int length = entry.maxBand - entry.minBand + 1;
+        entry.bands = new Band[length];
+        entry.positions = new int[length];
+        for(int i = 0; i < length; i++){
+            int index = entry.minBand + i;
+            Band band = bands.computeIfAbsent(index, key -> new Band(key, (long) key * bandHeight));
+            entry.bands[i] = band;
+            entry.positions[i] = band.insert(entry, box);
+        }
+    }
+
+    /**
+     * Removes entry from every band it is currently registered in
+     *
+     * @param entry index entry of the shape
+     */
+    private void releaseBands(Entry entry){
+        for(int i = 0; i < entry.bands.length; i++){
+            entry.bands[i].remove(entry.positions[i]);
+        }
+    }
+
+    /**
+     * Translates y coordinate to band index
+     *
+     * @param y y coordinate
+     * @return band index(int)
+     */
+    private int band(int y){
+        return Math.floorDiv(y, bandHeight);
+    }
+
+    /**
+     * Index entry of a registered shape. Stores the bands the shape is registered in and its position in each
+     */
+    private static final class Entry {
+
+        /**Stores registered shape*/
+        private final Shape shape;
+
+        /**Stores kind of the shape used by the exact tests*/
+        private final byte kind;
+
+        /**Stores id of the entry, reused after the entry has been removed*/
+        private final int id;
+
+        /**Stores range of bands the shape is registered in*/
+        private int minBand, maxBand;
+
+        /**Stores bands the shape is registered in, from top to bottom, null once the shape is removed*/
+        private Band[] bands;
+
+        /**Stores position of the shape in each band*/
+        private int[] positions;
+
+        /**Stores indexes of the stored colliding pairs of the shape*/
+        private int[] pairs;
+        private int pairCount;
+
+        private Entry(Shape shape, byte kind, int id){
+            this.shape = shape;
+            this.kind = kind;
+            this.id = id;
+        }
+
+        private void link(int pair){
+            if(pairs == null){
+                pairs = new int[4];
+            } else if(pairCount == pairs.length){
+                pairs = Arrays.copyOf(pairs, pairCount * 2);
+            }
+            pairs[pairCount++] = pair;
+        }
+
+        private void unlink(int pair){
+            for(int i = 0; i < pairCount; i++){
+                if(pairs[i] != pair) continue;
+                pairs[i] = pairs[--pairCount];
+                return;
+            }
+        }
+
+        private void relink(int from, int to){
+            for(int i = 0; i < pairCount; i++){
+                if(pairs[i] == from){
+                    pairs[i] = to;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Band of the plane. Keeps box edges of the crossing shapes sorted by the left edge
+     */
+    private static final class Band {
+
+        /**Stores band index*/
+        private final int index;
+
+        /**Stores y coordinate of the top edge of the band*/
+        private final long top;
+
+        /**Stores box edges sorted by the left edge*/
+        private int[] minX = new int[8], maxX = new int[8], minY = new int[8], maxY = new int[8];
+
+        /**Stores entries in the same order as the box edges, null for removed shapes*/
+        private Entry[] order = new Entry[8];
+
+        /**Stores shapes, their kinds and entry ids, read by the sweep without loading the entries*/
+        private Shape[] shapes = new Shape[8];
+        private byte[] kinds = new byte[8];
+        private int[] ids = new int[8];
+
+        /**Stores number of used positions, including removed entries*/
+        private int count;
+
+        /**Stores number of shapes added and removed since the last sort*/
+        private int insertions, removals;
+
+        /**Tracks if the box edges are out of order*/
+        private boolean unsorted;
+
+        /**Stores widest box, measured during the last sort and grown by updates*/
+        private int maxWidth;
+
+        private Band(int index, long top){
+            this.index = index;
+            this.top = top;
+        }
+
+        private int insert(Entry entry, BoundingBox box){
+            if(count == order.length) grow();
+            int position = count++;
+            order[position] = entry;
+            shapes[position] = entry.shape;
+            kinds[position] = entry.kind;
+            ids[position] = entry.id;
+            store(position, box);
+            insertions++;
+            unsorted = true;
+            return position;
+        }
+
+        /**
+         * Stores the moved box, shifting it back into place unless the band is waiting for a sort anyway
+         */
+        private void update(int position, BoundingBox box){
+            store(position, box);
+            if(unsorted) return;
+            int key = minX[position], right = maxX[position], upper = minY[position], lower = maxY[position];
+            if(!(position > 0 && minX[position - 1] > key || position < count - 1 && minX[position + 1] < key)) return;
+            Entry entry = order[position];
+            int target = position;
+            while(target > 0 && minX[target - 1] > key){
+                move(target - 1, target);
+                target--;
+            }
+            while(target < count - 1 && minX[target + 1] < key){
+                move(target + 1, target);
+                target++;
+            }
+            minX[target] = key;
+            maxX[target] = right;
+            minY[target] = upper;
+            maxY[target] = lower;
+            place(entry, target);
+        }
+
+        private void remove(int position){
+            order[position] = null;
+            shapes[position] = null;
+            removals++;
+            unsorted = true;
+        }
+
+        private void store(int position, BoundingBox box){
+            minX[position] = box.getX();
+            maxX[position] = box.getX() + box.getWidth();
+            minY[position] = box.getY();
+            maxY[position] = box.getY() + box.getHeight();
+            maxWidth = Math.max(maxWidth, box.getWidth());
+        }
+
+        /**
+         * Reports pairs of overlapping boxes which overlap starts in this band, the ones starting above were<br>
+         * reported by the band in which they start
+         */
+        private void sweep(BiConsumer<Shape, Shape> consumer){
+            for(int i = 0; i < count; i++){
+                int right = maxX[i], upper = minY[i], lower = maxY[i];
+                for(int j = i + 1; j < count && minX[j] <= right; j++){
+                    if(minY[j] > lower || maxY[j] < upper || Math.max(upper, minY[j]) < top) continue;
+                    consumer.accept(shapes[i], shapes[j]);
+                }
+            }
+        }
+
+        /**
+         * Adds colliding pairs which overlap starts in this band
+         */
+        private void collect(PairList out){
+            for(int i = 0; i < count; i++){
+                int right = maxX[i], upper = minY[i], lower = maxY[i];
+                for(int j = i + 1; j < count && minX[j] <= right; j++){
+                    if(minY[j] > lower || maxY[j] < upper || Math.max(upper, minY[j]) < top) continue;
+                    if(collides(i, j)) out.add(ids[i], shapes[i], ids[j], shapes[j]);
+                }
+            }
+        }
+
+        /**
+         * Adds colliding pairs of the shape at given position which overlap starts in this band. Pairs with<br>
+         * changed shapes of lower id are skipped, as those shapes add them
+         */
+        private void collide(int position, boolean[] changed, PairList out){
+            int left = minX[position], right = maxX[position], upper = minY[position], lower = maxY[position];
+            int id = ids[position];
+            for(int j = firstStartingAt((long) left - maxWidth); j < count && minX[j] <= right; j++){
+                if(j == position || maxX[j] < left || minY[j] > lower || maxY[j] < upper ||
+                        Math.max(upper, minY[j]) < top || changed[ids[j]] && ids[j] < id){
+                    continue;
+                }
+                if(collides(position, j)) out.add(id, shapes[position], ids[j], shapes[j]);
+            }
+        }
+
+        /**
+         * Tests the areas of two shapes of the band with overlapping boxes exactly
+         */
+        private boolean collides(int i, int j){
+            if(kinds[i] == NarrowPhase.OTHER || kinds[j] == NarrowPhase.OTHER){
+                return NarrowPhase.intersects(shapes[i], shapes[j]);
+            }
+            return NarrowPhase.intersects(kinds[i], minX[i], minY[i], maxX[i], maxY[i],
+                    kinds[j], minX[j], minY[j], maxX[j], maxY[j]);
+        }
+
+        private void query(int x, int y, int width, int height, Consumer<Shape> consumer){
+            long right = (long) x + width, bottom = (long) y + height;
+            for(int i = firstStartingAt((long) x - maxWidth); i < count && minX[i] <= right; i++){
+                if(maxX[i] < x || minY[i] > bottom || maxY[i] < y || Math.max(y, minY[i]) < top) continue;
+                consumer.accept(shapes[i]);
+            }
+        }
+
+        private int firstStartingAt(long x){
+            int low = 0, high = count;
+            while(low < high){
+                int middle = (low + high) >>> 1;
+                if(minX[middle] < x){
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Brings the box edges back into order. Releases positions of removed shapes first, then either sorts from<br>
+         * scratch or moves each out of order box back into place
+         */
+        private void sort(){
+            if(!unsorted) return;
+            if(removals > 0) compact();
+            if(insertions > MAX_INSERTIONS){
+                sortFromScratch();
+            } else {
+                insertionSort();
+            }
+            int widest = 0;
+            for(int i = 0; i < count; i++){
+                widest = Math.max(widest, maxX[i] - minX[i]);
+            }
+            maxWidth = widest;
+            insertions = removals = 0;
+            unsorted = false;
+        }
+
+        private void insertionSort(){
+            for(int i = 1; i < count; i++){
+                int key = minX[i];
+                if(minX[i - 1] <= key) continue;
+                int right = maxX[i], upper = minY[i], lower = maxY[i];
+                Entry entry = order[i];
+                int j = i - 1;
+                while(j >= 0 && minX[j] > key){
+                    move(j, j + 1);
+                    j--;
+                }
+                minX[j + 1] = key;
+                maxX[j + 1] = right;
+                minY[j + 1] = upper;
+                maxY[j + 1] = lower;
+                place(entry, j + 1);
+            }
+        }
+
+        /**
+         * Sorts every box by packing its left edge and its position into a single key
+         */
+        private void sortFromScratch(){
+            long[] keys = new long[count];
+            for(int i = 0; i < count; i++){
+                keys[i] = ((long) minX[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] oldMaxX = Arrays.copyOf(maxX, count), oldMinY = Arrays.copyOf(minY, count);
+            int[] oldMaxY = Arrays.copyOf(maxY, count);
+            Entry[] oldOrder = Arrays.copyOf(order, count);
+            for(int i = 0; i < count; i++){
+                int from = (int) keys[i];
+                minX[i] = (int) (keys[i] >> 32);
+                maxX[i] = oldMaxX[from];
+                minY[i] = oldMinY[from];
+                maxY[i] = oldMaxY[from];
+                place(oldOrder[from], i);
+            }
+        }
+
+        private void compact(){
+            int target = 0;
+            for(int i = 0; i < count; i++){
+                if(order[i] == null) continue;
+                move(i, target++);
+            }
+            Arrays.fill(order, target, count, null);
+            Arrays.fill(shapes, target, count, null);
+            count = target;
+        }
+
+        private void move(int from, int to){
+            minX[to] = minX[from];
+            maxX[to] = maxX[from];
+            minY[to] = minY[from];
+            maxY[to] = maxY[from];
+            place(order[from], to);
+        }
+
+        private void place(Entry entry, int position){
+            order[position] = entry;
+            shapes[position] = entry.shape;
+            kinds[position] = entry.kind;
+            ids[position] = entry.id;
+            entry.positions[index - entry.minBand] = position;
+        }
+
+        private void grow(){
+            int capacity = order.length * 2;
+            minX = Arrays.copyOf(minX, capacity);
+            maxX = Arrays.copyOf(maxX, capacity);
+            minY = Arrays.copyOf(minY, capacity);
+            maxY = Arrays.copyOf(maxY, capacity);
+            order = Arrays.copyOf(order, capacity);
+            shapes = Arrays.copyOf(shapes, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+    }
+
+    /**
+     * Growable list of colliding pairs, as the entry ids and the shapes of both shapes of every pair
+     */
+    private static final class PairList {
+
+        private int[] ids = new int[64];
+        private Shape[] shapes = new Shape[64];
+        private int size;
+
+        private void add(int firstId, Shape first, int secondId, Shape second){
+            if(size * 2 == ids.length) grow(size + 1);
+            ids[size * 2] = firstId;
+            ids[size * 2 + 1] = secondId;
+            shapes[size * 2] = first;
+            shapes[size * 2 + 1] = second;
+            size++;
+        }
+
+        private void addAll(PairList other){
+            if((size + other.size) * 2 > ids.length) grow(size + other.size);
+            System.arraycopy(other.ids, 0, ids, size * 2, other.size * 2);
+            System.arraycopy(other.shapes, 0, shapes, size * 2, other.size * 2);
+            size += other.size;
+        }
+
+        /**
+         * Removes the pair at given index by moving the last pair into its place
+         */
+        private void removeSwap(int pair){
+            int last = --size;
+            ids[pair * 2] = ids[last * 2];
+            ids[pair * 2 + 1] = ids[last * 2 + 1];
+            shapes[pair * 2] = shapes[last * 2];
+            shapes[pair * 2 + 1] = shapes[last * 2 + 1];
+            shapes[last * 2] = null;
+            shapes[last * 2 + 1] = null;
+        }
+
+        private void forEach(BiConsumer<Shape, Shape> consumer){
+            for(int i = 0; i < size; i++){
+                consumer.accept(shapes[i * 2], shapes[i * 2 + 1]);
+            }
+        }
+
+        private void clear(){
+            Arrays.fill(shapes, 0, size * 2, null);
+            size = 0;
+        }
+
+        private void grow(int minimum){
+            int capacity = Math.max(ids.length * 2, minimum * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            shapes = Arrays.copyOf(shapes, capacity);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package events;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>BlockingWaitStrategy</h1>
+ * <p>Blocks the consumer on a condition until a producer signals it. Uses no CPU while idle.<br>
+ * Producers only take the lock while a consumer is actually blocked, so publishing stays lock-free as long as<br>
+ * the consumers keep up</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see WaitStrategy
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+
+    /**Stores lock guarding the condition*/
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**Stores condition consumers block on*/
+    private final Condition published = lock.newCondition();
+
+    /**Stores number of blocked consumers*/
+    private volatile int waiters;
+
+    /**
+     * Implementation of the interface method
+     */
+    @Override
+    public long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) throws InterruptedException {
+        long available = cursor.getAsLong();
+        if(available >= sequence) return available;
+        lock.lock();
+        waiters++;
+        try {
+            while((available = cursor.getAsLong()) < sequence && !halted.getAsBoolean()){
+                published.await();
+            }
+        } finally {
+            waiters--;
+            lock.unlock();
+        }
+        return available;
+    }
+
+    /**
+     * Implementation of the interface method
+     * Signals the condition if a consumer is blocked on it
+     */
+    @Override
+    public void signalAll() {
+        if(waiters == 0) return;
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package events;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>BusySpinWaitStrategy</h1>
+ * <p>Keeps checking the cursor. Lowest latency, but occupies a core per consumer even when nothing happens</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see WaitStrategy
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    /**
+     * Implementation of the interface method
+     */
+    @Override
+    public long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) {
+        long available;
+        while((available = cursor.getAsLong()) < sequence && !halted.getAsBoolean()){
+            // Spin
+        }
+        return available;
+    }
+
+    /**
+     * Implementation of the interface method
+     * Nothing to wake up
+     */
+    @Override
+    public void signalAll() {
+        // Nothing to wake up
+    }
+}
@@ -0,0 +1,23 @@
+package events;
+
+/**
+ * <h1>ChangeConsumer</h1>
+ * <p>Used to read the changes published to a ChangeEventStream. Every consumer runs on its own thread and reads<br>
+ * every event in publishing order at its own pace. Events which are available at once are handed over as a<br>
+ * batch, so a consumer can defer expensive work (e.g. scheduling a repaint) to the end of the batch</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ChangeEventStream
+ */
+public interface ChangeConsumer {
+
+    /**
+     * Called for every published event
+     *
+     * @param event event, only valid until the method returns
+     * @param sequence sequence number of the event, starting at 0
+     * @param endOfBatch true for the last event available at the moment
+     */
+    void onEvent(ChangeEvent event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,156 @@
+package events;
+
+import shapes.Shape;
+
+/**
+ * <h1>ChangeEvent</h1>
+ * <p>Single slot of a ChangeEventStream. Slots are allocated once and overwritten by producers, so publishing<br>
+ * does not allocate. A consumer may only read the event while it handles it: the slot is reused as soon as<br>
+ * every consumer has moved past it, values which are kept have to be copied.<br>
+ * The area is copied when the event is published, whereas the shape is the live object, which other threads<br>
+ * may keep changing while a consumer reads it</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ChangeEventStream
+ */
+public final class ChangeEvent {
+
+    /**Stores kind of the change*/
+    private ChangeType type;
+
+    /**Stores changed shape, null for shapes of a columnar store and instance batches*/
+    private Shape shape;
+
+    /**Stores area of the shape after the change*/
+    private int x, y, width, height;
+
+    /**Stores area of the shape before the change, same as the area unless the bounds have changed*/
+    private int oldX, oldY, oldWidth, oldHeight;
+
+    /**Stores System.nanoTime of publishing, 0 if the stream does not stamp events*/
+    private long timestamp;
+
+    /**
+     * Overwrites the slot with a new change
+     */
+    void set(ChangeType type, Shape shape, int x, int y, int width, int height,
+             int oldX, int oldY, int oldWidth, int oldHeight, long timestamp){
+        this.type = type;
+        this.shape = shape;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.oldX = oldX;
+        this.oldY = oldY;
+        this.oldWidth = oldWidth;
+        this.oldHeight = oldHeight;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Getter method to retrieve kind of the change
+     *
+     * @return ChangeType value
+     */
+    public ChangeType getType(){
+        return type;
+    }
+
+    /**
+     * Getter method to retrieve changed shape
+     *
+     * @return Shape object, null for shapes of a columnar store and instance batches
+     */
+    public Shape getShape(){
+        return shape;
+    }
+
+    /**
+     * Getter method to retrieve x coordinate of top left corner of the area after the change
+     *
+     * @return x coordinate(int)
+     */
+    public int getX(){
+        return x;
+    }
+
+    /**
+     * Getter method to retrieve y coordinate of top left corner of the area after the change
+     *
+     * @return y coordinate(int)
+     */
+    public int getY(){
+        return y;
+    }
+
+    /**
+     * Getter method to retrieve width of the area after the change
+     *
+     * @return width(int)
+     */
+    public int getWidth(){
+        return width;
+    }
+
+    /**
+     * Getter method to retrieve height of the area after the change
+     *
+     * @return height(int)
+     */
+    public int getHeight(){
+        return height;
+    }
+
+    /**
+     * Getter method to retrieve x coordinate of top left corner of the area before the change
+     *
+     * @return x coordinate(int)
+     */
+    public int getOldX(){
+        return oldX;
+    }
+
+    /**
+     * Getter method to retrieve y coordinate of top left corner of the area before the change
+     *
+     * @return y coordinate(int)
+     */
+    public int getOldY(){
+        return oldY;
+    }
+
+    /**
+     * Getter method to retrieve width of the area before the change
+     *
+     * @return width(int)
+     */
+    public int getOldWidth(){
+        return oldWidth;
+    }
+
+    /**
+     * Getter method to retrieve height of the area before the change
+     *
+     * @return height(int)
+     */
+    public int getOldHeight(){
+        return oldHeight;
+    }
+
+    /**
+     * Getter method to retrieve time the event has been published at
+     *
+     * @return System.nanoTime of publishing, 0 if the stream does not stamp events
+     */
+    public long getTimestamp(){
+        return timestamp;
+    }
+
+    @Override
+    public String toString(){
+        return type + " " + (shape != null ? shape.getLabel() : "area") + " [" + x + ", " + y + ", " + width + ", " +
+                height + "]";
+    }
+}
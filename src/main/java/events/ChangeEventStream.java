@@ -0,0 +1,523 @@
+package events;
+
+import shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>ChangeEventStream</h1>
+ * <p>Bounded lock-free ring buffer of scene changes with any number of producers and consumers.<br>
+ * Producers claim the next slot with a compare-and-set on the cursor, overwrite the preallocated event in place<br>
+ * and mark the slot as published, so publishing neither locks nor allocates. Every consumer runs on its own<br>
+ * thread, reads every event in publishing order at its own pace and is handed all available events as one<br>
+ * batch. Its WaitStrategy decides whether it spins, yields, sleeps or blocks while no events are available.<br>
+ * Backpressure: a slot is only reused once every consumer has moved past it, so producers of a full buffer<br>
+ * wait for the slowest consumer in publish, or give up in tryPublish. Threads which must not wait, such as the<br>
+ * event dispatch thread, should use tryPublish.<br>
+ * Consumers have to be added before the stream is started. A consumer whose thread has ended, because the stream<br>
+ * has been halted or the thread has died, no longer holds producers back, so its events are dropped instead.<br>
+ * publish fails instead of waiting when the buffer fills up while the stream is not running</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ChangeConsumer
+ * @see WaitStrategy
+ */
+public class ChangeEventStream {
+
+    /**Stores default number of slots*/
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**Stores preallocated slots*/
+    private final ChangeEvent[] entries;
+
+    /**Stores mask turning a sequence into a slot index*/
+    private final int mask;
+
+    /**Stores number of bits of the slot index, used to turn a sequence into its lap around the buffer*/
+    private final int indexBits;
+
+    /**Stores lap of the last event published to every slot*/
+    private final AtomicIntegerArray publishedLaps;
+
+    /**Stores highest claimed sequence*/
+    private final Sequence cursor;
+
+    /**Stores sequence of the slowest consumer as of the last check, saves producers from checking every time*/
+    private final Sequence gatingCache;
+
+    /**Tracks if events are stamped with the time of publishing, which costs a System.nanoTime call each*/
+    private final boolean timestamps;
+
+    /**Stores number of times a producer had to wait for the slowest consumer*/
+    private final AtomicLong producerWaits;
+
+    /**Stores number of events tryPublish has given up on*/
+    private final AtomicLong rejected;
+
+    /**Stores consumers, fixed once the stream is started*/
+    private final ArrayList<Subscription> subscriptions;
+
+    /**Stores copy of the consumers read by producers without locking*/
+    private volatile Subscription[] gating;
+
+    /**Stores distinct wait strategies of the consumers, signalled after every publication*/
+    private volatile WaitStrategy[] waitStrategies;
+
+    /**Stores running state of the stream*/
+    private volatile boolean started, halted;
+
+    /**
+     * Default constructor, uses default buffer size without timestamps
+     */
+    public ChangeEventStream(){
+        this(DEFAULT_BUFFER_SIZE, false);
+    }
+
+    /**
+     * Constructor to initialize the stream with given number of slots
+     *
+     * @param bufferSize number of slots, a power of two
+     * @param timestamps true to stamp events with the time of publishing, e.g. to measure consumer latency
+     */
+    public ChangeEventStream(int bufferSize, boolean timestamps){
+        if(bufferSize <= 0 || Integer.bitCount(bufferSize) != 1){
+            throw new IllegalArgumentException("Buffer size must be a power of two: " + bufferSize);
+        }
+        entries = new ChangeEvent[bufferSize];
+        for(int i = 0; i < bufferSize; i++){
+            entries[i] = new ChangeEvent();
+        }
+        this.timestamps = timestamps;
+        mask = bufferSize - 1;
+        indexBits = Integer.numberOfTrailingZeros(bufferSize);
+        publishedLaps = new AtomicIntegerArray(bufferSize);
+        for(int i = 0; i < bufferSize; i++){
+            publishedLaps.set(i, -1);
+        }
+        cursor = new Sequence(-1);
+        gatingCache = new Sequence(-1);
+        producerWaits = new AtomicLong();
+        rejected = new AtomicLong();
+        subscriptions = new ArrayList<>();
+        gating = new Subscription[0];
+        waitStrategies = new WaitStrategy[0];
+    }
+
+    /**
+     * Adds consumer which reads every event published after the stream is started
+     *
+     * @param name name of the consumer, used to name its thread
+     * @param consumer ChangeConsumer object
+     * @param waitStrategy decides how the consumer waits for new events
+     * @return Subscription object used to monitor the consumer
+     * @throws IllegalStateException if the stream has been started
+     */
+    public synchronized Subscription addConsumer(String name, ChangeConsumer consumer, WaitStrategy waitStrategy){
+        if(started) throw new IllegalStateException("Consumers have to be added before the stream is started");
+        Subscription subscription = new Subscription(name, consumer, waitStrategy, cursor.get());
+        subscriptions.add(subscription);
+        ArrayList<WaitStrategy> distinct = new ArrayList<>();
+        for(Subscription other : subscriptions){
+            boolean known = false;
+            for(WaitStrategy strategy : distinct){
+                known |= strategy == other.waitStrategy;
+            }
+            if(!known) distinct.add(other.waitStrategy);
+        }
+        gating = subscriptions.toArray(new Subscription[0]);
+        waitStrategies = distinct.toArray(new WaitStrategy[0]);
+        return subscription;
+    }
+
+    /**
+     * Starts a daemon thread per consumer
+     *
+     * @throws IllegalStateException if the stream has been started
+     */
+    public synchronized void start(){
+        if(started) throw new IllegalStateException("Stream has been started");
+        started = true;
+        for(Subscription subscription : subscriptions){
+            subscription.thread = new Thread(() -> consume(subscription), "change-consumer-" + subscription.name);
+            subscription.thread.setDaemon(true);
+            subscription.thread.start();
+        }
+    }
+
+    /**
+     * Stops the consumers after their current batch and waits for their threads to end.
+     * Events which have not been read yet are dropped, call flush first to read them
+     */
+    public synchronized void halt(){
+        halted = true;
+        for(WaitStrategy strategy : waitStrategies){
+            strategy.signalAll();
+        }
+        for(Subscription subscription : subscriptions){
+            if(subscription.thread == null){
+                subscription.running = false;
+                continue;
+            }
+            try {
+                subscription.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until every consumer has read every event published before the call
+     *
+     * @throws IllegalStateException if the stream is not running
+     */
+    public void flush(){
+        if(!started || halted) throw new IllegalStateException("Stream is not running");
+        long target = cursor.get();
+        while(minimumSequence(target) < target){
+            if(halted) throw new IllegalStateException("Stream has been halted");
+            LockSupport.parkNanos(1_000);
+        }
+    }
+
+    /**
+     * Publishes change of the shape which has not changed its bounds.
+     * Waits while the buffer is full
+     *
+     * @param type kind of the change
+     * @param shape changed shape, null for shapes of a columnar store and instance batches
+     * @param x x coordinate of top left corner of the area of the shape
+     * @param y y coordinate of top left corner of the area of the shape
+     * @param width width of the area of the shape
+     * @param height height of the area of the shape
+     */
+    public void publish(ChangeType type, Shape shape, int x, int y, int width, int height){
+        publish(type, shape, x, y, width, height, x, y, width, height);
+    }
+
+    /**
+     * Publishes change of the shape. Waits while the buffer is full
+     *
+     * @param type kind of the change
+     * @param shape changed shape, null for shapes of a columnar store and instance batches
+     * @param x x coordinate of top left corner of the area of the shape after the change
+     * @param y y coordinate of top left corner of the area of the shape after the change
+     * @param width width of the area of the shape after the change
+     * @param height height of the area of the shape after the change
+     * @param oldX x coordinate of top left corner of the area of the shape before the change
+     * @param oldY y coordinate of top left corner of the area of the shape before the change
+     * @param oldWidth width of the area of the shape before the change
+     * @param oldHeight height of the area of the shape before the change
+     * @throws IllegalStateException if the buffer is full while the stream is not running
+     */
+    public void publish(ChangeType type, Shape shape, int x, int y, int width, int height,
+                        int oldX, int oldY, int oldWidth, int oldHeight){
+        commit(claim(true), type, shape, x, y, width, height, oldX, oldY, oldWidth, oldHeight);
+    }
+
+    /**
+     * Publishes change of the shape which has not changed its bounds, unless the buffer is full
+     *
+     * @param type kind of the change
+     * @param shape changed shape, null for shapes of a columnar store and instance batches
+     * @param x x coordinate of top left corner of the area of the shape
+     * @param y y coordinate of top left corner of the area of the shape
+     * @param width width of the area of the shape
+     * @param height height of the area of the shape
+     * @return true if the event has been published, false if the slowest consumer is a full buffer behind
+     */
+    public boolean tryPublish(ChangeType type, Shape shape, int x, int y, int width, int height){
+        return tryPublish(type, shape, x, y, width, height, x, y, width, height);
+    }
+
+    /**
+     * Publishes change of the shape unless the buffer is full
+     *
+     * @param type kind of the change
+     * @param shape changed shape, null for shapes of a columnar store and instance batches
+     * @param x x coordinate of top left corner of the area of the shape after the change
+     * @param y y coordinate of top left corner of the area of the shape after the change
+     * @param width width of the area of the shape after the change
+     * @param height height of the area of the shape after the change
+     * @param oldX x coordinate of top left corner of the area of the shape before the change
+     * @param oldY y coordinate of top left corner of the area of the shape before the change
+     * @param oldWidth width of the area of the shape before the change
+     * @param oldHeight height of the area of the shape before the change
+     * @return true if the event has been published, false if the slowest consumer is a full buffer behind
+     */
+    public boolean tryPublish(ChangeType type, Shape shape, int x, int y, int width, int height,
+                              int oldX, int oldY, int oldWidth, int oldHeight){
+        long sequence = claim(false);
+        if(sequence < 0){
+            rejected.incrementAndGet();
+            return false;
+        }
+        commit(sequence, type, shape, x, y, width, height, oldX, oldY, oldWidth, oldHeight);
+        return true;
+    }
+
+    /**
+     * Getter method to retrieve number of slots
+     *
+     * @return number of slots(int)
+     */
+    public int getBufferSize(){
+        return entries.length;
+    }
+
+    /**
+     * Getter method to retrieve highest claimed sequence
+     *
+     * @return sequence(long), -1 if nothing has been published
+     */
+    public long getCursor(){
+        return cursor.get();
+    }
+
+    /**
+     * Calculates number of slots producers can claim before they have to wait for the slowest consumer
+     *
+     * @return number of free slots(long)
+     */
+    public long getRemainingCapacity(){
+        long current = cursor.get();
+        return entries.length - (current - minimumSequence(current));
+    }
+
+    /**
+     * Getter method to retrieve number of publications which had to wait for the slowest consumer
+     *
+     * @return number of waits(long)
+     */
+    public long getProducerWaits(){
+        return producerWaits.get();
+    }
+
+    /**
+     * Getter method to retrieve number of events tryPublish has given up on
+     *
+     * @return number of events(long)
+     */
+    public long getRejectedCount(){
+        return rejected.get();
+    }
+
+    /**
+     * Claims the next sequence once the slowest consumer has moved past its slot
+     *
+     * @param wait true to wait while the buffer is full
+     * @return claimed sequence, -1 if the buffer is full and wait is false
+     * @throws IllegalStateException if the buffer is full, wait is true and the stream is not running
+     */
+    private long claim(boolean wait){
+        boolean waited = false;
+        while(true){
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - entries.length;
+            long cachedGating = gatingCache.get();
+            if(wrapPoint > cachedGating || cachedGating > current){
+                long gating = minimumSequence(current);
+                if(wrapPoint > gating){
+                    if(!wait) return -1;
+                    if(!started || halted) throw new IllegalStateException("Stream is not running");
+                    if(!waited) producerWaits.incrementAndGet();
+                    waited = true;
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+                gatingCache.set(gating);
+            }
+            else if(cursor.compareAndSet(current, next)) return next;
+        }
+    }
+
+    /**
+     * Overwrites the slot of the claimed sequence, marks it as published and wakes up blocked consumers
+     */
+    private void commit(long sequence, ChangeType type, Shape shape, int x, int y, int width, int height,
+                        int oldX, int oldY, int oldWidth, int oldHeight){
+        int index = (int) sequence & mask;
+        entries[index].set(type, shape, x, y, width, height, oldX, oldY, oldWidth, oldHeight,
+                timestamps ? System.nanoTime() : 0);
+        publishedLaps.set(index, (int) (sequence >>> indexBits));
+        for(WaitStrategy strategy : waitStrategies){
+            strategy.signalAll();
+        }
+    }
+
+    /**
+     * Finds sequence of the slowest consumer
+     *
+     * @param fallback value returned if there are no consumers
+     * @return sequence(long)
+     */
+    private long minimumSequence(long fallback){
+        long minimum = fallback;
+        for(Subscription subscription : gating){
+            if(subscription.running) minimum = Math.min(minimum, subscription.sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * Finds highest sequence up to which every slot has been published. Producers publish out of order, so a<br>
+     * claimed slot may not be published yet while later ones are
+     *
+     * @param lower first sequence to check
+     * @param upper highest claimed sequence
+     * @return highest published sequence, lower - 1 if the first slot is not published yet
+     */
+    private long highestPublished(long lower, long upper){
+        for(long sequence = lower; sequence <= upper; sequence++){
+            if(publishedLaps.get((int) sequence & mask) != (int) (sequence >>> indexBits)) return sequence - 1;
+        }
+        return upper;
+    }
+
+    /**
+     * Reads events for the consumer until the stream is halted.
+     * Anything thrown by the consumer is recorded and the event is skipped, so one failing event does not<br>
+     * stall the producers. Once the thread ends for any reason the consumer stops holding producers back
+     *
+     * @param subscription consumer with its position in the stream
+     */
+    private void consume(Subscription subscription){
+        LongSupplier claimed = cursor::get;
+        BooleanSupplier stopped = () -> halted;
+        long next = subscription.sequence.get() + 1;
+        try {
+            while(!halted){
+                long available;
+                try {
+                    available = subscription.waitStrategy.waitFor(next, claimed, stopped);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                available = highestPublished(next, available);
+                for(long sequence = next; sequence <= available; sequence++){
+                    try {
+                        subscription.consumer.onEvent(entries[(int) sequence & mask], sequence,
+                                sequence == available);
+                    } catch (Throwable e) {
+                        subscription.failures++;
+                        subscription.lastFailure = e;
+                    }
+                }
+                if(available < next) continue;
+                subscription.sequence.set(available);
+                next = available + 1;
+            }
+        } finally {
+            subscription.running = false;
+        }
+    }
+
+    /**
+     * <h1>Subscription</h1>
+     * <p>Consumer of the stream along with its position, used to monitor how far behind the consumer is</p>
+     */
+    public static final class Subscription {
+
+        /**Stores name of the consumer*/
+        private final String name;
+
+        /**Stores consumer reading the events*/
+        private final ChangeConsumer consumer;
+
+        /**Stores strategy the consumer waits with*/
+        private final WaitStrategy waitStrategy;
+
+        /**Stores sequence of the last event the consumer has read*/
+        private final Sequence sequence;
+
+        /**Stores thread of the consumer, null until the stream is started*/
+        private Thread thread;
+
+        /**Stores number of events the consumer has failed on, written by the consumer thread only*/
+        private volatile long failures;
+
+        /**Stores last exception or error thrown by the consumer, null if it has not failed*/
+        private volatile Throwable lastFailure;
+
+        /**Tracks if the consumer holds producers back, false once its thread has ended*/
+        private volatile boolean running = true;
+
+        private Subscription(String name, ChangeConsumer consumer, WaitStrategy waitStrategy, long sequence){
+            this.name = name;
+            this.consumer = consumer;
+            this.waitStrategy = waitStrategy;
+            this.sequence = new Sequence(sequence);
+        }
+
+        /**
+         * Getter method to retrieve name of the consumer
+         *
+         * @return name(String)
+         */
+        public String getName(){
+            return name;
+        }
+
+        /**
+         * Getter method to retrieve sequence of the last event the consumer has read
+         *
+         * @return sequence(long), -1 if nothing has been read
+         */
+        public long getSequence(){
+            return sequence.get();
+        }
+
+        /**
+         * Getter method to retrieve number of events the consumer has failed on
+         *
+         * @return number of events(long)
+         */
+        public long getFailureCount(){
+            return failures;
+        }
+
+        /**
+         * Getter method to retrieve last exception or error thrown by the consumer
+         *
+         * @return Throwable object or null
+         */
+        public Throwable getLastFailure(){
+            return lastFailure;
+        }
+
+        /**
+         * Checks whether the consumer thread is reading events or waiting to be started
+         *
+         * @return false once the thread has ended
+         */
+        public boolean isRunning(){
+            return running;
+        }
+    }
+
+    /**
+     * Sequence padded to a cache line of its own, so producers updating the cursor and consumers updating<br>
+     * their sequences do not invalidate each other's cache lines
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence extends AtomicLong {
+
+        private static final long serialVersionUID = 1L;
+
+        /**Stores padding following the value*/
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+        private Sequence(long initialValue){
+            super(initialValue);
+        }
+    }
+}
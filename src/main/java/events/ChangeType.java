@@ -0,0 +1,31 @@
+package events;
+
+/**
+ * <h1>ChangeType</h1>
+ * <p>Kinds of scene changes published to a ChangeEventStream, one per ShapeObserver callback plus the shapes<br>
+ * added to and removed from the scene</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ChangeEvent
+ */
+public enum ChangeType {
+
+    /**Shape has been added to the scene*/
+    ADDED,
+
+    /**Shape has been removed from the scene*/
+    REMOVED,
+
+    /**Bounding box of the shape has changed, e.g. the shape has been moved or rotated*/
+    BOUNDS_CHANGED,
+
+    /**Filled state of the shape has been toggled*/
+    FILL_CHANGED,
+
+    /**Shape has been given another palette entry*/
+    COLOR_CHANGED,
+
+    /**Part of the shape has changed, or a shape of a columnar store or an instance batch has changed*/
+    AREA_CHANGED
+}
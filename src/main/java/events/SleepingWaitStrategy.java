@@ -0,0 +1,68 @@
+package events;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>SleepingWaitStrategy</h1>
+ * <p>Spins, then yields, then parks the thread for a short time between checks of the cursor.<br>
+ * Producers never have to wake the consumer up, at the cost of up to one sleep of latency when idle.<br>
+ * Suits background consumers such as persistence and metrics</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see WaitStrategy
+ */
+public class SleepingWaitStrategy implements WaitStrategy {
+
+    /**Stores default time parked between checks in nanoseconds*/
+    public static final long DEFAULT_SLEEP_NANOS = 100_000;
+
+    /**Stores number of checks before yielding and before parking*/
+    private static final int SPIN_TRIES = 100, YIELD_TRIES = 100;
+
+    /**Stores time parked between checks in nanoseconds*/
+    private final long sleepNanos;
+
+    /**
+     * Default constructor, uses default sleep time
+     */
+    public SleepingWaitStrategy(){
+        this(DEFAULT_SLEEP_NANOS);
+    }
+
+    /**
+     * Constructor to initialize the strategy with given sleep time
+     *
+     * @param sleepNanos time parked between checks in nanoseconds
+     */
+    public SleepingWaitStrategy(long sleepNanos){
+        if(sleepNanos <= 0) throw new IllegalArgumentException("Sleep time must be positive: " + sleepNanos);
+        this.sleepNanos = sleepNanos;
+    }
+
+    /**
+     * Implementation of the interface method
+     */
+    @Override
+    public long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) {
+        long available;
+        int tries = 0;
+        while((available = cursor.getAsLong()) < sequence && !halted.getAsBoolean()){
+            tries++;
+            if(tries > SPIN_TRIES + YIELD_TRIES) LockSupport.parkNanos(sleepNanos);
+            else if(tries > SPIN_TRIES) Thread.yield();
+        }
+        return available;
+    }
+
+    /**
+     * Implementation of the interface method
+     * Nothing to wake up, the consumer wakes up by itself
+     */
+    @Override
+    public void signalAll() {
+        // Nothing to wake up
+    }
+}
@@ -0,0 +1,35 @@
+package events;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>WaitStrategy</h1>
+ * <p>Decides how a consumer of a ChangeEventStream waits for new events: spinning gives the lowest latency but<br>
+ * occupies a core, blocking frees the core but producers have to wake the consumer up</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see BusySpinWaitStrategy
+ * @see YieldingWaitStrategy
+ * @see SleepingWaitStrategy
+ * @see BlockingWaitStrategy
+ */
+public interface WaitStrategy {
+
+    /**
+     * Waits until the cursor reaches given sequence or the consumer is halted
+     *
+     * @param sequence sequence the consumer waits for
+     * @param cursor highest claimed sequence of the stream
+     * @param halted true once the consumer has to stop
+     * @return value of the cursor, smaller than the sequence if halted
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) throws InterruptedException;
+
+    /**
+     * Wakes up waiting consumers, called by producers after publishing
+     */
+    void signalAll();
+}
@@ -0,0 +1,41 @@
+package events;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>YieldingWaitStrategy</h1>
+ * <p>Spins for a while, then yields the core to other threads between checks of the cursor.<br>
+ * Low latency without starving other threads when there are more threads than cores</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see WaitStrategy
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    /**Stores number of checks before yielding*/
+    private static final int SPIN_TRIES = 100;
+
+    /**
+     * Implementation of the interface method
+     */
+    @Override
+    public long waitFor(long sequence, LongSupplier cursor, BooleanSupplier halted) {
+        long available;
+        int tries = 0;
+        while((available = cursor.getAsLong()) < sequence && !halted.getAsBoolean()){
+            if(++tries > SPIN_TRIES) Thread.yield();
+        }
+        return available;
+    }
+
+    /**
+     * Implementation of the interface method
+     * Nothing to wake up
+     */
+    @Override
+    public void signalAll() {
+        // Nothing to wake up
+    }
+}
@@ -1,13 +1,18 @@
 package guicomponents;
 
+import manager.ConcurrentShapesManager;
 import manager.ShapesManager;
+import rendering.TiledRenderer;
+import rendering.Viewport;
 import shapes.Shape;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
+import java.awt.event.MouseWheelEvent;
+import java.util.List;
+import java.util.concurrent.Semaphore;
 
 /**
  * <h1>CustomPanel</h1>
@@ -22,11 +27,26 @@ import java.util.ArrayList;
  */
 public class CustomPanel extends JPanel {
 
+    /**Stores maximum number of batches of shapes waiting to be added on the event dispatch thread*/
+    private static final int MAX_PENDING_BATCHES = 4;
+
+    /**Stores zoom multiplier applied per mouse wheel notch*/
+    private static final double ZOOM_STEP = 1.1;
+
     /**Stores ShapesManager instance*/
     private final ShapesManager shapesManager;
 
-    /**Stores available shapes*/
-    private final ArrayList<Shape> shapes;
+    /**Stores view of the world the shapes are placed in*/
+    private final Viewport viewport;
+
+    /**Stores offscreen renderer, null if shapes are drawn directly on canvas*/
+    private TiledRenderer tiledRenderer;
+
+    /**Tracks if shapes are drawn by an active rendering loop instead of the panel*/
+    private volatile boolean activeRendering;
+
+    /**Limits number of batches of shapes waiting to be added*/
+    private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
 
     /**
      * Constructor to initialize new object of a class
@@ -35,41 +55,191 @@ public class CustomPanel extends JPanel {
      */
     public CustomPanel(ShapesManager shapesManager){
         this.shapesManager = shapesManager;
-        shapes = shapesManager.getShapes();
+        viewport = new Viewport();
+        shapesManager.setLabelMetrics(getFontMetrics(getFont()));
+        if(shapesManager instanceof ConcurrentShapesManager){
+            ((ConcurrentShapesManager) shapesManager).setFrameRequester(
+                    () -> SwingUtilities.invokeLater(this::applyQueuedChanges));
+            SwingUtilities.invokeLater(this::applyQueuedChanges);
+        }
         addMouseListener();
     }
 
+    /**
+     * Applies changes queued in a ConcurrentShapesManager and repaints the areas they damaged
+     */
+    private void applyQueuedChanges(){
+        if(activeRendering) return;
+        shapesManager.beginFrame();
+        repaintDirtyRegions();
+    }
+
+    /**
+     * Adds batch of shapes and repaints the areas they cover. Can be called from any thread, used to paint<br>
+     * a scene progressively while it is still being imported. Shapes are added on the event dispatch thread, or<br>
+     * on the next frames of a ConcurrentShapesManager. The caller is blocked while too many batches are waiting,<br>
+     * so a fast producer cannot queue up the whole scene
+     *
+     * @param batch shapes in drawing order
+     */
+    public void addShapesLater(List<Shape> batch){
+        pendingBatches.acquireUninterruptibly();
+        if(shapesManager instanceof ConcurrentShapesManager){
+            for(Shape shape : batch){
+                shapesManager.addShape(shape);
+            }
+            ((ConcurrentShapesManager) shapesManager).runAfterQueuedChanges(pendingBatches::release);
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            try {
+                synchronized(shapesManager){
+                    for(Shape shape : batch){
+                        shapesManager.addShape(shape);
+                    }
+                    if(activeRendering) return;
+                    repaintDirtyRegions();
+                }
+            } finally {
+                pendingBatches.release();
+            }
+        });
+    }
+
+    /**
+     * Repaints screen areas covering the world areas damaged since the last repaint
+     */
+    private void repaintDirtyRegions(){
+        for(Rectangle region : shapesManager.takeDirtyRegions()){
+            Rectangle screen = viewport.toScreen(region);
+            repaint(screen.x - 1, screen.y - 1, screen.width + 2, screen.height + 2);
+        }
+    }
+
     /**
      * Adds new mouse listener to the class, in order to register mouse click events.<br>
-     * Contains logic to identify left and right mouse click events
+     * Contains logic to identify left and right mouse click events. Click positions are mapped to world<br>
+     * coordinates by the viewport. Repaints only the areas damaged by the click.<br>
+     * Holds the lock of the ShapesManager while changing shapes, as an active rendering loop may be drawing them,<br>
+     * unless the manager is a ConcurrentShapesManager, which only queues the changes.<br>
+     * Dragging with any button pans the view, the mouse wheel zooms around the pointer
      */
     private void addMouseListener(){
-        addMouseListener(new MouseAdapter() {
+        MouseAdapter adapter = new MouseAdapter() {
+
+            /**Stores last pointer position of a drag*/
+            private int dragX, dragY;
+
             @Override
             public void mouseClicked(MouseEvent e) {
                 super.mouseClicked(e);
-                for(Shape shape : shapes){
-                    if(shape.getBoundingBox()==null) continue;
-                    if(e.getButton() == MouseEvent.BUTTON1 && shape.getBoundingBox().isWithinBounds(e)){
-                        shape.updateFilled();
-                    } else if(e.getButton() == MouseEvent.BUTTON3 && shape.getBoundingBox().isWithinBounds(e)){
-                        shape.performSpecialAction();
-                    }
+                int x = viewport.toWorldX(e.getX()), y = viewport.toWorldY(e.getY());
+                if(shapesManager instanceof ConcurrentShapesManager){
+                    click(e.getButton(), x, y);
+                    return;
                 }
+                synchronized(shapesManager){
+                    click(e.getButton(), x, y);
+                    if(activeRendering) return;
+                    repaintDirtyRegions();
+                }
+            }
+
+            /**
+             * Toggles filled state on left click or performs special action on right click of the shapes at<br>
+             * given point
+             *
+             * @param button clicked mouse button
+             * @param x x coordinate of the point in the world
+             * @param y y coordinate of the point in the world
+             */
+            private void click(int button, int x, int y){
+                if(button == MouseEvent.BUTTON1){
+                    shapesManager.toggleFilledAt(x, y);
+                } else if(button == MouseEvent.BUTTON3){
+                    shapesManager.performSpecialActionAt(x, y);
+                }
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragY = e.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                viewport.pan(e.getX() - dragX, e.getY() - dragY);
+                dragX = e.getX();
+                dragY = e.getY();
                 repaint();
             }
-        });
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                viewport.zoomAt(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                repaint();
+            }
+        };
+        addMouseListener(adapter);
+        addMouseMotionListener(adapter);
+        addMouseWheelListener(adapter);
+    }
+
+    /**
+     * Getter method to retrieve view of the world the shapes are placed in
+     *
+     * @return Viewport object
+     */
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Setter method for offscreen renderer. When set, shapes are rendered in parallel into an offscreen frame<br>
+     * which is then drawn on canvas
+     *
+     * @param tiledRenderer TiledRenderer object, null to draw shapes directly on canvas
+     */
+    public void setTiledRenderer(TiledRenderer tiledRenderer){
+        this.tiledRenderer = tiledRenderer;
+        repaint();
+    }
+
+    /**
+     * Setter method for activeRendering var. While active rendering is on, the panel does not paint shapes.<br>
+     * When it is turned off, changes queued after the last frame of the rendering loop are applied
+     *
+     * @param state boolean
+     */
+    public void setActiveRendering(boolean state){
+        activeRendering = state;
+        if(state) return;
+        if(shapesManager instanceof ConcurrentShapesManager) SwingUtilities.invokeLater(this::applyQueuedChanges);
+        repaint();
     }
 
     /**
      * Paints available shapes on canvas by calling ShapesManager draw method
+     * or by drawing the frame rendered by the offscreen renderer
      *
      * @param graphics the <code>Graphics</code> object to protect
      */
     protected void paintComponent(Graphics graphics){
+        if(activeRendering) return;
         super.paintComponent(graphics);
-        shapesManager.drawShapes(graphics);
+        if(tiledRenderer != null){
+            graphics.drawImage(tiledRenderer.render(shapesManager, getWidth(), getHeight(),
+                    graphics.getClipBounds(), getFont(), getForeground(), viewport.getTransform()), 0, 0, null);
+            return;
+        }
+        Graphics2D world = (Graphics2D) graphics.create();
+        try {
+            viewport.applyTo(world);
+            shapesManager.drawShapes(world);
+        } finally {
+            world.dispose();
+        }
     }
 
-
 }
@@ -1,5 +1,6 @@
 package guicomponents;
 
+import animation.AnimationScheduler;
 import constant.Constants;
 import manager.ShapesManager;
 
@@ -8,21 +9,84 @@ import java.awt.*;
 
 /**
  * <h1>CustomWindow</h1>
- * <p>Extends JFrame. Is a wrapper class. Maintains own CustomPanel instance</p>
+ * <p>Extends JFrame. Is a wrapper class. Maintains own CustomPanel instance.<br>
+ * Can switch to active rendering, where a RenderLoop draws the shapes continuously through a BufferStrategy</p>
  *
  * @author Levan.Voronin
  * @version 1.0.0
  * @see CustomPanel
+ * @see RenderLoop
  */
 public class CustomWindow extends JFrame {
 
     private final CustomPanel panel;
 
+    /**Stores ShapesManager instance*/
+    private final ShapesManager shapesManager;
+
+    /**Stores active rendering loop, null if shapes are painted by Swing*/
+    private RenderLoop renderLoop;
+
+    /**Stores thread running the active rendering loop*/
+    private Thread renderThread;
+
     public CustomWindow(ShapesManager shapesManager){
+        this.shapesManager = shapesManager;
         panel = new CustomPanel(shapesManager);
 
         add(panel, BorderLayout.CENTER);
 
         setSize(Constants.FRAME_WIDTH, Constants.FRAME_HEIGHT);
     }
+
+    /**
+     * Getter method to retrieve panel the shapes are painted on
+     *
+     * @return CustomPanel object
+     */
+    public CustomPanel getPanel() {
+        return panel;
+    }
+
+    /**
+     * Switches to active rendering. Creates a BufferStrategy and starts a RenderLoop on its own thread.
+     * The window has to be visible
+     *
+     * @param scheduler scheduler driving the animations
+     * @param updatesPerSecond number of fixed time step updates per second
+     * @param targetFps maximum number of frames rendered per second
+     * @return started RenderLoop, used to read the achieved frame rate
+     */
+    public RenderLoop startActiveRendering(AnimationScheduler scheduler, int updatesPerSecond, int targetFps){
+        if(renderLoop != null) return renderLoop;
+        setIgnoreRepaint(true);
+        panel.setIgnoreRepaint(true);
+        panel.setActiveRendering(true);
+        createBufferStrategy(2);
+        renderLoop = new RenderLoop(this, shapesManager, scheduler, updatesPerSecond, targetFps);
+        renderLoop.setViewport(panel.getViewport());
+        renderThread = new Thread(renderLoop, "render-loop");
+        renderThread.setDaemon(true);
+        renderThread.start();
+        return renderLoop;
+    }
+
+    /**
+     * Stops active rendering and returns to painting through Swing. Waits for the last frame of the loop, as a<br>
+     * ConcurrentShapesManager is used by the loop without a lock
+     */
+    public void stopActiveRendering(){
+        if(renderLoop == null) return;
+        renderLoop.stop();
+        renderLoop = null;
+        try {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        renderThread = null;
+        setIgnoreRepaint(false);
+        panel.setIgnoreRepaint(false);
+        panel.setActiveRendering(false);
+    }
 }
@@ -0,0 +1,230 @@
+package guicomponents;
+
+import animation.AnimationScheduler;
+import manager.ConcurrentShapesManager;
+import manager.ShapesManager;
+import rendering.Viewport;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * <h1>RenderLoop</h1>
+ * <p>Active rendering loop. Updates the animations by a fixed time step and renders the shapes through the<br>
+ * BufferStrategy of the window, independently of Swing repaint requests.<br>
+ * When rendering falls behind, a limited number of updates is caught up and the rest of the lag is dropped,<br>
+ * so frames are skipped under load instead of queueing up work. Updates and rendering hold the lock of the<br>
+ * ShapesManager, so shapes can still be changed safely from mouse click events. A ConcurrentShapesManager is not<br>
+ * locked, its changes are queued and applied by the loop itself</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see CustomWindow
+ * @see AnimationScheduler
+ */
+public class RenderLoop implements Runnable {
+
+    /**Stores maximum number of updates caught up before a frame is rendered*/
+    private static final int MAX_UPDATES_PER_FRAME = 5;
+
+    /**Stores number of nanoseconds in one second*/
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**Stores window the frames are rendered to*/
+    private final Window window;
+
+    /**Stores ShapesManager instance*/
+    private final ShapesManager shapesManager;
+
+    /**Tracks if the manager queues its changes for the loop, so it is used without its lock*/
+    private final boolean concurrent;
+
+    /**Stores view the shapes are drawn through, null to draw them in screen coordinates*/
+    private volatile Viewport viewport;
+
+    /**Stores scheduler driving the animations*/
+    private final AnimationScheduler scheduler;
+
+    /**Stores update time step in nanoseconds*/
+    private final long updateStep;
+
+    /**Stores minimum time between two frames in nanoseconds*/
+    private final long frameInterval;
+
+    /**Stores running state of the loop*/
+    private volatile boolean running;
+
+    /**Stores number of frames rendered during the last second*/
+    private volatile double fps;
+
+    /**Stores number of updates dropped because of lag*/
+    private volatile long skippedUpdates;
+
+    /**
+     * Constructor to initialize the loop with given values
+     *
+     * @param window window with a BufferStrategy the frames are rendered to
+     * @param shapesManager manager storing the shapes
+     * @param scheduler scheduler driving the animations
+     * @param updatesPerSecond number of fixed time step updates per second
+     * @param targetFps maximum number of frames rendered per second
+     */
+    public RenderLoop(Window window, ShapesManager shapesManager, AnimationScheduler scheduler,
+                      int updatesPerSecond, int targetFps){
+        if(updatesPerSecond <= 0 || targetFps <= 0) throw new IllegalArgumentException("Rates must be positive");
+        this.window = window;
+        this.shapesManager = shapesManager;
+        concurrent = shapesManager instanceof ConcurrentShapesManager;
+        this.scheduler = scheduler;
+        updateStep = NANOS_PER_SECOND / updatesPerSecond;
+        frameInterval = NANOS_PER_SECOND / targetFps;
+    }
+
+    /**
+     * Implementation of the interface method
+     * Runs the update/render loop until stopped
+     */
+    @Override
+    public void run() {
+        running = true;
+        double stepSeconds = (double) updateStep / NANOS_PER_SECOND;
+        long previous = System.nanoTime();
+        long lag = 0;
+        long fpsWindowStart = previous;
+        int fpsFrames = 0;
+
+        while(running){
+            long frameStart = System.nanoTime();
+            lag += frameStart - previous;
+            previous = frameStart;
+
+            if(concurrent){
+                lag = update(lag, stepSeconds);
+            } else {
+                synchronized(shapesManager){
+                    lag = update(lag, stepSeconds);
+                }
+            }
+            if(lag >= updateStep){
+                skippedUpdates += lag / updateStep;
+                lag %= updateStep;
+            }
+
+            render();
+            fpsFrames++;
+
+            long now = System.nanoTime();
+            if(now - fpsWindowStart >= NANOS_PER_SECOND){
+                fps = fpsFrames * (double) NANOS_PER_SECOND / (now - fpsWindowStart);
+                fpsFrames = 0;
+                fpsWindowStart = now;
+            }
+
+            long sleep = frameInterval - (now - frameStart);
+            if(sleep > 0){
+                try {
+                    Thread.sleep(sleep / 1_000_000L, (int) (sleep % 1_000_000L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies changes queued for the frame and catches up with the lag by a limited number of updates
+     *
+     * @param lag time not yet simulated in nanoseconds
+     * @param stepSeconds update time step in seconds
+     * @return lag left after the updates
+     */
+    private long update(long lag, double stepSeconds){
+        shapesManager.beginFrame();
+        for(int updates = 0; lag >= updateStep && updates < MAX_UPDATES_PER_FRAME; updates++){
+            scheduler.update(stepSeconds);
+            lag -= updateStep;
+        }
+        return lag;
+    }
+
+    /**
+     * Setter method for the view the shapes are drawn through
+     *
+     * @param viewport Viewport object, null to draw the shapes in screen coordinates
+     */
+    public void setViewport(Viewport viewport){
+        this.viewport = viewport;
+    }
+
+    /**
+     * Stops the loop after the current frame
+     */
+    public void stop(){
+        running = false;
+    }
+
+    /**
+     * Getter method to retrieve achieved frame rate
+     *
+     * @return number of frames rendered during the last second
+     */
+    public double getFps(){
+        return fps;
+    }
+
+    /**
+     * Getter method to retrieve number of updates dropped because of lag
+     *
+     * @return number of skipped updates
+     */
+    public long getSkippedUpdates(){
+        return skippedUpdates;
+    }
+
+    /**
+     * Renders a frame through the BufferStrategy of the window. Shapes are drawn inside the window insets,<br>
+     * through the viewport if one is set
+     */
+    private void render(){
+        BufferStrategy strategy = window.getBufferStrategy();
+        if(strategy == null) return;
+        do {
+            do {
+                Graphics graphics = strategy.getDrawGraphics();
+                try {
+                    Insets insets = window.getInsets();
+                    graphics.setColor(window.getBackground());
+                    graphics.fillRect(0, 0, window.getWidth(), window.getHeight());
+                    graphics.translate(insets.left, insets.top);
+                    graphics.clipRect(0, 0, window.getWidth() - insets.left - insets.right,
+                            window.getHeight() - insets.top - insets.bottom);
+                    graphics.setColor(window.getForeground());
+                    Viewport view = viewport;
+                    if(view != null) view.applyTo((Graphics2D) graphics);
+                    if(concurrent){
+                        draw(graphics);
+                    } else {
+                        synchronized(shapesManager){
+                            draw(graphics);
+                        }
+                    }
+                } finally {
+                    graphics.dispose();
+                }
+            } while(strategy.contentsRestored());
+            strategy.show();
+        } while(strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Draws the shapes and resets the damaged areas, which the full frame covers
+     *
+     * @param graphics used for drawing the shapes
+     */
+    private void draw(Graphics graphics){
+        shapesManager.drawShapes(graphics);
+        shapesManager.takeDirtyRegions();
+    }
+}
@@ -13,4 +13,11 @@ public interface Rotatable {
      * Rotates shape on a canvas for 90 degrees
      */
     void rotateNinetyDegrees();
+
+    /**
+     * Rotates shape on a canvas clockwise by given angle around its center
+     *
+     * @param degrees angle in degrees, negative to rotate counterclockwise
+     */
+    void rotate(double degrees);
 }
@@ -0,0 +1,51 @@
+package interfaces;
+
+import shapes.Shape;
+
+/**
+ * <h1>ShapeObserver</h1>
+ * <p>Used to get notified when the state of a shape changes after it has been created.<br>
+ * Registered on a Shape by the owner of the shape (e.g. ShapesManager)</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Shape
+ */
+public interface ShapeObserver {
+
+    /**
+     * Called after the bounding box of the shape has been replaced or updated
+     *
+     * @param shape shape which bounding box has changed
+     * @param oldX x coordinate of top left corner of the previous box
+     * @param oldY y coordinate of top left corner of the previous box
+     * @param oldWidth width of the previous box
+     * @param oldHeight height of the previous box
+     */
+    void boundsChanged(Shape shape, int oldX, int oldY, int oldWidth, int oldHeight);
+
+    /**
+     * Called after the filled state of the shape has been toggled
+     *
+     * @param shape shape which filled state has changed
+     */
+    void fillChanged(Shape shape);
+
+    /**
+     * Called after the shape has been given another palette entry
+     *
+     * @param shape shape which color has changed
+     */
+    void colorChanged(Shape shape);
+
+    /**
+     * Called after part of the shape has changed without changing its bounding box, e.g. a shape inside a group
+     *
+     * @param shape shape which has changed
+     * @param x x coordinate of top left corner of the changed area
+     * @param y y coordinate of top left corner of the changed area
+     * @param width width of the changed area
+     * @param height height of the changed area
+     */
+    void areaChanged(Shape shape, int x, int y, int width, int height);
+}
@@ -0,0 +1,211 @@
+package manager;
+
+import shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * <h1>ConcurrentShapesManager</h1>
+ * <p>ShapesManager which can be used by many producer threads at once.<br>
+ * Adding, removing and changing shapes from any thread only queues the change in a lock-free queue. Queued<br>
+ * changes are applied as one batch per frame by the thread drawing the shapes, in beginFrame, so drawing never<br>
+ * sees a shape list in the middle of a change and neither producers nor the painter wait for a lock.<br>
+ * Threads other than the painter read shapes through a snapshot which is republished after every batch.<br>
+ * A frame requester is notified once per frame when the first change is queued, to schedule the next frame</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ShapesManager
+ */
+public class ConcurrentShapesManager extends ShapesManager {
+
+    /**Stores default maximum number of changes applied per frame*/
+    public static final int DEFAULT_MAX_CHANGES_PER_FRAME = 1_000_000;
+
+    /**Stores queued changes*/
+    private final ConcurrentLinkedQueue<Consumer<ConcurrentShapesManager>> pendingChanges;
+
+    /**Stores number of queued changes, the queue itself has to be walked to be counted*/
+    private final AtomicInteger pendingCount;
+
+    /**Tracks if a frame has been requested since the last batch*/
+    private final AtomicBoolean frameRequested;
+
+    /**Stores maximum number of changes applied per frame*/
+    private final int maxChangesPerFrame;
+
+    /**Stores shapes as of the last applied batch*/
+    private volatile Shape[] snapshot;
+
+    /**Stores callback used to request a new frame, may be null*/
+    private volatile Runnable frameRequester;
+
+    /**
+     * Default constructor
+     */
+    public ConcurrentShapesManager(){
+        this(DEFAULT_MAX_CHANGES_PER_FRAME);
+    }
+
+    /**
+     * Constructor to initialize the manager with given batch limit
+     *
+     * @param maxChangesPerFrame maximum number of changes applied per frame, the rest waits for the next frame
+     */
+    public ConcurrentShapesManager(int maxChangesPerFrame){
+        if(maxChangesPerFrame <= 0) throw new IllegalArgumentException("Limit must be positive: " + maxChangesPerFrame);
+        this.maxChangesPerFrame = maxChangesPerFrame;
+        pendingChanges = new ConcurrentLinkedQueue<>();
+        pendingCount = new AtomicInteger();
+        frameRequested = new AtomicBoolean();
+        snapshot = new Shape[0];
+    }
+
+    /**
+     * Queues new shape to be added on the next frame. Can be called from any thread
+     *
+     * @param shape new shape object
+     */
+    @Override
+    public void addShape(Shape shape){
+        enqueue(manager -> manager.applyAdd(shape));
+    }
+
+    /**
+     * Queues shape to be removed on the next frame. Can be called from any thread
+     *
+     * @param shape shape object
+     * @return always true, the removal is applied later
+     */
+    @Override
+    public boolean removeShape(Shape shape){
+        enqueue(manager -> manager.applyRemove(shape));
+        return true;
+    }
+
+    /**
+     * Queues change of the shape to be applied on the next frame. Can be called from any thread
+     *
+     * @param shape shape object
+     * @param change change applied to the shape, e.g. Shape::updateFilled
+     */
+    public void mutate(Shape shape, Consumer<Shape> change){
+        enqueue(manager -> change.accept(shape));
+    }
+
+    /**
+     * Queues action run on the frame which applies every change queued before it. Can be called from any thread,<br>
+     * used to learn when a batch of changes has been applied
+     *
+     * @param action action run by the thread drawing the shapes
+     */
+    public void runAfterQueuedChanges(Runnable action){
+        enqueue(manager -> action.run());
+    }
+
+    /**
+     * Queues filled state toggle of the shapes at given point. Can be called from any thread
+     */
+    @Override
+    public void toggleFilledAt(int x, int y){
+        enqueue(manager -> manager.applyToggleFilledAt(x, y));
+    }
+
+    /**
+     * Queues special action of the shapes at given point. Can be called from any thread
+     */
+    @Override
+    public void performSpecialActionAt(int x, int y){
+        enqueue(manager -> manager.applyPerformSpecialActionAt(x, y));
+    }
+
+    /**
+     * Applies queued changes as one batch and republishes the snapshot.
+     * Has to be called once per frame by the thread which draws the shapes
+     */
+    @Override
+    public void beginFrame(){
+        frameRequested.set(false);
+        boolean structureChanged = false;
+        int applied = 0;
+        for(Consumer<ConcurrentShapesManager> change = pendingChanges.poll(); change != null; change = pendingChanges.poll()){
+            pendingCount.decrementAndGet();
+            int size = super.getShapes().size();
+            change.accept(this);
+            structureChanged |= size != super.getShapes().size();
+            if(++applied >= maxChangesPerFrame) break;
+        }
+        if(structureChanged) snapshot = super.getShapes().toArray(new Shape[0]);
+        if(!pendingChanges.isEmpty()) requestFrame();
+    }
+
+    /**
+     * Retrieves copy of the shapes as of the last applied batch. Can be called from any thread
+     *
+     * @return available shapes
+     */
+    @Override
+    public ArrayList<Shape> getShapes(){
+        return new ArrayList<>(Arrays.asList(snapshot));
+    }
+
+    /**
+     * Retrieves number of changes waiting for the next frame
+     *
+     * @return number of queued changes
+     */
+    public int getPendingCount(){
+        return pendingCount.get();
+    }
+
+    /**
+     * Setter method for frame requester. Called once per frame, from the producer thread, when the first change<br>
+     * is queued
+     *
+     * @param frameRequester callback scheduling the next frame, null to disable
+     */
+    public void setFrameRequester(Runnable frameRequester){
+        this.frameRequester = frameRequester;
+    }
+
+    private void applyAdd(Shape shape){
+        super.addShape(shape);
+    }
+
+    private void applyRemove(Shape shape){
+        super.removeShape(shape);
+    }
+
+    private void applyToggleFilledAt(int x, int y){
+        super.toggleFilledAt(x, y);
+    }
+
+    private void applyPerformSpecialActionAt(int x, int y){
+        super.performSpecialActionAt(x, y);
+    }
+
+    /**
+     * Queues change and requests a frame if none has been requested yet
+     *
+     * @param change queued change
+     */
+    private void enqueue(Consumer<ConcurrentShapesManager> change){
+        pendingCount.incrementAndGet();
+        pendingChanges.add(change);
+        requestFrame();
+    }
+
+    /**
+     * Notifies the frame requester once per frame
+     */
+    private void requestFrame(){
+        Runnable requester = frameRequester;
+        if(requester != null && frameRequested.compareAndSet(false, true)) requester.run();
+    }
+}
@@ -1,42 +1,388 @@
 package manager;
 
+import bounding.BoundingBox;
+import collision.CollisionEngine;
+import events.ChangeEventStream;
+import events.ChangeType;
+import interfaces.ShapeObserver;
+import persistence.MutationJournal;
+import rendering.BatchRenderer;
+import rendering.DensityRaster;
+import rendering.DirtyRegionTracker;
+import rendering.LabelCache;
+import rendering.LayerCache;
+import rendering.LevelOfDetail;
+import rendering.OcclusionCuller;
+import rendering.SpriteCache;
+import shapes.ColorPalette;
 import shapes.Shape;
+import shapes.ShapeGroup;
+import spatial.UniformGrid;
+import store.InstanceBatch;
+import store.ShapeStore;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * <h1>ShapesManager</h1>
+ * <p>Stores available shapes and draws them. Maintains a spatial index of the shapes keyed on their bounding boxes<br>
+ * which is used to find the shapes under a given point. Observes added shapes to keep the index up to date<br>
+ * when a bounding box changes and to collect the areas of the canvas which need to be repainted.<br>
+ * Alternatively can be backed by a columnar ShapeStore, in which case added shapes are encoded into primitive<br>
+ * arrays and the shape objects are not retained.<br>
+ * Shapes repeating the same geometry can be added as InstanceBatches, which are drawn below the other shapes.<br>
+ * Every change can be published to a ChangeEventStream for consumers on other threads and written to a<br>
+ * MutationJournal for recovery and undo</p>
+ *
+ * @see UniformGrid
+ * @see DirtyRegionTracker
+ * @see ShapeStore
+ * @see InstanceBatch
+ * @see ChangeEventStream
+ * @see MutationJournal
  */
-public class ShapesManager {
+public class ShapesManager implements ShapeObserver {
 
     /**Stores available shapes*/
     ArrayList<Shape> shapes;
 
+    /**Stores spatial index of available shapes*/
+    private final UniformGrid spatialIndex;
+
+    /**Stores columnar backend, null if shapes are stored as objects*/
+    private final ShapeStore store;
+
+    /**Stores batches of instanced shapes in drawing order*/
+    private final ArrayList<InstanceBatch> instanceBatches;
+
+    /**Stores names of available shapes, used to estimate the widest name*/
+    private final HashSet<String> labels;
+
+    /**Stores areas damaged by shape changes since the last repaint*/
+    private final DirtyRegionTracker dirtyRegions;
+
+    /**Stores font metrics used to estimate area covered by shape names*/
+    private FontMetrics labelMetrics;
+
     /**Stores data for name display decision*/
     private boolean displayShapeName;
 
     /**Stores data for bounding box display decision*/
     private boolean displayBoundingBox;
 
+    /**Stores data for batched rendering decision*/
+    private boolean batchedRendering;
+
+    /**Stores cache of pre-rendered shapes, null if shapes are rasterised every time*/
+    private SpriteCache spriteCache;
+
+    /**Stores level of detail settings, null if every shape is drawn in full detail*/
+    private LevelOfDetail levelOfDetail;
+
+    /**Stores cache of rasterised names, null if names are drawn as text*/
+    private LabelCache labelCache;
+
+    /**Stores collision engine kept up to date with the shapes, null if collisions are not tracked*/
+    private CollisionEngine collisionEngine;
+
+    /**Stores occluders kept up to date with the shapes, null if hidden shapes are painted too*/
+    private OcclusionCuller occlusionCuller;
+
+    /**Stores static layer image and recently changed areas, null if every shape is drawn every frame*/
+    private LayerCache layerCache;
+
+    /**Stores stream the changes are published to, null if changes are not published*/
+    private ChangeEventStream changeStream;
+
+    /**Stores number of changes dropped because the buffer of the stream was full, counted from any thread*/
+    private final LongAdder droppedChanges = new LongAdder();
+
+    /**Stores journal the changes are written to, null if changes are not journaled*/
+    private MutationJournal journal;
+
     /**
      * Default constructor
      */
     public ShapesManager(){
+        this(null);
+    }
+
+    /**
+     * Constructor to initialize the manager backed by given columnar store
+     *
+     * @param store columnar backend, null to store shapes as objects
+     */
+    public ShapesManager(ShapeStore store){
+        this.store = store;
         shapes = new ArrayList<>();
+        spatialIndex = new UniformGrid();
+        instanceBatches = new ArrayList<>();
+        labels = new HashSet<>();
+        dirtyRegions = new DirtyRegionTracker();
     }
 
     /**
-     * Stores new shape to the ArrayList
+     * Stores new shape to the ArrayList, registers it in the spatial index and marks its area as damaged.
+     * If the manager is backed by a columnar store, the shape is encoded into the store instead
      *
      * @param shape new shape object
+     * @throws IllegalArgumentException if changes are journaled and the journal cannot record the shape
      */
     public void addShape(Shape shape){
+        if(store != null){
+            markDirty(store.add(shape));
+            return;
+        }
+        if(journal != null) journal.checkSupported(shape);
         shapes.add(shape);
+        spatialIndex.insert(shape);
+        labels.add(shape.getLabel());
+        if(collisionEngine != null) collisionEngine.add(shape);
+        if(occlusionCuller != null) occlusionCuller.update(shape, spatialIndex.orderOf(shape));
+        shape.setObserver(this);
+        markDirty(shape, shape.getBoundingBox());
+        publish(ChangeType.ADDED, shape);
+        if(journal != null) journal.shapeAdded(shape);
+    }
+
+    /**
+     * Removes shape from the ArrayList and the spatial index and marks its area as damaged.
+     * Has no effect if the manager is backed by a columnar store
+     *
+     * @param shape shape object
+     * @return true if the shape was available
+     */
+    public boolean removeShape(Shape shape){
+        if(store != null || !shapes.remove(shape)) return false;
+        spatialIndex.remove(shape);
+        if(collisionEngine != null) collisionEngine.remove(shape);
+        if(occlusionCuller != null) occlusionCuller.remove(shape);
+        if(shape.getObserver() == this) shape.setObserver(null);
+        if(spriteCache != null) spriteCache.invalidate(shape);
+        markDirty(shape, shape.getBoundingBox());
+        publish(ChangeType.REMOVED, shape);
+        if(journal != null) journal.shapeRemoved(shape);
+        return true;
+    }
+
+    /**
+     * Adds batch of instanced shapes and marks the area covered by its instances as damaged.
+     * Batches are drawn in the order they were added, below the other shapes
+     *
+     * @param batch InstanceBatch object
+     */
+    public void addInstanceBatch(InstanceBatch batch){
+        instanceBatches.add(batch);
+        labels.add(batch.getPrototype().getLabel());
+        markDirty(batch);
+    }
+
+    /**
+     * Removes batch of instanced shapes and marks the area covered by its instances as damaged
+     *
+     * @param batch InstanceBatch object
+     * @return true if the batch was available
+     */
+    public boolean removeInstanceBatch(InstanceBatch batch){
+        if(!instanceBatches.remove(batch)) return false;
+        markDirty(batch);
+        return true;
+    }
+
+    /**
+     * Getter method to retrieve batches of instanced shapes
+     *
+     * @return batches in drawing order
+     */
+    public List<InstanceBatch> getInstanceBatches(){
+        return instanceBatches;
+    }
+
+    /**
+     * Prepares the shapes for a new frame. Has to be called once per frame, before drawing, by the thread which<br>
+     * draws the shapes. Nothing has to be prepared by this manager
+     */
+    public void beginFrame(){
+        // Nothing to prepare
+    }
+
+    /**
+     * Retrieves shapes which bounding box contains given point. Only the candidates returned by the spatial index<br>
+     * are tested
+     *
+     * @param x x coordinate(int)
+     * @param y y coordinate(int)
+     * @return shapes in drawing order
+     */
+    public List<Shape> getShapesAt(int x, int y){
+        return spatialIndex.queryPoint(x, y);
+    }
+
+    /**
+     * Toggles filled state of every shape and instance which bounding box contains given point.
+     * For groups, only the leaves which bounding box contains the point are toggled
+     *
+     * @param x x coordinate(int)
+     * @param y y coordinate(int)
+     */
+    public void toggleFilledAt(int x, int y){
+        for(InstanceBatch batch : instanceBatches){
+            for(int instance = batch.findNext(x, y, 0); instance >= 0; instance = batch.findNext(x, y, instance + 1)){
+                batch.toggleFilled(instance);
+                markDirty(batch, instance);
+            }
+        }
+        if(store != null){
+            for(int row = store.findNext(x, y, 0); row >= 0; row = store.findNext(x, y, row + 1)){
+                store.toggleFilled(row);
+                markDirty(row);
+            }
+            return;
+        }
+        if(journal != null) journal.beginAction();
+        try {
+            for(Shape shape : getShapesAt(x, y)){
+                if(!(shape instanceof ShapeGroup)){
+                    shape.updateFilled();
+                    continue;
+                }
+                for(Shape leaf : ((ShapeGroup) shape).findLeavesAt(x, y)){
+                    leaf.updateFilled();
+                }
+            }
+        } finally {
+            if(journal != null) journal.endAction();
+        }
+    }
+
+    /**
+     * Performs special action of every shape and instance which bounding box contains given point
+     *
+     * @param x x coordinate(int)
+     * @param y y coordinate(int)
+     */
+    public void performSpecialActionAt(int x, int y){
+        for(InstanceBatch batch : instanceBatches){
+            for(int instance = batch.findNext(x, y, 0); instance >= 0; instance = batch.findNext(x, y, instance + 1)){
+                markDirty(batch, instance);
+                batch.performSpecialAction(instance);
+                markDirty(batch, instance);
+            }
+        }
+        if(store != null){
+            for(int row = store.findNext(x, y, 0); row >= 0; row = store.findNext(x, y, row + 1)){
+                markDirty(row);
+                store.performSpecialAction(row);
+                markDirty(row);
+            }
+            return;
+        }
+        if(journal != null) journal.beginAction();
+        try {
+            for(Shape shape : getShapesAt(x, y)){
+                shape.performSpecialAction();
+            }
+        } finally {
+            if(journal != null) journal.endAction();
+        }
+    }
+
+    /**
+     * Getter method to retrieve columnar backend
+     *
+     * @return ShapeStore object or null if shapes are stored as objects
+     */
+    public ShapeStore getStore(){
+        return store;
+    }
+
+    /**
+     * Implementation of the interface method
+     * Keeps the spatial index and the collision engine up to date when bounding box of a shape changes.
+     * Marks both previous and current area of the shape as damaged
+     */
+    @Override
+    public void boundsChanged(Shape shape, int oldX, int oldY, int oldWidth, int oldHeight) {
+        spatialIndex.update(shape);
+        if(collisionEngine != null) collisionEngine.update(shape);
+        if(occlusionCuller != null) occlusionCuller.update(shape, spatialIndex.orderOf(shape));
+        if(spriteCache != null) spriteCache.invalidate(shape);
+        markDirty(shape, oldX, oldY, oldWidth, oldHeight);
+        markDirty(shape, shape.getBoundingBox());
+        BoundingBox box = shape.getBoundingBox();
+        if(changeStream != null && box != null){
+            if(!changeStream.tryPublish(ChangeType.BOUNDS_CHANGED, shape, box.getX(), box.getY(), box.getWidth(),
+                    box.getHeight(), oldX, oldY, oldWidth, oldHeight)) droppedChanges.increment();
+        }
+        if(journal != null) journal.boundsChanged(shape, oldX, oldY, oldWidth, oldHeight);
     }
 
     /**
-     * Retrieves and returns an ArrayList of available shapes
+     * Implementation of the interface method
+     * Adds the shape to or removes it from the occluders and marks area of the shape as damaged
+     */
+    @Override
+    public void fillChanged(Shape shape) {
+        if(occlusionCuller != null) occlusionCuller.update(shape, spatialIndex.orderOf(shape));
+        if(spriteCache != null) spriteCache.invalidate(shape);
+        markDirty(shape, shape.getBoundingBox());
+        publish(ChangeType.FILL_CHANGED, shape);
+        if(journal != null) journal.fillChanged(shape);
+    }
+
+    /**
+     * Implementation of the interface method
+     * Marks area of the shape as damaged
+     */
+    @Override
+    public void colorChanged(Shape shape) {
+        if(spriteCache != null) spriteCache.invalidate(shape);
+        markDirty(shape, shape.getBoundingBox());
+        publish(ChangeType.COLOR_CHANGED, shape);
+        if(journal != null) journal.colorChanged(shape);
+    }
+
+    /**
+     * Implementation of the interface method
+     * Marks the changed area of the shape as damaged
+     */
+    @Override
+    public void areaChanged(Shape shape, int x, int y, int width, int height) {
+        if(spriteCache != null) spriteCache.invalidate(shape);
+        markDirty(shape, x, y, width, height);
+        if(changeStream != null && !changeStream.tryPublish(ChangeType.AREA_CHANGED, shape, x, y, width, height)){
+            droppedChanges.increment();
+        }
+    }
+
+    /**
+     * Retrieves areas of the canvas damaged by shape changes since the last call and resets the tracking
+     *
+     * @return damaged areas
+     */
+    public List<Rectangle> takeDirtyRegions(){
+        return dirtyRegions.drain();
+    }
+
+    /**
+     * Setter method for font metrics used to estimate the area covered by shape names when marking damaged areas
+     *
+     * @param labelMetrics FontMetrics of the font the names are drawn with
+     */
+    public void setLabelMetrics(FontMetrics labelMetrics){
+        this.labelMetrics = labelMetrics;
+    }
+
+    /**
+     * Retrieves and returns an ArrayList of available shapes.
+     * Empty if the manager is backed by a columnar store
      *
      * @return available shapes
      */
@@ -45,16 +391,145 @@ public class ShapesManager {
     }
 
     /**
-     * Draws available shapes. Decides whether to display shape names and/or bounding boxes
+     * Draws available shapes. Decides whether to display shape names and/or bounding boxes.
+     * Shapes outside of the clip area of the given Graphics are skipped; the candidates are taken from the<br>
+     * spatial index, so the cost of a frame follows the number of visible shapes. A Graphics transformed by a<br>
+     * Viewport draws the shapes in world coordinates and is culled in world coordinates.
+     * With batched rendering, shapes sharing the same drawing state are submitted together.
+     * With a sprite cache, shapes are drawn as cached images.
+     * With level of detail, shapes too small on screen are drawn as pixels of a density raster after the other<br>
+     * shapes, and small shapes are drawn without name and bounding box.
+     * With a label cache, names are drawn as cached images right after their shapes.
+     * Batches of instanced shapes are drawn first, by the instanced path of the batch.
+     * Groups skip every subtree outside of the clip area.
+     * With occlusion culling, shapes hidden under an opaque filled rectangle or square drawn later are skipped.
+     * With a layer cache, shapes are drawn from the static layer image except within recently changed areas
      *
      * @param graphics used for drawing the shape
      */
     public void drawShapes(Graphics graphics){
-        for(Shape currentShape : shapes){
-            currentShape.renderShape(graphics);
-            if(displayShapeName) currentShape.displayName(graphics);
-            if(displayBoundingBox) currentShape.getBoundingBox().drawBoundingBox(graphics);
+        if(layerCache != null && graphics instanceof Graphics2D){
+            layerCache.draw((Graphics2D) graphics, this::drawLayer);
+            return;
         }
+        drawLayer(graphics);
+    }
+
+    /**
+     * Prepares the static layer of the layer cache for a frame drawn in parts, e.g. by the tiles of a<br>
+     * TiledRenderer, so the image is rendered once per frame instead of once per part
+     *
+     * @param graphics Graphics covering every part of the frame
+     * @return layer the parts are drawn with, null if there is no layer cache
+     */
+    public LayerCache.Layer prepareLayer(Graphics2D graphics){
+        return layerCache != null ? layerCache.prepare(graphics, this::drawLayer) : null;
+    }
+
+    /**
+     * Draws a part of a frame with the prepared static layer. Can be called by several threads at once, as long as<br>
+     * the shapes are not changed
+     *
+     * @param graphics used for drawing the part
+     * @param layer layer prepared for the frame, null to draw the shapes as drawShapes does
+     */
+    public void drawShapes(Graphics graphics, LayerCache.Layer layer){
+        if(layer != null && graphics instanceof Graphics2D){
+            layer.draw((Graphics2D) graphics, this::drawLayer);
+            return;
+        }
+        drawShapes(graphics);
+    }
+
+    /**
+     * Draws available shapes within the clip area of given Graphics, without the layer cache
+     *
+     * @param graphics used for drawing the shape
+     */
+    private void drawLayer(Graphics graphics){
+        Rectangle clip = graphics.getClipBounds();
+        FontMetrics metrics = displayShapeName ? graphics.getFontMetrics() : null;
+        LevelOfDetail lod = graphics instanceof Graphics2D ? levelOfDetail : null;
+        Color defaultColor = graphics.getColor();
+        for(InstanceBatch batch : instanceBatches){
+            batch.render(graphics, clip, metrics, displayBoundingBox, lod);
+        }
+        graphics.setColor(defaultColor);
+        if(store != null){
+            store.render(graphics, clip, metrics, displayBoundingBox, lod);
+            return;
+        }
+        Rectangle paintArea = clip != null ? widenByLabels(clip, metrics) : null;
+        List<Shape> candidates = clip != null ? getCandidates(paintArea) : shapes;
+        double scale = lod != null ? LevelOfDetail.scaleOf(graphics) : 1;
+        AffineTransform transform = lod != null ? ((Graphics2D) graphics).getTransform() : null;
+        DensityRaster raster = lod != null ? lod.beginRaster((Graphics2D) graphics) : null;
+        BatchRenderer batchRenderer = batchedRendering ? new BatchRenderer(defaultColor, paintArea) : null;
+        LabelCache.Pass labels = metrics != null && labelCache != null && batchRenderer == null &&
+                graphics instanceof Graphics2D ? labelCache.begin((Graphics2D) graphics) : null;
+        int occlusionMargin = occlusionCuller != null ? occlusionMarginOf(graphics) : 0;
+        SpriteCache sprites = spriteCache != null && isTranslation(graphics) ? spriteCache : null;
+        int currentColor = ColorPalette.NO_COLOR;
+        for(Shape currentShape : candidates){
+            BoundingBox box = currentShape.getBoundingBox();
+            boolean decorated = true;
+            if(lod != null && box != null){
+                if(lod.collapses(box.getWidth(), box.getHeight(), scale)){
+                    if(clip != null &&
+                            !clip.intersects(box.getX(), box.getY(), box.getWidth() + 1, box.getHeight() + 1)) continue;
+                    Color color = currentShape.getDisplayColor() != null ? currentShape.getDisplayColor() :
+                            defaultColor;
+                    LevelOfDetail.collapse(raster, transform, color.getRGB(),
+                            box.getX(), box.getY(), box.getWidth(), box.getHeight(), scale);
+                    continue;
+                }
+                decorated = lod.showsDecorations(box.getWidth(), box.getHeight(), scale);
+            }
+            if(clip != null && !intersectsPaintArea(currentShape, metrics, clip)) continue;
+            if(occlusionCuller != null && box != null && isOccluded(currentShape,
+                    decorated ? metrics : null, occlusionMargin)) continue;
+            if(batchRenderer != null){
+                batchRenderer.add(currentShape, decorated ? metrics : null,
+                        decorated && displayBoundingBox && box != null);
+                continue;
+            }
+            int colorIndex = currentShape.getDisplayColorIndex();
+            renderShape(currentShape, graphics, sprites,
+                    colorIndex != ColorPalette.NO_COLOR && colorIndex == currentColor);
+            if(colorIndex != ColorPalette.NO_COLOR) currentColor = colorIndex;
+            if(!decorated) continue;
+            if(labels != null){
+                drawLabel(labels, currentShape, defaultColor, paintArea);
+            } else if(displayShapeName){
+                currentShape.displayName(graphics);
+            }
+            if(displayBoundingBox) box.drawBoundingBox(graphics);
+        }
+        if(batchRenderer != null) batchRenderer.submit(graphics);
+        if(raster != null) raster.drawTo((Graphics2D) graphics);
+    }
+
+    /**
+     * Draws name of the shape through the label cache, right after the shape, so names keep the order of shapes
+     *
+     * @param pass labels drawn with the Graphics of the layer
+     * @param shape shape which name is drawn, names of the leaves are drawn for a group
+     * @param defaultColor color used for shapes without color
+     * @param paintArea area names of the leaves of groups have to reach to be drawn, null to draw every name
+     */
+    private static void drawLabel(LabelCache.Pass pass, Shape shape, Color defaultColor, Rectangle paintArea){
+        if(!(shape instanceof ShapeGroup)){
+            Color color = shape.getDisplayColor() != null ? shape.getDisplayColor() : defaultColor;
+            pass.drawLabel(shape.getLabel(), shape.getLabelX(), shape.getLabelY(), color);
+            return;
+        }
+        Point2D.Double position = new Point2D.Double();
+        ((ShapeGroup) shape).forEachLeaf(paintArea, (leaf, transform) -> {
+            Color color = leaf.getDisplayColor() != null ? leaf.getDisplayColor() : defaultColor;
+            position.setLocation(leaf.getLabelX(), leaf.getLabelY());
+            transform.transform(position, position);
+            pass.drawLabel(leaf.getLabel(), (int) Math.round(position.x), (int) Math.round(position.y), color);
+        });
     }
 
     /**
@@ -64,6 +539,7 @@ public class ShapesManager {
      */
     public void setDisplayName(boolean state){
         displayShapeName = state;
+        invalidateLayers();
     }
 
     /**
@@ -73,5 +549,446 @@ public class ShapesManager {
      */
     public void setDisplayBoundingBox(boolean state){
         displayBoundingBox = state;
+        invalidateLayers();
+    }
+
+    /**
+     * Setter method for batchedRendering var.
+     * Has no effect if the manager is backed by a columnar store, which already sets colors once per run
+     *
+     * @param state boolean
+     */
+    public void setBatchedRendering(boolean state){
+        batchedRendering = state;
+        invalidateLayers();
+    }
+
+    /**
+     * Setter method for spriteCache var. Sprites are only drawn while the Graphics is not scaled, rotated or<br>
+     * sheared, e.g. not while zoomed in
+     *
+     * @param spriteCache SpriteCache object, null to rasterise shapes every time
+     */
+    public void setSpriteCache(SpriteCache spriteCache){
+        this.spriteCache = spriteCache;
+        invalidateLayers();
+    }
+
+    /**
+     * Getter method to retrieve spriteCache var
+     *
+     * @return SpriteCache object or null
+     */
+    public SpriteCache getSpriteCache(){
+        return spriteCache;
+    }
+
+    /**
+     * Setter method for levelOfDetail var
+     *
+     * @param levelOfDetail LevelOfDetail object, null to draw every shape in full detail
+     */
+    public void setLevelOfDetail(LevelOfDetail levelOfDetail){
+        this.levelOfDetail = levelOfDetail;
+        invalidateLayers();
+    }
+
+    /**
+     * Getter method to retrieve levelOfDetail var
+     *
+     * @return LevelOfDetail object or null
+     */
+    public LevelOfDetail getLevelOfDetail(){
+        return levelOfDetail;
+    }
+
+    /**
+     * Setter method for labelCache var. Names are drawn as cached images right after their shapes, unless<br>
+     * rendering is batched. Not set by default, drawing scenes of few distinct names as text measured faster
+     *
+     * @param labelCache LabelCache object, null to draw names as text
+     */
+    public void setLabelCache(LabelCache labelCache){
+        this.labelCache = labelCache;
+        invalidateLayers();
+    }
+
+    /**
+     * Getter method to retrieve labelCache var
+     *
+     * @return LabelCache object or null
+     */
+    public LabelCache getLabelCache(){
+        return labelCache;
+    }
+
+    /**
+     * Setter method for collisionEngine var. Available shapes are registered in the engine, which is kept up to<br>
+     * date as shapes are added, removed or moved. Shapes of a columnar store are not tracked
+     *
+     * @param collisionEngine CollisionEngine object, null to stop tracking collisions
+     */
+    public void setCollisionEngine(CollisionEngine collisionEngine){
+        this.collisionEngine = collisionEngine;
+        if(collisionEngine == null) return;
+        collisionEngine.clear();
+        for(Shape shape : shapes){
+            collisionEngine.add(shape);
+        }
+    }
+
+    /**
+     * Getter method to retrieve collisionEngine var
+     *
+     * @return CollisionEngine object or null
+     */
+    public CollisionEngine getCollisionEngine(){
+        return collisionEngine;
+    }
+
+    /**
+     * Setter method for occlusionCuller var. Available filled rectangles and squares are registered as occluders,<br>
+     * which are kept up to date as shapes are added, removed, moved or their filled state is toggled.
+     * Shapes of a columnar store and of instance batches are always painted
+     *
+     * @param occlusionCuller OcclusionCuller object, null to paint hidden shapes too
+     */
+    public void setOcclusionCuller(OcclusionCuller occlusionCuller){
+        this.occlusionCuller = occlusionCuller;
+        invalidateLayers();
+        if(occlusionCuller == null) return;
+        occlusionCuller.clear();
+        for(Shape shape : shapes){
+            occlusionCuller.update(shape, spatialIndex.orderOf(shape));
+        }
+    }
+
+    /**
+     * Getter method to retrieve occlusionCuller var
+     *
+     * @return OcclusionCuller object or null
+     */
+    public OcclusionCuller getOcclusionCuller(){
+        return occlusionCuller;
+    }
+
+    /**
+     * Setter method for layerCache var. Shapes which have not changed recently are drawn from the static layer<br>
+     * image of the cache, areas changed within its hot window are drawn live
+     *
+     * @param layerCache LayerCache object, null to draw every shape every frame
+     */
+    public void setLayerCache(LayerCache layerCache){
+        this.layerCache = layerCache;
+        invalidateLayers();
+    }
+
+    /**
+     * Getter method to retrieve layerCache var
+     *
+     * @return LayerCache object or null
+     */
+    public LayerCache getLayerCache(){
+        return layerCache;
+    }
+
+    /**
+     * Setter method for changeStream var. Every change is published from the thread making it, after the<br>
+     * spatial index and the damaged areas have been updated. Changes of shapes of a columnar store and of<br>
+     * instance batches are published as changed areas without a shape object.
+     * Changing shapes never waits for the consumers: a change is dropped and counted while the buffer is full
+     *
+     * @param changeStream ChangeEventStream object, null to stop publishing changes
+     */
+    public void setChangeStream(ChangeEventStream changeStream){
+        this.changeStream = changeStream;
+    }
+
+    /**
+     * Getter method to retrieve changeStream var
+     *
+     * @return ChangeEventStream object or null
+     */
+    public ChangeEventStream getChangeStream(){
+        return changeStream;
+    }
+
+    /**
+     * Getter method to retrieve number of changes dropped because the buffer of the stream was full
+     *
+     * @return number of changes(long)
+     */
+    public long getDroppedChangeCount(){
+        return droppedChanges.sum();
+    }
+
+    /**
+     * Setter method for journal var. Changes of shapes stored as objects are written to the journal after the<br>
+     * manager has processed them; shapes changed at one point by toggleFilledAt and performSpecialActionAt form<br>
+     * one action. Set by MutationJournal.open
+     *
+     * @param journal MutationJournal object, null to stop journaling changes
+     */
+    public void setJournal(MutationJournal journal){
+        this.journal = journal;
+    }
+
+    /**
+     * Getter method to retrieve journal var
+     *
+     * @return MutationJournal object or null
+     */
+    public MutationJournal getJournal(){
+        return journal;
+    }
+
+    /**
+     * Discards the static layer image, as shapes are drawn differently from now on
+     */
+    private void invalidateLayers(){
+        if(layerCache != null) layerCache.invalidate();
+    }
+
+    /**
+     * Checks whether every pixel the shape paints is hidden under an occluder drawn after it.
+     * The outline is drawn one pixel past the bounds, names are drawn to the right of the center of the shape
+     *
+     * @param shape shape object with bounding box
+     * @param metrics FontMetrics used to draw the name of the shape, null if the name is not drawn with the shape
+     * @param margin distance the occluder has to extend past the painted area on every side
+     * @return true if the shape does not have to be painted
+     */
+    private boolean isOccluded(Shape shape, FontMetrics metrics, int margin){
+        BoundingBox box = shape.getBoundingBox();
+        int labelWidth = 0, ascent = 0, descent = 0;
+        if(metrics != null){
+            labelWidth = metrics.stringWidth(shape.getLabel());
+            ascent = metrics.getAscent();
+            descent = metrics.getDescent();
+        }
+        return occlusionCuller.isOccluded(spatialIndex.orderOf(shape), box.getX() - margin,
+                box.getY() - ascent - margin, box.getWidth() + 1 + labelWidth + margin * 2,
+                box.getHeight() + 1 + ascent + descent + margin * 2);
+    }
+
+    /**
+     * Calculates distance an occluder has to extend past the area painted by a shape to hide it on given Graphics.
+     * Pixels match exactly for whole translations without antialiasing; otherwise the edges of the occluder and<br>
+     * the shape may be rounded differently, so the occluder has to extend by a device pixel plus a unit
+     *
+     * @param graphics used for drawing the shapes
+     * @return distance in units of the shapes
+     */
+    private static int occlusionMarginOf(Graphics graphics){
+        if(!(graphics instanceof Graphics2D)) return 0;
+        Graphics2D g2 = (Graphics2D) graphics;
+        AffineTransform transform = g2.getTransform();
+        boolean wholeTranslation = (transform.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0 &&
+                transform.getTranslateX() == Math.rint(transform.getTranslateX()) &&
+                transform.getTranslateY() == Math.rint(transform.getTranslateY());
+        if(wholeTranslation && g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING) !=
+                RenderingHints.VALUE_ANTIALIAS_ON) return 0;
+        return 1 + (int) Math.ceil(1 / Math.min(1, LevelOfDetail.scaleOf(graphics)));
+    }
+
+    /**
+     * Checks whether the Graphics only translates, so sprites rasterised at identity scale match its pixels.<br>
+     * A scaled sprite would be blurry or blocky, shapes are rasterised directly otherwise
+     *
+     * @param graphics used for drawing the shapes
+     * @return true if the transform of the Graphics is a translation
+     */
+    private static boolean isTranslation(Graphics graphics){
+        return !(graphics instanceof Graphics2D) ||
+                (((Graphics2D) graphics).getTransform().getType() & ~AffineTransform.TYPE_TRANSLATION) == 0;
+    }
+
+    /**
+     * Renders the shape, using the cached sprite of the shape if available.
+     * The color is only set if the previous shape was rendered with another palette entry
+     *
+     * @param shape shape object
+     * @param graphics used for drawing the shape
+     * @param sprites cache of sprites matching the Graphics, null to rasterise the shape
+     * @param colorSet whether the Graphics already has the display color of the shape
+     */
+    private static void renderShape(Shape shape, Graphics graphics, SpriteCache sprites, boolean colorSet){
+        BufferedImage sprite = sprites != null ? sprites.getSprite(shape) : null;
+        if(sprite == null){
+            if(!colorSet) shape.renderShape(graphics);
+            else if(shape.isFilled()) shape.fillShape(graphics);
+            else shape.drawShape(graphics);
+            return;
+        }
+        BoundingBox box = shape.getBoundingBox();
+        graphics.drawImage(sprite, box.getX() - SpriteCache.PADDING, box.getY() - SpriteCache.PADDING, null);
+        if(!colorSet) graphics.setColor(shape.getDisplayColor());
+    }
+
+    /**
+     * Publishes change of the shape with its current bounding box, if changes are published
+     *
+     * @param type kind of the change
+     * @param shape shape object
+     */
+    private void publish(ChangeType type, Shape shape){
+        BoundingBox box = shape.getBoundingBox();
+        if(changeStream == null || box == null) return;
+        if(!changeStream.tryPublish(type, shape, box.getX(), box.getY(), box.getWidth(), box.getHeight())){
+            droppedChanges.increment();
+        }
+    }
+
+    /**
+     * Marks area covered by the shape with given bounding box as damaged
+     *
+     * @param shape shape object
+     * @param box bounding box of the shape, ignored if null
+     */
+    private void markDirty(Shape shape, BoundingBox box){
+        if(box != null) markDirty(shape, box.getX(), box.getY(), box.getWidth(), box.getHeight());
+    }
+
+    /**
+     * Marks area covered by every instance of the batch as damaged
+     *
+     * @param batch InstanceBatch object
+     */
+    private void markDirty(InstanceBatch batch){
+        Rectangle bounds = batch.getBounds();
+        if(bounds == null) return;
+        markDirty(batch.getPrototype().getLabel(), bounds.x, bounds.y, bounds.width, bounds.height);
+        publishArea(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Marks area covered by the instance of the batch as damaged
+     *
+     * @param batch InstanceBatch object
+     * @param instance index of the instance
+     */
+    private void markDirty(InstanceBatch batch, int instance){
+        markDirty(batch.getPrototype().getLabel(), batch.getBoundsX(instance), batch.getBoundsY(instance),
+                batch.getPrototype().getWidth(), batch.getPrototype().getHeight());
+        publishArea(batch.getBoundsX(instance), batch.getBoundsY(instance), batch.getPrototype().getWidth(),
+                batch.getPrototype().getHeight());
+    }
+
+    /**
+     * Marks area covered by the row of the columnar store as damaged
+     *
+     * @param row row of the shape
+     */
+    private void markDirty(int row){
+        markDirty(store.getLabel(row), store.getBoundsX(row), store.getBoundsY(row),
+                store.getBoundsWidth(row), store.getBoundsHeight(row));
+        publishArea(store.getBoundsX(row), store.getBoundsY(row), store.getBoundsWidth(row),
+                store.getBoundsHeight(row));
+    }
+
+    /**
+     * Publishes changed area of a shape without a shape object, if changes are published
+     *
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width width of the area
+     * @param height height of the area
+     */
+    private void publishArea(int x, int y, int width, int height){
+        if(changeStream != null && !changeStream.tryPublish(ChangeType.AREA_CHANGED, null, x, y, width, height)){
+            droppedChanges.increment();
+        }
+    }
+
+    /**
+     * Marks area covered by the shape with given bounds as damaged
+     *
+     * @param shape shape object
+     * @param x x coordinate of top left corner of the bounds
+     * @param y y coordinate of top left corner of the bounds
+     * @param width width of the bounds
+     * @param height height of the bounds
+     */
+    private void markDirty(Shape shape, int x, int y, int width, int height){
+        markDirty(shape.getLabel(), x, y, width, height);
+    }
+
+    /**
+     * Marks area covered by a shape with given name and bounds as damaged.
+     * Outlines are drawn one pixel past the bounds, names are drawn to the right of the center of the shape
+     *
+     * @param label name of the shape
+     * @param x x coordinate of top left corner of the bounds
+     * @param y y coordinate of top left corner of the bounds
+     * @param width width of the bounds
+     * @param height height of the bounds
+     */
+    private void markDirty(String label, int x, int y, int width, int height){
+        int labelWidth = 0, ascent = 0, descent = 0;
+        if(displayShapeName && labelMetrics != null){
+            labelWidth = labelMetrics.stringWidth(label);
+            ascent = labelMetrics.getAscent();
+            descent = labelMetrics.getDescent();
+        }
+        dirtyRegions.add(x, y - ascent, width + 1 + labelWidth, height + 1 + ascent + descent);
+        if(layerCache != null) layerCache.markHot(x, y - ascent, width + 1 + labelWidth, height + 1 + ascent + descent);
+    }
+
+    /**
+     * Retrieves shapes which bounding box intersects given area, in drawing order.
+     * Falls back to every shape if some shapes are not registered in the spatial index or the area covers<br>
+     * more cells of the index than there are shapes
+     *
+     * @param paintArea clip area widened by widenByLabels
+     * @return candidate shapes
+     */
+    private List<Shape> getCandidates(Rectangle paintArea){
+        if(spatialIndex.size() != shapes.size()) return shapes;
+        if(spatialIndex.countCells(paintArea.x, paintArea.y, paintArea.width, paintArea.height) > shapes.size()){
+            return shapes;
+        }
+        return spatialIndex.queryRegion(paintArea.x, paintArea.y, paintArea.width, paintArea.height);
+    }
+
+    /**
+     * Widens clip area by the widest name, as names are drawn past the bounding boxes. A shape which bounding<br>
+     * box misses the widened area does not have to be painted
+     *
+     * @param clip clip area
+     * @param metrics FontMetrics used to draw names, null if names are not displayed
+     * @return widened area
+     */
+    private Rectangle widenByLabels(Rectangle clip, FontMetrics metrics){
+        int labelWidth = 0, ascent = 0, descent = 0;
+        if(metrics != null){
+            for(String label : labels){
+                labelWidth = Math.max(labelWidth, metrics.stringWidth(label));
+            }
+            ascent = metrics.getAscent();
+            descent = metrics.getDescent();
+        }
+        return new Rectangle(clip.x - labelWidth - 1, clip.y - descent - 1,
+                clip.width + labelWidth + 1, clip.height + ascent + descent + 1);
+    }
+
+    /**
+     * Checks whether area covered by the shape intersects given clip area
+     *
+     * @param shape shape object
+     * @param metrics FontMetrics used to draw names, null if names are not displayed
+     * @param clip clip area
+     * @return true if the shape has to be painted
+     */
+    private boolean intersectsPaintArea(Shape shape, FontMetrics metrics, Rectangle clip){
+        BoundingBox box = shape.getBoundingBox();
+        if(box == null) return true;
+        int labelWidth = 0, ascent = 0, descent = 0;
+        if(metrics != null){
+            labelWidth = metrics.stringWidth(shape.getLabel());
+            ascent = metrics.getAscent();
+            descent = metrics.getDescent();
+        }
+        return clip.intersects(box.getX(), box.getY() - ascent,
+                box.getWidth() + 1 + labelWidth, box.getHeight() + 1 + ascent + descent);
     }
 }
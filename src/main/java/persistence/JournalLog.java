@@ -0,0 +1,341 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * <h1>JournalLog</h1>
+ * <p>Log file of one generation of the MutationJournal. The thread changing the shapes appends records to a buffer<br>
+ * it owns without locking and publishes the buffer once per action. Whoever syncs the log writes everything<br>
+ * published since the last write as one batch: the length and CRC32 checksum of the records followed by the<br>
+ * records themselves, so checksums are calculated once per batch, off the thread changing the shapes whenever a<br>
+ * sync thread is used. A batch torn by a crash fails its checksum as a whole.<br>
+ * Records are addressed by their logical position, which counts record bytes only. The positions of the batches<br>
+ * are kept to find records in the file when an action is read back for undo or redo</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see MutationJournal
+ * @see JournalReplay
+ */
+final class JournalLog implements Closeable {
+
+    /**Stores size of the log header in bytes: magic number, version and padding*/
+    static final int HEADER_SIZE = 8;
+
+    /**Stores size of the batch header in bytes: length and checksum of the records*/
+    static final int BATCH_HEADER_SIZE = 8;
+
+    /**Stores size of the record buffer in bytes*/
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**Stores lock held while the log is written, guards channel, batches, written size and checksum*/
+    private final Object writeLock;
+
+    /**Stores positions of the batches written to the file*/
+    private final Batches batches;
+
+    /**Stores reusable checksum and batch header*/
+    private final CRC32 crc;
+    private final ByteBuffer batchHeader;
+
+    /**Stores buffer of records not written yet, owned by the thread changing the shapes*/
+    private ByteBuffer buffer;
+
+    /**Stores view of the buffer used by the thread writing the log*/
+    private ByteBuffer flushView;
+
+    /**Stores position in the buffer up to which records are complete*/
+    private final AtomicInteger published;
+
+    /**Stores position in the buffer up to which records have been written to the file*/
+    private int flushed;
+
+    /**Stores logical position of the start of the buffer*/
+    private long base;
+
+    /**Stores size of the file written so far*/
+    private long size;
+
+    /**Stores log file, null once closed*/
+    private FileChannel channel;
+
+    /**
+     * Constructor to continue a log after its valid part
+     *
+     * @param channel log file
+     * @param position logical position following the last valid record
+     * @param size size of the valid part of the file
+     * @param batches positions of the valid batches
+     */
+    JournalLog(FileChannel channel, long position, long size, Batches batches){
+        this.channel = channel;
+        this.base = position;
+        this.size = size;
+        this.batches = batches;
+        writeLock = new Object();
+        crc = new CRC32();
+        batchHeader = ByteBuffer.allocate(BATCH_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        flushView = buffer.duplicate();
+        published = new AtomicInteger();
+    }
+
+    /**
+     * Creates an empty log
+     *
+     * @param path path of the log
+     * @return JournalLog object
+     * @throws IOException if the log cannot be written
+     */
+    static JournalLog create(Path path) throws IOException {
+        return new JournalLog(createFile(path), 0, HEADER_SIZE, new Batches());
+    }
+
+    /**
+     * Makes room for a record in the buffer, writing the buffer to the file when it is full
+     *
+     * @param recordSize size of the record in bytes
+     * @return buffer positioned where the record has to be written
+     */
+    ByteBuffer reserve(int recordSize){
+        if(buffer.remaining() >= recordSize) return buffer;
+        return flush(recordSize);
+    }
+
+    /**
+     * Writes the whole buffer to the file and empties it, kept apart from reserve so that reserve stays small<br>
+     * enough to be inlined into the code changing the shapes
+     *
+     * @param recordSize size of the record in bytes
+     * @return empty buffer with room for the record
+     */
+    private ByteBuffer flush(int recordSize){
+        synchronized(writeLock){
+            published.set(buffer.position());
+            try {
+                writePublished();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write journal log", e);
+            }
+            base += buffer.position();
+            buffer.clear();
+            published.set(0);
+            flushed = 0;
+            if(buffer.capacity() < recordSize){
+                buffer = ByteBuffer.allocate(recordSize).order(ByteOrder.LITTLE_ENDIAN);
+                flushView = buffer.duplicate();
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Publishes every record appended so far to the thread writing the log
+     */
+    void publish(){
+        published.lazySet(buffer.position());
+    }
+
+    /**
+     * Calculates logical position following the last appended record
+     *
+     * @return position(long)
+     */
+    long position(){
+        return base + buffer.position();
+    }
+
+    /**
+     * Writes every published record to the file and forces it to disk. Can be called from any thread.
+     * The file is forced outside the write lock, so the thread changing the shapes never waits for the disk
+     *
+     * @throws IOException if the log cannot be written
+     */
+    void sync() throws IOException {
+        FileChannel written;
+        synchronized(writeLock){
+            if(channel == null) return;
+            writePublished();
+            written = channel;
+        }
+        try {
+            written.force(false);
+        } catch (ClosedChannelException e) {
+            synchronized(writeLock){
+                if(channel == written) throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads records back, from the buffer if they are still in it and from the file otherwise.
+     * Has to be called by the thread appending records
+     *
+     * @param start logical position of the first record
+     * @param end logical position following the last record
+     * @return buffer holding the records
+     * @throws IOException if the log cannot be read
+     */
+    ByteBuffer read(long start, long end) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate((int) (end - start)).order(ByteOrder.LITTLE_ENDIAN);
+        if(start < base){
+            synchronized(writeLock){
+                long position = start, written = Math.min(end, base);
+                while(position < written){
+                    int batch = batches.find(position);
+                    long batchEnd = batch + 1 < batches.count ? batches.logical[batch + 1] : base;
+                    in.limit(in.position() + (int) (Math.min(written, batchEnd) - position));
+                    long offset = batches.physical[batch] + BATCH_HEADER_SIZE + position - batches.logical[batch];
+                    while(in.hasRemaining()){
+                        int read = channel.read(in, offset);
+                        if(read < 0) throw new IOException("Journal log is truncated");
+                        offset += read;
+                    }
+                    position = batchEnd;
+                }
+                in.limit(in.capacity());
+            }
+        }
+        if(end > base){
+            ByteBuffer memory = buffer.duplicate();
+            memory.limit((int) (end - base)).position((int) (Math.max(start, base) - base));
+            in.put(memory);
+        }
+        in.flip();
+        return in;
+    }
+
+    /**
+     * Writes every published record and continues in a new file, e.g. the log of the next generation
+     *
+     * @param next log file positioned after its header
+     * @throws IOException if the log cannot be written
+     */
+    void restart(FileChannel next) throws IOException {
+        synchronized(writeLock){
+            writePublished();
+            channel.close();
+            channel = next;
+            buffer.clear();
+            published.set(0);
+            flushed = 0;
+            base = 0;
+            size = HEADER_SIZE;
+            batches.clear();
+        }
+    }
+
+    /**
+     * Writes every published record, forces it to disk and closes the file
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized(writeLock){
+            if(channel == null) return;
+            try {
+                writePublished();
+                channel.force(false);
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Writes records which are published but not written yet as one batch. Has to hold the write lock
+     *
+     * @throws IOException if the log cannot be written
+     */
+    private void writePublished() throws IOException {
+        int end = published.get();
+        if(end <= flushed) return;
+        int length = end - flushed;
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + flushed, length);
+        batchHeader.clear();
+        batchHeader.putInt(length).putInt((int) crc.getValue()).flip();
+        long target = size;
+        while(batchHeader.hasRemaining()){
+            target += channel.write(batchHeader, target);
+        }
+        flushView.limit(end).position(flushed);
+        while(flushView.hasRemaining()){
+            target += channel.write(flushView, target);
+        }
+        batches.add(base + flushed, size);
+        size = target;
+        flushed = end;
+    }
+
+    /**
+     * Creates an empty log file with header
+     *
+     * @param path path of the log
+     * @return channel of the log
+     * @throws IOException if the log cannot be written
+     */
+    static FileChannel createFile(Path path) throws IOException {
+        FileChannel log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MutationJournal.MAGIC).putShort(MutationJournal.VERSION).putShort((short) 0).flip();
+        while(header.hasRemaining()){
+            log.write(header, header.position());
+        }
+        log.force(true);
+        return log;
+    }
+
+    /**
+     * Logical and physical start positions of the batches of a log, in log order
+     */
+    static final class Batches {
+
+        private long[] logical = new long[64], physical = new long[64];
+        private int count;
+
+        void add(long logicalStart, long physicalStart){
+            if(count == logical.length){
+                logical = Arrays.copyOf(logical, count * 2);
+                physical = Arrays.copyOf(physical, count * 2);
+            }
+            logical[count] = logicalStart;
+            physical[count] = physicalStart;
+            count++;
+        }
+
+        /**
+         * Finds the batch holding given logical position
+         *
+         * @param position logical position(long)
+         * @return index of the batch
+         */
+        private int find(long position){
+            int low = 0, high = count - 1;
+            while(low < high){
+                int middle = (low + high + 1) >>> 1;
+                if(logical[middle] <= position) low = middle;
+                else high = middle - 1;
+            }
+            return low;
+        }
+
+        private void clear(){
+            count = 0;
+        }
+    }
+}
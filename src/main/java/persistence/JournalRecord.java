@@ -0,0 +1,305 @@
+package persistence;
+
+import bounding.Point;
+import shapes.Circle;
+import shapes.ColorPalette;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+import store.ShapeStore;
+
+import java.awt.*;
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>JournalRecord</h1>
+ * <p>Binary codec of a single record of the MutationJournal log. A record starts with one byte holding its kind,<br>
+ * its undo state and whether it is the first record of an action, followed by the shape id as a variable length<br>
+ * integer of 7 bits per byte and the little endian values of the change, e.g. 3 bytes for a filled state toggle<br>
+ * of one of the first 16384 shapes. Actions are not numbered, their records follow each other in the log.<br>
+ * Shapes are written as kind, flags, color and center followed by their dimensions, or by the accumulated rotation<br>
+ * and original vertices of a quadrilateral, so a recreated quadrilateral rotates exactly like the journaled one.<br>
+ * Records carry no checksum of their own; the log checksums them batch by batch.<br>
+ * A record object is reused for decoding one record after another</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see MutationJournal
+ * @see JournalLog
+ */
+final class JournalRecord {
+
+    /**Stores largest size of the values every record starts with: kind, undo state and shape id*/
+    static final int MAX_HEADER_SIZE = 6;
+
+    /**Kinds of records*/
+    static final byte ADD = 1, REMOVE = 2, FILL = 3, MOVE = 4, ROTATE = 5, COLOR = 6;
+
+    /**Undo states of records: made by the user, inverse of an undone action, repeated by redo*/
+    static final byte DONE = 0, UNDONE = 1, REDONE = 2;
+
+    /**Stores flag of the first byte marking the first record of an action*/
+    private static final int FIRST = 0x20;
+
+    /**Flags of shape values and color records*/
+    static final int FILLED = 1, COLOR_PROVIDED = 2, OLD_COLOR_PROVIDED = 4;
+
+    /**Stores decoded values, which of them are set depends on the kind*/
+    byte kind, state;
+    boolean first;
+    int id, flags, argb, oldArgb, dx;
+    double degrees;
+
+    /**Stores decoded shape values of ADD and REMOVE records*/
+    private byte shapeKind;
+    private int x, y, width, height;
+    private int[] xs = new int[4], ys = new int[4];
+    private int vertexCount;
+
+    /**
+     * Writes header of a record straight into the array of the buffer
+     *
+     * @param out heap buffer the record is written to, with room for the header
+     * @param kind kind of the record
+     * @param state undo state of the record
+     * @param first true for the first record of an action
+     * @param id id of the shape, not negative
+     */
+    static void writeHeader(ByteBuffer out, byte kind, byte state, boolean first, int id){
+        byte[] array = out.array();
+        int position = out.arrayOffset() + out.position();
+        array[position++] = (byte) (kind | state << 3 | (first ? FIRST : 0));
+        while(id >= 0x80){
+            array[position++] = (byte) (id | 0x80);
+            id >>>= 7;
+        }
+        array[position++] = (byte) id;
+        out.position(position - out.arrayOffset());
+    }
+
+    /**
+     * Calculates size of the values of the shape
+     *
+     * @param shape shape object
+     * @return size in bytes
+     */
+    static int shapeSize(Shape shape){
+        if(shape instanceof Quadrilateral) return 26 + ((Quadrilateral) shape).getVertexCount() * 8;
+        return shape instanceof Circle ? 18 : 22;
+    }
+
+    /**
+     * Writes values of the shape: kind, flags, color and center followed by its dimensions, or by its accumulated<br>
+     * rotation and original vertices, written without copying them
+     *
+     * @param out buffer the values are written to
+     * @param shape shape object
+     */
+    static void writeShape(ByteBuffer out, Shape shape){
+        byte kind = SceneFile.kindOf(shape);
+        Color color = shape.getColor();
+        out.put(kind).put((byte) ((shape.isFilled() ? FILLED : 0) | (color != null ? COLOR_PROVIDED : 0)))
+                .putInt(color != null ? color.getRGB() : 0);
+        if(kind == ShapeStore.QUADRILATERAL){
+            Quadrilateral quad = (Quadrilateral) shape;
+            int vertexCount = quad.getVertexCount();
+            out.putInt(quad.getCenterPoint().getX()).putInt(quad.getCenterPoint().getY())
+                    .putDouble(quad.getRotation()).putInt(vertexCount);
+            for(int i = 0; i < vertexCount; i++){
+                out.putInt(quad.getOriginalX(i)).putInt(quad.getOriginalY(i));
+            }
+        } else if(kind == ShapeStore.CIRCLE){
+            out.putInt(shape.getxCenter()).putInt(shape.getyCenter()).putInt(((Circle) shape).getRadius());
+        } else {
+            Rectangle rect = (Rectangle) shape;
+            out.putInt(rect.getxCenter()).putInt(rect.getyCenter()).putInt(rect.getWidth()).putInt(rect.getHeight());
+        }
+    }
+
+    /**
+     * Reads the record at the position of the buffer and moves the position past it
+     *
+     * @param in buffer positioned at the record
+     * @return false if the record is incomplete or of unknown kind, the position is not moved
+     */
+    boolean read(ByteBuffer in){
+        int start = in.position(), limit = in.limit();
+        if(start == limit) return false;
+        int header = in.get(start);
+        kind = (byte) (header & 0x07);
+        state = (byte) (header >> 3 & 0x03);
+        first = (header & FIRST) != 0;
+        int values = start + 1, end;
+        id = 0;
+        for(int shift = 0; ; shift += 7){
+            if(values == limit || shift > 28) return false;
+            int part = in.get(values++);
+            id |= (part & 0x7F) << shift;
+            if(part >= 0) break;
+        }
+        if(id < 0) return false;
+        switch(kind){
+            case ADD:
+            case REMOVE:
+                if(limit - values < 18) return false;
+                shapeKind = in.get(values);
+                flags = in.get(values + 1);
+                argb = in.getInt(values + 2);
+                x = in.getInt(values + 6);
+                y = in.getInt(values + 10);
+                end = values + (shapeKind == ShapeStore.CIRCLE ? 18 : 22);
+                if(shapeKind == ShapeStore.QUADRILATERAL){
+                    if(limit - values < 26) return false;
+                    degrees = in.getDouble(values + 14);
+                    vertexCount = in.getInt(values + 22);
+                    if(vertexCount < 0 || vertexCount > (limit - values - 26) / 8) return false;
+                    end = values + 26 + vertexCount * 8;
+                }
+                if(end > limit) return false;
+                if(shapeKind == ShapeStore.QUADRILATERAL){
+                    if(xs.length < vertexCount){
+                        xs = new int[vertexCount];
+                        ys = new int[vertexCount];
+                    }
+                    for(int v = 0; v < vertexCount; v++){
+                        xs[v] = in.getInt(values + 26 + v * 8);
+                        ys[v] = in.getInt(values + 30 + v * 8);
+                    }
+                } else {
+                    width = in.getInt(values + 14);
+                    height = shapeKind == ShapeStore.CIRCLE ? 0 : in.getInt(values + 18);
+                }
+                break;
+            case FILL:
+                end = values;
+                break;
+            case MOVE:
+                end = values + 4;
+                if(end <= limit) dx = in.getInt(values);
+                break;
+            case ROTATE:
+                end = values + 8;
+                if(end <= limit) degrees = in.getDouble(values);
+                break;
+            case COLOR:
+                end = values + 9;
+                if(end > limit) break;
+                flags = in.get(values);
+                oldArgb = in.getInt(values + 1);
+                argb = in.getInt(values + 5);
+                break;
+            default:
+                return false;
+        }
+        if(end > limit) return false;
+        in.position(end);
+        return true;
+    }
+
+    /**
+     * Writes the record with given undo state
+     *
+     * @param out buffer the record is written to
+     * @param state undo state of the record
+     * @param first true for the first record of an action
+     */
+    void write(ByteBuffer out, byte state, boolean first){
+        writeHeader(out, kind, state, first, id);
+        switch(kind){
+            case ADD:
+            case REMOVE:
+                out.put(shapeKind).put((byte) flags).putInt(argb).putInt(x).putInt(y);
+                if(shapeKind == ShapeStore.QUADRILATERAL){
+                    out.putDouble(degrees).putInt(vertexCount);
+                    for(int v = 0; v < vertexCount; v++){
+                        out.putInt(xs[v]).putInt(ys[v]);
+                    }
+                } else {
+                    out.putInt(width);
+                    if(shapeKind != ShapeStore.CIRCLE) out.putInt(height);
+                }
+                break;
+            case MOVE: out.putInt(dx); break;
+            case ROTATE: out.putDouble(degrees); break;
+            case COLOR: out.put((byte) flags).putInt(oldArgb).putInt(argb); break;
+            default: break;
+        }
+    }
+
+    /**
+     * Calculates largest size of the record
+     *
+     * @return size in bytes
+     */
+    int maxSize(){
+        switch(kind){
+            case ADD:
+            case REMOVE:
+                if(shapeKind == ShapeStore.QUADRILATERAL) return MAX_HEADER_SIZE + 26 + vertexCount * 8;
+                return MAX_HEADER_SIZE + (shapeKind == ShapeStore.CIRCLE ? 18 : 22);
+            case MOVE: return MAX_HEADER_SIZE + 4;
+            case ROTATE: return MAX_HEADER_SIZE + 8;
+            case COLOR: return MAX_HEADER_SIZE + 9;
+            default: return MAX_HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Turns the record into the record undoing it
+     */
+    void invert(){
+        switch(kind){
+            case ADD: kind = REMOVE; break;
+            case REMOVE: kind = ADD; break;
+            case MOVE: dx = -dx; break;
+            case ROTATE: degrees = 360 - degrees; break;
+            case COLOR:
+                int swapped = oldArgb;
+                oldArgb = argb;
+                argb = swapped;
+                flags = ((flags & COLOR_PROVIDED) != 0 ? OLD_COLOR_PROVIDED : 0) |
+                        ((flags & OLD_COLOR_PROVIDED) != 0 ? COLOR_PROVIDED : 0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Creates shape out of the values of an ADD record
+     *
+     * @return shape object
+     */
+    Shape createShape(){
+        ColorPalette palette = ColorPalette.getShared();
+        Color color = (flags & COLOR_PROVIDED) != 0 ? palette.getColor(palette.indexOf(argb)) : null;
+        Shape shape;
+        switch(shapeKind){
+            case ShapeStore.RECTANGLE:
+                shape = new Rectangle(color, x, y, width, height);
+                break;
+            case ShapeStore.SQUARE:
+                shape = new Square(color, x, y, width);
+                break;
+            case ShapeStore.CIRCLE:
+                shape = new Circle(color, x, y, width);
+                break;
+            case ShapeStore.QUADRILATERAL:
+                Point[] points = new Point[vertexCount];
+                for(int v = 0; v < vertexCount; v++){
+                    points[v] = new Point(xs[v], ys[v]);
+                }
+                Point center = new Point(x, y);
+                Quadrilateral quad = color != null ? new Quadrilateral(color, center, points) :
+                        new Quadrilateral(center, points);
+                if(degrees != 0) quad.rotate(degrees);
+                shape = quad;
+                break;
+            default:
+                throw new IllegalStateException("Unknown shape kind " + shapeKind + " in journal record");
+        }
+        if((flags & FILLED) != 0) shape.updateFilled();
+        return shape;
+    }
+}
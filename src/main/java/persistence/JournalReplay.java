@@ -0,0 +1,136 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * <h1>JournalReplay</h1>
+ * <p>Reads the records of a MutationJournal log in log order for recovery. The log is mapped into memory and every<br>
+ * batch is checked against its checksum before its records are decoded; reading stops at the first batch which<br>
+ * is torn or corrupt, so a crash loses the records of that batch only.<br>
+ * Keeps logical position of every record and the positions of the valid batches, which the log is continued<br>
+ * with afterwards</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see JournalLog
+ * @see JournalRecord
+ */
+final class JournalReplay {
+
+    /**Stores mapped log*/
+    private final MappedByteBuffer in;
+
+    /**Stores duplicate of the mapped log used to calculate checksums*/
+    private final ByteBuffer view;
+
+    /**Stores reusable checksum*/
+    private final CRC32 crc;
+
+    /**Stores positions of the valid batches*/
+    private final JournalLog.Batches batches;
+
+    /**Stores position in the file following the current batch*/
+    private int batchEnd;
+
+    /**Stores logical position of the last record read and the position following it*/
+    private long recordStart, position;
+
+    /**
+     * Constructor to map the log and check its header
+     *
+     * @param channel log file, at least as long as the log header
+     * @throws IOException if the log cannot be read or is not a journal log of the current version
+     */
+    JournalReplay(FileChannel channel) throws IOException {
+        in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        if(in.getInt(0) != MutationJournal.MAGIC) throw new IOException("Not a journal log");
+        if(in.getShort(4) != MutationJournal.VERSION){
+            throw new IOException("Unsupported journal version: " + in.getShort(4));
+        }
+        view = in.duplicate();
+        crc = new CRC32();
+        batches = new JournalLog.Batches();
+        batchEnd = JournalLog.HEADER_SIZE;
+        in.position(batchEnd).limit(batchEnd);
+    }
+
+    /**
+     * Decodes the next record
+     *
+     * @param record record the values are decoded into
+     * @return false if there are no more valid records
+     * @throws IOException if a record of a valid batch cannot be decoded
+     */
+    boolean next(JournalRecord record) throws IOException {
+        if(in.position() == batchEnd && !nextBatch()) return false;
+        int start = in.position();
+        if(!record.read(in)) throw new IOException("Corrupted journal record at " + start);
+        recordStart = position;
+        position += in.position() - start;
+        return true;
+    }
+
+    /**
+     * Getter method to retrieve logical position of the last record read
+     *
+     * @return position(long)
+     */
+    long getRecordStart(){
+        return recordStart;
+    }
+
+    /**
+     * Getter method to retrieve logical position following the last record read
+     *
+     * @return position(long)
+     */
+    long getPosition(){
+        return position;
+    }
+
+    /**
+     * Getter method to retrieve size of the valid part of the log
+     *
+     * @return size in bytes(long)
+     */
+    long getValidSize(){
+        return batchEnd;
+    }
+
+    /**
+     * Getter method to retrieve positions of the valid batches
+     *
+     * @return Batches object
+     */
+    JournalLog.Batches getBatches(){
+        return batches;
+    }
+
+    /**
+     * Moves to the next batch if it is complete and its checksum matches
+     *
+     * @return false if there is no valid batch left
+     */
+    private boolean nextBatch(){
+        int start = batchEnd, capacity = in.capacity();
+        if(capacity - start < JournalLog.BATCH_HEADER_SIZE) return false;
+        in.limit(capacity);
+        int length = in.getInt(start), checksum = in.getInt(start + 4);
+        int records = start + JournalLog.BATCH_HEADER_SIZE;
+        if(length <= 0 || length > capacity - records) return false;
+        view.limit(records + length).position(records);
+        crc.reset();
+        crc.update(view);
+        if((int) crc.getValue() != checksum) return false;
+        batches.add(position, start);
+        batchEnd = records + length;
+        in.limit(batchEnd).position(records);
+        return true;
+    }
+}
@@ -0,0 +1,780 @@
+package persistence;
+
+import bounding.BoundingBox;
+import interfaces.ShapeObserver;
+import manager.ShapesManager;
+import shapes.Circle;
+import shapes.ColorPalette;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+
+import java.awt.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>MutationJournal</h1>
+ * <p>Write-ahead journal of the shape changes of a ShapesManager, used to recover the scene after a crash and to<br>
+ * undo and redo changes. A journal directory holds a snapshot of the scene in the SceneFile format and a log of<br>
+ * the changes made since, both numbered by generation. Opening the journal loads the latest snapshot and replays<br>
+ * its log into the manager; a batch of records torn by a crash fails its checksum and the log is cut before it.<br>
+ * Records are compact binary: one byte of kind and undo state, the shape id in as few bytes as it fits and the<br>
+ * values of the change, e.g. 3 bytes for a filled state toggle. The thread changing the shapes appends records to a<br>
+ * buffer it owns without locking or checksumming them; a sync thread writes the completed actions as one<br>
+ * checksummed batch and forces them to disk once per sync interval, so records made within an interval share one<br>
+ * checksum and one fsync (group commit). A crash loses at most the changes of the last interval.<br>
+ * Every journaled shape carries its journal id, so recording a change needs no lookup.<br>
+ * Once the log holds enough records, the scene is saved as a new snapshot and the log starts over (compaction),<br>
+ * which clears the undo history. The number of records is checked after every sync rather than after every action.<br>
+ * Undo and redo keep only the positions of the actions in the log: undo reads the records of the last action<br>
+ * back from the log, applies their inverse and appends the inverse as new records, so replay only ever applies<br>
+ * records forward. Restored shapes are drawn on top of the other shapes.<br>
+ * Rectangles, squares, circles and quadrilaterals are journaled. Adding other shapes (e.g. groups) to a journaled<br>
+ * manager fails rather than losing them on recovery; shapes of a columnar store and instance batches are not<br>
+ * journaled. The journal has to be used by the thread changing the shapes</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ShapesManager
+ * @see SceneFile
+ * @see JournalLog
+ * @see JournalRecord
+ */
+public class MutationJournal implements ShapeObserver, Closeable {
+
+    /**Stores magic number identifying journal logs, "JRNL"*/
+    public static final int MAGIC = 0x4C4E524A;
+
+    /**Stores version of the format written by this class*/
+    public static final short VERSION = 2;
+
+    /**Stores default time between two syncs in milliseconds*/
+    public static final long DEFAULT_SYNC_INTERVAL = 10;
+
+    /**Stores default number of records after which a snapshot is taken*/
+    public static final long DEFAULT_SNAPSHOT_THRESHOLD = 1_000_000;
+
+    /**Stores directory of the journal*/
+    private final Path directory;
+
+    /**Stores manager the changes are journaled for*/
+    private final ShapesManager manager;
+
+    /**Stores time between two syncs in nanoseconds, 0 to sync after every action*/
+    private final long syncInterval;
+
+    /**Stores number of records after which a snapshot is taken, 0 to never take one automatically*/
+    private final long snapshotThreshold;
+
+    /**Stores journaled shapes by id, null for removed ids*/
+    private Entry[] entries;
+
+    /**Stores positions of the actions which can be undone and redone*/
+    private final UndoHistory history;
+
+    /**Stores log of the current generation*/
+    private JournalLog log;
+
+    /**Stores current generation, the snapshot of generation 0 is the empty scene*/
+    private long generation;
+
+    /**Stores id given to the next journaled shape*/
+    private int nextId;
+
+    /**Stores nesting depth of beginAction calls*/
+    private int actionDepth;
+
+    /**Stores logical position in the log of the first record of the open action, -1 until its first record*/
+    private long actionStart;
+
+    /**Tracks if the journal changes the shapes itself, so the changes are not journaled again*/
+    private boolean applying;
+
+    /**Stores number of records since the last snapshot*/
+    private long records;
+
+    /**Stores number of records replayed when the journal was opened*/
+    private long replayed;
+
+    /**Tracks if the sync thread synced the log since the record count was last checked*/
+    private volatile boolean synced;
+
+    /**Stores first failure of the sync thread*/
+    private volatile IOException failure;
+
+    /**Stores state of the journal*/
+    private volatile boolean closed;
+
+    /**Stores thread forcing the log to disk, null if the log is synced after every action*/
+    private Thread syncThread;
+
+    /**
+     * Constructor to initialize the journal with given values
+     */
+    private MutationJournal(Path directory, ShapesManager manager, long syncIntervalMillis, long snapshotThreshold){
+        this.directory = directory;
+        this.manager = manager;
+        this.syncInterval = syncIntervalMillis * 1_000_000;
+        this.snapshotThreshold = snapshotThreshold;
+        entries = new Entry[64];
+        history = new UndoHistory();
+        actionStart = -1;
+    }
+
+    /**
+     * Opens the journal in given directory with default settings, recovers the scene into the manager and starts<br>
+     * journaling its changes
+     *
+     * @param directory directory of the journal, created if it does not exist
+     * @param manager empty manager storing shapes as objects
+     * @return opened journal
+     * @throws IOException if the journal cannot be read or written
+     */
+    public static MutationJournal open(Path directory, ShapesManager manager) throws IOException {
+        return open(directory, manager, DEFAULT_SYNC_INTERVAL, DEFAULT_SNAPSHOT_THRESHOLD);
+    }
+
+    /**
+     * Opens the journal in given directory, recovers the scene into the manager and starts journaling its changes
+     *
+     * @param directory directory of the journal, created if it does not exist
+     * @param manager empty manager storing shapes as objects
+     * @param syncIntervalMillis time between two syncs in milliseconds, 0 to sync after every action
+     * @param snapshotThreshold number of records after which a snapshot is taken, 0 to take snapshots manually
+     * @return opened journal
+     * @throws IOException if the journal cannot be read or written
+     */
+    public static MutationJournal open(Path directory, ShapesManager manager, long syncIntervalMillis,
+                                       long snapshotThreshold) throws IOException {
+        if(manager.getStore() != null) throw new IllegalArgumentException("Columnar stores are not journaled");
+        if(!manager.getShapes().isEmpty()) throw new IllegalArgumentException("Manager must be empty");
+        if(syncIntervalMillis < 0 || snapshotThreshold < 0){
+            throw new IllegalArgumentException("Sync interval and snapshot threshold must not be negative");
+        }
+        Files.createDirectories(directory);
+        MutationJournal journal = new MutationJournal(directory, manager, syncIntervalMillis, snapshotThreshold);
+        journal.recover();
+        manager.setJournal(journal);
+        if(syncIntervalMillis > 0){
+            journal.syncThread = new Thread(journal::syncPeriodically, "journal-sync");
+            journal.syncThread.setDaemon(true);
+            journal.syncThread.start();
+        }
+        return journal;
+    }
+
+    /**
+     * Starts an action: changes made until the matching endAction are undone and redone together.
+     * Changes made outside of an action are an action each
+     */
+    public void beginAction(){
+        actionDepth++;
+    }
+
+    /**
+     * Ends the action started by the matching beginAction
+     */
+    public void endAction(){
+        if(actionDepth == 0) throw new IllegalStateException("No action has been started");
+        if(--actionDepth == 0) closeAction();
+    }
+
+    /**
+     * Undoes the last action which has not been undone.
+     * A removed shape is added back on top of the other shapes, as the manager only appends shapes
+     *
+     * @return true if an action has been undone
+     */
+    public boolean undo(){
+        if(actionDepth != 0) throw new IllegalStateException("Cannot undo within an action");
+        if(!history.canUndo()) return false;
+        List<JournalRecord> action = readAction(history.undoStart(), history.undoEnd());
+        history.undone();
+        applying = true;
+        try {
+            for(int i = action.size() - 1; i >= 0; i--){
+                JournalRecord record = action.get(i);
+                record.invert();
+                apply(record);
+                append(record, JournalRecord.UNDONE, i == action.size() - 1);
+            }
+        } finally {
+            applying = false;
+        }
+        afterAction();
+        return true;
+    }
+
+    /**
+     * Redoes the last undone action, unless an action has been made since
+     *
+     * @return true if an action has been redone
+     */
+    public boolean redo(){
+        if(actionDepth != 0) throw new IllegalStateException("Cannot redo within an action");
+        if(!history.canRedo()) return false;
+        List<JournalRecord> action = readAction(history.redoStart(), history.redoEnd());
+        long start = log.position();
+        applying = true;
+        try {
+            for(int i = 0; i < action.size(); i++){
+                JournalRecord record = action.get(i);
+                apply(record);
+                append(record, JournalRecord.REDONE, i == 0);
+            }
+        } finally {
+            applying = false;
+        }
+        history.redone(start, log.position());
+        afterAction();
+        return true;
+    }
+
+    /**
+     * Checks whether there is an action to undo
+     *
+     * @return true if undo would change the scene
+     */
+    public boolean canUndo(){
+        return history.canUndo();
+    }
+
+    /**
+     * Checks whether there is an action to redo
+     *
+     * @return true if redo would change the scene
+     */
+    public boolean canRedo(){
+        return history.canRedo();
+    }
+
+    /**
+     * Writes every complete action to the log and forces it to disk. Can be called from any thread
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void sync() throws IOException {
+        IOException failed = failure;
+        if(failed != null) throw failed;
+        log.sync();
+    }
+
+    /**
+     * Saves the scene as a snapshot of a new generation and starts a new log, deleting the previous generation.
+     * Clears the undo history
+     *
+     * @throws IOException if the snapshot or the log cannot be written
+     */
+    public void snapshot() throws IOException {
+        if(actionDepth != 0) throw new IllegalStateException("Cannot take a snapshot within an action");
+        ArrayList<Shape> shapes = new ArrayList<>();
+        for(Shape shape : manager.getShapes()){
+            if(entryOf(shape) != null) shapes.add(shape);
+        }
+        long next = generation + 1;
+        Path temporary = directory.resolve("snapshot-" + next + ".tmp");
+        SceneFile.save(temporary, shapes);
+        try(FileChannel written = FileChannel.open(temporary, StandardOpenOption.WRITE)){
+            written.force(true);
+        }
+        Files.move(temporary, snapshotPath(next), StandardCopyOption.ATOMIC_MOVE);
+        log.restart(JournalLog.createFile(logPath(next)));
+        Files.deleteIfExists(logPath(generation));
+        Files.deleteIfExists(snapshotPath(generation));
+        generation = next;
+
+        Arrays.fill(entries, null);
+        nextId = 0;
+        for(Shape shape : shapes){
+            register(shape, nextId++);
+        }
+        history.clear();
+        records = 0;
+    }
+
+    /**
+     * Stops journaling, writes every record to the log and closes it
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed) return;
+        closed = true;
+        if(syncThread != null){
+            LockSupport.unpark(syncThread);
+            try {
+                syncThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if(manager.getJournal() == this) manager.setJournal(null);
+        log.publish();
+        log.close();
+        IOException failed = failure;
+        if(failed != null) throw failed;
+    }
+
+    /**
+     * Getter method to retrieve current generation
+     *
+     * @return generation(long), incremented by every snapshot
+     */
+    public long getGeneration(){
+        return generation;
+    }
+
+    /**
+     * Getter method to retrieve number of records since the last snapshot
+     *
+     * @return number of records(long)
+     */
+    public long getRecordCount(){
+        return records;
+    }
+
+    /**
+     * Getter method to retrieve number of records replayed when the journal was opened
+     *
+     * @return number of records(long)
+     */
+    public long getReplayedCount(){
+        return replayed;
+    }
+
+    /**
+     * Checks whether the shape can be journaled. Called by the manager before the shape is added
+     *
+     * @param shape shape object
+     * @throws IllegalArgumentException if the shape is not a rectangle, square, circle or quadrilateral
+     */
+    public void checkSupported(Shape shape){
+        if(!(shape instanceof Rectangle || shape instanceof Circle || shape instanceof Quadrilateral)){
+            throw new IllegalArgumentException(shape.getClass().getSimpleName() + " shapes cannot be journaled");
+        }
+    }
+
+    /**
+     * Journals shape added to the manager
+     *
+     * @param shape shape object
+     * @throws IllegalArgumentException if the shape cannot be journaled
+     */
+    public void shapeAdded(Shape shape){
+        if(applying || closed || entryOf(shape) != null) return;
+        checkSupported(shape);
+        Entry entry = register(shape, nextId++);
+        ByteBuffer out = startRecord(JournalRecord.ADD, entry.id, JournalRecord.shapeSize(shape));
+        JournalRecord.writeShape(out, shape);
+        endRecord();
+    }
+
+    /**
+     * Journals shape removed from the manager
+     *
+     * @param shape shape object
+     */
+    public void shapeRemoved(Shape shape){
+        Entry entry = entryOf(shape);
+        if(entry == null) return;
+        entries[entry.id] = null;
+        shape.setJournalId(-1);
+        ByteBuffer out = startRecord(JournalRecord.REMOVE, entry.id, JournalRecord.shapeSize(shape));
+        JournalRecord.writeShape(out, shape);
+        endRecord();
+    }
+
+    /**
+     * Implementation of the interface method
+     * Journals horizontal moves of rectangles and rotations of quadrilaterals
+     */
+    @Override
+    public void boundsChanged(Shape shape, int oldX, int oldY, int oldWidth, int oldHeight) {
+        Entry entry = entryOf(shape);
+        BoundingBox box = shape.getBoundingBox();
+        if(entry == null || box == null) return;
+        if(shape instanceof Rectangle){
+            int dx = box.getX() - oldX;
+            if(dx == 0) return;
+            startRecord(JournalRecord.MOVE, entry.id, 4).putInt(dx);
+            endRecord();
+        } else if(shape instanceof Quadrilateral){
+            double rotation = ((Quadrilateral) shape).getRotation();
+            double degrees = rotation - entry.rotation;
+            if(degrees == 0) return;
+            entry.rotation = rotation;
+            startRecord(JournalRecord.ROTATE, entry.id, 8).putDouble(degrees < 0 ? degrees + 360 : degrees);
+            endRecord();
+        }
+    }
+
+    /**
+     * Implementation of the interface method
+     * Journals filled state toggle
+     */
+    @Override
+    public void fillChanged(Shape shape) {
+        Entry entry = entryOf(shape);
+        if(entry == null) return;
+        startRecord(JournalRecord.FILL, entry.id, 0);
+        endRecord();
+    }
+
+    /**
+     * Implementation of the interface method
+     * Journals previous and new color
+     */
+    @Override
+    public void colorChanged(Shape shape) {
+        Entry entry = entryOf(shape);
+        if(entry == null) return;
+        ColorPalette palette = ColorPalette.getShared();
+        Color oldColor = palette.getColor(entry.colorIndex), color = palette.getColor(shape.getColorIndex());
+        entry.colorIndex = shape.getColorIndex();
+        startRecord(JournalRecord.COLOR, entry.id, 9)
+                .put((byte) ((color != null ? JournalRecord.COLOR_PROVIDED : 0) |
+                        (oldColor != null ? JournalRecord.OLD_COLOR_PROVIDED : 0)))
+                .putInt(oldColor != null ? oldColor.getRGB() : 0).putInt(color != null ? color.getRGB() : 0);
+        endRecord();
+    }
+
+    /**
+     * Implementation of the interface method
+     * Only groups report changed areas, and groups are not journaled
+     */
+    @Override
+    public void areaChanged(Shape shape, int x, int y, int width, int height) {
+        // Groups cannot be added to a journaled manager
+    }
+
+    /**
+     * Loads the latest snapshot into the manager, replays its log and deletes files of older generations
+     *
+     * @throws IOException if the journal cannot be read or written
+     */
+    private void recover() throws IOException {
+        generation = 0;
+        ArrayList<Path> files = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)){
+            for(Path path : stream){
+                files.add(path);
+                long fileGeneration = generationOf(path, "snapshot-", ".scene");
+                if(fileGeneration > generation) generation = fileGeneration;
+            }
+        }
+        for(Path path : files){
+            long snapshotGeneration = generationOf(path, "snapshot-", ".scene");
+            long logGeneration = generationOf(path, "journal-", ".log");
+            if(generationOf(path, "snapshot-", ".tmp") >= 0 || (snapshotGeneration >= 0 && snapshotGeneration <
+                    generation) || (logGeneration >= 0 && logGeneration < generation)){
+                Files.deleteIfExists(path);
+            }
+        }
+        applying = true;
+        try {
+            if(generation > 0){
+                SceneFile scene = SceneFile.open(snapshotPath(generation));
+                for(Shape shape : scene.getShapes()){
+                    manager.addShape(shape);
+                    register(shape, nextId++);
+                }
+            }
+            Path path = logPath(generation);
+            if(!Files.exists(path) || Files.size(path) < JournalLog.HEADER_SIZE){
+                log = JournalLog.create(path);
+                return;
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                JournalReplay replay = new JournalReplay(channel);
+                replay(replay);
+                if(replay.getValidSize() < channel.size()){
+                    channel.truncate(replay.getValidSize());
+                    channel.force(false);
+                }
+                log = new JournalLog(channel, replay.getPosition(), replay.getValidSize(), replay.getBatches());
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } finally {
+            applying = false;
+        }
+    }
+
+    /**
+     * Applies every valid record of the log and rebuilds the undo history out of the undo states of the records
+     *
+     * @param replay reader of the log
+     * @throws IOException if a record cannot be decoded
+     */
+    private void replay(JournalReplay replay) throws IOException {
+        JournalRecord record = new JournalRecord();
+        long groupStart = -1;
+        byte groupState = JournalRecord.DONE;
+        while(replay.next(record)){
+            long position = replay.getRecordStart();
+            if(record.first || record.state != groupState){
+                if(groupStart >= 0) history.replayed(groupStart, position, groupState);
+                groupStart = position;
+                groupState = record.state;
+            }
+            apply(record);
+            records++;
+        }
+        if(groupStart >= 0) history.replayed(groupStart, replay.getPosition(), groupState);
+        replayed = records;
+    }
+
+    /**
+     * Applies the change of the record to the scene
+     *
+     * @param record decoded record
+     */
+    private void apply(JournalRecord record){
+        if(record.kind == JournalRecord.ADD){
+            Shape shape = record.createShape();
+            manager.addShape(shape);
+            register(shape, record.id);
+            nextId = Math.max(nextId, record.id + 1);
+            return;
+        }
+        Entry entry = record.id < entries.length ? entries[record.id] : null;
+        if(entry == null) return;
+        Shape shape = entry.shape;
+        switch(record.kind){
+            case JournalRecord.REMOVE:
+                entries[entry.id] = null;
+                shape.setJournalId(-1);
+                manager.removeShape(shape);
+                break;
+            case JournalRecord.FILL:
+                shape.updateFilled();
+                break;
+            case JournalRecord.MOVE:
+                if(shape instanceof Rectangle) ((Rectangle) shape).moveXUnits(record.dx);
+                break;
+            case JournalRecord.ROTATE:
+                if(!(shape instanceof Quadrilateral)) break;
+                ((Quadrilateral) shape).rotate(record.degrees);
+                entry.rotation = ((Quadrilateral) shape).getRotation();
+                break;
+            case JournalRecord.COLOR:
+                ColorPalette palette = ColorPalette.getShared();
+                shape.setColorIndex((record.flags & JournalRecord.COLOR_PROVIDED) != 0 ? palette.indexOf(record.argb) :
+                        ColorPalette.NO_COLOR);
+                entry.colorIndex = shape.getColorIndex();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Reads the records of an action back from the log
+     *
+     * @param start logical position of the first record of the action
+     * @param end logical position following the last record of the action
+     * @return decoded records in log order
+     */
+    private List<JournalRecord> readAction(long start, long end){
+        ByteBuffer in;
+        try {
+            in = log.read(start, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read journal log", e);
+        }
+        ArrayList<JournalRecord> action = new ArrayList<>();
+        while(in.hasRemaining()){
+            JournalRecord record = new JournalRecord();
+            if(!record.read(in)) throw new IllegalStateException("Corrupted journal record at " + start);
+            action.add(record);
+        }
+        return action;
+    }
+
+    /**
+     * Appends the record with given undo state
+     *
+     * @param record decoded record
+     * @param state undo state of the record
+     * @param first true for the first record of the action
+     */
+    private void append(JournalRecord record, byte state, boolean first){
+        record.write(log.reserve(record.maxSize()), state, first);
+        records++;
+    }
+
+    /**
+     * Starts a record of the user, opening an action unless one is open
+     *
+     * @param kind kind of the record
+     * @param id id of the shape
+     * @param payload size of the values following the record header
+     * @return buffer the values of the record have to be written to
+     */
+    private ByteBuffer startRecord(byte kind, int id, int payload){
+        ByteBuffer out = log.reserve(JournalRecord.MAX_HEADER_SIZE + payload);
+        boolean first = actionStart < 0;
+        if(first) actionStart = log.position();
+        JournalRecord.writeHeader(out, kind, JournalRecord.DONE, first, id);
+        return out;
+    }
+
+    /**
+     * Completes a record of the user, closing the action unless one has been begun
+     */
+    private void endRecord(){
+        records++;
+        if(actionDepth == 0) closeAction();
+    }
+
+    /**
+     * Adds the open action to the undo history
+     */
+    private void closeAction(){
+        if(actionStart < 0) return;
+        history.done(actionStart, log.position());
+        actionStart = -1;
+        afterAction();
+    }
+
+    /**
+     * Publishes the action to the sync thread, and checks the log once it has been synced
+     */
+    private void afterAction(){
+        log.publish();
+        if(syncInterval == 0 || synced) afterSync();
+    }
+
+    /**
+     * Syncs the log if every action is synced, and checks whether the sync failed and whether a snapshot is due
+     */
+    private void afterSync(){
+        synced = false;
+        IOException failed = failure;
+        if(failed != null) throw new UncheckedIOException("Failed to write journal log", failed);
+        try {
+            if(syncInterval == 0) sync();
+            if(snapshotThreshold > 0 && records >= snapshotThreshold) snapshot();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write journal log", e);
+        }
+    }
+
+    /**
+     * Syncs the log once per sync interval until the journal is closed
+     */
+    private void syncPeriodically(){
+        while(!closed){
+            LockSupport.parkNanos(syncInterval);
+            try {
+                log.sync();
+            } catch (IOException e) {
+                if(failure == null) failure = e;
+                synced = true;
+                return;
+            }
+            synced = true;
+        }
+    }
+
+    /**
+     * Retrieves entry of the shape if its changes are journaled
+     *
+     * @param shape shape object
+     * @return Entry object or null if the shape is not journaled or the journal is not recording
+     */
+    private Entry entryOf(Shape shape){
+        if(applying || closed) return null;
+        int id = shape.getJournalId();
+        if(id < 0 || id >= entries.length) return null;
+        Entry entry = entries[id];
+        return entry != null && entry.shape == shape ? entry : null;
+    }
+
+    /**
+     * Registers shape under given id
+     *
+     * @param shape shape object
+     * @param id id of the shape
+     * @return Entry object
+     */
+    private Entry register(Shape shape, int id){
+        Entry entry = new Entry(id, shape);
+        if(id >= entries.length) entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+        entries[id] = entry;
+        shape.setJournalId(id);
+        return entry;
+    }
+
+    /**
+     * Retrieves path of the snapshot of given generation
+     *
+     * @param generation generation(long)
+     * @return Path object
+     */
+    private Path snapshotPath(long generation){
+        return directory.resolve("snapshot-" + generation + ".scene");
+    }
+
+    /**
+     * Retrieves path of the log of given generation
+     *
+     * @param generation generation(long)
+     * @return Path object
+     */
+    private Path logPath(long generation){
+        return directory.resolve("journal-" + generation + ".log");
+    }
+
+    /**
+     * Parses generation out of a file name
+     *
+     * @param path path of the file
+     * @param prefix start of the name
+     * @param suffix end of the name
+     * @return generation, -1 if the name does not match
+     */
+    private static long generationOf(Path path, String prefix, String suffix){
+        String name = path.getFileName().toString();
+        if(!name.startsWith(prefix) || !name.endsWith(suffix)) return -1;
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Journaled shape with the state needed to journal its next change
+     */
+    private static final class Entry {
+
+        private final int id;
+        private final Shape shape;
+        private double rotation;
+        private int colorIndex;
+
+        private Entry(int id, Shape shape){
+            this.id = id;
+            this.shape = shape;
+            if(shape instanceof Quadrilateral) rotation = ((Quadrilateral) shape).getRotation();
+            colorIndex = shape.getColorIndex();
+        }
+    }
+}
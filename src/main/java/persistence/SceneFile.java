@@ -0,0 +1,405 @@
+package persistence;
+
+import bounding.Point;
+import shapes.Circle;
+import shapes.ColorPalette;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+import store.ShapeStore;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * <h1>SceneFile</h1>
+ * <p>Versioned binary scene format. A file consists of a fixed size header, one fixed size record per shape and<br>
+ * a section of quadrilateral vertices stored as x,y pairs. Every value is stored little endian.<br>
+ * Records store kind, filled state, color, center and dimensions of the shape; quadrilateral records point to<br>
+ * their first vertex, so every record and vertex can be reached directly by its offset.<br>
+ * Since version 2 quadrilaterals are stored as their original vertices and accumulated rotation, so a loaded<br>
+ * quadrilateral keeps rotating without drift; files of version 1 store rotated vertices and are still read.<br>
+ * A scene file is opened by mapping it into memory, which does not read the shapes. Shapes are decoded lazily<br>
+ * the first time they are retrieved, or the records are fed directly into a ShapeStore without creating shape<br>
+ * objects. Saving writes header, records and vertices sequentially through a single reusable buffer</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ShapeStore
+ * @see Shape
+ */
+public class SceneFile {
+
+    /**Stores magic number identifying scene files, "SCNE"*/
+    public static final int MAGIC = 0x454E4353;
+
+    /**Stores version of the format written by this class*/
+    public static final short VERSION = 2;
+
+    /**Stores oldest version of the format read by this class*/
+    private static final short MIN_VERSION = 1;
+
+    /**Stores size of the header in bytes*/
+    private static final int HEADER_SIZE = 32;
+
+    /**Stores size of a single shape record in bytes*/
+    private static final int RECORD_SIZE = 32;
+
+    /**Stores size of the buffer used for saving*/
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**Flag set in records of filled shapes*/
+    private static final int FILLED = 1;
+
+    /**Flag set in records of shapes with provided color*/
+    private static final int COLOR_PROVIDED = 2;
+
+    /**Stores mapped content of the file*/
+    private final ByteBuffer buffer;
+
+    /**Stores version of the format of the file*/
+    private final short version;
+
+    /**Stores number of shape records*/
+    private final int count;
+
+    /**Stores offset of the vertex section in bytes*/
+    private final int verticesOffset;
+
+    /**Stores shapes decoded so far*/
+    private final Shape[] decoded;
+
+    /**
+     * Constructor to initialize the scene out of mapped file content
+     *
+     * @param buffer mapped content of the file
+     * @throws IOException if the content is not a valid scene file
+     */
+    private SceneFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IOException("Not a scene file");
+        version = buffer.getShort(4);
+        if(version < MIN_VERSION || version > VERSION){
+            throw new IOException("Unsupported scene file version: " + version);
+        }
+        if(buffer.getShort(6) != RECORD_SIZE) throw new IOException("Unsupported record size: " + buffer.getShort(6));
+        count = buffer.getInt(8);
+        int vertexCount = buffer.getInt(12);
+        long offset = buffer.getLong(16);
+        if(count < 0 || vertexCount < 0 || offset != HEADER_SIZE + (long) count * RECORD_SIZE ||
+                offset + vertexCount * 8L != buffer.capacity()){
+            throw new IOException("Corrupted scene file");
+        }
+        verticesOffset = (int) offset;
+        decoded = new Shape[count];
+    }
+
+    /**
+     * Opens the scene file by mapping it into memory. Shapes are not read until they are retrieved
+     *
+     * @param path path of the file
+     * @return opened scene
+     * @throws IOException if the file cannot be read or is not a valid scene file
+     */
+    public static SceneFile open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            if(channel.size() > Integer.MAX_VALUE) throw new IOException("Scene file too large: " + channel.size());
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SceneFile(mapped);
+        }
+    }
+
+    /**
+     * Saves the shapes into a scene file, replacing existing file
+     *
+     * @param path path of the file
+     * @param shapes shapes in drawing order
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a shape is not supported by the format
+     */
+    public static void save(Path path, Collection<? extends Shape> shapes) throws IOException {
+        int vertexCount = 0;
+        for(Shape shape : shapes){
+            kindOf(shape);
+            if(shape instanceof Quadrilateral) vertexCount += ((Quadrilateral) shape).getVertexCount();
+        }
+        ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            out.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE)
+                    .putInt(shapes.size()).putInt(vertexCount)
+                    .putLong(HEADER_SIZE + (long) shapes.size() * RECORD_SIZE).putLong(0);
+
+            int firstVertex = 0;
+            for(Shape shape : shapes){
+                if(out.remaining() < RECORD_SIZE) flush(channel, out);
+                firstVertex += putRecord(out, shape, firstVertex);
+            }
+            for(Shape shape : shapes){
+                if(!(shape instanceof Quadrilateral)) continue;
+                Quadrilateral quad = (Quadrilateral) shape;
+                for(int i = 0; i < quad.getVertexCount(); i++){
+                    if(out.remaining() < 8) flush(channel, out);
+                    out.putInt(quad.getOriginalX(i)).putInt(quad.getOriginalY(i));
+                }
+            }
+            flush(channel, out);
+        }
+    }
+
+    /**
+     * Getter method to retrieve number of shapes in the scene
+     *
+     * @return number of shapes(int)
+     */
+    public int size(){
+        return count;
+    }
+
+    /**
+     * Retrieves shape of the scene, decoding it on first access
+     *
+     * @param index position of the shape in drawing order
+     * @return shape object
+     */
+    public synchronized Shape getShape(int index){
+        if(index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+        Shape shape = decoded[index];
+        if(shape == null){
+            shape = decode(HEADER_SIZE + index * RECORD_SIZE);
+            decoded[index] = shape;
+        }
+        return shape;
+    }
+
+    /**
+     * Retrieves read only view of the shapes. Shapes are decoded when the view first reaches them
+     *
+     * @return shapes in drawing order
+     */
+    public List<Shape> getShapes(){
+        return new ShapeList();
+    }
+
+    /**
+     * Feeds every record of the scene directly into the store, without creating shape objects.
+     * Only rotated quadrilaterals are decoded into shape objects, to rotate their vertices
+     *
+     * @param store columnar store the shapes are added to
+     */
+    public void loadInto(ShapeStore store){
+        int[] xs = new int[4], ys = new int[4];
+        for(int index = 0; index < count; index++){
+            int record = HEADER_SIZE + index * RECORD_SIZE;
+            byte kind = buffer.get(record);
+            int flags = buffer.get(record + 1);
+            int argb = (flags & COLOR_PROVIDED) != 0 ? buffer.getInt(record + 4) : 0xFF000000;
+            int xCenter = buffer.getInt(record + 8), yCenter = buffer.getInt(record + 12);
+            int row;
+            switch(kind){
+                case ShapeStore.RECTANGLE:
+                case ShapeStore.SQUARE:
+                    row = store.addRectangle(kind, argb, xCenter, yCenter,
+                            buffer.getInt(record + 16), buffer.getInt(record + 20));
+                    break;
+                case ShapeStore.CIRCLE:
+                    row = store.addCircle(argb, xCenter, yCenter, buffer.getInt(record + 16));
+                    break;
+                case ShapeStore.QUADRILATERAL:
+                    int vertexCount = buffer.getInt(record + 16);
+                    if(vertexCount > xs.length){
+                        xs = new int[vertexCount];
+                        ys = new int[vertexCount];
+                    }
+                    if(rotationOf(record) != 0){
+                        Quadrilateral quad = (Quadrilateral) decode(record);
+                        row = store.addQuadrilateral(argb, xCenter, yCenter, quad.getXCoordinates(),
+                                quad.getYCoordinates(), vertexCount);
+                        break;
+                    }
+                    int vertex = vertexPosition(firstVertexOf(record), vertexCount);
+                    for(int v = 0; v < vertexCount; v++, vertex += 8){
+                        xs[v] = buffer.getInt(vertex);
+                        ys[v] = buffer.getInt(vertex + 4);
+                    }
+                    row = store.addQuadrilateral(argb, xCenter, yCenter, xs, ys, vertexCount);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown shape kind " + kind + " at index " + index);
+            }
+            store.setFilled(row, (flags & FILLED) != 0);
+        }
+    }
+
+    /**
+     * Decodes shape object out of the record
+     *
+     * @param record offset of the record in bytes
+     * @return shape object
+     */
+    private Shape decode(int record){
+        byte kind = buffer.get(record);
+        int flags = buffer.get(record + 1);
+        ColorPalette palette = ColorPalette.getShared();
+        Color color = (flags & COLOR_PROVIDED) != 0 ? palette.getColor(palette.indexOf(buffer.getInt(record + 4))) :
+                null;
+        int xCenter = buffer.getInt(record + 8), yCenter = buffer.getInt(record + 12);
+        Shape shape;
+        switch(kind){
+            case ShapeStore.RECTANGLE:
+                shape = new Rectangle(color, xCenter, yCenter, buffer.getInt(record + 16), buffer.getInt(record + 20));
+                break;
+            case ShapeStore.SQUARE:
+                shape = new Square(color, xCenter, yCenter, buffer.getInt(record + 16));
+                break;
+            case ShapeStore.CIRCLE:
+                shape = new Circle(color, xCenter, yCenter, buffer.getInt(record + 16));
+                break;
+            case ShapeStore.QUADRILATERAL:
+                int vertexCount = buffer.getInt(record + 16);
+                int vertex = vertexPosition(firstVertexOf(record), vertexCount);
+                Point[] points = new Point[vertexCount];
+                for(int v = 0; v < vertexCount; v++, vertex += 8){
+                    points[v] = new Point(buffer.getInt(vertex), buffer.getInt(vertex + 4));
+                }
+                Point center = new Point(xCenter, yCenter);
+                Quadrilateral quad = color != null ? new Quadrilateral(color, center, points) :
+                        new Quadrilateral(center, points);
+                double rotation = rotationOf(record);
+                if(rotation != 0) quad.rotate(rotation);
+                shape = quad;
+                break;
+            default:
+                throw new IllegalStateException("Unknown shape kind " + kind + " at offset " + record);
+        }
+        if((flags & FILLED) != 0) shape.updateFilled();
+        return shape;
+    }
+
+    /**
+     * Retrieves index of the first vertex of a quadrilateral record
+     *
+     * @param record offset of the record in bytes
+     * @return vertex index
+     */
+    private int firstVertexOf(int record){
+        return buffer.getInt(record + (version == 1 ? 24 : 20));
+    }
+
+    /**
+     * Retrieves accumulated rotation of a quadrilateral record
+     *
+     * @param record offset of the record in bytes
+     * @return clockwise rotation in degrees, 0 for files of version 1 storing rotated vertices
+     */
+    private double rotationOf(int record){
+        if(version == 1) return 0;
+        double rotation = buffer.getDouble(record + 24);
+        if(Double.isNaN(rotation) || Double.isInfinite(rotation)) throw new IllegalStateException("Invalid rotation");
+        return rotation;
+    }
+
+    /**
+     * Calculates byte offset of a vertex, checking the vertices lie within the vertex section
+     *
+     * @param firstVertex index of the first vertex of the shape
+     * @param vertexCount number of vertices of the shape
+     * @return offset of the first vertex in bytes
+     */
+    private int vertexPosition(int firstVertex, int vertexCount){
+        long position = verticesOffset + firstVertex * 8L;
+        if(firstVertex < 0 || vertexCount < 0 || position + vertexCount * 8L > buffer.capacity()){
+            throw new IllegalStateException("Vertices out of bounds: " + firstVertex);
+        }
+        return (int) position;
+    }
+
+    /**
+     * Writes record of the shape
+     *
+     * @param out buffer the record is written to
+     * @param shape shape object
+     * @param firstVertex index the first vertex of a quadrilateral is written at
+     * @return number of vertices of the shape
+     */
+    private static int putRecord(ByteBuffer out, Shape shape, int firstVertex){
+        byte kind = kindOf(shape);
+        Color color = shape.getColor();
+        int flags = (shape.isFilled() ? FILLED : 0) | (color != null ? COLOR_PROVIDED : 0);
+        out.put(kind).put((byte) flags).putShort((short) 0).putInt(color != null ? color.getRGB() : 0);
+        int vertexCount = 0;
+        if(kind == ShapeStore.QUADRILATERAL){
+            Quadrilateral quad = (Quadrilateral) shape;
+            vertexCount = quad.getVertexCount();
+            out.putInt(quad.getCenterPoint().getX()).putInt(quad.getCenterPoint().getY())
+                    .putInt(vertexCount).putInt(firstVertex).putDouble(quad.getRotation());
+            return vertexCount;
+        } else if(kind == ShapeStore.CIRCLE){
+            out.putInt(shape.getxCenter()).putInt(shape.getyCenter())
+                    .putInt(((Circle) shape).getRadius()).putInt(0).putInt(0);
+        } else {
+            Rectangle rect = (Rectangle) shape;
+            out.putInt(rect.getxCenter()).putInt(rect.getyCenter())
+                    .putInt(rect.getWidth()).putInt(rect.getHeight()).putInt(0);
+        }
+        out.putInt(0);
+        return vertexCount;
+    }
+
+    /**
+     * Identifies kind of the shape
+     *
+     * @param shape shape object
+     * @return ShapeStore kind of the shape
+     * @throws IllegalArgumentException if the shape is not supported by the format
+     */
+    static byte kindOf(Shape shape){
+        if(shape instanceof Square) return ShapeStore.SQUARE;
+        if(shape instanceof Rectangle) return ShapeStore.RECTANGLE;
+        if(shape instanceof Circle) return ShapeStore.CIRCLE;
+        if(shape instanceof Quadrilateral) return ShapeStore.QUADRILATERAL;
+        throw new IllegalArgumentException("Unsupported shape: " + shape.getClass().getName());
+    }
+
+    /**
+     * Writes content of the buffer to the channel and clears the buffer
+     *
+     * @param channel channel of the file
+     * @param out buffer with pending content
+     * @throws IOException if the content cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while(out.hasRemaining()){
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Read only list view of the scene decoding shapes on access
+     */
+    private final class ShapeList extends AbstractList<Shape> implements RandomAccess {
+
+        @Override
+        public Shape get(int index) {
+            return getShape(index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,600 @@
+package persistence;
+
+import bounding.Point;
+import shapes.Circle;
+import shapes.ColorPalette;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <h1>SceneImporter</h1>
+ * <p>Streaming importer of scenes exported as text. Records are parsed one at a time while the file is read,<br>
+ * without building a document of the whole file, so memory use does not depend on the size of the file.<br>
+ * Parsed shapes are handed over in batches. The first batch is small and the following batches grow up to the<br>
+ * configured batch size, so the first shapes can be painted as soon as the beginning of the file is parsed.<br>
+ * Supported formats:<br>
+ * CSV - one shape per line: <code>kind,color,filled,xCenter,yCenter,...</code> followed by width and height for<br>
+ * rectangles, edge length for squares, radius for circles and x,y pairs of the vertices for quadrilaterals.<br>
+ * Color is written as #RRGGBB or #AARRGGBB and may be empty. Fields may be enclosed in double quotes, a quote<br>
+ * within a quoted field is written twice. Empty lines, lines starting with # and a header line starting with kind<br>
+ * are skipped.<br>
+ * JSON - an array of objects or a sequence of objects, e.g.<br>
+ * <code>{"kind":"circle","color":"#0000FF","filled":false,"x":100,"y":200,"radius":50}</code>. Rectangles use<br>
+ * width and height, squares size, quadrilaterals vertices as an array of [x,y] pairs. Unknown keys are skipped</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Shape
+ */
+public class SceneImporter {
+
+    /**Supported text formats*/
+    public enum Format { CSV, JSON }
+
+    /**Stores default maximum number of shapes in a batch*/
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    /**Stores number of shapes in the first batch*/
+    private static final int FIRST_BATCH_SIZE = 256;
+
+    /**Stores size of the read buffer in chars*/
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**Stores maximum number of shapes in a batch*/
+    private final int batchSize;
+
+    /**
+     * Default constructor, uses default batch size
+     */
+    public SceneImporter(){
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor to initialize the importer with given batch size
+     *
+     * @param batchSize maximum number of shapes in a batch
+     */
+    public SceneImporter(int batchSize){
+        if(batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Identifies format of the file by its extension, .json files are JSON, every other file is CSV
+     *
+     * @param path path of the file
+     * @return format of the file
+     */
+    public static Format formatOf(Path path){
+        return path.getFileName().toString().toLowerCase().endsWith(".json") ? Format.JSON : Format.CSV;
+    }
+
+    /**
+     * Imports the file, format is identified by its extension. Blocks until the whole file is read
+     *
+     * @param path path of the file
+     * @param consumer receives batches of shapes in file order, each batch is a new list
+     * @return number of imported shapes
+     * @throws IOException if the file cannot be read or contains malformed records
+     */
+    public long importFile(Path path, Consumer<List<Shape>> consumer) throws IOException {
+        try(Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+            return importScene(reader, formatOf(path), consumer);
+        }
+    }
+
+    /**
+     * Imports scene from the reader. Blocks until the reader is exhausted
+     *
+     * @param reader source of the text, not closed by the importer
+     * @param format format of the text
+     * @param consumer receives batches of shapes in file order, each batch is a new list
+     * @return number of imported shapes
+     * @throws IOException if the text cannot be read or contains malformed records
+     */
+    public long importScene(Reader reader, Format format, Consumer<List<Shape>> consumer) throws IOException {
+        Batcher batcher = new Batcher(consumer);
+        if(format == Format.JSON){
+            new JsonParser(reader).parse(batcher);
+        } else {
+            parseCsv(reader instanceof BufferedReader ? (BufferedReader) reader :
+                    new BufferedReader(reader, READ_BUFFER_SIZE), batcher);
+        }
+        batcher.flush();
+        return batcher.total;
+    }
+
+    /**
+     * Parses CSV records line by line
+     *
+     * @param reader source of the text
+     * @param batcher collects parsed shapes
+     * @throws IOException if the text cannot be read or contains malformed records
+     */
+    private static void parseCsv(BufferedReader reader, Batcher batcher) throws IOException {
+        Record record = new Record();
+        String line;
+        long lineNumber = 0;
+        while((line = reader.readLine()) != null){
+            lineNumber++;
+            line = line.trim();
+            if(line.isEmpty() || line.startsWith("#") || line.regionMatches(true, 0, "kind", 0, 4) ||
+                    line.regionMatches(true, 0, "\"kind\"", 0, 6)){
+                continue;
+            }
+            try {
+                record.reset();
+                String[] fields = line.indexOf('"') < 0 ? line.split(",", -1) : splitQuoted(line);
+                if(fields.length < 5) throw new IllegalArgumentException("Expected at least 5 fields");
+                record.kind = fields[0].trim();
+                record.color = parseColor(fields[1].trim());
+                record.filled = Boolean.parseBoolean(fields[2].trim());
+                record.x = Integer.parseInt(fields[3].trim());
+                record.y = Integer.parseInt(fields[4].trim());
+                for(int i = 5; i < fields.length; i++){
+                    record.addNumber(Integer.parseInt(fields[i].trim()));
+                }
+                batcher.add(record.toCsvShape());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed record at line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Splits CSV line containing quoted fields. Quotes enclosing a field are removed and a doubled quote within<br>
+     * a quoted field is kept as a single quote
+     *
+     * @param line line of the CSV text
+     * @return fields of the line
+     */
+    private static String[] splitQuoted(String line){
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while(true){
+            while(i < line.length() && line.charAt(i) == ' ') i++;
+            if(i < line.length() && line.charAt(i) == '"'){
+                i++;
+                while(true){
+                    if(i == line.length()) throw new IllegalArgumentException("Unterminated quoted field");
+                    char c = line.charAt(i++);
+                    if(c != '"'){
+                        field.append(c);
+                    } else if(i < line.length() && line.charAt(i) == '"'){
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                while(i < line.length() && line.charAt(i) == ' ') i++;
+                if(i < line.length() && line.charAt(i) != ','){
+                    throw new IllegalArgumentException("Expected , after quoted field");
+                }
+            } else {
+                while(i < line.length() && line.charAt(i) != ',') field.append(line.charAt(i++));
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if(i == line.length()) return fields.toArray(new String[0]);
+            i++;
+        }
+    }
+
+    /**
+     * Parses color written as #RRGGBB or #AARRGGBB. Equal colors are returned as the same shared palette entry,<br>
+     * so no Color object is created per record
+     *
+     * @param value written color, empty if no color is provided
+     * @return Color object or null
+     */
+    private static Color parseColor(String value){
+        if(value.isEmpty() || value.equals("null")) return null;
+        if(value.charAt(0) != '#' || (value.length() != 7 && value.length() != 9)){
+            throw new IllegalArgumentException("Invalid color: " + value);
+        }
+        int argb = (int) Long.parseLong(value.substring(1), 16);
+        if(value.length() == 7) argb |= 0xFF000000;
+        ColorPalette palette = ColorPalette.getShared();
+        return palette.getColor(palette.indexOf(argb));
+    }
+
+    /**
+     * Collects shapes into batches and hands them over to the consumer
+     */
+    private final class Batcher {
+
+        private final Consumer<List<Shape>> consumer;
+        private int limit = Math.min(FIRST_BATCH_SIZE, batchSize);
+        private List<Shape> batch = new ArrayList<>(limit);
+        private long total;
+
+        private Batcher(Consumer<List<Shape>> consumer){
+            this.consumer = consumer;
+        }
+
+        private void add(Shape shape){
+            batch.add(shape);
+            total++;
+            if(batch.size() >= limit){
+                flush();
+                limit = (int) Math.min((long) limit * 2, batchSize);
+                batch = new ArrayList<>(limit);
+            }
+        }
+
+        private void flush(){
+            if(batch.isEmpty()) return;
+            consumer.accept(batch);
+            batch = new ArrayList<>(limit);
+        }
+    }
+
+    /**
+     * Values of a single record. Reused for every record of the file
+     */
+    private static final class Record {
+
+        private String kind;
+        private Color color;
+        private boolean filled;
+        private int x, y, width, height, size, radius;
+        private int[] numbers = new int[8];
+        private int numberCount;
+
+        private void reset(){
+            kind = null;
+            color = null;
+            filled = false;
+            x = y = width = height = size = radius = 0;
+            numberCount = 0;
+        }
+
+        private void addNumber(int number){
+            if(numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numbers.length * 2);
+            numbers[numberCount++] = number;
+        }
+
+        /**
+         * Creates shape out of a CSV record, where the values following the center are kept as numbers
+         *
+         * @return shape object
+         */
+        private Shape toCsvShape(){
+            if("rectangle".equalsIgnoreCase(kind)){
+                expectNumbers(2);
+                width = numbers[0];
+                height = numbers[1];
+            } else if("square".equalsIgnoreCase(kind)){
+                expectNumbers(1);
+                size = numbers[0];
+            } else if("circle".equalsIgnoreCase(kind)){
+                expectNumbers(1);
+                radius = numbers[0];
+            }
+            return toShape();
+        }
+
+        /**
+         * Creates shape out of the record
+         *
+         * @return shape object
+         */
+        private Shape toShape(){
+            if(kind == null) throw new IllegalArgumentException("Missing kind");
+            Shape shape;
+            switch(kind.toLowerCase()){
+                case "rectangle":
+                    shape = new Rectangle(color, x, y, width, height);
+                    break;
+                case "square":
+                    shape = new Square(color, x, y, size);
+                    break;
+                case "circle":
+                    shape = new Circle(color, x, y, radius);
+                    break;
+                case "quadrilateral":
+                    if(numberCount == 0 || numberCount % 2 != 0){
+                        throw new IllegalArgumentException("Expected x,y pairs of vertices");
+                    }
+                    Point[] points = new Point[numberCount / 2];
+                    for(int i = 0; i < points.length; i++){
+                        points[i] = new Point(numbers[i * 2], numbers[i * 2 + 1]);
+                    }
+                    Point center = new Point(x, y);
+                    shape = color != null ? new Quadrilateral(color, center, points) : new Quadrilateral(center, points);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown kind: " + kind);
+            }
+            if(filled) shape.updateFilled();
+            return shape;
+        }
+
+        private void expectNumbers(int expected){
+            if(numberCount != expected){
+                throw new IllegalArgumentException("Expected " + expected + " values for " + kind);
+            }
+        }
+    }
+
+    /**
+     * Minimal pull parser of JSON records. Reads the text char by char through its own buffer and only keeps the<br>
+     * values of the record currently being parsed
+     */
+    private static final class JsonParser {
+
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private final StringBuilder text = new StringBuilder();
+        private final Record record = new Record();
+        private int position, limit;
+        private long line = 1;
+
+        private JsonParser(Reader reader){
+            this.reader = reader;
+        }
+
+        /**
+         * Parses every object of the text, either wrapped in an array or following each other
+         *
+         * @param batcher collects parsed shapes
+         * @throws IOException if the text cannot be read or contains malformed records
+         */
+        private void parse(Batcher batcher) throws IOException {
+            try {
+                int c = skipWhitespace();
+                boolean array = c == '[';
+                if(array){
+                    position++;
+                    c = skipWhitespace();
+                    if(c == ']'){
+                        position++;
+                        c = skipWhitespace();
+                        array = false;
+                    }
+                }
+                while(c == '{'){
+                    parseObject();
+                    batcher.add(record.toShape());
+                    c = skipWhitespace();
+                    if(array){
+                        if(c == ','){
+                            position++;
+                            c = skipWhitespace();
+                        } else if(c == ']'){
+                            position++;
+                            c = skipWhitespace();
+                            array = false;
+                        } else {
+                            throw new IllegalArgumentException("Expected , or ]");
+                        }
+                    }
+                }
+                if(c != -1 || array) throw new IllegalArgumentException("Unexpected content");
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed record at line " + line + ": " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Parses object into the record
+         *
+         * @throws IOException if the text cannot be read
+         */
+        private void parseObject() throws IOException {
+            record.reset();
+            expect('{');
+            int c = skipWhitespace();
+            if(c == '}'){
+                position++;
+                return;
+            }
+            while(true){
+                String key = parseString();
+                expect(':');
+                switch(key){
+                    case "kind":
+                    case "type":
+                        record.kind = parseString();
+                        break;
+                    case "color":
+                        if(skipWhitespace() == 'n') parseLiteral();
+                        else record.color = parseColor(parseString());
+                        break;
+                    case "filled":
+                        record.filled = parseLiteral() == Boolean.TRUE;
+                        break;
+                    case "x": record.x = parseInt(); break;
+                    case "y": record.y = parseInt(); break;
+                    case "width": record.width = parseInt(); break;
+                    case "height": record.height = parseInt(); break;
+                    case "size": record.size = parseInt(); break;
+                    case "radius": record.radius = parseInt(); break;
+                    case "vertices":
+                        parseNumbers();
+                        break;
+                    default:
+                        skipValue();
+                        break;
+                }
+                c = skipWhitespace();
+                position++;
+                if(c == '}') return;
+                if(c != ',') throw new IllegalArgumentException("Expected , or } in object");
+                skipWhitespace();
+            }
+        }
+
+        /**
+         * Parses possibly nested array of numbers into the numbers of the record
+         *
+         * @throws IOException if the text cannot be read
+         */
+        private void parseNumbers() throws IOException {
+            expect('[');
+            int c = skipWhitespace();
+            if(c == ']'){
+                position++;
+                return;
+            }
+            while(true){
+                if(c == '[') parseNumbers();
+                else record.addNumber(parseInt());
+                c = skipWhitespace();
+                position++;
+                if(c == ']') return;
+                if(c != ',') throw new IllegalArgumentException("Expected , or ] in array");
+                c = skipWhitespace();
+            }
+        }
+
+        /**
+         * Skips value of an unknown key, including nested objects and arrays
+         *
+         * @throws IOException if the text cannot be read
+         */
+        private void skipValue() throws IOException {
+            int c = skipWhitespace();
+            if(c == '"'){
+                parseString();
+            } else if(c == '{' || c == '['){
+                int depth = 0;
+                do {
+                    c = skipWhitespace();
+                    if(c == '"'){
+                        parseString();
+                        continue;
+                    }
+                    if(c == -1) throw new IllegalArgumentException("Unexpected end of text");
+                    if(c == '{' || c == '[') depth++;
+                    else if(c == '}' || c == ']') depth--;
+                    position++;
+                } while(depth > 0);
+            } else {
+                while(c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)){
+                    position++;
+                    c = peek();
+                }
+            }
+        }
+
+        private String parseString() throws IOException {
+            expect('"');
+            text.setLength(0);
+            while(true){
+                int c = next();
+                if(c == -1) throw new IllegalArgumentException("Unterminated string");
+                if(c == '"') return text.toString();
+                if(c == '\\'){
+                    c = next();
+                    switch(c){
+                        case 'n': text.append('\n'); break;
+                        case 't': text.append('\t'); break;
+                        case 'r': text.append('\r'); break;
+                        case 'b': text.append('\b'); break;
+                        case 'f': text.append('\f'); break;
+                        case 'u':
+                            int code = 0;
+                            for(int i = 0; i < 4; i++){
+                                code = code * 16 + Character.digit(next(), 16);
+                            }
+                            text.append((char) code);
+                            break;
+                        default:
+                            if(c == -1) throw new IllegalArgumentException("Unterminated string");
+                            text.append((char) c);
+                            break;
+                    }
+                } else {
+                    text.append((char) c);
+                }
+            }
+        }
+
+        private int parseInt() throws IOException {
+            int c = skipWhitespace();
+            boolean negative = c == '-';
+            if(negative){
+                position++;
+                c = peek();
+            }
+            if(c < '0' || c > '9') throw new IllegalArgumentException("Expected number");
+            long value = 0;
+            while(c >= '0' && c <= '9'){
+                value = value * 10 + (c - '0');
+                if(value > Integer.MAX_VALUE + 1L) throw new IllegalArgumentException("Number out of range");
+                position++;
+                c = peek();
+            }
+            if(c == '.' || c == 'e' || c == 'E') throw new IllegalArgumentException("Expected whole number");
+            value = negative ? -value : value;
+            if(value > Integer.MAX_VALUE) throw new IllegalArgumentException("Number out of range");
+            return (int) value;
+        }
+
+        /**
+         * Parses true, false or null
+         *
+         * @return Boolean value, null for null
+         * @throws IOException if the text cannot be read
+         */
+        private Boolean parseLiteral() throws IOException {
+            int c = skipWhitespace();
+            String literal = c == 't' ? "true" : c == 'f' ? "false" : "null";
+            for(int i = 0; i < literal.length(); i++){
+                if(next() != literal.charAt(i)) throw new IllegalArgumentException("Expected " + literal);
+            }
+            return c == 't' ? Boolean.TRUE : c == 'f' ? Boolean.FALSE : null;
+        }
+
+        private void expect(char expected) throws IOException {
+            if(skipWhitespace() != expected) throw new IllegalArgumentException("Expected " + expected);
+            position++;
+        }
+
+        private int skipWhitespace() throws IOException {
+            int c = peek();
+            while(c != -1 && Character.isWhitespace(c)){
+                if(c == '\n') line++;
+                position++;
+                c = peek();
+            }
+            return c;
+        }
+
+        private int next() throws IOException {
+            int c = peek();
+            if(c != -1) position++;
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if(position == limit){
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if(limit <= 0){
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position];
+        }
+    }
+}
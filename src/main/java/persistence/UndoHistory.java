@@ -0,0 +1,162 @@
+package persistence;
+
+import java.util.Arrays;
+
+/**
+ * <h1>UndoHistory</h1>
+ * <p>Actions of a MutationJournal which can be undone and redone, kept as the logical positions of their first and<br>
+ * following last record in the log rather than as copies of the scene. Replaying a log rebuilds the history out of<br>
+ * the undo states of its records.<br>
+ * At most LIMIT actions are kept; older actions are forgotten, so recording an action never copies the history</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see MutationJournal
+ */
+final class UndoHistory {
+
+    /**Stores largest number of actions which can be undone, a power of two*/
+    static final int LIMIT = 1 << 16;
+
+    /**Stores actions which can be undone and actions which can be redone*/
+    private final ActionStack undoStack, redoStack;
+
+    /**
+     * Constructor to initialize an empty history
+     */
+    UndoHistory(){
+        undoStack = new ActionStack();
+        redoStack = new ActionStack();
+    }
+
+    /**
+     * Adds action made by the user, which cannot be followed by redo
+     *
+     * @param start position of the first record of the action
+     * @param end position following the last record of the action
+     */
+    void done(long start, long end){
+        undoStack.push(start, end);
+        redoStack.clear();
+    }
+
+    /**
+     * Moves the last action which can be undone to the actions which can be redone
+     */
+    void undone(){
+        redoStack.push(undoStack.peekStart(), undoStack.peekEnd());
+        undoStack.pop();
+    }
+
+    /**
+     * Replaces the last action which can be redone with the records repeating it
+     *
+     * @param start position of the first repeated record
+     * @param end position following the last repeated record
+     */
+    void redone(long start, long end){
+        redoStack.pop();
+        undoStack.push(start, end);
+    }
+
+    /**
+     * Updates the history with a replayed action
+     *
+     * @param start position of the first record of the action
+     * @param end position following the last record of the action
+     * @param state undo state of the records of the action
+     */
+    void replayed(long start, long end, byte state){
+        if(state == JournalRecord.DONE){
+            done(start, end);
+        } else if(state == JournalRecord.UNDONE){
+            if(canUndo()) undone();
+        } else {
+            redone(start, end);
+        }
+    }
+
+    boolean canUndo(){
+        return !undoStack.isEmpty();
+    }
+
+    boolean canRedo(){
+        return !redoStack.isEmpty();
+    }
+
+    long undoStart(){
+        return undoStack.peekStart();
+    }
+
+    long undoEnd(){
+        return undoStack.peekEnd();
+    }
+
+    long redoStart(){
+        return redoStack.peekStart();
+    }
+
+    long redoEnd(){
+        return redoStack.peekEnd();
+    }
+
+    /**
+     * Forgets every action
+     */
+    void clear(){
+        undoStack.clear();
+        redoStack.clear();
+    }
+
+    /**
+     * Stack of actions as positions of their first and following last record in the log. Grows up to LIMIT actions,<br>
+     * afterwards pushing an action drops the oldest one
+     */
+    private static final class ActionStack {
+
+        private long[] positions = new long[128];
+        private int bottom, size;
+
+        private void push(long start, long end){
+            int capacity = positions.length / 2;
+            if(size == capacity){
+                if(capacity < LIMIT){
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                    capacity *= 2;
+                } else {
+                    bottom = (bottom + 1) & (capacity - 1);
+                    size--;
+                }
+            }
+            int slot = (bottom + size) & (capacity - 1);
+            positions[slot * 2] = start;
+            positions[slot * 2 + 1] = end;
+            size++;
+        }
+
+        private void pop(){
+            if(size > 0) size--;
+        }
+
+        private long peekStart(){
+            return positions[top() * 2];
+        }
+
+        private long peekEnd(){
+            return positions[top() * 2 + 1];
+        }
+
+        private int top(){
+            return (bottom + size - 1) & (positions.length / 2 - 1);
+        }
+
+        private boolean isEmpty(){
+            return size == 0;
+        }
+
+        private void clear(){
+            bottom = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package rendering;
+
+import bounding.BoundingBox;
+import shapes.ColorPalette;
+import shapes.Shape;
+import shapes.ShapeGroup;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * <h1>BatchRenderer</h1>
+ * <p>Collects shapes of a single frame into batches sharing the same drawing state (palette entry of the color<br>
+ * and whether the geometry is filled, outlined, drawn as a dashed bounding box or is a name of a shape).<br>
+ * Geometry of a batch is merged into a single Path2D and submitted with one draw/fill call, so the color and<br>
+ * stroke are set once per batch instead of once per shape.<br>
+ * A shape only joins an earlier batch if it does not overlap any batch submitted after that one, so shapes<br>
+ * which overlap are still painted in the order they were added.<br>
+ * Groups are added leaf by leaf, each leaf placed by the transforms of its groups</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Shape
+ */
+public class BatchRenderer {
+
+    /**Mode of batches filling the geometry*/
+    private static final int FILL = 0;
+
+    /**Mode of batches outlining the geometry*/
+    private static final int DRAW = 1;
+
+    /**Mode of batches drawing dashed bounding boxes*/
+    private static final int BOX = 2;
+
+    /**Mode of batches drawing names*/
+    private static final int TEXT = 3;
+
+    /**Stores number of later batches checked for overlap before a new batch is started*/
+    private static final int MERGE_WINDOW = 64;
+
+    /**Stores batches in submission order*/
+    private final ArrayList<Batch> batches;
+
+    /**Stores most recent batch of each drawing state*/
+    private final HashMap<Long, Batch> latestBatches;
+
+    /**Stores color used for shapes without color*/
+    private final Color defaultColor;
+
+    /**Stores area leaves of groups have to intersect to be added, null to add every leaf*/
+    private final Rectangle area;
+
+    /**Stores reusable path the geometry of a leaf is placed from*/
+    private final Path2D.Float leafPath;
+
+    /**
+     * Constructor to initialize an empty frame adding every leaf of groups
+     *
+     * @param defaultColor color used for shapes without color
+     */
+    public BatchRenderer(Color defaultColor){
+        this(defaultColor, null);
+    }
+
+    /**
+     * Constructor to initialize an empty frame
+     *
+     * @param defaultColor color used for shapes without color
+     * @param area area leaves of groups have to intersect to be added, null to add every leaf
+     */
+    public BatchRenderer(Color defaultColor, Rectangle area){
+        this.defaultColor = defaultColor;
+        this.area = area;
+        batches = new ArrayList<>();
+        latestBatches = new HashMap<>();
+        leafPath = new Path2D.Float();
+    }
+
+    /**
+     * Adds shape to the frame
+     *
+     * @param shape shape object
+     * @param metrics FontMetrics used to draw the name of the shape, null if the name is not displayed
+     * @param displayBoundingBox whether to draw the bounding box of the shape
+     */
+    public void add(Shape shape, FontMetrics metrics, boolean displayBoundingBox){
+        if(shape instanceof ShapeGroup){
+            ((ShapeGroup) shape).forEachLeaf(area, (leaf, transform) -> add(leaf, transform, metrics, false));
+            if(displayBoundingBox) add(shape, null, null, true);
+            return;
+        }
+        add(shape, null, metrics, displayBoundingBox);
+    }
+
+    /**
+     * Adds shape placed by given transform to the frame
+     *
+     * @param shape shape object, not a group
+     * @param transform transform placing the shape, null if the shape is not transformed
+     * @param metrics FontMetrics used to draw the name of the shape, null if the name is not displayed
+     * @param displayBoundingBox whether to draw the bounding box of the shape
+     */
+    private void add(Shape shape, AffineTransform transform, FontMetrics metrics, boolean displayBoundingBox){
+        int color = shape.getDisplayColorIndex();
+        BoundingBox box = shape.getBoundingBox();
+        java.awt.Rectangle bounds = box != null ?
+                new java.awt.Rectangle(box.getX(), box.getY(), box.getWidth(), box.getHeight()) : null;
+        java.awt.Rectangle placed = bounds != null && transform != null ?
+                transform.createTransformedShape(bounds).getBounds() : bounds;
+        int x = placed != null ? placed.x : Integer.MIN_VALUE / 2;
+        int y = placed != null ? placed.y : Integer.MIN_VALUE / 2;
+        int width = placed != null ? placed.width + 1 : Integer.MAX_VALUE;
+        int height = placed != null ? placed.height + 1 : Integer.MAX_VALUE;
+
+        if(!(shape instanceof ShapeGroup)){
+            Batch batch = batchFor(color, shape.isFilled() ? FILL : DRAW, x, y, width, height);
+            if(transform == null){
+                shape.appendGeometry(batch.path);
+            } else {
+                leafPath.reset();
+                shape.appendGeometry(leafPath);
+                batch.path.append(leafPath.getPathIterator(transform), false);
+            }
+        }
+        if(metrics != null){
+            String label = shape.getLabel();
+            Point2D position = new Point2D.Double(shape.getLabelX(), shape.getLabelY());
+            if(transform != null) transform.transform(position, position);
+            int labelX = (int) Math.round(position.getX()), labelY = (int) Math.round(position.getY());
+            Batch text = batchFor(color, TEXT, labelX, labelY - metrics.getAscent(),
+                    metrics.stringWidth(label), metrics.getHeight());
+            text.labels.add(label);
+            text.labelPositions.add(new Point(labelX, labelY));
+        }
+        if(displayBoundingBox && bounds != null){
+            Batch boxes = batchFor(color, BOX, x, y, width, height);
+            boxes.path.append(transform != null ? transform.createTransformedShape(bounds) : bounds, false);
+        }
+    }
+
+    /**
+     * Submits every batch of the frame in order
+     *
+     * @param g used for rendering of the batches
+     */
+    public void submit(Graphics g){
+        Graphics2D g2d = (Graphics2D) g;
+        Stroke defaultStroke = g2d.getStroke();
+        ColorPalette palette = ColorPalette.getShared();
+        for(Batch batch : batches){
+            g2d.setColor(batch.color != ColorPalette.NO_COLOR ? palette.getColor(batch.color) : defaultColor);
+            switch(batch.mode){
+                case FILL:
+                    g2d.fill(batch.path);
+                    break;
+                case DRAW:
+                    g2d.draw(batch.path);
+                    break;
+                case BOX:
+                    g2d.setStroke(BoundingBox.DASHED_STROKE);
+                    g2d.draw(batch.path);
+                    g2d.setStroke(defaultStroke);
+                    break;
+                default:
+                    for(int i = 0; i < batch.labels.size(); i++){
+                        Point position = batch.labelPositions.get(i);
+                        g2d.drawString(batch.labels.get(i), position.x, position.y);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Getter method to retrieve number of batches of the frame
+     *
+     * @return number of batches(int)
+     */
+    public int getBatchCount(){
+        return batches.size();
+    }
+
+    /**
+     * Finds batch the given area can be merged into or starts a new one
+     *
+     * @param color palette index of the color of the geometry
+     * @param mode drawing mode of the geometry
+     * @param x x coordinate of top left corner of the area covered by the geometry
+     * @param y y coordinate of top left corner of the area covered by the geometry
+     * @param width width of the area
+     * @param height height of the area
+     * @return batch the geometry has to be appended to
+     */
+    private Batch batchFor(int color, int mode, int x, int y, int width, int height){
+        long key = ((long) color << 2) | mode;
+        Batch batch = latestBatches.get(key);
+        if(batch == null || !canMerge(batch, x, y, width, height)){
+            batch = new Batch(color, mode, batches.size());
+            batches.add(batch);
+            latestBatches.put(key, batch);
+        }
+        batch.include(x, y, width, height);
+        return batch;
+    }
+
+    /**
+     * Checks whether geometry covering given area can join the batch without changing the painting order of<br>
+     * overlapping geometry
+     *
+     * @param batch candidate batch
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width width of the area
+     * @param height height of the area
+     * @return true if no later batch overlaps the area
+     */
+    private boolean canMerge(Batch batch, int x, int y, int width, int height){
+        if(batches.size() - batch.index - 1 > MERGE_WINDOW) return false;
+        for(int i = batch.index + 1; i < batches.size(); i++){
+            if(batches.get(i).overlaps(x, y, width, height)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Geometry sharing the same drawing state
+     */
+    private static final class Batch {
+
+        /**Stores palette index of the color of the batch*/
+        private final int color;
+
+        /**Stores drawing mode of the batch*/
+        private final int mode;
+
+        /**Stores position of the batch in submission order*/
+        private final int index;
+
+        /**Stores merged geometry*/
+        private final Path2D.Float path;
+
+        /**Stores names and their positions for text batches*/
+        private final ArrayList<String> labels;
+        private final ArrayList<Point> labelPositions;
+
+        /**Stores area covered by the batch*/
+        private long left = Long.MAX_VALUE, top = Long.MAX_VALUE, right = Long.MIN_VALUE, bottom = Long.MIN_VALUE;
+
+        private Batch(int color, int mode, int index){
+            this.color = color;
+            this.mode = mode;
+            this.index = index;
+            path = new Path2D.Float(Path2D.WIND_NON_ZERO);
+            labels = new ArrayList<>();
+            labelPositions = new ArrayList<>();
+        }
+
+        private void include(int x, int y, int width, int height){
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, (long) x + width);
+            bottom = Math.max(bottom, (long) y + height);
+        }
+
+        private boolean overlaps(int x, int y, int width, int height){
+            return x < right && (long) x + width > left && y < bottom && (long) y + height > top;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package rendering;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * <h1>DensityRaster</h1>
+ * <p>Accumulates shapes too small to be rasterised one by one into a raster of device pixels.<br>
+ * Every shape adds its color, weighted by the part of the pixel it covers, to the pixel under its center.<br>
+ * The accumulated pixels are drawn with a single image blit: the color of a pixel is the weighted average color<br>
+ * of its shapes and its opacity grows with the covered area, so dense areas appear solid and sparse areas faint.<br>
+ * Clearing and drawing the raster cost one pass over its pixels, independent of the number of added shapes</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see LevelOfDetail
+ */
+public class DensityRaster {
+
+    /**Stores device area covered by the raster*/
+    private int x, y, width, height;
+
+    /**Stores accumulated coverage and weighted color channels of each pixel*/
+    private float[] coverage, red, green, blue;
+
+    /**Stores image the pixels are written to before drawing*/
+    private BufferedImage image;
+
+    /**Tracks if a shape was added since the raster was reset*/
+    private boolean used;
+
+    /**
+     * Prepares the raster for a new frame covering given device area. Arrays are reused when big enough
+     *
+     * @param x x coordinate of top left corner of the area in device pixels
+     * @param y y coordinate of top left corner of the area in device pixels
+     * @param width width of the area
+     * @param height height of the area
+     */
+    public void reset(int x, int y, int width, int height){
+        this.x = x;
+        this.y = y;
+        this.width = Math.max(width, 0);
+        this.height = Math.max(height, 0);
+        used = false;
+    }
+
+    /**
+     * Adds shape centered at given device position
+     *
+     * @param deviceX x coordinate of center of the shape in device pixels
+     * @param deviceY y coordinate of center of the shape in device pixels
+     * @param argb packed ARGB color of the shape
+     * @param area part of the pixel covered by the shape, 1 covers the whole pixel
+     */
+    public void add(double deviceX, double deviceY, int argb, double area){
+        int px = (int) Math.floor(deviceX) - x, py = (int) Math.floor(deviceY) - y;
+        if(px < 0 || py < 0 || px >= width || py >= height) return;
+        if(!used) clear();
+        int i = py * width + px;
+        float weight = (float) (Math.min(area, 1) * ((argb >>> 24) / 255.0));
+        coverage[i] += weight;
+        red[i] += weight * ((argb >> 16) & 0xFF);
+        green[i] += weight * ((argb >> 8) & 0xFF);
+        blue[i] += weight * (argb & 0xFF);
+    }
+
+    /**
+     * Checks whether no shape was added since the raster was reset
+     *
+     * @return true if there is nothing to draw
+     */
+    public boolean isEmpty(){
+        return !used;
+    }
+
+    /**
+     * Draws accumulated pixels. The pixels are placed in device space, regardless of the transform of the Graphics
+     *
+     * @param g used for drawing the raster
+     */
+    public void drawTo(Graphics2D g){
+        if(!used) return;
+        if(image == null || image.getWidth() < width || image.getHeight() < height){
+            image = new BufferedImage(Math.max(width, image == null ? 1 : image.getWidth()),
+                    Math.max(height, image == null ? 1 : image.getHeight()), BufferedImage.TYPE_INT_ARGB);
+        }
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int stride = image.getWidth();
+        for(int row = 0; row < height; row++){
+            for(int column = 0; column < width; column++){
+                int i = row * width + column;
+                float weight = coverage[i];
+                int pixel = 0;
+                if(weight > 0){
+                    int alpha = (int) (Math.min(weight, 1f) * 255);
+                    pixel = alpha << 24 | (int) (red[i] / weight) << 16 | (int) (green[i] / weight) << 8 |
+                            (int) (blue[i] / weight);
+                }
+                pixels[row * stride + column] = pixel;
+            }
+        }
+        AffineTransform transform = g.getTransform();
+        g.setTransform(new AffineTransform());
+        g.drawImage(image, x, y, x + width, y + height, 0, 0, width, height, null);
+        g.setTransform(transform);
+    }
+
+    /**
+     * Clears accumulated pixels of the current area, growing the arrays when necessary
+     */
+    private void clear(){
+        int size = width * height;
+        if(coverage == null || coverage.length < size){
+            coverage = new float[size];
+            red = new float[size];
+            green = new float[size];
+            blue = new float[size];
+        } else {
+            Arrays.fill(coverage, 0, size, 0f);
+            Arrays.fill(red, 0, size, 0f);
+            Arrays.fill(green, 0, size, 0f);
+            Arrays.fill(blue, 0, size, 0f);
+        }
+        used = true;
+    }
+}
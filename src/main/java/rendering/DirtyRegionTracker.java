@@ -0,0 +1,129 @@
+package rendering;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h1>DirtyRegionTracker</h1>
+ * <p>Collects areas of the canvas damaged by shape changes since the last repaint.<br>
+ * Overlapping areas are merged together. Once the number of separate areas exceeds the limit, all of them are<br>
+ * collapsed into a single area, so the amount of tracked data stays bounded.<br>
+ * Rectangle objects are recycled between drains, so marking areas does not allocate once warmed up</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class DirtyRegionTracker {
+
+    /**Stores default limit of separately tracked areas*/
+    public static final int DEFAULT_REGION_LIMIT = 32;
+
+    /**Stores limit of separately tracked areas*/
+    private final int regionLimit;
+
+    /**Stores damaged areas*/
+    private ArrayList<Rectangle> regions;
+
+    /**Stores areas handed out by the last drain*/
+    private ArrayList<Rectangle> drained;
+
+    /**Stores recycled Rectangle objects*/
+    private final ArrayList<Rectangle> pool;
+
+    /**
+     * Default constructor, uses default region limit
+     */
+    public DirtyRegionTracker(){
+        this(DEFAULT_REGION_LIMIT);
+    }
+
+    /**
+     * Constructor to initialize the tracker with given region limit
+     *
+     * @param regionLimit maximum number of separately tracked areas
+     */
+    public DirtyRegionTracker(int regionLimit){
+        if(regionLimit < 1) throw new IllegalArgumentException("Region limit must be positive: " + regionLimit);
+        this.regionLimit = regionLimit;
+        regions = new ArrayList<>();
+        drained = new ArrayList<>();
+        pool = new ArrayList<>();
+    }
+
+    /**
+     * Marks given area as damaged. Merges the area into a tracked area it overlaps with
+     *
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width width of the area
+     * @param height height of the area
+     */
+    public void add(int x, int y, int width, int height){
+        if(width <= 0 || height <= 0) return;
+        for(Rectangle region : regions){
+            if(region.intersects(x, y, width, height)){
+                int right = Math.max(region.x + region.width, x + width);
+                int bottom = Math.max(region.y + region.height, y + height);
+                int left = Math.min(region.x, x), top = Math.min(region.y, y);
+                region.setBounds(left, top, right - left, bottom - top);
+                return;
+            }
+        }
+        regions.add(obtain(x, y, width, height));
+        if(regions.size() > regionLimit) collapse();
+    }
+
+    /**
+     * Checks whether any area is damaged
+     *
+     * @return true if nothing has been damaged since the last drain
+     */
+    public boolean isEmpty(){
+        return regions.isEmpty();
+    }
+
+    /**
+     * Retrieves damaged areas and resets the tracker.
+     * The returned list and its Rectangle objects are only valid until the next drain
+     *
+     * @return damaged areas
+     */
+    public List<Rectangle> drain(){
+        pool.addAll(drained);
+        drained.clear();
+        ArrayList<Rectangle> result = regions;
+        regions = drained;
+        drained = result;
+        return result;
+    }
+
+    /**
+     * Collapses every tracked area into a single area covering all of them
+     */
+    private void collapse(){
+        Rectangle union = regions.get(0);
+        for(int i = 1; i < regions.size(); i++){
+            union.add(regions.get(i));
+            pool.add(regions.get(i));
+        }
+        regions.clear();
+        regions.add(union);
+    }
+
+    /**
+     * Retrieves recycled Rectangle object set to given values, or a new one if none is available
+     *
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width width of the area
+     * @param height height of the area
+     * @return Rectangle object
+     */
+    private Rectangle obtain(int x, int y, int width, int height){
+        if(pool.isEmpty()) return new Rectangle(x, y, width, height);
+        Rectangle rectangle = pool.remove(pool.size() - 1);
+        rectangle.setBounds(x, y, width, height);
+        return rectangle;
+    }
+}
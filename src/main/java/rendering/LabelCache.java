@@ -0,0 +1,314 @@
+package rendering;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <h1>LabelCache</h1>
+ * <p>Bounded least recently used cache of rasterised labels (names of shapes).<br>
+ * A label is laid out and rasterised once per text, font, color and text rendering hints into a translucent<br>
+ * image, drawing it afterwards is a single image blit instead of a glyph layout per frame.<br>
+ * Images are only used while the Graphics is not scaled, rotated or sheared, as a scaled image would not match<br>
+ * text rasterised at that scale; the text is drawn directly otherwise. Keeps hit and miss statistics</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see SpriteCache
+ */
+public class LabelCache {
+
+    /**Stores default maximum number of cached labels*/
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**Stores rasterised labels in least recently used order*/
+    private final LinkedHashMap<LabelKey, Label> labels;
+
+    /**Stores maximum number of cached labels*/
+    private final int capacity;
+
+    /**Stores statistics*/
+    private long hits, misses;
+
+    /**
+     * Default constructor, uses default capacity
+     */
+    public LabelCache(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to initialize the cache with given capacity
+     *
+     * @param capacity maximum number of cached labels
+     */
+    public LabelCache(int capacity){
+        if(capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        labels = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * Starts drawing labels with given Graphics. Font, transform and rendering hints are read once, so they must<br>
+     * not change until the last label of the pass is drawn
+     *
+     * @param g used for drawing the labels
+     * @return pass drawing labels with the Graphics
+     */
+    public Pass begin(Graphics2D g){
+        return new Pass(g);
+    }
+
+    /**
+     * Checks whether text is antialiased for LCD screens. Such text is blended with the pixels below it per color<br>
+     * channel, which a translucent image cannot reproduce
+     *
+     * @param antialiasing value of the text antialiasing hint
+     * @return true for LCD antialiasing
+     */
+    private static boolean isSubpixel(Object antialiasing){
+        return antialiasing == RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB ||
+                antialiasing == RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HBGR ||
+                antialiasing == RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_VRGB ||
+                antialiasing == RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_VBGR;
+    }
+
+    /**
+     * Removes every label and resets statistics
+     */
+    public synchronized void clear(){
+        labels.clear();
+        hits = misses = 0;
+    }
+
+    /**
+     * Getter method to retrieve number of cache hits
+     *
+     * @return number of hits
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    /**
+     * Getter method to retrieve number of cache misses
+     *
+     * @return number of misses
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Getter method to retrieve number of cached labels
+     *
+     * @return number of labels
+     */
+    public synchronized int size(){
+        return labels.size();
+    }
+
+    /**
+     * Retrieves rasterised label, rasterising it on a miss
+     *
+     * @param key text, font, color and hints of the label
+     * @param g Graphics the label is drawn with
+     * @return rasterised label
+     */
+    private synchronized Label getLabel(LabelKey key, Graphics2D g){
+        Label label = labels.get(key);
+        if(label != null){
+            hits++;
+            return label;
+        }
+        misses++;
+        label = rasterise(key, g);
+        labels.put(key, label);
+        Iterator<Map.Entry<LabelKey, Label>> iterator = labels.entrySet().iterator();
+        while(labels.size() > capacity && iterator.hasNext()){
+            iterator.next();
+            iterator.remove();
+        }
+        return label;
+    }
+
+    /**
+     * Lays out and rasterises the label into a new translucent image covering its pixel bounds
+     *
+     * @param key text, font, color and hints of the label
+     * @param g Graphics the label is drawn with
+     * @return rasterised label
+     */
+    private static Label rasterise(LabelKey key, Graphics2D g){
+        FontMetrics metrics = g.getFontMetrics(key.font);
+        int width = metrics.stringWidth(key.text) + metrics.getMaxAdvance() + 2;
+        int left = metrics.getMaxAdvance() / 2 + 1, top = metrics.getAscent() + metrics.getLeading() + 1;
+        int height = top + metrics.getDescent() + 2;
+        BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D labelGraphics = canvas.createGraphics();
+        if(key.antialiasing != null){
+            labelGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, key.antialiasing);
+        }
+        if(key.fractionalMetrics != null){
+            labelGraphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, key.fractionalMetrics);
+        }
+        labelGraphics.setFont(key.font);
+        labelGraphics.setColor(new Color(key.argb, true));
+        labelGraphics.drawString(key.text, left, top);
+        labelGraphics.dispose();
+        Rectangle bounds = opaqueBounds(canvas);
+        if(bounds == null) return new Label(null, 0, 0);
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D imageGraphics = image.createGraphics();
+        imageGraphics.setComposite(AlphaComposite.Src);
+        imageGraphics.drawImage(canvas, -bounds.x, -bounds.y, null);
+        imageGraphics.dispose();
+        return new Label(image, bounds.x - left, bounds.y - top);
+    }
+
+    /**
+     * Finds the smallest area containing every non transparent pixel of the image
+     *
+     * @param image rasterised label
+     * @return area or null if the image is fully transparent
+     */
+    private static Rectangle opaqueBounds(BufferedImage image){
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+        for(int y = 0; y < image.getHeight(); y++){
+            for(int x = 0; x < image.getWidth(); x++){
+                if((image.getRGB(x, y) >>> 24) == 0) continue;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        return maxX < 0 ? null : new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    /**
+     * Labels drawn with the same Graphics. Remembers the most recently drawn labels, so labels repeating within<br>
+     * the pass are found without a lookup in the cache
+     */
+    public final class Pass {
+
+        /**Stores number of remembered labels, has to be power of two*/
+        private static final int RECENT = 16;
+
+        private final Graphics2D g;
+        private final Font font;
+        private final Object antialiasing, fractionalMetrics;
+        private final boolean direct;
+        private final String[] recentTexts = new String[RECENT];
+        private final int[] recentColors = new int[RECENT];
+        private final Label[] recentLabels = new Label[RECENT];
+        private int next;
+
+        private Pass(Graphics2D g){
+            this.g = g;
+            font = g.getFont();
+            antialiasing = g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
+            fractionalMetrics = g.getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS);
+            direct = (g.getTransform().getType() & ~AffineTransform.TYPE_TRANSLATION) != 0 ||
+                    isSubpixel(antialiasing);
+        }
+
+        /**
+         * Draws the label with its baseline starting at given position, the same way Graphics.drawString does
+         *
+         * @param text text of the label
+         * @param x x coordinate of the start of the baseline
+         * @param y y coordinate of the baseline
+         * @param color color of the label
+         */
+        public void drawLabel(String text, int x, int y, Color color){
+            if(text.isEmpty()) return;
+            if(direct){
+                g.setColor(color);
+                g.drawString(text, x, y);
+                return;
+            }
+            int argb = color.getRGB();
+            Label label = null;
+            for(int i = 0; i < RECENT; i++){
+                if(recentTexts[i] == text && recentColors[i] == argb){
+                    label = recentLabels[i];
+                    break;
+                }
+            }
+            if(label == null){
+                label = getLabel(new LabelKey(text, font, argb, antialiasing, fractionalMetrics), g);
+                recentTexts[next] = text;
+                recentColors[next] = argb;
+                recentLabels[next] = label;
+                next = (next + 1) & (RECENT - 1);
+            } else {
+                recordHit();
+            }
+            if(label.image != null) g.drawImage(label.image, x + label.x, y + label.y, null);
+        }
+    }
+
+    /**
+     * Counts label found among the recently drawn labels of a pass
+     */
+    private synchronized void recordHit(){
+        hits++;
+    }
+
+    /**
+     * Rasterised label and the offset of the image from the start of the baseline
+     */
+    private static final class Label {
+
+        private final BufferedImage image;
+        private final int x, y;
+
+        private Label(BufferedImage image, int x, int y){
+            this.image = image;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Key of a label: text, font, color and text rendering hints
+     */
+    private static final class LabelKey {
+
+        private final String text;
+        private final Font font;
+        private final int argb;
+        private final Object antialiasing, fractionalMetrics;
+        private final int hash;
+
+        private LabelKey(String text, Font font, int argb, Object antialiasing, Object fractionalMetrics){
+            this.text = text;
+            this.font = font;
+            this.argb = argb;
+            this.antialiasing = antialiasing;
+            this.fractionalMetrics = fractionalMetrics;
+            hash = (((text.hashCode() * 31 + font.hashCode()) * 31 + argb) * 31 + Objects.hashCode(antialiasing)) * 31 +
+                    Objects.hashCode(fractionalMetrics);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) return true;
+            if(!(other instanceof LabelKey)) return false;
+            LabelKey key = (LabelKey) other;
+            return hash == key.hash && argb == key.argb && text.equals(key.text) && font.equals(key.font) &&
+                    Objects.equals(antialiasing, key.antialiasing) &&
+                    Objects.equals(fractionalMetrics, key.fractionalMetrics);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package rendering;
+
+import shapes.ColorPalette;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * <h1>LayerCache</h1>
+ * <p>Splits drawing into a static layer retained as an image and a hot layer drawn live on top of it.<br>
+ * Areas changed within the hot window (a shape filled, moved, rotated, added or removed) form the hot layer:<br>
+ * they are cut out of the image and drawn live, every shape within them in drawing order, so a hot shape below<br>
+ * static shapes stays below them. Once an area has not changed for the whole window it is baked back into the<br>
+ * image, so shapes move between the layers automatically. Drawing a frame is a single image blit plus the shapes<br>
+ * of the hot areas, its cost follows the number of hot shapes instead of the number of shapes.<br>
+ * The image is kept in device space; it is reused while the Graphics differs only by a whole pixel translation<br>
+ * and rendered again when the scale, rotation, font, color, rendering hints or a palette entry changes.<br>
+ * Text antialiasing for LCD screens is drawn as grayscale antialiasing in the image, as the image is translucent.<br>
+ * A frame drawn in parts prepares the image once, the parts then draw the prepared Layer without a lock</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see manager.ShapesManager
+ */
+public class LayerCache {
+
+    /**Stores default time in milliseconds an area stays hot after its last change*/
+    public static final long DEFAULT_HOT_WINDOW = 2000;
+
+    /**Stores transparent color used to clear the image*/
+    private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+
+    /**Stores largest image in pixels kept when the image grows, as a multiple of the drawn area*/
+    private static final int MAX_GROWTH = 4;
+
+    /**Stores time in nanoseconds an area stays hot after its last change*/
+    private final long hotWindow;
+
+    /**Stores hot areas in world coordinates*/
+    private final ArrayList<HotArea> hotAreas;
+
+    /**Stores image of the static layer, null until the first frame*/
+    private BufferedImage image;
+
+    /**Stores area covered by the image, in device space without the whole pixel translation*/
+    private Rectangle imageBounds;
+
+    /**Stores state of the Graphics the image was rendered for*/
+    private AffineTransform baseTransform;
+    private Font font;
+    private Color color;
+    private Stroke stroke;
+    private RenderingHints hints;
+    private int paletteVersion;
+
+    /**Stores statistics: full renders of the image and areas baked into it*/
+    private long rebuilds, bakes;
+
+    /**
+     * Default constructor, uses default hot window
+     */
+    public LayerCache(){
+        this(DEFAULT_HOT_WINDOW);
+    }
+
+    /**
+     * Constructor to initialize the cache with given hot window
+     *
+     * @param hotWindowMillis time in milliseconds an area stays hot after its last change
+     */
+    public LayerCache(long hotWindowMillis){
+        if(hotWindowMillis < 0) throw new IllegalArgumentException("Hot window is negative: " + hotWindowMillis);
+        hotWindow = hotWindowMillis * 1_000_000;
+        hotAreas = new ArrayList<>();
+    }
+
+    /**
+     * Marks given area as changed, so it is drawn live until it has not changed for the hot window.
+     * Merges the area into a hot area it overlaps with
+     *
+     * @param x x coordinate of top left corner of the area in world coordinates
+     * @param y y coordinate of top left corner of the area in world coordinates
+     * @param width width of the area
+     * @param height height of the area
+     */
+    public synchronized void markHot(int x, int y, int width, int height){
+        if(width <= 0 || height <= 0) return;
+        Rectangle bounds = new Rectangle(x, y, width, height);
+        for(int i = 0; i < hotAreas.size(); i++){
+            if(!hotAreas.get(i).bounds.intersects(bounds)) continue;
+            bounds.add(hotAreas.remove(i).bounds);
+            i = -1;
+        }
+        hotAreas.add(new HotArea(bounds, System.nanoTime()));
+    }
+
+    /**
+     * Discards the image, so the next frame renders every shape again.
+     * Has to be called when shapes are drawn differently, e.g. names are turned on
+     */
+    public synchronized void invalidate(){
+        image = null;
+    }
+
+    /**
+     * Getter method to retrieve number of hot areas
+     *
+     * @return number of areas(int)
+     */
+    public synchronized int getHotAreaCount(){
+        return hotAreas.size();
+    }
+
+    /**
+     * Getter method to retrieve number of times the whole image has been rendered
+     *
+     * @return number of renders(long)
+     */
+    public synchronized long getRebuildCount(){
+        return rebuilds;
+    }
+
+    /**
+     * Getter method to retrieve number of hot areas baked into the image after cooling down
+     *
+     * @return number of areas(long)
+     */
+    public synchronized long getBakeCount(){
+        return bakes;
+    }
+
+    /**
+     * Draws a frame: bakes cooled areas into the image, draws the image and draws the hot areas live.
+     * The painter draws every shape within the clip area of the Graphics it is given. A Graphics without clip<br>
+     * area is drawn by the painter directly, as the area the image has to cover is unknown
+     *
+     * @param g used for drawing the frame
+     * @param painter draws the shapes
+     */
+    public synchronized void draw(Graphics2D g, Consumer<Graphics2D> painter){
+        Layer layer = prepare(g, painter);
+        if(layer != null) layer.draw(g, painter);
+        else if(g.getClip() == null) painter.accept(g);
+    }
+
+    /**
+     * Prepares the static layer of a frame drawn in parts, e.g. by the tiles of a TiledRenderer: renders the image<br>
+     * again if it is invalid or does not cover the clip area of the Graphics, bakes cooled areas into it and cuts<br>
+     * the hot areas out. The parts then draw the returned layer in parallel and without a lock, each through a<br>
+     * Graphics in the same state apart from a whole pixel translation and a clip area within the one given here
+     *
+     * @param g Graphics covering every part of the frame
+     * @param painter draws the shapes
+     * @return layer valid until the cache is prepared or drawn again, null if the clip area is missing or empty
+     */
+    public synchronized Layer prepare(Graphics2D g, Consumer<Graphics2D> painter){
+        AffineTransform transform = g.getTransform();
+        int offsetX = (int) Math.floor(transform.getTranslateX());
+        int offsetY = (int) Math.floor(transform.getTranslateY());
+        AffineTransform base = new AffineTransform(transform);
+        base.preConcatenate(AffineTransform.getTranslateInstance(-offsetX, -offsetY));
+        Shape clip = g.getClip();
+        if(clip == null) return null;
+        Rectangle area = transform.createTransformedShape(clip).getBounds();
+        area.translate(-offsetX, -offsetY);
+        if(area.isEmpty()) return null;
+
+        if(image == null || !matches(g, base)) rebuild(g, base, area, painter);
+        else if(!imageBounds.contains(area)) rebuild(g, base, grow(area), painter);
+        cool(painter);
+        cutHotAreas();
+        Rectangle[] hot = new Rectangle[hotAreas.size()];
+        for(int i = 0; i < hot.length; i++){
+            hot[i] = toDevice(hotAreas.get(i).bounds);
+        }
+        return new Layer(image, imageBounds, baseTransform, font, color, stroke, hints, hot);
+    }
+
+    /**
+     * Checks whether the image has been rendered for the state of given Graphics
+     *
+     * @param g used for drawing the frame
+     * @param base transform of the Graphics without the whole pixel translation
+     * @return true if the image can be reused
+     */
+    private boolean matches(Graphics2D g, AffineTransform base){
+        return base.equals(baseTransform) && g.getFont().equals(font) && g.getColor().equals(color) &&
+                g.getStroke().equals(stroke) && g.getRenderingHints().equals(hints) &&
+                ColorPalette.getShared().getVersion() == paletteVersion;
+    }
+
+    /**
+     * Extends area by the area covered by the image, unless the image would grow too large
+     *
+     * @param area area which has to be covered
+     * @return area the image is rendered for
+     */
+    private Rectangle grow(Rectangle area){
+        Rectangle union = area.union(imageBounds);
+        return (long) union.width * union.height > (long) MAX_GROWTH * area.width * area.height ? area : union;
+    }
+
+    /**
+     * Renders every shape within given area into a new image and remembers the state of the Graphics
+     *
+     * @param g used for drawing the frame
+     * @param base transform of the Graphics without the whole pixel translation
+     * @param area area the image covers
+     * @param painter draws the shapes
+     */
+    private void rebuild(Graphics2D g, AffineTransform base, Rectangle area, Consumer<Graphics2D> painter){
+        baseTransform = base;
+        font = g.getFont();
+        color = g.getColor();
+        stroke = g.getStroke();
+        hints = (RenderingHints) g.getRenderingHints().clone();
+        paletteVersion = ColorPalette.getShared().getVersion();
+        image = new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_ARGB);
+        imageBounds = new Rectangle(area);
+        render(imageBounds, painter);
+        for(HotArea hot : hotAreas){
+            hot.cut = false;
+        }
+        rebuilds++;
+    }
+
+    /**
+     * Bakes areas which have not changed for the hot window into the image. Hot areas overlapping a baked area<br>
+     * are cut out again
+     *
+     * @param painter draws the shapes
+     */
+    private void cool(Consumer<Graphics2D> painter){
+        long now = System.nanoTime();
+        ArrayList<Rectangle> baked = new ArrayList<>();
+        for(Iterator<HotArea> iterator = hotAreas.iterator(); iterator.hasNext(); ){
+            HotArea hot = iterator.next();
+            if(now - hot.changed < hotWindow) continue;
+            iterator.remove();
+            Rectangle device = toDevice(hot.bounds).intersection(imageBounds);
+            if(!device.isEmpty()){
+                render(device, painter);
+                baked.add(device);
+            }
+            bakes++;
+        }
+        for(Rectangle device : baked){
+            for(HotArea hot : hotAreas){
+                if(toDevice(hot.bounds).intersects(device)) hot.cut = false;
+            }
+        }
+    }
+
+    /**
+     * Clears hot areas which are not cut out of the image yet, so the image does not show their stale content
+     */
+    private void cutHotAreas(){
+        Graphics2D ig = null;
+        for(HotArea hot : hotAreas){
+            if(hot.cut) continue;
+            hot.cut = true;
+            Rectangle device = toDevice(hot.bounds);
+            if(!device.intersects(imageBounds)) continue;
+            if(ig == null){
+                ig = image.createGraphics();
+                ig.setComposite(AlphaComposite.Src);
+                ig.setColor(TRANSPARENT);
+            }
+            ig.fillRect(device.x - imageBounds.x, device.y - imageBounds.y, device.width, device.height);
+        }
+        if(ig != null) ig.dispose();
+    }
+
+    /**
+     * Renders every shape within given area into the image
+     *
+     * @param device area in device space without the whole pixel translation
+     * @param painter draws the shapes
+     */
+    private void render(Rectangle device, Consumer<Graphics2D> painter){
+        Graphics2D ig = image.createGraphics();
+        ig.setComposite(AlphaComposite.Src);
+        ig.setColor(TRANSPARENT);
+        ig.fillRect(device.x - imageBounds.x, device.y - imageBounds.y, device.width, device.height);
+        ig.setComposite(AlphaComposite.SrcOver);
+        ig.setRenderingHints(hints);
+        ig.setFont(font);
+        ig.setColor(color);
+        ig.setStroke(stroke);
+        ig.translate(-imageBounds.x, -imageBounds.y);
+        ig.clipRect(device.x, device.y, device.width, device.height);
+        ig.transform(baseTransform);
+        painter.accept(ig);
+        ig.dispose();
+    }
+
+    /**
+     * Converts area in world coordinates to the device pixels covering it, one pixel wider on every side to<br>
+     * cover antialiased edges
+     *
+     * @param world area in world coordinates
+     * @return area in device space without the whole pixel translation
+     */
+    private Rectangle toDevice(Rectangle world){
+        Rectangle device = baseTransform.createTransformedShape(world).getBounds();
+        device.grow(1, 1);
+        return device;
+    }
+
+    /**
+     * Static layer prepared for a frame: the image, the state of the Graphics it has been rendered for and the<br>
+     * hot areas cut out of it. Only reads the image, so several threads may draw parts of the frame at once
+     */
+    public static final class Layer {
+
+        private final BufferedImage image;
+        private final Rectangle imageBounds;
+        private final AffineTransform baseTransform;
+        private final Font font;
+        private final Color color;
+        private final Stroke stroke;
+        private final RenderingHints hints;
+
+        /**Stores hot areas in device space without the whole pixel translation*/
+        private final Rectangle[] hotAreas;
+
+        private Layer(BufferedImage image, Rectangle imageBounds, AffineTransform baseTransform, Font font,
+                      Color color, Stroke stroke, RenderingHints hints, Rectangle[] hotAreas){
+            this.image = image;
+            this.imageBounds = imageBounds;
+            this.baseTransform = baseTransform;
+            this.font = font;
+            this.color = color;
+            this.stroke = stroke;
+            this.hints = hints;
+            this.hotAreas = hotAreas;
+        }
+
+        /**
+         * Draws the image within the clip area of the Graphics and draws the hot areas within it live.
+         * The painter draws every shape of a Graphics which does not match the layer or is not covered by the image
+         *
+         * @param g used for drawing a part of the frame
+         * @param painter draws the shapes
+         */
+        public void draw(Graphics2D g, Consumer<Graphics2D> painter){
+            AffineTransform transform = g.getTransform();
+            int offsetX = (int) Math.floor(transform.getTranslateX());
+            int offsetY = (int) Math.floor(transform.getTranslateY());
+            AffineTransform base = new AffineTransform(transform);
+            base.preConcatenate(AffineTransform.getTranslateInstance(-offsetX, -offsetY));
+            Shape clip = g.getClip();
+            Rectangle area = clip != null ? transform.createTransformedShape(clip).getBounds() : null;
+            if(area != null) area.translate(-offsetX, -offsetY);
+            if(area == null || !base.equals(baseTransform) || !imageBounds.contains(area) ||
+                    !g.getFont().equals(font) || !g.getColor().equals(color) || !g.getStroke().equals(stroke) ||
+                    !g.getRenderingHints().equals(hints)){
+                painter.accept(g);
+                return;
+            }
+            if(area.isEmpty()) return;
+
+            Color defaultColor = g.getColor();
+            g.setTransform(AffineTransform.getTranslateInstance(offsetX, offsetY));
+            g.drawImage(image, imageBounds.x, imageBounds.y, null);
+            for(Rectangle device : hotAreas){
+                if(!device.intersects(area)) continue;
+                g.setTransform(AffineTransform.getTranslateInstance(offsetX, offsetY));
+                g.clipRect(device.x, device.y, device.width, device.height);
+                g.setTransform(transform);
+                painter.accept(g);
+                g.setClip(clip);
+                g.setColor(defaultColor);
+            }
+            g.setTransform(transform);
+        }
+    }
+
+    /**
+     * Area drawn live because it has changed recently
+     */
+    private static final class HotArea {
+
+        /**Stores area in world coordinates*/
+        private final Rectangle bounds;
+
+        /**Stores time of the last change in nanoseconds*/
+        private final long changed;
+
+        /**Tracks whether the area has been cleared in the image*/
+        private boolean cut;
+
+        private HotArea(Rectangle bounds, long changed){
+            this.bounds = bounds;
+            this.changed = changed;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package rendering;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+
+/**
+ * <h1>LevelOfDetail</h1>
+ * <p>Level of detail settings for rendering zoomed out scenes.<br>
+ * Shapes which extent on screen is below the collapse size are not rasterised, they are accumulated into a<br>
+ * DensityRaster and drawn as single pixels after the other shapes. Names and bounding boxes are only drawn for<br>
+ * shapes which extent on screen reaches the decoration size.<br>
+ * The screen extent of a shape is the longer edge of its bounding box multiplied by the scale of the transform<br>
+ * of the Graphics it is drawn with</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see DensityRaster
+ * @see Viewport
+ */
+public class LevelOfDetail {
+
+    /**Stores default screen extent below which shapes are collapsed into pixels*/
+    public static final double DEFAULT_COLLAPSE_SIZE = 2;
+
+    /**Stores default screen extent below which names and bounding boxes are not drawn*/
+    public static final double DEFAULT_DECORATION_SIZE = 16;
+
+    /**Stores screen extent below which shapes are collapsed into pixels*/
+    private final double collapseSize;
+
+    /**Stores screen extent below which names and bounding boxes are not drawn*/
+    private final double decorationSize;
+
+    /**Stores raster of each rendering thread, so tiles can be rendered in parallel*/
+    private final ThreadLocal<DensityRaster> rasters = ThreadLocal.withInitial(DensityRaster::new);
+
+    /**
+     * Default constructor, uses default sizes
+     */
+    public LevelOfDetail(){
+        this(DEFAULT_COLLAPSE_SIZE, DEFAULT_DECORATION_SIZE);
+    }
+
+    /**
+     * Constructor to initialize the settings with given sizes
+     *
+     * @param collapseSize screen extent in pixels below which shapes are collapsed into pixels
+     * @param decorationSize screen extent in pixels below which names and bounding boxes are not drawn
+     */
+    public LevelOfDetail(double collapseSize, double decorationSize){
+        if(collapseSize < 0 || decorationSize < 0) throw new IllegalArgumentException("Sizes must not be negative");
+        this.collapseSize = collapseSize;
+        this.decorationSize = decorationSize;
+    }
+
+    /**
+     * Getter method to retrieve screen extent below which shapes are collapsed into pixels
+     *
+     * @return size in pixels
+     */
+    public double getCollapseSize(){
+        return collapseSize;
+    }
+
+    /**
+     * Getter method to retrieve screen extent below which names and bounding boxes are not drawn
+     *
+     * @return size in pixels
+     */
+    public double getDecorationSize(){
+        return decorationSize;
+    }
+
+    /**
+     * Calculates how many screen pixels one unit of the user space of the Graphics covers
+     *
+     * @param g used for rendering of the shapes
+     * @return scale of the transform of the Graphics
+     */
+    public static double scaleOf(Graphics g){
+        if(!(g instanceof Graphics2D)) return 1;
+        return Math.sqrt(Math.abs(((Graphics2D) g).getTransform().getDeterminant()));
+    }
+
+    /**
+     * Checks whether a shape with given bounds is collapsed into a pixel
+     *
+     * @param width width of the bounding box
+     * @param height height of the bounding box
+     * @param scale scale of the Graphics
+     * @return true if the shape is collapsed
+     */
+    public boolean collapses(int width, int height, double scale){
+        return Math.max(width, height) * scale < collapseSize;
+    }
+
+    /**
+     * Checks whether name and bounding box of a shape with given bounds are drawn
+     *
+     * @param width width of the bounding box
+     * @param height height of the bounding box
+     * @param scale scale of the Graphics
+     * @return true if the decorations are drawn
+     */
+    public boolean showsDecorations(int width, int height, double scale){
+        return Math.max(width, height) * scale >= decorationSize;
+    }
+
+    /**
+     * Prepares the raster of the current thread for a frame drawn with given Graphics.
+     * The raster covers the clip area of the Graphics in device pixels
+     *
+     * @param g used for rendering of the shapes
+     * @return empty raster
+     */
+    public DensityRaster beginRaster(Graphics2D g){
+        Rectangle device = g.getDeviceConfiguration().getBounds();
+        Shape clip = g.getClip();
+        if(clip != null){
+            device = device.intersection(g.getTransform().createTransformedShape(clip).getBounds());
+        }
+        DensityRaster raster = rasters.get();
+        raster.reset(device.x, device.y, device.width, device.height);
+        return raster;
+    }
+
+    /**
+     * Adds shape with given bounds to the raster
+     *
+     * @param raster raster of the frame
+     * @param transform transform of the Graphics the frame is drawn with
+     * @param argb packed ARGB color of the shape
+     * @param x x coordinate of top left corner of the bounding box
+     * @param y y coordinate of top left corner of the bounding box
+     * @param width width of the bounding box
+     * @param height height of the bounding box
+     * @param scale scale of the Graphics
+     */
+    public static void collapse(DensityRaster raster, AffineTransform transform, int argb,
+                                int x, int y, int width, int height, double scale){
+        double centerX = x + width / 2.0, centerY = y + height / 2.0;
+        double deviceX = transform.getScaleX() * centerX + transform.getShearX() * centerY + transform.getTranslateX();
+        double deviceY = transform.getShearY() * centerX + transform.getScaleY() * centerY + transform.getTranslateY();
+        raster.add(deviceX, deviceY, argb, Math.max(width * scale, 1 / 8.0) * Math.max(height * scale, 1 / 8.0));
+    }
+}
@@ -0,0 +1,138 @@
+package rendering;
+
+import bounding.BoundingBox;
+import shapes.Rectangle;
+import shapes.Shape;
+import spatial.UniformGrid;
+
+import java.awt.*;
+
+/**
+ * <h1>OcclusionCuller</h1>
+ * <p>Index of occluders: filled rectangles and squares, which paint every pixel of their bounding box.<br>
+ * A shape does not have to be painted if an occluder drawn after it covers the whole area the shape paints.<br>
+ * Only rectangles of a minimum size become occluders: small ones rarely hide a whole shape, but would crowd<br>
+ * the cells every test has to look at.<br>
+ * Occluders are kept in a spatial index with the drawing order of the owner, so a test only looks at the<br>
+ * occluders of a single cell. The owner has to call update whenever a shape is added, moved or its filled state<br>
+ * is toggled. Colors are checked when testing, so an occluder recolored with a translucent palette entry stops<br>
+ * hiding shapes at once</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see UniformGrid
+ */
+public class OcclusionCuller {
+
+    /**Stores default minimum width and height of occluders*/
+    public static final int DEFAULT_MIN_SIZE = 64;
+
+    /**Stores cell edge length of the index, occluders are usually large panels*/
+    private static final int CELL_SIZE = 256;
+
+    /**Stores minimum width and height of occluders*/
+    private final int minSize;
+
+    /**Stores spatial index of the occluders*/
+    private final UniformGrid occluders;
+
+    /**
+     * Default constructor, uses default minimum size of occluders
+     */
+    public OcclusionCuller(){
+        this(DEFAULT_MIN_SIZE);
+    }
+
+    /**
+     * Constructor to initialize the culler with given minimum size of occluders
+     *
+     * @param minSize minimum width and height of occluders
+     */
+    public OcclusionCuller(int minSize){
+        if(minSize < 1) throw new IllegalArgumentException("Minimum size must be positive: " + minSize);
+        this.minSize = minSize;
+        occluders = new UniformGrid(CELL_SIZE);
+    }
+
+    /**
+     * Checks whether the shape can hide other shapes, regardless of its color
+     *
+     * @param shape shape object
+     * @return true for filled rectangles and squares of at least the minimum size
+     */
+    public boolean isOccluder(Shape shape){
+        BoundingBox box = shape.getBoundingBox();
+        return shape instanceof Rectangle && shape.isFilled() && box != null &&
+                box.getWidth() >= minSize && box.getHeight() >= minSize;
+    }
+
+    /**
+     * Registers, moves or removes the shape depending on whether it is an occluder now
+     *
+     * @param shape shape object
+     * @param order drawing order of the shape, shapes with larger values are drawn later
+     */
+    public void update(Shape shape, long order){
+        if(!isOccluder(shape)) occluders.remove(shape);
+        else if(occluders.contains(shape)) occluders.update(shape);
+        else occluders.insert(shape, order);
+    }
+
+    /**
+     * Removes the shape from the index
+     *
+     * @param shape shape object
+     */
+    public void remove(Shape shape){
+        occluders.remove(shape);
+    }
+
+    /**
+     * Removes every occluder
+     */
+    public void clear(){
+        occluders.clear();
+    }
+
+    /**
+     * Getter method to retrieve number of occluders
+     *
+     * @return number of occluders(int)
+     */
+    public int size(){
+        return occluders.size();
+    }
+
+    /**
+     * Checks whether an opaque occluder drawn after given order covers every pixel of given area
+     *
+     * @param order drawing order of the shape painting the area
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width number of pixels covered horizontally
+     * @param height number of pixels covered vertically
+     * @return true if the area does not have to be painted
+     */
+    public boolean isOccluded(long order, int x, int y, int width, int height){
+        return occluders.findAfter(x, y, order, occluder -> covers(occluder, x, y, width, height)) != null;
+    }
+
+    /**
+     * Checks whether the occluder is opaque and its filled area covers given area.
+     * A filled rectangle covers the pixels from its top left corner up to, but excluding, its right and bottom edges
+     *
+     * @param occluder shape object
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width number of pixels covered horizontally
+     * @param height number of pixels covered vertically
+     * @return true if the area is hidden
+     */
+    private static boolean covers(Shape occluder, int x, int y, int width, int height){
+        Color color = occluder.getDisplayColor();
+        if(color == null || color.getAlpha() != 255) return false;
+        BoundingBox box = occluder.getBoundingBox();
+        return box.getX() <= x && box.getY() <= y && (long) x + width <= box.getX() + box.getWidth() &&
+                (long) y + height <= box.getY() + box.getHeight();
+    }
+}
@@ -0,0 +1,275 @@
+package rendering;
+
+import bounding.BoundingBox;
+import shapes.Circle;
+import shapes.ColorPalette;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <h1>SpriteCache</h1>
+ * <p>Bounded least recently used cache of pre-rendered translucent images (sprites) of shapes.<br>
+ * Sprites are keyed by the geometry of the shape relative to its bounding box, its color and filled state,<br>
+ * so identical shapes at different positions share one sprite and drawing a shape becomes a single image blit.<br>
+ * The key of every shape is remembered until the shape changes; invalidate has to be called when a shape is<br>
+ * moved, rotated or its filled state is toggled. Keys are forgotten as well when a palette entry is replaced,<br>
+ * as that recolors shapes without notifying anyone. Least recently used sprites are evicted once the memory budget<br>
+ * is exceeded. Sprites are rasterised at identity scale, so they are only drawn on an unscaled Graphics.<br>
+ * Keeps hit, miss and eviction statistics</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Shape
+ */
+public class SpriteCache {
+
+    /**Stores default memory budget in bytes*/
+    public static final long DEFAULT_BUDGET = 16L * 1024 * 1024;
+
+    /**Stores number of pixels a sprite extends past the bounding box on every side*/
+    public static final int PADDING = 1;
+
+    /**Stores sprites in least recently used order*/
+    private final LinkedHashMap<SpriteKey, BufferedImage> sprites;
+
+    /**Stores keys of the shapes which did not change since the key was calculated*/
+    private final IdentityHashMap<Shape, SpriteKey> shapeKeys;
+
+    /**Stores version of the shared palette the keys have been calculated with*/
+    private int paletteVersion;
+
+    /**Stores memory budget in bytes*/
+    private final long budget;
+
+    /**Stores memory used by cached sprites in bytes*/
+    private long usedBytes;
+
+    /**Stores statistics*/
+    private long hits, misses, evictions;
+
+    /**
+     * Default constructor, uses default memory budget
+     */
+    public SpriteCache(){
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructor to initialize the cache with given memory budget
+     *
+     * @param budget maximum memory used by sprites in bytes
+     */
+    public SpriteCache(long budget){
+        if(budget <= 0) throw new IllegalArgumentException("Budget must be positive: " + budget);
+        this.budget = budget;
+        sprites = new LinkedHashMap<>(64, 0.75f, true);
+        shapeKeys = new IdentityHashMap<>();
+        paletteVersion = ColorPalette.getShared().getVersion();
+    }
+
+    /**
+     * Retrieves sprite of the shape, rendering it on a miss.
+     * The sprite has to be drawn PADDING pixels up and left of the top left corner of the bounding box
+     *
+     * @param shape shape object
+     * @return sprite or null if the shape is not supported or too big for the budget
+     */
+    public synchronized BufferedImage getSprite(Shape shape){
+        int version = ColorPalette.getShared().getVersion();
+        if(version != paletteVersion){
+            shapeKeys.clear();
+            paletteVersion = version;
+        }
+        SpriteKey key = shapeKeys.get(shape);
+        if(key == null){
+            key = SpriteKey.of(shape);
+            if(key == null) return null;
+            shapeKeys.put(shape, key);
+        }
+        BufferedImage sprite = sprites.get(key);
+        if(sprite != null){
+            hits++;
+            return sprite;
+        }
+        misses++;
+        BoundingBox box = shape.getBoundingBox();
+        int width = box.getWidth() + 1 + PADDING * 2, height = box.getHeight() + 1 + PADDING * 2;
+        long bytes = (long) width * height * 4;
+        if(bytes > budget) return null;
+        sprite = render(shape, box, width, height);
+        sprites.put(key, sprite);
+        usedBytes += bytes;
+        evict();
+        return sprite;
+    }
+
+    /**
+     * Forgets the key of the changed shape. The sprite itself stays cached as long as other shapes use it
+     *
+     * @param shape changed shape
+     */
+    public synchronized void invalidate(Shape shape){
+        shapeKeys.remove(shape);
+    }
+
+    /**
+     * Removes every sprite and resets statistics
+     */
+    public synchronized void clear(){
+        sprites.clear();
+        shapeKeys.clear();
+        usedBytes = 0;
+        hits = misses = evictions = 0;
+    }
+
+    /**
+     * Getter method to retrieve number of cache hits
+     *
+     * @return number of hits
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    /**
+     * Getter method to retrieve number of cache misses
+     *
+     * @return number of misses
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Getter method to retrieve number of evicted sprites
+     *
+     * @return number of evictions
+     */
+    public synchronized long getEvictions(){
+        return evictions;
+    }
+
+    /**
+     * Getter method to retrieve memory used by cached sprites
+     *
+     * @return used memory in bytes
+     */
+    public synchronized long getUsedBytes(){
+        return usedBytes;
+    }
+
+    /**
+     * Getter method to retrieve number of cached sprites
+     *
+     * @return number of sprites
+     */
+    public synchronized int size(){
+        return sprites.size();
+    }
+
+    /**
+     * Renders the shape into a new translucent image
+     *
+     * @param shape shape object
+     * @param box bounding box of the shape
+     * @param width width of the image
+     * @param height height of the image
+     * @return sprite of the shape
+     */
+    private static BufferedImage render(Shape shape, BoundingBox box, int width, int height){
+        BufferedImage sprite = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+        g.translate(PADDING - box.getX(), PADDING - box.getY());
+        g.setColor(Color.BLACK);
+        shape.renderShape(g);
+        g.dispose();
+        return sprite;
+    }
+
+    /**
+     * Evicts least recently used sprites until the used memory fits the budget
+     */
+    private void evict(){
+        Iterator<Map.Entry<SpriteKey, BufferedImage>> iterator = sprites.entrySet().iterator();
+        while(usedBytes > budget && iterator.hasNext()){
+            BufferedImage sprite = iterator.next().getValue();
+            usedBytes -= (long) sprite.getWidth() * sprite.getHeight() * 4;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Key of a sprite: kind of the shape, geometry relative to the bounding box, color and filled state
+     */
+    private static final class SpriteKey {
+
+        private final Class<?> kind;
+        private final int[] geometry;
+        private final int argb;
+        private final boolean filled;
+        private final int hash;
+
+        private SpriteKey(Class<?> kind, int[] geometry, int argb, boolean filled){
+            this.kind = kind;
+            this.geometry = geometry;
+            this.argb = argb;
+            this.filled = filled;
+            hash = ((kind.hashCode() * 31 + Arrays.hashCode(geometry)) * 31 + argb) * 2 + (filled ? 1 : 0);
+        }
+
+        /**
+         * Calculates key of the shape
+         *
+         * @param shape shape object
+         * @return key or null if the shape is not supported
+         */
+        private static SpriteKey of(Shape shape){
+            BoundingBox box = shape.getBoundingBox();
+            if(box == null) return null;
+            int[] geometry;
+            if(shape instanceof Rectangle){
+                Rectangle rect = (Rectangle) shape;
+                geometry = new int[]{rect.getWidth(), rect.getHeight()};
+            } else if(shape instanceof Circle){
+                geometry = new int[]{((Circle) shape).getRadius()};
+            } else if(shape instanceof Quadrilateral){
+                Quadrilateral quad = (Quadrilateral) shape;
+                int[] xs = quad.getXCoordinates(), ys = quad.getYCoordinates();
+                geometry = new int[xs.length * 2];
+                for(int i = 0; i < xs.length; i++){
+                    geometry[i * 2] = xs[i] - box.getX();
+                    geometry[i * 2 + 1] = ys[i] - box.getY();
+                }
+            } else {
+                return null;
+            }
+            Color color = shape.getDisplayColor();
+            return new SpriteKey(shape.getClass(), geometry, color == null ? 0xFF000000 : color.getRGB(),
+                    shape.isFilled());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) return true;
+            if(!(other instanceof SpriteKey)) return false;
+            SpriteKey key = (SpriteKey) other;
+            return hash == key.hash && kind == key.kind && argb == key.argb && filled == key.filled &&
+                    Arrays.equals(geometry, key.geometry);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
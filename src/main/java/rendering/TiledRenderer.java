@@ -0,0 +1,240 @@
+package rendering;
+
+import manager.ShapesManager;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>TiledRenderer</h1>
+ * <p>Offscreen rendering engine. Splits the target area into square tiles and renders the shapes of a<br>
+ * ShapesManager into a separate image per tile in parallel on a ForkJoinPool. Every tile only rasterises the<br>
+ * shapes intersecting it, as ShapesManager skips shapes outside of the clip area.<br>
+ * Rendered tiles are composited into a single frame image which can be drawn on canvas with one call.<br>
+ * Tiles are retained between frames, so only the tiles intersecting the requested area are rendered again.<br>
+ * The static layer of a LayerCache of the manager is prepared once per frame, the tiles only draw their part of it.<br>
+ * The shapes must not be changed while a frame is being rendered</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ShapesManager
+ */
+public class TiledRenderer {
+
+    /**Stores default tile edge length*/
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    /**Stores transparent color used to clear tiles*/
+    private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+
+    /**Stores pool the tiles are rendered on*/
+    private final ForkJoinPool pool;
+
+    /**Stores tile edge length*/
+    private final int tileSize;
+
+    /**Stores composited frame*/
+    private BufferedImage frame;
+
+    /**Stores rendered tiles, row by row*/
+    private BufferedImage[] tiles;
+
+    /**Stores number of tile columns and rows*/
+    private int columns, rows;
+
+    /**Stores world to screen transform of the previous frame, null for identity*/
+    private AffineTransform transform;
+
+    /**
+     * Default constructor, uses default tile size and the common ForkJoinPool
+     */
+    public TiledRenderer(){
+        this(DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor to initialize the renderer with given tile size and pool
+     *
+     * @param tileSize tile edge length as whole number(int)
+     * @param pool pool the tiles are rendered on
+     */
+    public TiledRenderer(int tileSize, ForkJoinPool pool){
+        if(tileSize <= 0) throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        this.tileSize = tileSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Renders the shapes of given manager into a frame of given size.
+     * If the size is the same as the size of the previous frame, only the tiles intersecting the given area are<br>
+     * rendered again
+     *
+     * @param manager manager storing the shapes
+     * @param width width of the frame
+     * @param height height of the frame
+     * @param area area which has to be rendered again, null for the whole frame
+     * @param font font used to draw shape names
+     * @param foreground default drawing color
+     * @return composited frame, reused by the next call
+     */
+    public BufferedImage render(ShapesManager manager, int width, int height, Rectangle area, Font font,
+                                Color foreground){
+        return render(manager, width, height, area, font, foreground, null);
+    }
+
+    /**
+     * Renders the shapes of given manager seen through the given world to screen transform into a frame of<br>
+     * given size. Every tile is rendered again when the transform differs from the one of the previous frame
+     *
+     * @param manager manager storing the shapes
+     * @param width width of the frame
+     * @param height height of the frame
+     * @param area screen area which has to be rendered again, null for the whole frame
+     * @param font font used to draw shape names
+     * @param foreground default drawing color
+     * @param worldTransform transform mapping world coordinates to the frame, null for identity
+     * @return composited frame, reused by the next call
+     */
+    public BufferedImage render(ShapesManager manager, int width, int height, Rectangle area, Font font,
+                                Color foreground, AffineTransform worldTransform){
+        if(worldTransform != null && worldTransform.isIdentity()) worldTransform = null;
+        if(worldTransform == null ? transform != null : !worldTransform.equals(transform)) area = null;
+        transform = worldTransform == null ? null : new AffineTransform(worldTransform);
+        AffineTransform tileTransform = transform;
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+        if(frame == null || frame.getWidth() != width || frame.getHeight() != height){
+            frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            columns = (width + tileSize - 1) / tileSize;
+            rows = (height + tileSize - 1) / tileSize;
+            tiles = new BufferedImage[columns * rows];
+            area = null;
+        }
+
+        List<Integer> renderedTiles = new ArrayList<>();
+        Rectangle renderedArea = null;
+        for(int tile = 0; tile < tiles.length; tile++){
+            Rectangle bounds = tileBounds(tile, width, height);
+            if(area != null && !area.intersects(bounds)) continue;
+            renderedTiles.add(tile);
+            renderedArea = renderedArea == null ? bounds : renderedArea.union(bounds);
+        }
+        if(renderedArea == null) return frame;
+        LayerCache.Layer layer = prepareLayer(manager, renderedArea, font, foreground, tileTransform);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for(int tile : renderedTiles){
+            Rectangle bounds = tileBounds(tile, width, height);
+            if(tiles[tile] == null){
+                tiles[tile] = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+            }
+            BufferedImage image = tiles[tile];
+            tasks.add(() -> {
+                renderTile(manager, layer, image, bounds, font, foreground, tileTransform);
+                return null;
+            });
+        }
+        awaitAll(pool.invokeAll(tasks));
+
+        Graphics2D g = frame.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        for(int tile : renderedTiles){
+            Rectangle bounds = tileBounds(tile, width, height);
+            g.drawImage(tiles[tile], bounds.x, bounds.y, null);
+        }
+        g.dispose();
+        return frame;
+    }
+
+    /**
+     * Prepares the static layer of the layer cache of the manager for the rendered tiles, through a Graphics in<br>
+     * the state of the Graphics of the tiles
+     *
+     * @param manager manager storing the shapes
+     * @param area area covered by the rendered tiles
+     * @param font font used to draw shape names
+     * @param foreground default drawing color
+     * @param worldTransform transform mapping world coordinates to the frame, null for identity
+     * @return prepared layer or null if the manager has no layer cache
+     */
+    private LayerCache.Layer prepareLayer(ShapesManager manager, Rectangle area, Font font, Color foreground,
+                                          AffineTransform worldTransform){
+        if(manager.getLayerCache() == null) return null;
+        Graphics2D g = frame.createGraphics();
+        try {
+            g.setClip(area.x, area.y, area.width, area.height);
+            if(worldTransform != null) g.transform(worldTransform);
+            if(font != null) g.setFont(font);
+            g.setColor(foreground);
+            return manager.prepareLayer(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Renders shapes intersecting the tile into the tile image
+     *
+     * @param manager manager storing the shapes
+     * @param layer static layer prepared for the frame, null if the manager has no layer cache
+     * @param image tile image
+     * @param bounds area covered by the tile
+     * @param font font used to draw shape names
+     * @param foreground default drawing color
+     * @param worldTransform transform mapping world coordinates to the frame, null for identity
+     */
+    private static void renderTile(ShapesManager manager, LayerCache.Layer layer, BufferedImage image,
+                                   Rectangle bounds, Font font, Color foreground, AffineTransform worldTransform){
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(TRANSPARENT);
+        g.fillRect(0, 0, bounds.width, bounds.height);
+        g.setComposite(AlphaComposite.SrcOver);
+        g.translate(-bounds.x, -bounds.y);
+        g.setClip(bounds.x, bounds.y, bounds.width, bounds.height);
+        if(worldTransform != null) g.transform(worldTransform);
+        if(font != null) g.setFont(font);
+        g.setColor(foreground);
+        manager.drawShapes(g, layer);
+        g.dispose();
+    }
+
+    /**
+     * Calculates area covered by the tile
+     *
+     * @param tile index of the tile
+     * @param width width of the frame
+     * @param height height of the frame
+     * @return area covered by the tile
+     */
+    private Rectangle tileBounds(int tile, int width, int height){
+        int x = (tile % columns) * tileSize;
+        int y = (tile / columns) * tileSize;
+        return new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+    }
+
+    /**
+     * Waits for rendering tasks and rethrows the first failure
+     *
+     * @param futures futures of the rendering tasks
+     */
+    private static void awaitAll(List<Future<Void>> futures){
+        for(Future<Void> future : futures){
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while rendering tiles", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to render tile", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package rendering;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+
+/**
+ * <h1>Viewport</h1>
+ * <p>Camera over the world the shapes are placed in. Shapes keep their coordinates in world space, the viewport<br>
+ * maps them to the screen by an offset (pan) and a scale factor (zoom).<br>
+ * Stores the world coordinates shown at the top left corner of the screen and the zoom factor, translates<br>
+ * screen coordinates to world coordinates for hit testing and world areas to screen areas for repainting.<br>
+ * Can be changed on the event dispatch thread while an active rendering loop reads it</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see manager.ShapesManager
+ */
+public class Viewport {
+
+    /**Stores smallest allowed zoom factor*/
+    public static final double MIN_ZOOM = 0.0001;
+
+    /**Stores largest allowed zoom factor*/
+    public static final double MAX_ZOOM = 100;
+
+    /**Stores world x,y coordinates shown at the top left corner of the screen*/
+    private double originX, originY;
+
+    /**Stores number of screen pixels per world unit*/
+    private double zoom = 1;
+
+    /**Stores number of changes, used to detect a changed view*/
+    private long version;
+
+    /**
+     * Moves the view by given distance in screen pixels. Content follows the pointer, so dragging to the right<br>
+     * shows world areas further left
+     *
+     * @param dx horizontal distance in screen pixels
+     * @param dy vertical distance in screen pixels
+     */
+    public synchronized void pan(double dx, double dy){
+        originX -= dx / zoom;
+        originY -= dy / zoom;
+        version++;
+    }
+
+    /**
+     * Multiplies zoom by given factor, keeping the world point under given screen point in place
+     *
+     * @param factor zoom multiplier, values above 1 zoom in
+     * @param screenX x coordinate of the fixed point on the screen
+     * @param screenY y coordinate of the fixed point on the screen
+     */
+    public synchronized void zoomAt(double factor, int screenX, int screenY){
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        double worldX = originX + screenX / zoom, worldY = originY + screenY / zoom;
+        originX = worldX - screenX / newZoom;
+        originY = worldY - screenY / newZoom;
+        zoom = newZoom;
+        version++;
+    }
+
+    /**
+     * Sets the view directly
+     *
+     * @param originX world x coordinate shown at the left edge of the screen
+     * @param originY world y coordinate shown at the top edge of the screen
+     * @param zoom number of screen pixels per world unit
+     */
+    public synchronized void setView(double originX, double originY, double zoom){
+        if(zoom < MIN_ZOOM || zoom > MAX_ZOOM) throw new IllegalArgumentException("Zoom out of range: " + zoom);
+        this.originX = originX;
+        this.originY = originY;
+        this.zoom = zoom;
+        version++;
+    }
+
+    /**
+     * Getter method to retrieve world x coordinate shown at the left edge of the screen
+     *
+     * @return x coordinate
+     */
+    public synchronized double getOriginX(){
+        return originX;
+    }
+
+    /**
+     * Getter method to retrieve world y coordinate shown at the top edge of the screen
+     *
+     * @return y coordinate
+     */
+    public synchronized double getOriginY(){
+        return originY;
+    }
+
+    /**
+     * Getter method to retrieve zoom factor
+     *
+     * @return number of screen pixels per world unit
+     */
+    public synchronized double getZoom(){
+        return zoom;
+    }
+
+    /**
+     * Getter method to retrieve number of changes of the view
+     *
+     * @return version of the view, changes whenever the view changes
+     */
+    public synchronized long getVersion(){
+        return version;
+    }
+
+    /**
+     * Translates screen x coordinate to world x coordinate
+     *
+     * @param screenX x coordinate on the screen
+     * @return world x coordinate of the pixel(int)
+     */
+    public synchronized int toWorldX(int screenX){
+        return (int) Math.floor(originX + screenX / zoom);
+    }
+
+    /**
+     * Translates screen y coordinate to world y coordinate
+     *
+     * @param screenY y coordinate on the screen
+     * @return world y coordinate of the pixel(int)
+     */
+    public synchronized int toWorldY(int screenY){
+        return (int) Math.floor(originY + screenY / zoom);
+    }
+
+    /**
+     * Translates world area to the smallest screen area covering it
+     *
+     * @param world area in world coordinates
+     * @return area in screen coordinates
+     */
+    public synchronized Rectangle toScreen(Rectangle world){
+        int left = (int) Math.floor((world.x - originX) * zoom);
+        int top = (int) Math.floor((world.y - originY) * zoom);
+        int right = (int) Math.ceil((world.x + world.width - originX) * zoom);
+        int bottom = (int) Math.ceil((world.y + world.height - originY) * zoom);
+        return new Rectangle(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Calculates world area shown on a screen of given size
+     *
+     * @param width width of the screen
+     * @param height height of the screen
+     * @return visible area in world coordinates
+     */
+    public synchronized Rectangle getVisibleArea(int width, int height){
+        int left = (int) Math.floor(originX), top = (int) Math.floor(originY);
+        return new Rectangle(left, top, (int) Math.ceil(originX + width / zoom) - left,
+                (int) Math.ceil(originY + height / zoom) - top);
+    }
+
+    /**
+     * Creates transform mapping world coordinates to screen coordinates
+     *
+     * @return AffineTransform of the view
+     */
+    public synchronized AffineTransform getTransform(){
+        AffineTransform transform = AffineTransform.getScaleInstance(zoom, zoom);
+        transform.translate(-originX, -originY);
+        return transform;
+    }
+
+    /**
+     * Applies the view to given Graphics, so shapes can be drawn in world coordinates.
+     * The clip area of the Graphics is translated into world coordinates as well
+     *
+     * @param g used for rendering of the shapes
+     */
+    public void applyTo(Graphics2D g){
+        g.transform(getTransform());
+    }
+}
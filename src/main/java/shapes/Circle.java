@@ -2,6 +2,8 @@ package shapes;
 
 import bounding.BoundingBox;
 import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
 
 /**
  * <h1>Circle</h1>
@@ -37,6 +39,15 @@ public class Circle extends Shape{
         setBoundingBox(new BoundingBox(x, y, diameter));
     }
 
+    /**
+     * Getter method to retrieve radius of the circle
+     *
+     * @return whole number(int) radius value
+     */
+    public int getRadius() {
+        return radius;
+    }
+
     /**
      * Implementation of the abstract method
      * Contains behavioral logic of rendering the shape based on filled value
@@ -75,6 +86,17 @@ public class Circle extends Shape{
         g.fillOval(x, y, diameter, diameter);
     }
 
+    /**
+     * Implementation of the abstract method
+     * Appends circular(oval) outline to the path
+     *
+     * @param path path the outline is appended to
+     */
+    @Override
+    public void appendGeometry(Path2D path) {
+        path.append(new Ellipse2D.Float(x, y, diameter, diameter), false);
+    }
+
     /**
      * Implementation of the abstract method
      * Renders the name of the class in the center of the shape
@@ -83,7 +105,7 @@ public class Circle extends Shape{
      */
     @Override
     public void displayName(Graphics g) {
-        g.drawString(this.getClass().getSimpleName(), getxCenter(), getyCenter());
+        g.drawString(getLabel(), getxCenter(), getyCenter());
     }
 
     /**
@@ -0,0 +1,223 @@
+package shapes;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * <h1>ColorPalette</h1>
+ * <p>Colors shared by every shape. A shape stores a small index into the palette instead of its own Color<br>
+ * object, so a scene with a dozen distinct colors holds a dozen Color objects however many shapes it has.<br>
+ * Equal colors are added once. Replacing an entry recolors every shape using it, e.g. every red shape, in<br>
+ * constant time; the caller has to repaint the canvas afterwards.<br>
+ * Index 0 stands for shapes without color. Reading entries is lock free, adding and replacing entries is<br>
+ * synchronized, so shapes can be created by importing threads while the canvas is drawn.<br>
+ * The palette holds at most MAX_COLORS entries and never releases them, as shapes do not report being discarded.<br>
+ * Once it is full, a new color is mapped to the closest existing entry instead, so scenes with more distinct<br>
+ * colors still load, with those colors approximated</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Shape
+ */
+public final class ColorPalette {
+
+    /**Index of shapes without color*/
+    public static final int NO_COLOR = 0;
+
+    /**Stores largest number of entries, indices fit into an unsigned short*/
+    public static final int MAX_COLORS = 1 << 16;
+
+    /**Stores palette shared by every shape*/
+    private static final ColorPalette SHARED = new ColorPalette();
+
+    /**Stores entries, replaced when the palette grows. Entry NO_COLOR is null*/
+    private volatile Color[] colors = new Color[16];
+
+    /**Stores number of entries including NO_COLOR*/
+    private int size = 1;
+
+    /**Stores index of each packed ARGB color*/
+    private final HashMap<Integer, Integer> indices = new HashMap<>();
+
+    /**Stores number of replaced entries, used to detect recolored shapes*/
+    private volatile int version;
+
+    /**Stores closest entry for every quantized color once the palette is full, 0 if not looked up yet*/
+    private int[] closest;
+
+    /**Stores version the closest entries have been looked up for*/
+    private int closestVersion;
+
+    /**Stores number of colors mapped to the closest entry because the palette was full*/
+    private long approximated;
+
+    /**
+     * Constructor to initialize a palette holding NO_COLOR only. Shapes use the shared palette
+     */
+    ColorPalette(){}
+
+    /**
+     * Getter method to retrieve palette shared by every shape
+     *
+     * @return ColorPalette object
+     */
+    public static ColorPalette getShared(){
+        return SHARED;
+    }
+
+    /**
+     * Retrieves index of given color, adding the color if the palette does not have it yet
+     *
+     * @param color Color object, null for shapes without color
+     * @return palette index
+     */
+    public int indexOf(Color color){
+        return color == null ? NO_COLOR : indexOf(color.getRGB(), color);
+    }
+
+    /**
+     * Retrieves index of given packed ARGB color, adding the color if the palette does not have it yet.<br>
+     * Used by importers to avoid creating a Color object per shape
+     *
+     * @param argb packed ARGB color
+     * @return palette index
+     */
+    public int indexOf(int argb){
+        return indexOf(argb, null);
+    }
+
+    /**
+     * Retrieves color of the entry
+     *
+     * @param index palette index
+     * @return Color object, null for NO_COLOR
+     */
+    public Color getColor(int index){
+        return colors[index];
+    }
+
+    /**
+     * Replaces color of the entry, recoloring every shape using it
+     *
+     * @param index palette index, other than NO_COLOR
+     * @param color new Color object
+     */
+    public synchronized void setColor(int index, Color color){
+        if(index <= NO_COLOR || index >= size) throw new IndexOutOfBoundsException("Palette index: " + index);
+        if(color == null) throw new IllegalArgumentException("Color is null");
+        Color[] entries = colors;
+        indices.remove(entries[index].getRGB(), index);
+        indices.putIfAbsent(color.getRGB(), index);
+        entries[index] = color;
+        colors = entries;
+        version++;
+    }
+
+    /**
+     * Getter method to retrieve number of times an entry has been replaced.
+     * Caches of rendered shapes compare it to find out whether shapes have been recolored
+     *
+     * @return version(int)
+     */
+    public int getVersion(){
+        return version;
+    }
+
+    /**
+     * Getter method to retrieve number of colors approximated by the closest entry because the palette was full
+     *
+     * @return number of colors(long)
+     */
+    public synchronized long getApproximatedCount(){
+        return approximated;
+    }
+
+    /**
+     * Getter method to retrieve number of entries including NO_COLOR
+     *
+     * @return number of entries(int)
+     */
+    public synchronized int size(){
+        return size;
+    }
+
+    /**
+     * Retrieves index of given color, adding the color if the palette does not have it yet.
+     * If the palette is full, retrieves index of the closest entry
+     *
+     * @param argb packed ARGB color
+     * @param color Color object of the color, null to create one when the color is added
+     * @return palette index
+     */
+    private synchronized int indexOf(int argb, Color color){
+        Integer index = indices.get(argb);
+        if(index != null) return index;
+        if(size == MAX_COLORS) return closestIndex(argb);
+        Color[] entries = colors;
+        if(size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+        entries[size] = color != null ? color : new Color(argb, true);
+        indices.put(argb, size);
+        colors = entries;
+        return size++;
+    }
+
+    /**
+     * Retrieves index of the entry closest to given color. Colors are quantized to 4 bits per color channel and<br>
+     * 2 bits of alpha; the first lookup of every quantized color searches every entry, later lookups reuse it.<br>
+     * Lookups are discarded whenever an entry is replaced
+     *
+     * @param argb packed ARGB color
+     * @return palette index
+     */
+    private int closestIndex(int argb){
+        approximated++;
+        if(closest == null || closestVersion != version){
+            closest = new int[1 << 14];
+            closestVersion = version;
+            for(int index = size - 1; index > NO_COLOR; index--){
+                closest[quantize(colors[index].getRGB())] = index;
+            }
+        }
+        int bucket = quantize(argb);
+        if(closest[bucket] != NO_COLOR) return closest[bucket];
+        Color[] entries = colors;
+        int best = NO_COLOR + 1;
+        long bestDistance = Long.MAX_VALUE;
+        for(int index = NO_COLOR + 1; index < size; index++){
+            long distance = distance(argb, entries[index].getRGB());
+            if(distance < bestDistance){
+                bestDistance = distance;
+                best = index;
+            }
+        }
+        closest[bucket] = best;
+        return best;
+    }
+
+    /**
+     * Quantizes color to 2 bits of alpha and 4 bits per color channel
+     *
+     * @param argb packed ARGB color
+     * @return quantized color, 14 bits
+     */
+    private static int quantize(int argb){
+        return (argb >>> 30) << 12 | (argb >>> 20 & 0xF) << 8 | (argb >>> 12 & 0xF) << 4 | (argb >>> 4 & 0xF);
+    }
+
+    /**
+     * Calculates squared distance of two colors over all four channels
+     *
+     * @param argb packed ARGB color
+     * @param other packed ARGB color
+     * @return squared distance
+     */
+    private static long distance(int argb, int other){
+        long distance = 0;
+        for(int shift = 0; shift < 32; shift += 8){
+            int delta = (argb >>> shift & 0xFF) - (other >>> shift & 0xFF);
+            distance += delta * delta;
+        }
+        return distance;
+    }
+}
@@ -1,8 +1,8 @@
 package shapes;
 
 import java.awt.*;
+import java.awt.geom.Path2D;
 
-import bounding.BoundingBox;
 import bounding.Point;
 import interfaces.Rotatable;
 
@@ -11,6 +11,9 @@ import interfaces.Rotatable;
  * <p>Represents quadrilateral shape. Inherits and implements behavior of Shape. Provides implementation for<br>
  * Rotatable interface.<br>
  * Stores characteristics and describes behavior of the quadrilateral shape.<br>
+ * The vertices are kept relative to the center exactly as given, together with the accumulated rotation, so<br>
+ * repeated rotations do not drift. Quarter turns are applied with exact integer arithmetic, other angles are<br>
+ * rounded to whole coordinates only when the vertices are needed for rendering.<br>
  * Used to draw/fill quadrilateral shape on canvas</p>
  *
  * @author Levan.Voronin
@@ -20,6 +23,12 @@ import interfaces.Rotatable;
  */
 public class Quadrilateral extends Shape implements Rotatable {
 
+    /**Stores palette index of black, used if no color was provided*/
+    private static final int BLACK = ColorPalette.getShared().indexOf(Color.BLACK);
+
+    /**Stores distance in degrees below which a rotation snaps to the nearest quarter turn*/
+    private static final double SNAP_DEGREES = 1e-9;
+
     /**Stores array of Point objects to identify quadrilateral vertices*/
     private Point[] points;
 
@@ -29,6 +38,24 @@ public class Quadrilateral extends Shape implements Rotatable {
     /**Stores x coordinates of quadrilateral vertices*/
     private int[] yCoordinates;
 
+    /**Stores vertices relative to the center before any rotation*/
+    private int[] xOffsets, yOffsets;
+
+    /**Stores bounds of the vertices relative to the center before any rotation*/
+    private int minXOffset, minYOffset, maxXOffset, maxYOffset;
+
+    /**Stores number of clockwise quarter turns of the accumulated rotation, 0 to 3*/
+    private int quarterTurns;
+
+    /**Stores rest of the accumulated rotation in degrees, at least 0 and less than 90*/
+    private double restDegrees;
+
+    /**Stores cos and sin of the rest of the accumulated rotation*/
+    private double restCos = 1, restSin;
+
+    /**Tracks whether the vertex arrays have to be rebuilt out of the accumulated rotation*/
+    private volatile boolean verticesStale;
+
     /**Tracks if color provided*/
     private boolean isColorProvided;
 
@@ -96,11 +123,7 @@ public class Quadrilateral extends Shape implements Rotatable {
      */
     @Override
     public void renderShape(Graphics g) {
-        if(isColorProvided){
-            g.setColor(getColor());
-        } else {
-            g.setColor(Color.BLACK);
-        }
+        g.setColor(getDisplayColor());
 
         if(isFilled()){
             fillShape(g);
@@ -109,6 +132,95 @@ public class Quadrilateral extends Shape implements Rotatable {
         }
     }
 
+    /**
+     * Retrieves the color the shape is rendered with. Black is used if no color was provided
+     *
+     * @return Color
+     */
+    @Override
+    public Color getDisplayColor() {
+        return ColorPalette.getShared().getColor(getDisplayColorIndex());
+    }
+
+    /**
+     * Retrieves palette index of the color the shape is rendered with. Black is used if no color was provided
+     *
+     * @return palette index
+     */
+    @Override
+    public int getDisplayColorIndex() {
+        return isColorProvided ? getColorIndex() : BLACK;
+    }
+
+    /**
+     * Setter method to change the color to given palette entry and notify the observer
+     *
+     * @param colorIndex palette index
+     */
+    @Override
+    public void setColorIndex(int colorIndex) {
+        isColorProvided = true;
+        super.setColorIndex(colorIndex);
+    }
+
+    /**
+     * Getter method to retrieve x coordinates of the vertices
+     *
+     * @return array of x coordinates, backing array of the shape - must not be modified
+     */
+    public int[] getXCoordinates() {
+        if(verticesStale) rebuildVertices();
+        return xCoordinates;
+    }
+
+    /**
+     * Getter method to retrieve y coordinates of the vertices
+     *
+     * @return array of y coordinates, backing array of the shape - must not be modified
+     */
+    public int[] getYCoordinates() {
+        if(verticesStale) rebuildVertices();
+        return yCoordinates;
+    }
+
+    /**
+     * Getter method to retrieve number of vertices
+     *
+     * @return number of vertices(int)
+     */
+    public int getVertexCount() {
+        return points.length;
+    }
+
+    /**
+     * Getter method to retrieve x coordinate of a vertex before any rotation
+     *
+     * @param vertex index of the vertex
+     * @return x coordinate(int)
+     */
+    public int getOriginalX(int vertex) {
+        return points[vertex].getX();
+    }
+
+    /**
+     * Getter method to retrieve y coordinate of a vertex before any rotation
+     *
+     * @param vertex index of the vertex
+     * @return y coordinate(int)
+     */
+    public int getOriginalY(int vertex) {
+        return points[vertex].getY();
+    }
+
+    /**
+     * Getter method to retrieve accumulated rotation of the shape
+     *
+     * @return clockwise rotation in degrees, at least 0 and less than 360
+     */
+    public double getRotation() {
+        return quarterTurns * 90 + restDegrees;
+    }
+
     /**
      * Implementation of the abstract method
      * Draws quadrilateral shape based on provided values
@@ -117,6 +229,7 @@ public class Quadrilateral extends Shape implements Rotatable {
      */
     @Override
     public void drawShape(Graphics g) {
+        if(verticesStale) rebuildVertices();
         g.drawPolygon(xCoordinates, yCoordinates, points.length);
     }
 
@@ -128,9 +241,42 @@ public class Quadrilateral extends Shape implements Rotatable {
      */
     @Override
     public void fillShape(Graphics g) {
+        if(verticesStale) rebuildVertices();
         g.fillPolygon(xCoordinates, yCoordinates, points.length);
     }
 
+    /**
+     * Implementation of the abstract method
+     * Appends quadrilateral outline to the path. Outlines keep the order of the vertices, so they are rasterised<br>
+     * the same way drawPolygon does. Filled shapes are always appended in clockwise order (on screen), the same<br>
+     * order rectangles and circles use, so overlapping fills in one path do not cancel each other out
+     *
+     * @param path path the outline is appended to
+     */
+    @Override
+    public void appendGeometry(Path2D path) {
+        if(verticesStale) rebuildVertices();
+        int length = xCoordinates.length;
+        if(length == 0) return;
+        long area = 0;
+        for(int i = 0; i < length && isFilled(); i++){
+            int next = (i + 1) % length;
+            area += (long) xCoordinates[i] * yCoordinates[next] - (long) xCoordinates[next] * yCoordinates[i];
+        }
+        if(area >= 0 || !isFilled()){
+            path.moveTo(xCoordinates[0], yCoordinates[0]);
+            for(int i = 1; i < length; i++){
+                path.lineTo(xCoordinates[i], yCoordinates[i]);
+            }
+        } else {
+            path.moveTo(xCoordinates[length - 1], yCoordinates[length - 1]);
+            for(int i = length - 2; i >= 0; i--){
+                path.lineTo(xCoordinates[i], yCoordinates[i]);
+            }
+        }
+        path.closePath();
+    }
+
     /**
      * Implementation of the abstract method
      * Renders the name of the class in the center of the shape
@@ -139,7 +285,7 @@ public class Quadrilateral extends Shape implements Rotatable {
      */
     @Override
     public void displayName(Graphics g) {
-        g.drawString(this.getClass().getSimpleName(), getCenterPoint().getX(), getCenterPoint().getY());
+        g.drawString(getLabel(), getCenterPoint().getX(), getCenterPoint().getY());
     }
 
     /**
@@ -152,34 +298,43 @@ public class Quadrilateral extends Shape implements Rotatable {
 
     /**
      * Implementation of the interface method
-     * Rotates the shape by 90 degrees(int)
+     * Rotates the shape clockwise by 90 degrees around its center
      * Special action method
-     * Translates degrees to radians to calculate cos and sin.
-     * Based on center x,y points and current vertices(x,y) positions - calculates prime x,y in order to rotate<br>
-     * points against 0,0 point of the vector graph.
-     * Updates vertices x,y coordinates in relative arrays (xCoordinates, yCoordinates)
-     * Initializes new BoundingBox as part of the process
      */
     @Override
     public void rotateNinetyDegrees() {
+        quarterTurns = (quarterTurns + 1) & 3;
+        verticesStale = true;
+        initializeBoundingBox();
+    }
 
-        double rad = Math.toRadians(90);
-        double cos = Math.cos(rad), sin = Math.sin(rad);
-        // Storing center points
-        int xCenter = getCenterPoint().getX();
-        int yCenter = getCenterPoint().getY();
-        int length = xCoordinates.length;
-
-        for(int a = 0; a < length; a++){
-            // Calculate primes
-            int xP = xCoordinates[a] - xCenter;
-            int yP = yCenter - yCoordinates[a];
-            // Calculating new points and storing them back in arrays
-            double xTemp = xP * cos + yP * sin + xCenter;
-            double yTemp = yP * cos - xP * sin + yCenter;
-            xCoordinates[a] = (int)xTemp;
-            yCoordinates[a] = (int)yTemp;
+    /**
+     * Implementation of the interface method
+     * Rotates the shape clockwise by given angle around its center. The angle is added to the accumulated<br>
+     * rotation, which is always applied to the original vertices, so the shape does not drift however often it<br>
+     * is rotated. Accumulated rotations within 1e-9 degrees of a quarter turn snap to it and use exact integer<br>
+     * arithmetic. Updates the BoundingBox in place, the vertex arrays are rebuilt when they are next needed
+     *
+     * @param degrees angle in degrees, negative to rotate counterclockwise
+     */
+    @Override
+    public void rotate(double degrees) {
+        if(Double.isNaN(degrees) || Double.isInfinite(degrees)){
+            throw new IllegalArgumentException("Invalid angle: " + degrees);
         }
+        double total = restDegrees + degrees % 360;
+        double turns = Math.floor(total / 90), rest = total - turns * 90;
+        if(rest < SNAP_DEGREES || rest > 90 - SNAP_DEGREES){
+            turns = Math.rint(total / 90);
+            rest = 0;
+        }
+        quarterTurns = Math.floorMod(quarterTurns + (int) turns, 4);
+        if(rest != restDegrees){
+            restDegrees = rest;
+            restCos = Math.cos(Math.toRadians(rest));
+            restSin = Math.sin(Math.toRadians(rest));
+        }
+        verticesStale = true;
         initializeBoundingBox();
     }
 
@@ -213,52 +368,116 @@ public class Quadrilateral extends Shape implements Rotatable {
     private void separatePointCoordinates(){
         xCoordinates = new int[points.length];
         yCoordinates = new int[points.length];
+        xOffsets = new int[points.length];
+        yOffsets = new int[points.length];
         for(int x = 0; x < points.length; x++){
             xCoordinates[x] = points[x].getX();
             yCoordinates[x] = points[x].getY();
+            xOffsets[x] = xCoordinates[x] - getCenterPoint().getX();
+            yOffsets[x] = yCoordinates[x] - getCenterPoint().getY();
+            minXOffset = x == 0 ? xOffsets[x] : Math.min(minXOffset, xOffsets[x]);
+            maxXOffset = x == 0 ? xOffsets[x] : Math.max(maxXOffset, xOffsets[x]);
+            minYOffset = x == 0 ? yOffsets[x] : Math.min(minYOffset, yOffsets[x]);
+            maxYOffset = x == 0 ? yOffsets[x] : Math.max(maxYOffset, yOffsets[x]);
         }
     }
 
     /**
-     * Initializes new BoundingBox object out of separately stored x and y coordinate arrays
+     * Rebuilds vertex arrays (xCoordinates, yCoordinates) out of the original vertices and the accumulated<br>
+     * rotation. Rebuilding the same rotation twice writes the same values, so concurrent renderers may race here
      */
-    private void initializeBoundingBox(){
-        setBoundingBox(new BoundingBox(
-                new Point(identifySmallerOfArray(xCoordinates), identifyBiggerOfArray(yCoordinates)),
-                new Point(identifyBiggerOfArray(xCoordinates), identifySmallerOfArray(yCoordinates))));
+    private void rebuildVertices(){
+        int xCenter = getCenterPoint().getX(), yCenter = getCenterPoint().getY();
+        for(int i = 0; i < xOffsets.length; i++){
+            xCoordinates[i] = xCenter + rotatedX(i);
+            yCoordinates[i] = yCenter + rotatedY(i);
+        }
+        verticesStale = false;
+    }
+
+    /**
+     * Calculates x offset of the rotated vertex from the center
+     *
+     * @param vertex index of the vertex
+     * @return x offset(int)
+     */
+    private int rotatedX(int vertex){
+        int x = quarterTurnX(xOffsets[vertex], yOffsets[vertex]);
+        if(restDegrees == 0) return x;
+        int y = quarterTurnY(xOffsets[vertex], yOffsets[vertex]);
+        return (int) Math.round(x * restCos - y * restSin);
     }
 
     /**
-     * Identifies and returns the bigger value stored in array
+     * Calculates y offset of the rotated vertex from the center
      *
-     * @param coordinates array of x or y coordinates
-     * @return the bigger value(int) stored in array
+     * @param vertex index of the vertex
+     * @return y offset(int)
      */
-    private int identifyBiggerOfArray(int[] coordinates){
-        int tempPoint = 0;
-        for(int i : coordinates){
-            tempPoint = Math.max(tempPoint, i);
+    private int rotatedY(int vertex){
+        int y = quarterTurnY(xOffsets[vertex], yOffsets[vertex]);
+        if(restDegrees == 0) return y;
+        int x = quarterTurnX(xOffsets[vertex], yOffsets[vertex]);
+        return (int) Math.round(x * restSin + y * restCos);
+    }
+
+    /**
+     * Turns offset clockwise by the accumulated quarter turns (screen y axis points down) and retrieves its x
+     *
+     * @param x x offset from the center
+     * @param y y offset from the center
+     * @return turned x offset(int)
+     */
+    private int quarterTurnX(int x, int y){
+        switch(quarterTurns){
+            case 1: return -y;
+            case 2: return -x;
+            case 3: return y;
+            default: return x;
         }
-        return tempPoint;
     }
 
     /**
-     * Identifies and returns the smallest value stored in array
+     * Turns offset clockwise by the accumulated quarter turns (screen y axis points down) and retrieves its y
      *
-     * @param coordinates array of x or y coordinates
-     * @return the smallest value(int) stored in array
+     * @param x x offset from the center
+     * @param y y offset from the center
+     * @return turned y offset(int)
+     */
+    private int quarterTurnY(int x, int y){
+        switch(quarterTurns){
+            case 1: return x;
+            case 2: return -y;
+            case 3: return -x;
+            default: return y;
+        }
+    }
+
+    /**
+     * Initializes or updates BoundingBox object out of the rotated vertices, without rebuilding the vertex arrays.
+     * Bounds of quarter turns are the turned bounds of the original vertices
      */
-    private int identifySmallerOfArray(int[] coordinates){
-        int tempPoint = 0;
-        boolean isFirst = true;
-        for(int i : coordinates){
-            if (isFirst){
-                tempPoint = i;
-                isFirst = false;
-                continue;
+    private void initializeBoundingBox(){
+        int minX, minY, maxX, maxY;
+        if(restDegrees != 0){
+            minX = minY = maxX = maxY = 0;
+            for(int i = 0; i < xOffsets.length; i++){
+                int x = rotatedX(i), y = rotatedY(i);
+                minX = i == 0 ? x : Math.min(minX, x);
+                maxX = i == 0 ? x : Math.max(maxX, x);
+                minY = i == 0 ? y : Math.min(minY, y);
+                maxY = i == 0 ? y : Math.max(maxY, y);
             }
-            tempPoint = Math.min(tempPoint, i);
+        } else if(quarterTurns == 1){
+            minX = -maxYOffset; maxX = -minYOffset; minY = minXOffset; maxY = maxXOffset;
+        } else if(quarterTurns == 2){
+            minX = -maxXOffset; maxX = -minXOffset; minY = -maxYOffset; maxY = -minYOffset;
+        } else if(quarterTurns == 3){
+            minX = minYOffset; maxX = maxYOffset; minY = -maxXOffset; maxY = -minXOffset;
+        } else {
+            minX = minXOffset; maxX = maxXOffset; minY = minYOffset; maxY = maxYOffset;
         }
-        return tempPoint;
+        int xCenter = getCenterPoint().getX(), yCenter = getCenterPoint().getY();
+        updateBoundingBox(xCenter + minX, yCenter + minY, maxX - minX, maxY - minY);
     }
 }
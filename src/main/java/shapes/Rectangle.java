@@ -4,6 +4,7 @@ import bounding.BoundingBox;
 import bounding.Point;
 import interfaces.MoveAble;
 import java.awt.*;
+import java.awt.geom.Path2D;
 
 /**
  * <h1>Rectangle</h1>
@@ -110,6 +111,21 @@ public class Rectangle extends Shape implements MoveAble {
         g.fillRect(x, y, width, height);
     }
 
+    /**
+     * Implementation of the abstract method
+     * Appends rectangular outline to the path
+     *
+     * @param path path the outline is appended to
+     */
+    @Override
+    public void appendGeometry(Path2D path) {
+        path.moveTo(x, y);
+        path.lineTo(x + width, y);
+        path.lineTo(x + width, y + height);
+        path.lineTo(x, y + height);
+        path.closePath();
+    }
+
     /**
      * Implementation of the abstract method
      * Renders the name of the class in the center of the shape
@@ -118,7 +134,7 @@ public class Rectangle extends Shape implements MoveAble {
      */
     @Override
     public void displayName(Graphics g) {
-        g.drawString(this.getClass().getSimpleName(), getxCenter(), getyCenter());
+        g.drawString(getLabel(), getxCenter(), getyCenter());
     }
 
     /**
@@ -128,9 +144,19 @@ public class Rectangle extends Shape implements MoveAble {
      */
     @Override
     public void moveTenXUnits() {
-        updatexCenter(getxCenter() + 10);
+        moveXUnits(10);
+    }
+
+    /**
+     * Moves the shape horizontally by given number of units(int), to the right for positive values
+     * Updates the BoundingBox in place
+     *
+     * @param units amount to move as whole number(int)
+     */
+    public void moveXUnits(int units) {
+        updatexCenter(getxCenter() + units);
         calculateTopLeftCoordinates();
-        setBoundingBox(new BoundingBox(x, y, width, height));
+        updateBoundingBox(x, y, width, height);
     }
 
     /**
@@ -2,12 +2,15 @@ package shapes;
 
 import bounding.BoundingBox;
 import bounding.Point;
+import interfaces.ShapeObserver;
 import java.awt.*;
+import java.awt.geom.Path2D;
 
 /**
  * <h1>Shape</h1>
  * <p>An abstract class which defines the behaviour of the objects which inherits of it.<br>
  * Each Shape stores own instance of BoundingBox to register mouse click events on the Shape<br>
+ * The color is stored as an index into the shared ColorPalette<br>
  * Being a parent class for other shape classes: Rectangle, Circle, Quadrilateral</p>
  *
  * @author Levan.Voronin
@@ -16,11 +19,20 @@ import java.awt.*;
  * @see Circle
  * @see Quadrilateral
  * @see BoundingBox
+ * @see ColorPalette
  */
 public abstract class Shape {
 
-    /**Stores the color value for display purpose*/
-    private Color color;
+    /**Stores names displayed for each shape class, computed once per class*/
+    private static final ClassValue<String> LABELS = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getSimpleName();
+        }
+    };
+
+    /**Stores palette index of the color for display purpose, read as unsigned*/
+    private short colorIndex;
 
     /**Tracks is shape filled with color*/
     private boolean filled;
@@ -37,6 +49,12 @@ public abstract class Shape {
     /**Stores center point for quadrilaterals*/
     private Point centerPoint;
 
+    /**Stores observer notified about shape changes*/
+    private ShapeObserver observer;
+
+    /**Stores id given to the shape by the MutationJournal recording its changes, -1 if it is not journaled*/
+    private int journalId = -1;
+
     /**
      * Default constructor
      */
@@ -58,7 +76,7 @@ public abstract class Shape {
      * @param centerPoint center point of shape
      */
     public Shape(Color color, Point centerPoint){
-        this.color = color;
+        colorIndex = (short) ColorPalette.getShared().indexOf(color);
         this.centerPoint = centerPoint;
     }
 
@@ -70,7 +88,7 @@ public abstract class Shape {
      * @param yCenter y coordinate used for identifying center of shape
      */
     public Shape(Color color, int xCenter, int yCenter){
-        this.color = color;
+        colorIndex = (short) ColorPalette.getShared().indexOf(color);
         this.xCenter = xCenter;
         this.yCenter = yCenter;
     }
@@ -81,11 +99,52 @@ public abstract class Shape {
      * @return Color
      */
     public Color getColor() {
-        return color;
+        return ColorPalette.getShared().getColor(getColorIndex());
+    }
+
+    /**
+     * Retrieves the color the shape is rendered with
+     *
+     * @return Color
+     */
+    public Color getDisplayColor() {
+        return getColor();
+    }
+
+    /**
+     * Getter method to retrieve palette index of the color
+     *
+     * @return palette index, ColorPalette.NO_COLOR if the shape has no color
+     */
+    public int getColorIndex() {
+        return colorIndex & 0xFFFF;
+    }
+
+    /**
+     * Retrieves palette index of the color the shape is rendered with.
+     * Shapes with the same index are rendered with the same color
+     *
+     * @return palette index, ColorPalette.NO_COLOR if the shape has no color
+     */
+    public int getDisplayColorIndex() {
+        return getColorIndex();
     }
 
     /**
-     * Renders shape for given Graphics
+     * Setter method to change the color to given palette entry and notify the observer
+     *
+     * @param colorIndex palette index
+     */
+    public void setColorIndex(int colorIndex) {
+        if(colorIndex < 0 || colorIndex >= ColorPalette.getShared().size()){
+            throw new IndexOutOfBoundsException("Palette index: " + colorIndex);
+        }
+        this.colorIndex = (short) colorIndex;
+        if(observer != null) observer.colorChanged(this);
+    }
+
+    /**
+     * Renders shape for given Graphics: sets the display color, then fills or draws the shape
      *
      * @param g used for rendering of the shape
      */
@@ -112,6 +171,41 @@ public abstract class Shape {
      */
     public abstract void displayName(Graphics g);
 
+    /**
+     * Appends outline of the shape to given path as a closed sub-path.
+     * Used to submit geometry of many shapes with a single draw/fill call
+     *
+     * @param path path the outline is appended to
+     */
+    public abstract void appendGeometry(Path2D path);
+
+    /**
+     * Retrieves name displayed for the shape. The name is looked up once per class
+     *
+     * @return name of the class
+     */
+    public String getLabel() {
+        return LABELS.get(getClass());
+    }
+
+    /**
+     * Retrieves x coordinate the name of the shape is drawn at
+     *
+     * @return x coordinate(int)
+     */
+    public int getLabelX() {
+        return centerPoint != null ? centerPoint.getX() : xCenter;
+    }
+
+    /**
+     * Retrieves y coordinate the name of the shape is drawn at
+     *
+     * @return y coordinate(int)
+     */
+    public int getLabelY() {
+        return centerPoint != null ? centerPoint.getY() : yCenter;
+    }
+
     /**
      * Calculates top left x and y coordinates.
      * Used for the shape rendering and used to set up a bounding box
@@ -137,6 +231,7 @@ public abstract class Shape {
      */
     public void updateFilled() {
         filled = !filled;
+        if(observer != null) observer.fillChanged(this);
     }
 
     /**
@@ -172,7 +267,49 @@ public abstract class Shape {
      * @param boundingBox BoundingBox object which would be used for initialization
      */
     public void setBoundingBox(BoundingBox boundingBox) {
+        BoundingBox oldBox = this.boundingBox;
         this.boundingBox = boundingBox;
+        if(observer != null && oldBox != null){
+            observer.boundsChanged(this, oldBox.getX(), oldBox.getY(), oldBox.getWidth(), oldBox.getHeight());
+        }
+    }
+
+    /**
+     * Updates BoundingBox object in place with given values and notifies the observer.
+     * Creates new BoundingBox object if the shape has none yet
+     *
+     * @param x x coordinate of top-left corner of the box
+     * @param y y coordinate of top-left corner of the box
+     * @param width width of the box
+     * @param height height of the box
+     */
+    protected void updateBoundingBox(int x, int y, int width, int height) {
+        if(boundingBox == null){
+            boundingBox = new BoundingBox(x, y, width, height);
+            return;
+        }
+        int oldX = boundingBox.getX(), oldY = boundingBox.getY();
+        int oldWidth = boundingBox.getWidth(), oldHeight = boundingBox.getHeight();
+        boundingBox.setBounds(x, y, width, height);
+        if(observer != null) observer.boundsChanged(this, oldX, oldY, oldWidth, oldHeight);
+    }
+
+    /**
+     * Getter method to retrieve observer of the shape
+     *
+     * @return ShapeObserver object or null if not observed
+     */
+    public ShapeObserver getObserver() {
+        return observer;
+    }
+
+    /**
+     * Registers observer which is notified about shape changes
+     *
+     * @param observer ShapeObserver object, null to stop observing
+     */
+    public void setObserver(ShapeObserver observer) {
+        this.observer = observer;
     }
 
     /**
@@ -193,4 +330,23 @@ public abstract class Shape {
     public void updatexCenter(int xCenter) {
         this.xCenter = xCenter;
     }
+
+    /**
+     * Getter method to retrieve id given to the shape by the journal recording its changes
+     *
+     * @return id(int), -1 if the shape is not journaled
+     */
+    public int getJournalId() {
+        return journalId;
+    }
+
+    /**
+     * Setter method to store id given to the shape by the journal recording its changes.
+     * Lets the journal find its state of the shape without a lookup
+     *
+     * @param journalId id(int), -1 if the shape is no longer journaled
+     */
+    public void setJournalId(int journalId) {
+        this.journalId = journalId;
+    }
 }
@@ -0,0 +1,666 @@
+package shapes;
+
+import bounding.BoundingBox;
+import interfaces.MoveAble;
+import interfaces.Rotatable;
+import interfaces.ShapeObserver;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * <h1>ShapeGroup</h1>
+ * <p>Composite shape holding child shapes, which may be groups themselves, so nested groups form a bounding<br>
+ * volume hierarchy. Children keep their own coordinates (local coordinates of the group); the group places them<br>
+ * with a transform made of a translation and a clockwise rotation around the center of the children.<br>
+ * The group caches the union of the bounding boxes of its children, and its own BoundingBox is that union<br>
+ * placed by the transform. Rendering and hit testing skip every child whose box misses the area, so whole<br>
+ * subtrees are rejected by a single test. Moving or rotating a group only changes the transform and the cached<br>
+ * box of the group, the children are not touched. A change of a child updates the cached boxes of its<br>
+ * ancestors incrementally, the union is recomputed only if the child was on the border of it.<br>
+ * Quarter turns with whole translations keep exact integer coordinates; any rotation is accumulated, so<br>
+ * repeated rotations do not drift</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Shape
+ * @see MoveAble
+ * @see Rotatable
+ */
+public class ShapeGroup extends Shape implements MoveAble, Rotatable, ShapeObserver {
+
+    /**Stores distance in degrees below which a rotation snaps to the nearest quarter turn*/
+    private static final double SNAP_DEGREES = 1e-9;
+
+    /**Modes of the traversal painting the children*/
+    private static final int RENDER = 0, DRAW = 1, FILL = 2;
+
+    /**Stores children in drawing order*/
+    private final ArrayList<Shape> children;
+
+    /**Stores union of the bounding boxes of the children in local coordinates*/
+    private int localLeft, localTop, localRight, localBottom;
+
+    /**Stores local point the group is rotated around*/
+    private int pivotX, pivotY;
+
+    /**Stores position of the pivot in the coordinates the group is placed in*/
+    private double anchorX, anchorY;
+
+    /**Stores accumulated rotation: number of clockwise quarter turns and the rest in degrees below 90*/
+    private int quarterTurns;
+    private double restDegrees;
+
+    /**Stores transform from local coordinates to the coordinates the group is placed in*/
+    private AffineTransform transform;
+
+    /**Stores longest name of the leaves, null if the group has none*/
+    private String widestLabel;
+
+    /**Tracks whether notifications of the children are held back by an operation on every child*/
+    private boolean bulkUpdate;
+
+    /**
+     * Constructor to initialize an empty group placed at the origin
+     */
+    public ShapeGroup(){
+        children = new ArrayList<>();
+        transform = new AffineTransform();
+        updateBoundingBox(0, 0, 0, 0);
+    }
+
+    /**
+     * Adds child on top of the other children and extends the cached bounds.
+     * The coordinates of the child are local coordinates of the group
+     *
+     * @param child shape which does not belong to a manager or another group yet
+     */
+    public void add(Shape child){
+        if(child.getObserver() != null) throw new IllegalArgumentException("Shape already belongs to an owner");
+        if(child.getBoundingBox() == null) throw new IllegalArgumentException("Shape has no bounding box");
+        for(ShapeGroup group = this; group != null; group = group.getParent()){
+            if(group == child) throw new IllegalArgumentException("Group cannot contain itself");
+        }
+        BoundingBox box = child.getBoundingBox();
+        if(children.isEmpty()){
+            localLeft = box.getX();
+            localTop = box.getY();
+            localRight = box.getX() + box.getWidth();
+            localBottom = box.getY() + box.getHeight();
+        } else {
+            include(box);
+        }
+        children.add(child);
+        child.setObserver(this);
+        includeLabel(leafLabelOf(child));
+        if(!updateWorldBounds()) notifyArea(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+    }
+
+    /**
+     * Removes child and recomputes the cached bounds
+     *
+     * @param child shape object
+     * @return true if the child was available
+     */
+    public boolean remove(Shape child){
+        if(!children.remove(child)) return false;
+        child.setObserver(null);
+        recomputeLocalBounds();
+        recomputeLabel();
+        BoundingBox box = child.getBoundingBox();
+        if(!updateWorldBounds()) notifyArea(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+        return true;
+    }
+
+    /**
+     * Getter method to retrieve children
+     *
+     * @return unmodifiable list of the children in drawing order
+     */
+    public List<Shape> getChildren(){
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Getter method to retrieve number of children
+     *
+     * @return number of children(int)
+     */
+    public int size(){
+        return children.size();
+    }
+
+    /**
+     * Getter method to retrieve group containing this group
+     *
+     * @return ShapeGroup object or null if the group is not nested
+     */
+    public ShapeGroup getParent(){
+        return getObserver() instanceof ShapeGroup ? (ShapeGroup) getObserver() : null;
+    }
+
+    /**
+     * Getter method to retrieve transform from local coordinates to the coordinates the group is placed in
+     *
+     * @return copy of the transform
+     */
+    public AffineTransform getTransform(){
+        return new AffineTransform(transform);
+    }
+
+    /**
+     * Retrieves accumulated rotation of the group
+     *
+     * @return clockwise angle in degrees between 0 and 360
+     */
+    public double getRotation(){
+        return quarterTurns * 90 + restDegrees;
+    }
+
+    /**
+     * Moves the group by given distance. Only the transform and the cached box of the group are updated
+     *
+     * @param dx horizontal distance
+     * @param dy vertical distance
+     */
+    public void translate(int dx, int dy){
+        anchorX += dx;
+        anchorY += dy;
+        updateTransform();
+    }
+
+    /**
+     * Implementation of the interface method
+     * Moves the group horizontally for 10 units
+     */
+    @Override
+    public void moveTenXUnits() {
+        translate(10, 0);
+    }
+
+    /**
+     * Implementation of the interface method
+     * Rotates the group clockwise by 90 degrees around the center of its children
+     */
+    @Override
+    public void rotateNinetyDegrees() {
+        rotate(90);
+    }
+
+    /**
+     * Implementation of the interface method
+     * Rotates the group clockwise by given angle around the center of its children. The angle is added to the<br>
+     * accumulated rotation; accumulated rotations within 1e-9 degrees of a quarter turn snap to it.
+     * Only the transform and the cached box of the group are updated
+     *
+     * @param degrees angle in degrees, negative to rotate counterclockwise
+     */
+    @Override
+    public void rotate(double degrees) {
+        if(Double.isNaN(degrees) || Double.isInfinite(degrees)){
+            throw new IllegalArgumentException("Invalid angle: " + degrees);
+        }
+        movePivot(localLeft + (localRight - localLeft) / 2, localTop + (localBottom - localTop) / 2);
+        double total = restDegrees + degrees % 360;
+        double turns = Math.floor(total / 90), rest = total - turns * 90;
+        if(rest < SNAP_DEGREES || rest > 90 - SNAP_DEGREES){
+            turns = Math.rint(total / 90);
+            rest = 0;
+        }
+        quarterTurns = Math.floorMod(quarterTurns + (int) turns, 4);
+        restDegrees = rest;
+        updateTransform();
+    }
+
+    /**
+     * Implementation of the abstract method
+     * Rotates every child together by 90 degrees
+     */
+    @Override
+    public void performSpecialAction() {
+        rotateNinetyDegrees();
+    }
+
+    /**
+     * Toggles filled state of every leaf. The owner of the group is notified once for the whole group
+     */
+    @Override
+    public void updateFilled() {
+        bulkUpdate = true;
+        try {
+            for(Shape child : children){
+                child.updateFilled();
+            }
+        } finally {
+            bulkUpdate = false;
+        }
+        super.updateFilled();
+    }
+
+    /**
+     * Gives every leaf the palette entry. The owner of the group is notified once for the whole group
+     *
+     * @param colorIndex palette index
+     */
+    @Override
+    public void setColorIndex(int colorIndex) {
+        bulkUpdate = true;
+        try {
+            for(Shape child : children){
+                child.setColorIndex(colorIndex);
+            }
+        } finally {
+            bulkUpdate = false;
+        }
+        super.setColorIndex(colorIndex);
+    }
+
+    /**
+     * Retrieves longest name of the leaves. Used to estimate the area covered by the names of the leaves
+     *
+     * @return name of a leaf, name of the class if the group has no leaves
+     */
+    @Override
+    public String getLabel() {
+        return widestLabel != null ? widestLabel : super.getLabel();
+    }
+
+    /**
+     * Retrieves x coordinate of the center of the group
+     *
+     * @return x coordinate(int)
+     */
+    @Override
+    public int getLabelX() {
+        return getBoundingBox().getX() + getBoundingBox().getWidth() / 2;
+    }
+
+    /**
+     * Retrieves y coordinate of the center of the group
+     *
+     * @return y coordinate(int)
+     */
+    @Override
+    public int getLabelY() {
+        return getBoundingBox().getY() + getBoundingBox().getHeight() / 2;
+    }
+
+    /**
+     * Implementation of the abstract method
+     * Renders children which intersect the clip area of the Graphics, each with its own color.
+     * The transform and the color of the Graphics are restored afterwards
+     *
+     * @param g used for rendering of the shape, has to be a Graphics2D
+     */
+    @Override
+    public void renderShape(Graphics g) {
+        paint((Graphics2D) g, RENDER);
+    }
+
+    /**
+     * Implementation of the abstract method
+     * Draws children which intersect the clip area of the Graphics with the current color
+     *
+     * @param g used for drawing the shape, has to be a Graphics2D
+     */
+    @Override
+    public void drawShape(Graphics g) {
+        paint((Graphics2D) g, DRAW);
+    }
+
+    /**
+     * Implementation of the abstract method
+     * Fills children which intersect the clip area of the Graphics with the current color
+     *
+     * @param g used to fill the shape, has to be a Graphics2D
+     */
+    @Override
+    public void fillShape(Graphics g) {
+        paint((Graphics2D) g, FILL);
+    }
+
+    /**
+     * Implementation of the abstract method
+     * Displays names of the leaves near the clip area, each with the color of its leaf. Names are not rotated
+     *
+     * @param g used to draw string (name of the class)
+     */
+    @Override
+    public void displayName(Graphics g) {
+        Color color = g.getColor();
+        java.awt.Rectangle clip = g.getClipBounds();
+        if(clip != null){
+            FontMetrics metrics = g.getFontMetrics();
+            int labelWidth = metrics.stringWidth(getLabel());
+            clip = new java.awt.Rectangle(clip.x - labelWidth - 1, clip.y - metrics.getDescent() - 1,
+                    clip.width + labelWidth + 1, clip.height + metrics.getAscent() + metrics.getDescent() + 1);
+        }
+        Point2D.Double position = new Point2D.Double();
+        forEachLeaf(clip, (leaf, leafTransform) -> {
+            position.setLocation(leaf.getLabelX(), leaf.getLabelY());
+            leafTransform.transform(position, position);
+            if(leaf.getDisplayColor() != null) g.setColor(leaf.getDisplayColor());
+            g.drawString(leaf.getLabel(), (int) Math.round(position.x), (int) Math.round(position.y));
+        });
+        g.setColor(color);
+    }
+
+    /**
+     * Implementation of the abstract method
+     * Appends outlines of every leaf placed by the transforms of the groups
+     *
+     * @param path path the outline is appended to
+     */
+    @Override
+    public void appendGeometry(Path2D path) {
+        Path2D.Float leafPath = new Path2D.Float();
+        forEachLeaf(null, (leaf, leafTransform) -> {
+            leafPath.reset();
+            leaf.appendGeometry(leafPath);
+            path.append(leafPath.getPathIterator(leafTransform), false);
+        });
+    }
+
+    /**
+     * Implementation of the abstract method
+     * Recomputes the cached bounds from every child
+     */
+    @Override
+    public void calculateTopLeftCoordinates() {
+        recomputeLocalBounds();
+        updateWorldBounds();
+    }
+
+    /**
+     * Visits leaves which bounding box intersects given area, in drawing order. Subtrees which bounds miss the<br>
+     * area are skipped without visiting their children
+     *
+     * @param area area in the coordinates the group is placed in, null to visit every leaf
+     * @param action called with each leaf and the transform from the coordinates of the leaf to the coordinates<br>
+     *               the group is placed in; the transform is shared and must not be modified or kept
+     */
+    public void forEachLeaf(Rectangle2D area, BiConsumer<Shape, AffineTransform> action){
+        forEachLeaf(area, new AffineTransform(), action);
+    }
+
+    /**
+     * Retrieves leaves which bounding box contains given point. Subtrees which bounds do not contain the point<br>
+     * are skipped
+     *
+     * @param x x coordinate in the coordinates the group is placed in
+     * @param y y coordinate in the coordinates the group is placed in
+     * @return leaves in drawing order
+     */
+    public List<Shape> findLeavesAt(int x, int y){
+        ArrayList<Shape> leaves = new ArrayList<>();
+        Point2D.Double point = new Point2D.Double();
+        forEachLeaf(new Rectangle2D.Double(x, y, 0, 0), (leaf, leafTransform) -> {
+            point.setLocation(x, y);
+            try {
+                leafTransform.inverseTransform(point, point);
+            } catch (NoninvertibleTransformException e) {
+                return;
+            }
+            BoundingBox box = leaf.getBoundingBox();
+            if(point.x >= box.getX() && point.x <= box.getX() + box.getWidth() &&
+                    point.y >= box.getY() && point.y <= box.getY() + box.getHeight()) leaves.add(leaf);
+        });
+        return leaves;
+    }
+
+    /**
+     * Implementation of the interface method
+     * Updates the cached bounds after a child has changed: extends them in constant time, or recomputes them if<br>
+     * the child was on the border. The owner is told about the new box of the group, or about the area of the<br>
+     * child if the box of the group has not changed
+     */
+    @Override
+    public void boundsChanged(Shape shape, int oldX, int oldY, int oldWidth, int oldHeight) {
+        if(oldX == localLeft || oldY == localTop || oldX + oldWidth == localRight || oldY + oldHeight == localBottom){
+            recomputeLocalBounds();
+        } else {
+            include(shape.getBoundingBox());
+        }
+        if(updateWorldBounds()) return;
+        BoundingBox box = shape.getBoundingBox();
+        notifyArea(oldX, oldY, oldWidth, oldHeight);
+        notifyArea(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+    }
+
+    /**
+     * Implementation of the interface method
+     * Tells the owner about the area of the child
+     */
+    @Override
+    public void fillChanged(Shape shape) {
+        BoundingBox box = shape.getBoundingBox();
+        notifyArea(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+    }
+
+    /**
+     * Implementation of the interface method
+     * Tells the owner about the area of the child
+     */
+    @Override
+    public void colorChanged(Shape shape) {
+        BoundingBox box = shape.getBoundingBox();
+        notifyArea(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+    }
+
+    /**
+     * Implementation of the interface method
+     * Tells the owner about the area placed by the transform of the group
+     */
+    @Override
+    public void areaChanged(Shape shape, int x, int y, int width, int height) {
+        notifyArea(x, y, width, height);
+    }
+
+    /**
+     * Visits leaves which bounding box intersects given area
+     *
+     * @param area area in the coordinates the group is placed in, null to visit every leaf
+     * @param outer transform from the coordinates the group is placed in to the coordinates of the caller
+     * @param action called with each leaf and the transform from the coordinates of the leaf
+     */
+    private void forEachLeaf(Rectangle2D area, AffineTransform outer, BiConsumer<Shape, AffineTransform> action){
+        AffineTransform leafTransform = new AffineTransform(outer);
+        leafTransform.concatenate(transform);
+        Rectangle2D localArea = area != null ? toLocal(area) : null;
+        for(Shape child : children){
+            if(localArea != null && !intersects(child.getBoundingBox(), localArea)) continue;
+            if(child instanceof ShapeGroup) ((ShapeGroup) child).forEachLeaf(localArea, leafTransform, action);
+            else action.accept(child, leafTransform);
+        }
+    }
+
+    /**
+     * Paints children which intersect the clip area of the Graphics
+     *
+     * @param g2 used for painting
+     * @param mode RENDER, DRAW or FILL
+     */
+    private void paint(Graphics2D g2, int mode){
+        AffineTransform saved = g2.getTransform();
+        Color color = g2.getColor();
+        g2.transform(transform);
+        java.awt.Rectangle clip = g2.getClipBounds();
+        for(Shape child : children){
+            if(clip != null && !intersects(child.getBoundingBox(), clip)) continue;
+            if(mode == RENDER) child.renderShape(g2);
+            else if(mode == DRAW) child.drawShape(g2);
+            else child.fillShape(g2);
+        }
+        g2.setTransform(saved);
+        g2.setColor(color);
+    }
+
+    /**
+     * Checks whether area covered by a child, including the outline drawn one pixel past the box, intersects<br>
+     * given area
+     *
+     * @param box bounding box of the child
+     * @param area area in local coordinates
+     * @return true if they intersect
+     */
+    private static boolean intersects(BoundingBox box, Rectangle2D area){
+        return box.getX() <= area.getMaxX() && box.getX() + box.getWidth() + 1 >= area.getMinX() &&
+                box.getY() <= area.getMaxY() && box.getY() + box.getHeight() + 1 >= area.getMinY();
+    }
+
+    /**
+     * Converts area in the coordinates the group is placed in to the local area covering it
+     *
+     * @param area area in the coordinates the group is placed in
+     * @return bounds of the area in local coordinates
+     */
+    private Rectangle2D toLocal(Rectangle2D area){
+        if(transform.getType() == AffineTransform.TYPE_IDENTITY) return area;
+        try {
+            return transform.createInverse().createTransformedShape(area).getBounds2D();
+        } catch (NoninvertibleTransformException e) {
+            return area;
+        }
+    }
+
+    /**
+     * Extends the cached local bounds by given box
+     *
+     * @param box bounding box of a child
+     */
+    private void include(BoundingBox box){
+        localLeft = Math.min(localLeft, box.getX());
+        localTop = Math.min(localTop, box.getY());
+        localRight = Math.max(localRight, box.getX() + box.getWidth());
+        localBottom = Math.max(localBottom, box.getY() + box.getHeight());
+    }
+
+    /**
+     * Recomputes the cached local bounds from the boxes of the children
+     */
+    private void recomputeLocalBounds(){
+        localLeft = localTop = Integer.MAX_VALUE;
+        localRight = localBottom = Integer.MIN_VALUE;
+        for(Shape child : children){
+            include(child.getBoundingBox());
+        }
+        if(children.isEmpty()) localLeft = localTop = localRight = localBottom = 0;
+    }
+
+    /**
+     * Moves the pivot to given local point without moving the group
+     *
+     * @param x x coordinate of the new pivot
+     * @param y y coordinate of the new pivot
+     */
+    private void movePivot(int x, int y){
+        if(x == pivotX && y == pivotY) return;
+        Point2D.Double anchor = new Point2D.Double(x, y);
+        transform.transform(anchor, anchor);
+        anchorX = anchor.x;
+        anchorY = anchor.y;
+        pivotX = x;
+        pivotY = y;
+    }
+
+    /**
+     * Rebuilds the transform from the accumulated rotation and updates the cached box of the group
+     */
+    private void updateTransform(){
+        AffineTransform updated = AffineTransform.getTranslateInstance(anchorX, anchorY);
+        updated.quadrantRotate(quarterTurns);
+        if(restDegrees != 0) updated.rotate(Math.toRadians(restDegrees));
+        updated.translate(-pivotX, -pivotY);
+        transform = updated;
+        updateWorldBounds();
+    }
+
+    /**
+     * Updates the box of the group to the cached local bounds placed by the transform, notifying the owner if it<br>
+     * has changed
+     *
+     * @return true if the box has changed
+     */
+    private boolean updateWorldBounds(){
+        java.awt.Rectangle bounds = place(localLeft, localTop, localRight - localLeft, localBottom - localTop);
+        BoundingBox box = getBoundingBox();
+        if(box.getX() == bounds.x && box.getY() == bounds.y &&
+                box.getWidth() == bounds.width && box.getHeight() == bounds.height) return false;
+        updateBoundingBox(bounds.x, bounds.y, bounds.width, bounds.height);
+        return true;
+    }
+
+    /**
+     * Places given local area by the transform
+     *
+     * @param x x coordinate of top left corner of the local area
+     * @param y y coordinate of top left corner of the local area
+     * @param width width of the area
+     * @param height height of the area
+     * @return smallest whole area covering the placed area
+     */
+    private java.awt.Rectangle place(int x, int y, int width, int height){
+        java.awt.Rectangle area = new java.awt.Rectangle(x, y, width, height);
+        if(transform.getType() == AffineTransform.TYPE_IDENTITY) return area;
+        Rectangle2D placed = transform.createTransformedShape(area).getBounds2D();
+        int left = (int) Math.floor(placed.getMinX()), top = (int) Math.floor(placed.getMinY());
+        return new java.awt.Rectangle(left, top, (int) Math.ceil(placed.getMaxX()) - left,
+                (int) Math.ceil(placed.getMaxY()) - top);
+    }
+
+    /**
+     * Tells the owner that given local area has to be painted again, unless notifications are held back
+     *
+     * @param x x coordinate of top left corner of the local area
+     * @param y y coordinate of top left corner of the local area
+     * @param width width of the area
+     * @param height height of the area
+     */
+    private void notifyArea(int x, int y, int width, int height){
+        if(bulkUpdate || getObserver() == null) return;
+        java.awt.Rectangle area = place(x, y, width, height);
+        getObserver().areaChanged(this, area.x, area.y, area.width, area.height);
+    }
+
+    /**
+     * Keeps the longest name of the leaves after a child has been added, informing the enclosing groups
+     *
+     * @param label longest name of the leaves of the child, null if it has none
+     */
+    private void includeLabel(String label){
+        if(label == null || widestLabel != null && widestLabel.length() >= label.length()) return;
+        widestLabel = label;
+        if(getParent() != null) getParent().includeLabel(label);
+    }
+
+    /**
+     * Recomputes the longest name of the leaves after a child has been removed, informing the enclosing groups
+     */
+    private void recomputeLabel(){
+        String previous = widestLabel;
+        widestLabel = null;
+        for(Shape child : children){
+            String label = leafLabelOf(child);
+            if(label != null && (widestLabel == null || label.length() > widestLabel.length())) widestLabel = label;
+        }
+        if(widestLabel != previous && getParent() != null) getParent().recomputeLabel();
+    }
+
+    /**
+     * Retrieves longest name of the leaves of given child
+     *
+     * @param child shape object
+     * @return name of the child or of its longest leaf, null for groups without leaves
+     */
+    private static String leafLabelOf(Shape child){
+        return child instanceof ShapeGroup ? ((ShapeGroup) child).widestLabel : child.getLabel();
+    }
+}
@@ -0,0 +1,444 @@
+package spatial;
+
+import bounding.BoundingBox;
+import shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * <h1>UniformGrid</h1>
+ * <p>Spatial index which splits the plane into square cells of equal size.<br>
+ * Each shape is registered in every cell its BoundingBox overlaps, so a point query only has to look at the shapes<br>
+ * of a single cell instead of every available shape. Cells are created on demand, so coordinates are not limited<br>
+ * to the window area, and removed once they are empty, so memory follows the cells in use rather than every cell<br>
+ * ever touched. Lists of removed cells are pooled, so moving shapes around does not allocate new cells.<br>
+ * Keeps insertion order of the shapes, so query results come back in drawing order</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see BoundingBox
+ */
+public class UniformGrid {
+
+    /**Stores default cell edge length*/
+    public static final int DEFAULT_CELL_SIZE = 64;
+
+    /**Sorts entries by drawing order*/
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(entry -> entry.order);
+
+    /**Stores cell edge length*/
+    private final int cellSize;
+
+    /**Stores cells by packed cell x,y coordinates*/
+    private final CellTable cells;
+
+    /**Stores index entry of every registered shape*/
+    private final IdentityHashMap<Shape, Entry> entries;
+
+    /**Stores order value handed out to the next inserted shape*/
+    private long nextOrder;
+
+    /**
+     * Default constructor, uses default cell size
+     */
+    public UniformGrid(){
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructor to initialize the grid with given cell size
+     *
+     * @param cellSize cell edge length as whole number(int)
+     */
+    public UniformGrid(int cellSize){
+        if(cellSize <= 0) throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        this.cellSize = cellSize;
+        cells = new CellTable();
+        entries = new IdentityHashMap<>();
+    }
+
+    /**
+     * Registers shape in the cells covered by its BoundingBox.
+     * Shapes without BoundingBox or already registered are ignored
+     *
+     * @param shape shape object
+     */
+    public void insert(Shape shape){
+        insert(shape, nextOrder);
+    }
+
+    /**
+     * Registers shape with given drawing order instead of the next one, e.g. to index some of the shapes of<br>
+     * another grid in the same order. Shapes without BoundingBox or already registered are ignored
+     *
+     * @param shape shape object
+     * @param order drawing order of the shape, shapes with larger values are drawn later
+     */
+    public void insert(Shape shape, long order){
+        if(shape.getBoundingBox() == null || entries.containsKey(shape)) return;
+        Entry entry = new Entry(shape, order);
+        entries.put(shape, entry);
+        nextOrder = Math.max(nextOrder, order + 1);
+        assignCells(entry, shape.getBoundingBox());
+    }
+
+    /**
+     * Moves registered shape to the cells covered by its current BoundingBox.
+     * Has to be called whenever BoundingBox of the shape is replaced or updated
+     *
+     * @param shape shape object
+     */
+    public void update(Shape shape){
+        Entry entry = entries.get(shape);
+        BoundingBox box = shape.getBoundingBox();
+        if(entry == null || box == null) return;
+        if(entry.minCellX == cell(box.getX()) && entry.minCellY == cell(box.getY()) &&
+                entry.maxCellX == cell(box.getX() + box.getWidth()) &&
+                entry.maxCellY == cell(box.getY() + box.getHeight())){
+            return;
+        }
+        releaseCells(entry);
+        assignCells(entry, box);
+    }
+
+    /**
+     * Removes shape from the grid
+     *
+     * @param shape shape object
+     */
+    public void remove(Shape shape){
+        Entry entry = entries.remove(shape);
+        if(entry != null) releaseCells(entry);
+    }
+
+    /**
+     * Removes every shape from the grid
+     */
+    public void clear(){
+        cells.clear();
+        entries.clear();
+    }
+
+    /**
+     * Checks whether the shape is registered in the grid
+     *
+     * @param shape shape object
+     * @return true if registered
+     */
+    public boolean contains(Shape shape){
+        return entries.containsKey(shape);
+    }
+
+    /**
+     * Retrieves drawing order of the shape
+     *
+     * @param shape shape object
+     * @return order value, -1 if the shape is not registered
+     */
+    public long orderOf(Shape shape){
+        Entry entry = entries.get(shape);
+        return entry != null ? entry.order : -1;
+    }
+
+    /**
+     * Getter method to retrieve number of registered shapes
+     *
+     * @return number of shapes(int)
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * Retrieves shapes which BoundingBox contains given point
+     *
+     * @param x x coordinate(int)
+     * @param y y coordinate(int)
+     * @return shapes in drawing order
+     */
+    public List<Shape> queryPoint(int x, int y){
+        ArrayList<Entry> cellEntries = cells.get(key(cell(x), cell(y)));
+        if(cellEntries == null) return new ArrayList<>();
+        ArrayList<Entry> hits = new ArrayList<>();
+        for(Entry entry : cellEntries){
+            if(entry.shape.getBoundingBox().isWithinBounds(x, y)) hits.add(entry);
+        }
+        return toShapes(hits);
+    }
+
+    /**
+     * Finds a shape drawn after given order which BoundingBox contains given point and which is accepted by the<br>
+     * filter. Only the cell of the point is visited and nothing is allocated
+     *
+     * @param x x coordinate(int)
+     * @param y y coordinate(int)
+     * @param order drawing order the shape has to be drawn after
+     * @param filter test the shape has to pass
+     * @return shape object, null if there is none
+     */
+    public Shape findAfter(int x, int y, long order, Predicate<Shape> filter){
+        ArrayList<Entry> cellEntries = cells.get(key(cell(x), cell(y)));
+        if(cellEntries == null) return null;
+        for(int i = 0; i < cellEntries.size(); i++){
+            Entry entry = cellEntries.get(i);
+            if(entry.order > order && entry.shape.getBoundingBox().isWithinBounds(x, y) && filter.test(entry.shape)){
+                return entry.shape;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves shapes which BoundingBox intersects given area.
+     * Every shape is reported by the first cell of the area it is registered in, so no state is changed and<br>
+     * several threads may query the grid at once. If the area spans more cells than there are shapes, the shapes<br>
+     * are tested directly instead of visiting the cells
+     *
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width width of the area
+     * @param height height of the area
+     * @return shapes in drawing order
+     */
+    public List<Shape> queryRegion(int x, int y, int width, int height){
+        ArrayList<Entry> hits = new ArrayList<>();
+        int minCellX = cell(x), minCellY = cell(y);
+        int maxCellX = cell(x + width), maxCellY = cell(y + height);
+        if(countCells(x, y, width, height) > entries.size()){
+            for(Entry entry : entries.values()){
+                if(intersects(entry, x, y, width, height)) hits.add(entry);
+            }
+            return toShapes(hits);
+        }
+        for(int cellX = minCellX; cellX <= maxCellX; cellX++){
+            for(int cellY = minCellY; cellY <= maxCellY; cellY++){
+                ArrayList<Entry> cellEntries = cells.get(key(cellX, cellY));
+                if(cellEntries == null) continue;
+                for(Entry entry : cellEntries){
+                    if(cellX != Math.max(entry.minCellX, minCellX) || cellY != Math.max(entry.minCellY, minCellY)){
+                        continue;
+                    }
+                    if(intersects(entry, x, y, width, height)) hits.add(entry);
+                }
+            }
+        }
+        return toShapes(hits);
+    }
+
+    /**
+     * Calculates number of cells covered by given area. Region queries covering more cells than there are shapes<br>
+     * test the shapes directly, callers keeping the shapes in drawing order can do the same without sorting
+     *
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width width of the area
+     * @param height height of the area
+     * @return number of cells
+     */
+    public long countCells(int x, int y, int width, int height){
+        return ((long) cell(x + width) - cell(x) + 1) * ((long) cell(y + height) - cell(y) + 1);
+    }
+
+    /**
+     * Checks whether BoundingBox of the entry intersects given area
+     *
+     * @param entry index entry of the shape
+     * @param x x coordinate of top left corner of the area
+     * @param y y coordinate of top left corner of the area
+     * @param width width of the area
+     * @param height height of the area
+     * @return true if the box and the area intersect, touching edges included
+     */
+    private static boolean intersects(Entry entry, int x, int y, int width, int height){
+        BoundingBox box = entry.shape.getBoundingBox();
+        return box.getX() <= x + width && box.getX() + box.getWidth() >= x &&
+                box.getY() <= y + height && box.getY() + box.getHeight() >= y;
+    }
+
+    /**
+     * Registers entry in every cell overlapped by given box
+     *
+     * @param entry index entry of the shape
+     * @param box current BoundingBox of the shape
+     */
+    private void assignCells(Entry entry, BoundingBox box){
+        entry.minCellX = cell(box.getX());
+        entry.minCellY = cell(box.getY());
+        entry.maxCellX = cell(box.getX() + box.getWidth());
+        entry.maxCellY = cell(box.getY() + box.getHeight());
+        for(int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++){
+            for(int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++){
+                cells.getOrCreate(key(cellX, cellY)).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes entry from every cell it is currently registered in
+     *
+     * @param entry index entry of the shape
+     */
+    private void releaseCells(Entry entry){
+        for(int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++){
+            for(int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++){
+                long key = key(cellX, cellY);
+                ArrayList<Entry> cellEntries = cells.get(key);
+                if(cellEntries != null && cellEntries.remove(entry) && cellEntries.isEmpty()) cells.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Sorts entries by drawing order and extracts the shapes
+     *
+     * @param hits matching entries
+     * @return shapes in drawing order
+     */
+    private List<Shape> toShapes(ArrayList<Entry> hits){
+        hits.sort(ORDER);
+        ArrayList<Shape> result = new ArrayList<>(hits.size());
+        for(Entry entry : hits){
+            result.add(entry.shape);
+        }
+        return result;
+    }
+
+    /**
+     * Translates coordinate to cell coordinate
+     *
+     * @param coordinate x or y coordinate
+     * @return cell coordinate(int)
+     */
+    private int cell(int coordinate){
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    /**
+     * Packs cell x,y coordinates into a single key
+     *
+     * @param cellX cell x coordinate
+     * @param cellY cell y coordinate
+     * @return packed key
+     */
+    private static long key(int cellX, int cellY){
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Index entry of a registered shape. Stores drawing order and the range of cells the shape is registered in
+     */
+    private static final class Entry {
+
+        /**Stores registered shape*/
+        private final Shape shape;
+
+        /**Stores drawing order of the shape*/
+        private final long order;
+
+        /**Stores range of cells the shape is registered in*/
+        private int minCellX, minCellY, maxCellX, maxCellY;
+
+        private Entry(Shape shape, long order){
+            this.shape = shape;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Open addressing hash table of cells keyed by packed cell coordinates. Avoids boxing of the keys.
+     * Removal shifts following entries back instead of leaving tombstones, the table shrinks when mostly empty
+     */
+    private static final class CellTable {
+
+        /**Stores minimum capacity of the table*/
+        private static final int MIN_CAPACITY = 64;
+
+        /**Stores maximum number of pooled lists of removed cells*/
+        private static final int MAX_SPARES = 64;
+
+        private long[] keys = new long[MIN_CAPACITY];
+        private ArrayList<?>[] values = new ArrayList<?>[MIN_CAPACITY];
+        private int size;
+
+        /**Stores emptied lists reused for new cells*/
+        private final ArrayList<ArrayList<Entry>> spares = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        private ArrayList<Entry> get(long key){
+            int mask = keys.length - 1;
+            for(int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask){
+                if(keys[slot] == key) return (ArrayList<Entry>) values[slot];
+            }
+            return null;
+        }
+
+        private ArrayList<Entry> getOrCreate(long key){
+            ArrayList<Entry> cell = get(key);
+            if(cell != null) return cell;
+            if((size + 1) * 2 > keys.length) resize(keys.length * 2);
+            cell = spares.isEmpty() ? new ArrayList<>(4) : spares.remove(spares.size() - 1);
+            put(key, cell);
+            size++;
+            return cell;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void remove(long key){
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while(values[slot] != null && keys[slot] != key) slot = (slot + 1) & mask;
+            if(values[slot] == null) return;
+            if(spares.size() < MAX_SPARES) spares.add((ArrayList<Entry>) values[slot]);
+            values[slot] = null;
+            size--;
+            for(int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask){
+                int home = slot(keys[next], mask);
+                boolean reachable = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+                if(reachable) continue;
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+            if(keys.length > MIN_CAPACITY && size * 8 < keys.length) resize(keys.length / 2);
+        }
+
+        private void clear(){
+            if(keys.length > MIN_CAPACITY){
+                keys = new long[MIN_CAPACITY];
+                values = new ArrayList<?>[MIN_CAPACITY];
+            } else {
+                Arrays.fill(values, null);
+            }
+            size = 0;
+        }
+
+        private void put(long key, ArrayList<?> cell){
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while(values[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = cell;
+        }
+
+        private void resize(int capacity){
+            long[] oldKeys = keys;
+            ArrayList<?>[] oldValues = values;
+            keys = new long[capacity];
+            values = new ArrayList<?>[capacity];
+            for(int i = 0; i < oldKeys.length; i++){
+                if(oldValues[i] != null) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int mask){
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package store;
+
+import bounding.BoundingBox;
+import rendering.DensityRaster;
+import rendering.LevelOfDetail;
+import shapes.ColorPalette;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+/**
+ * <h1>InstanceBatch</h1>
+ * <p>Many shapes sharing the same geometry, e.g. the tiles of a layout. The geometry is stored once in a<br>
+ * ShapePrototype, every instance only stores its center, an index into the shared ColorPalette and flags<br>
+ * (filled state) in primitive arrays - 11 bytes per instance instead of a shape object with its own<br>
+ * bounding box. Changing a palette entry recolors every instance using it.<br>
+ * Instances are rendered by an instanced path: geometry, size checks and level of detail decisions are taken<br>
+ * once per batch, the color is only set when the palette index changes between consecutive instances.<br>
+ * Hit testing only looks at the instances registered in the cell of a RowGrid containing the point.<br>
+ * Instances of rectangles and squares move by 10 units as their special action. The geometry of quadrilaterals<br>
+ * is shared, so their instances do not rotate</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ShapePrototype
+ * @see ShapeStore
+ * @see ColorPalette
+ */
+public class InstanceBatch {
+
+    /**Flag of filled instances*/
+    public static final byte FILLED = 1;
+
+    /**Stores default initial capacity*/
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**Stores geometry shared by the instances*/
+    private final ShapePrototype prototype;
+
+    /**Stores center x,y coordinates of each instance*/
+    private int[] xCenters, yCenters;
+
+    /**Stores palette index of each instance, read as unsigned*/
+    private short[] colorIndices;
+
+    /**Stores flags of each instance*/
+    private byte[] flags;
+
+    /**Stores number of instances*/
+    private int size;
+
+    /**Stores spatial index of the instances used for hit testing*/
+    private final RowGrid grid;
+
+    /**
+     * Constructor to initialize an empty batch of given geometry
+     *
+     * @param prototype geometry shared by the instances
+     */
+    public InstanceBatch(ShapePrototype prototype){
+        this(prototype, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to initialize an empty batch of given geometry and capacity
+     *
+     * @param prototype geometry shared by the instances
+     * @param capacity expected number of instances
+     */
+    public InstanceBatch(ShapePrototype prototype, int capacity){
+        this.prototype = prototype;
+        capacity = Math.max(capacity, 1);
+        xCenters = new int[capacity];
+        yCenters = new int[capacity];
+        colorIndices = new short[capacity];
+        flags = new byte[capacity];
+        grid = new RowGrid();
+    }
+
+    /**
+     * Getter method to retrieve geometry shared by the instances
+     *
+     * @return ShapePrototype object
+     */
+    public ShapePrototype getPrototype(){
+        return prototype;
+    }
+
+    /**
+     * Adds instance
+     *
+     * @param xCenter x coordinate of center of the instance
+     * @param yCenter y coordinate of center of the instance
+     * @param colorIndex index of the color of the instance in the shared ColorPalette
+     * @param instanceFlags flags of the instance, e.g. FILLED
+     * @return index of the instance
+     */
+    public int add(int xCenter, int yCenter, int colorIndex, byte instanceFlags){
+        checkColorIndex(colorIndex);
+        if(size == xCenters.length){
+            int capacity = size * 2;
+            xCenters = Arrays.copyOf(xCenters, capacity);
+            yCenters = Arrays.copyOf(yCenters, capacity);
+            colorIndices = Arrays.copyOf(colorIndices, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        int instance = size++;
+        xCenters[instance] = xCenter;
+        yCenters[instance] = yCenter;
+        colorIndices[instance] = (short) colorIndex;
+        flags[instance] = instanceFlags;
+        grid.insert(instance, getBoundsX(instance), getBoundsY(instance), prototype.getWidth(), prototype.getHeight());
+        return instance;
+    }
+
+    /**
+     * Getter method to retrieve number of instances
+     *
+     * @return number of instances(int)
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Getter method to retrieve x coordinate of center of the instance
+     *
+     * @param instance index of the instance
+     * @return x coordinate(int)
+     */
+    public int getxCenter(int instance){
+        return xCenters[instance];
+    }
+
+    /**
+     * Getter method to retrieve y coordinate of center of the instance
+     *
+     * @param instance index of the instance
+     * @return y coordinate(int)
+     */
+    public int getyCenter(int instance){
+        return yCenters[instance];
+    }
+
+    /**
+     * Getter method to retrieve palette index of the instance
+     *
+     * @param instance index of the instance
+     * @return palette index(int)
+     */
+    public int getColorIndex(int instance){
+        return colorIndices[instance] & 0xFFFF;
+    }
+
+    /**
+     * Setter method to change palette index of the instance
+     *
+     * @param instance index of the instance
+     * @param colorIndex palette index
+     */
+    public void setColorIndex(int instance, int colorIndex){
+        checkColorIndex(colorIndex);
+        colorIndices[instance] = (short) colorIndex;
+    }
+
+    /**
+     * Checks whether the instance is filled with color
+     *
+     * @param instance index of the instance
+     * @return filled state
+     */
+    public boolean isFilled(int instance){
+        return (flags[instance] & FILLED) != 0;
+    }
+
+    /**
+     * Toggles filled state of the instance
+     *
+     * @param instance index of the instance
+     */
+    public void toggleFilled(int instance){
+        flags[instance] ^= FILLED;
+    }
+
+    /**
+     * Moves the instance to given center
+     *
+     * @param instance index of the instance
+     * @param xCenter x coordinate of the new center
+     * @param yCenter y coordinate of the new center
+     */
+    public void moveTo(int instance, int xCenter, int yCenter){
+        int oldX = getBoundsX(instance), oldY = getBoundsY(instance);
+        xCenters[instance] = xCenter;
+        yCenters[instance] = yCenter;
+        int width = prototype.getWidth(), height = prototype.getHeight();
+        grid.move(instance, oldX, oldY, width, height, getBoundsX(instance), getBoundsY(instance), width, height);
+    }
+
+    /**
+     * Performs special action of the instance: moves rectangles and squares by 10 units horizontally to the right.
+     * Circles and quadrilaterals have no special action
+     *
+     * @param instance index of the instance
+     */
+    public void performSpecialAction(int instance){
+        byte kind = prototype.getKind();
+        if(kind == ShapeStore.RECTANGLE || kind == ShapeStore.SQUARE){
+            moveTo(instance, xCenters[instance] + 10, yCenters[instance]);
+        }
+    }
+
+    /**
+     * Getter method to retrieve x coordinate of top left corner of the instance bounds
+     *
+     * @param instance index of the instance
+     * @return x coordinate(int)
+     */
+    public int getBoundsX(int instance){
+        return xCenters[instance] + prototype.getLeft();
+    }
+
+    /**
+     * Getter method to retrieve y coordinate of top left corner of the instance bounds
+     *
+     * @param instance index of the instance
+     * @return y coordinate(int)
+     */
+    public int getBoundsY(int instance){
+        return yCenters[instance] + prototype.getTop();
+    }
+
+    /**
+     * Calculates the smallest area covering every instance
+     *
+     * @return area or null if the batch is empty
+     */
+    public java.awt.Rectangle getBounds(){
+        if(size == 0) return null;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for(int instance = 0; instance < size; instance++){
+            minX = Math.min(minX, xCenters[instance]);
+            maxX = Math.max(maxX, xCenters[instance]);
+            minY = Math.min(minY, yCenters[instance]);
+            maxY = Math.max(maxY, yCenters[instance]);
+        }
+        return new java.awt.Rectangle(minX + prototype.getLeft(), minY + prototype.getTop(),
+                maxX - minX + prototype.getWidth(), maxY - minY + prototype.getHeight());
+    }
+
+    /**
+     * Finds the first instance starting from given instance which bounds contain given point. Only the instances<br>
+     * of the grid cell containing the point are tested. Used to iterate hit instances without allocation, also<br>
+     * while changing them, the same way as ShapeStore.findNext
+     *
+     * @param x x coordinate(int)
+     * @param y y coordinate(int)
+     * @param fromInstance instance to start searching from
+     * @return index of the instance containing the point or -1 if there is none
+     */
+    public int findNext(int x, int y, int fromInstance){
+        int left = x - prototype.getLeft(), top = y - prototype.getTop();
+        int width = prototype.getWidth(), height = prototype.getHeight();
+        RowGrid.Cell cell = grid.cellAt(x, y);
+        if(cell == null) return -1;
+        int[] instances = cell.rows;
+        for(int index = cell.indexOf(fromInstance); index < cell.size; index++){
+            int instance = instances[index];
+            int dx = left - xCenters[instance], dy = top - yCenters[instance];
+            if(dx >= 0 && dx <= width && dy >= 0 && dy <= height) return instance;
+        }
+        return -1;
+    }
+
+    /**
+     * Renders instances in the order they were added. Instances outside of the clip area are skipped.
+     * With level of detail, a batch too small on screen is drawn as pixels of a density raster, and a small batch<br>
+     * is drawn without names and bounding boxes
+     *
+     * @param g used for rendering of the instances
+     * @param clip clip area, null to render every instance
+     * @param metrics FontMetrics used to draw names, null if names are not displayed
+     * @param displayBoundingBox whether to draw bounding boxes
+     * @param lod level of detail settings, null to render every instance in full detail. Requires Graphics2D
+     */
+    public void render(Graphics g, java.awt.Rectangle clip, FontMetrics metrics, boolean displayBoundingBox,
+                       LevelOfDetail lod){
+        if(size == 0) return;
+        int left = prototype.getLeft(), top = prototype.getTop();
+        int width = prototype.getWidth(), height = prototype.getHeight();
+        String label = prototype.getLabel();
+        double scale = lod != null ? LevelOfDetail.scaleOf(g) : 1;
+        if(lod != null && lod.collapses(width, height, scale)){
+            collapse((Graphics2D) g, clip, lod, scale);
+            return;
+        }
+        boolean decorated = lod == null || lod.showsDecorations(width, height, scale);
+        if(!decorated) metrics = null;
+        int labelWidth = metrics != null ? metrics.stringWidth(label) : 0;
+        int ascent = metrics != null ? metrics.getAscent() : 0, descent = metrics != null ? metrics.getDescent() : 0;
+        int[] polygonX = new int[prototype.getVertexCount()], polygonY = new int[prototype.getVertexCount()];
+        ColorPalette palette = ColorPalette.getShared();
+        int currentColor = ColorPalette.NO_COLOR;
+        for(int instance = 0; instance < size; instance++){
+            int xCenter = xCenters[instance], yCenter = yCenters[instance];
+            int x = xCenter + left, y = yCenter + top;
+            if(clip != null &&
+                    !clip.intersects(x, y - ascent, width + 1 + labelWidth, height + 1 + ascent + descent)){
+                continue;
+            }
+            int colorIndex = colorIndices[instance] & 0xFFFF;
+            if(colorIndex != currentColor && colorIndex != ColorPalette.NO_COLOR){
+                currentColor = colorIndex;
+                g.setColor(palette.getColor(colorIndex));
+            }
+            prototype.render(g, xCenter, yCenter, (flags[instance] & FILLED) != 0, polygonX, polygonY);
+            if(!decorated) continue;
+            if(metrics != null) g.drawString(label, xCenter, yCenter);
+            if(displayBoundingBox) BoundingBox.drawBox(g, x, y, width, height);
+        }
+    }
+
+    /**
+     * Checks whether the shared palette has an entry at given index
+     *
+     * @param index palette index
+     */
+    private static void checkColorIndex(int index){
+        if(index < 0 || index >= ColorPalette.getShared().size()){
+            throw new IndexOutOfBoundsException("Palette index: " + index);
+        }
+    }
+
+    /**
+     * Draws every visible instance as a pixel of the density raster
+     *
+     * @param g used for rendering of the instances
+     * @param clip clip area, null to draw every instance
+     * @param lod level of detail settings
+     * @param scale scale of the Graphics
+     */
+    private void collapse(Graphics2D g, java.awt.Rectangle clip, LevelOfDetail lod, double scale){
+        int left = prototype.getLeft(), top = prototype.getTop();
+        int width = prototype.getWidth(), height = prototype.getHeight();
+        AffineTransform transform = g.getTransform();
+        DensityRaster raster = lod.beginRaster(g);
+        ColorPalette palette = ColorPalette.getShared();
+        int defaultArgb = g.getColor().getRGB();
+        for(int instance = 0; instance < size; instance++){
+            int x = xCenters[instance] + left, y = yCenters[instance] + top;
+            if(clip != null && !clip.intersects(x, y, width + 1, height + 1)) continue;
+            int colorIndex = colorIndices[instance] & 0xFFFF;
+            int argb = colorIndex != ColorPalette.NO_COLOR ? palette.getColor(colorIndex).getRGB() : defaultArgb;
+            LevelOfDetail.collapse(raster, transform, argb, x, y, width, height, scale);
+        }
+        raster.drawTo(g);
+    }
+}
@@ -0,0 +1,216 @@
+package store;
+
+import java.util.Arrays;
+
+/**
+ * <h1>RowGrid</h1>
+ * <p>Spatial index of the rows of a ShapeStore or the instances of an InstanceBatch, which are identified by their<br>
+ * index rather than by an object. Splits the plane into square cells of equal size and registers every row in<br>
+ * each cell its bounds overlap, the same way UniformGrid does for shape objects.<br>
+ * Rows of a cell are kept sorted, so the rows at a point are found in drawing order by resuming from a row, and<br>
+ * a row changed in the middle of such a search is neither skipped nor found twice. Rows are never removed from<br>
+ * their owners, so cells are kept once created</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see ShapeStore
+ * @see InstanceBatch
+ */
+final class RowGrid {
+
+    /**Stores default cell edge length*/
+    static final int DEFAULT_CELL_SIZE = 256;
+
+    /**Stores minimum capacity of the cell table*/
+    private static final int MIN_CAPACITY = 64;
+
+    /**Stores cell edge length*/
+    private final int cellSize;
+
+    /**Stores cells by packed cell x,y coordinates in an open addressing table*/
+    private long[] keys = new long[MIN_CAPACITY];
+    private Cell[] cells = new Cell[MIN_CAPACITY];
+    private int size;
+
+    /**
+     * Default constructor, uses default cell size
+     */
+    RowGrid(){
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructor to initialize the grid with given cell size
+     *
+     * @param cellSize cell edge length
+     */
+    RowGrid(int cellSize){
+        if(cellSize <= 0) throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Registers row with given bounds. Rows added after every other row are appended to their cells
+     *
+     * @param row row of the shape
+     * @param x x coordinate of top left corner of the bounds
+     * @param y y coordinate of top left corner of the bounds
+     * @param width width of the bounds
+     * @param height height of the bounds
+     */
+    void insert(int row, int x, int y, int width, int height){
+        for(int cellX = cell(x); cellX <= cell(x + width); cellX++){
+            for(int cellY = cell(y); cellY <= cell(y + height); cellY++){
+                getOrCreate(key(cellX, cellY)).insert(row);
+            }
+        }
+    }
+
+    /**
+     * Moves row from its old bounds to its new bounds. Cells covered by both bounds are left untouched
+     *
+     * @param row row of the shape
+     * @param oldX x coordinate of top left corner of the old bounds
+     * @param oldY y coordinate of top left corner of the old bounds
+     * @param oldWidth width of the old bounds
+     * @param oldHeight height of the old bounds
+     * @param x x coordinate of top left corner of the new bounds
+     * @param y y coordinate of top left corner of the new bounds
+     * @param width width of the new bounds
+     * @param height height of the new bounds
+     */
+    void move(int row, int oldX, int oldY, int oldWidth, int oldHeight, int x, int y, int width, int height){
+        int oldMinX = cell(oldX), oldMinY = cell(oldY);
+        int oldMaxX = cell(oldX + oldWidth), oldMaxY = cell(oldY + oldHeight);
+        int minX = cell(x), minY = cell(y), maxX = cell(x + width), maxY = cell(y + height);
+        if(oldMinX == minX && oldMinY == minY && oldMaxX == maxX && oldMaxY == maxY) return;
+        for(int cellX = oldMinX; cellX <= oldMaxX; cellX++){
+            for(int cellY = oldMinY; cellY <= oldMaxY; cellY++){
+                if(cellX >= minX && cellX <= maxX && cellY >= minY && cellY <= maxY) continue;
+                Cell cell = get(key(cellX, cellY));
+                if(cell != null) cell.remove(row);
+            }
+        }
+        for(int cellX = minX; cellX <= maxX; cellX++){
+            for(int cellY = minY; cellY <= maxY; cellY++){
+                if(cellX >= oldMinX && cellX <= oldMaxX && cellY >= oldMinY && cellY <= oldMaxY) continue;
+                getOrCreate(key(cellX, cellY)).insert(row);
+            }
+        }
+    }
+
+    /**
+     * Retrieves cell containing given point
+     *
+     * @param x x coordinate(int)
+     * @param y y coordinate(int)
+     * @return cell or null if no row was ever registered there
+     */
+    Cell cellAt(int x, int y){
+        return get(key(cell(x), cell(y)));
+    }
+
+    /**
+     * Translates coordinate to cell coordinate
+     *
+     * @param coordinate x or y coordinate
+     * @return cell coordinate(int)
+     */
+    private int cell(int coordinate){
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    /**
+     * Packs cell x,y coordinates into a single key
+     *
+     * @param cellX cell x coordinate
+     * @param cellY cell y coordinate
+     * @return packed key
+     */
+    private static long key(int cellX, int cellY){
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private Cell get(long key){
+        int mask = keys.length - 1;
+        for(int slot = slot(key, mask); cells[slot] != null; slot = (slot + 1) & mask){
+            if(keys[slot] == key) return cells[slot];
+        }
+        return null;
+    }
+
+    private Cell getOrCreate(long key){
+        Cell cell = get(key);
+        if(cell != null) return cell;
+        if((size + 1) * 2 > keys.length) resize(keys.length * 2);
+        cell = new Cell();
+        put(key, cell);
+        size++;
+        return cell;
+    }
+
+    private void put(long key, Cell cell){
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while(cells[slot] != null) slot = (slot + 1) & mask;
+        keys[slot] = key;
+        cells[slot] = cell;
+    }
+
+    private void resize(int capacity){
+        long[] oldKeys = keys;
+        Cell[] oldCells = cells;
+        keys = new long[capacity];
+        cells = new Cell[capacity];
+        for(int i = 0; i < oldKeys.length; i++){
+            if(oldCells[i] != null) put(oldKeys[i], oldCells[i]);
+        }
+    }
+
+    private static int slot(long key, int mask){
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Rows registered in a cell, sorted ascending
+     */
+    static final class Cell {
+
+        /**Stores rows of the cell, the first size of them are in use*/
+        int[] rows = new int[4];
+        int size;
+
+        /**
+         * Finds position of the first row not below given row
+         *
+         * @param fromRow row to start from
+         * @return position within rows, size if every row is below
+         */
+        int indexOf(int fromRow){
+            if(size == 0 || rows[size - 1] < fromRow) return size;
+            int low = 0, high = size - 1;
+            while(low < high){
+                int middle = (low + high) >>> 1;
+                if(rows[middle] < fromRow) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        private void insert(int row){
+            if(size == rows.length) rows = Arrays.copyOf(rows, size * 2);
+            int index = indexOf(row);
+            System.arraycopy(rows, index, rows, index + 1, size - index);
+            rows[index] = row;
+            size++;
+        }
+
+        private void remove(int row){
+            int index = indexOf(row);
+            if(index == size || rows[index] != row) return;
+            System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+            size--;
+        }
+    }
+}
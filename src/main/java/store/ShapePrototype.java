@@ -0,0 +1,252 @@
+package store;
+
+import shapes.Circle;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * <h1>ShapePrototype</h1>
+ * <p>Immutable geometry shared by many instances of the same shape, e.g. every square tile of a layout.<br>
+ * Stores the kind of the shape, the size of its bounds and, for quadrilaterals, the vertices relative to the<br>
+ * center. Instances only store their center, so the bounds of an instance are the bounds of the prototype moved<br>
+ * by the center of the instance. Uses the same kinds as ShapeStore</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see InstanceBatch
+ * @see ShapeStore
+ */
+public final class ShapePrototype {
+
+    /**Stores names displayed for each kind*/
+    private static final String[] LABELS = {"Rectangle", "Square", "Circle", "Quadrilateral"};
+
+    /**Stores kind of the shape*/
+    private final byte kind;
+
+    /**Stores offset of top left corner of the bounds from the center*/
+    private final int left, top;
+
+    /**Stores width and height of the bounds*/
+    private final int width, height;
+
+    /**Stores vertices of quadrilaterals relative to the center, empty for other kinds*/
+    private final int[] xOffsets, yOffsets;
+
+    /**
+     * Constructor to initialize the prototype with given values
+     *
+     * @param kind kind of the shape
+     * @param left x offset of top left corner of the bounds from the center
+     * @param top y offset of top left corner of the bounds from the center
+     * @param width width of the bounds
+     * @param height height of the bounds
+     * @param xOffsets x offsets of the vertices from the center
+     * @param yOffsets y offsets of the vertices from the center
+     */
+    private ShapePrototype(byte kind, int left, int top, int width, int height, int[] xOffsets, int[] yOffsets){
+        this.kind = kind;
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+        this.xOffsets = xOffsets;
+        this.yOffsets = yOffsets;
+    }
+
+    /**
+     * Creates prototype of rectangles with given size
+     *
+     * @param width width of the rectangle
+     * @param height height of the rectangle
+     * @return ShapePrototype object
+     */
+    public static ShapePrototype rectangle(int width, int height){
+        return new ShapePrototype(ShapeStore.RECTANGLE, -(width / 2), -(height / 2), width, height,
+                new int[0], new int[0]);
+    }
+
+    /**
+     * Creates prototype of squares with given edge length
+     *
+     * @param edgeLength edge length of the square
+     * @return ShapePrototype object
+     */
+    public static ShapePrototype square(int edgeLength){
+        return new ShapePrototype(ShapeStore.SQUARE, -(edgeLength / 2), -(edgeLength / 2), edgeLength, edgeLength,
+                new int[0], new int[0]);
+    }
+
+    /**
+     * Creates prototype of circles with given radius
+     *
+     * @param radius radius of the circle
+     * @return ShapePrototype object
+     */
+    public static ShapePrototype circle(int radius){
+        return new ShapePrototype(ShapeStore.CIRCLE, -radius, -radius, radius * 2, radius * 2,
+                new int[0], new int[0]);
+    }
+
+    /**
+     * Creates prototype of quadrilaterals with given vertices relative to the center
+     *
+     * @param xOffsets x offsets of the vertices from the center
+     * @param yOffsets y offsets of the vertices from the center
+     * @return ShapePrototype object
+     */
+    public static ShapePrototype quadrilateral(int[] xOffsets, int[] yOffsets){
+        if(xOffsets.length != yOffsets.length) throw new IllegalArgumentException("Vertex arrays differ in length");
+        int minX = 0, minY = 0, maxX = 0, maxY = 0;
+        for(int i = 0; i < xOffsets.length; i++){
+            minX = i == 0 ? xOffsets[i] : Math.min(minX, xOffsets[i]);
+            maxX = i == 0 ? xOffsets[i] : Math.max(maxX, xOffsets[i]);
+            minY = i == 0 ? yOffsets[i] : Math.min(minY, yOffsets[i]);
+            maxY = i == 0 ? yOffsets[i] : Math.max(maxY, yOffsets[i]);
+        }
+        return new ShapePrototype(ShapeStore.QUADRILATERAL, minX, minY, maxX - minX, maxY - minY,
+                xOffsets.clone(), yOffsets.clone());
+    }
+
+    /**
+     * Creates prototype with the geometry of given shape
+     *
+     * @param shape Rectangle, Square, Circle or Quadrilateral object
+     * @return ShapePrototype object
+     */
+    public static ShapePrototype of(Shape shape){
+        if(shape instanceof Square) return square(((Square) shape).getWidth());
+        if(shape instanceof Rectangle){
+            Rectangle rect = (Rectangle) shape;
+            return rectangle(rect.getWidth(), rect.getHeight());
+        }
+        if(shape instanceof Circle) return circle(((Circle) shape).getRadius());
+        if(shape instanceof Quadrilateral){
+            Quadrilateral quad = (Quadrilateral) shape;
+            int[] xOffsets = quad.getXCoordinates().clone(), yOffsets = quad.getYCoordinates().clone();
+            for(int i = 0; i < xOffsets.length; i++){
+                xOffsets[i] -= quad.getCenterPoint().getX();
+                yOffsets[i] -= quad.getCenterPoint().getY();
+            }
+            return quadrilateral(xOffsets, yOffsets);
+        }
+        throw new IllegalArgumentException("Unsupported shape: " + shape.getClass().getName());
+    }
+
+    /**
+     * Getter method to retrieve kind of the shape
+     *
+     * @return RECTANGLE, SQUARE, CIRCLE or QUADRILATERAL
+     */
+    public byte getKind(){
+        return kind;
+    }
+
+    /**
+     * Retrieves name displayed for instances of the prototype
+     *
+     * @return name of the shape kind
+     */
+    public String getLabel(){
+        return LABELS[kind];
+    }
+
+    /**
+     * Getter method to retrieve x offset of top left corner of the bounds from the center
+     *
+     * @return x offset(int)
+     */
+    public int getLeft(){
+        return left;
+    }
+
+    /**
+     * Getter method to retrieve y offset of top left corner of the bounds from the center
+     *
+     * @return y offset(int)
+     */
+    public int getTop(){
+        return top;
+    }
+
+    /**
+     * Getter method to retrieve width of the bounds
+     *
+     * @return width(int)
+     */
+    public int getWidth(){
+        return width;
+    }
+
+    /**
+     * Getter method to retrieve height of the bounds
+     *
+     * @return height(int)
+     */
+    public int getHeight(){
+        return height;
+    }
+
+    /**
+     * Getter method to retrieve number of vertices of quadrilaterals
+     *
+     * @return number of vertices, 0 for other kinds
+     */
+    public int getVertexCount(){
+        return xOffsets.length;
+    }
+
+    /**
+     * Renders the geometry centered at given point
+     *
+     * @param g used for rendering of the shape
+     * @param xCenter x coordinate of center of the instance
+     * @param yCenter y coordinate of center of the instance
+     * @param isFilled whether to fill or draw the shape
+     * @param polygonX reusable array for x coordinates of the vertices, at least getVertexCount() long
+     * @param polygonY reusable array for y coordinates of the vertices, at least getVertexCount() long
+     */
+    public void render(Graphics g, int xCenter, int yCenter, boolean isFilled, int[] polygonX, int[] polygonY){
+        int x = xCenter + left, y = yCenter + top;
+        switch(kind){
+            case ShapeStore.RECTANGLE:
+            case ShapeStore.SQUARE:
+                if(isFilled) g.fillRect(x, y, width, height);
+                else g.drawRect(x, y, width, height);
+                break;
+            case ShapeStore.CIRCLE:
+                if(isFilled) g.fillOval(x, y, width, height);
+                else g.drawOval(x, y, width, height);
+                break;
+            default:
+                int count = xOffsets.length;
+                for(int v = 0; v < count; v++){
+                    polygonX[v] = xCenter + xOffsets[v];
+                    polygonY[v] = yCenter + yOffsets[v];
+                }
+                if(isFilled) g.fillPolygon(polygonX, polygonY, count);
+                else g.drawPolygon(polygonX, polygonY, count);
+                break;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if(this == other) return true;
+        if(!(other instanceof ShapePrototype)) return false;
+        ShapePrototype prototype = (ShapePrototype) other;
+        return kind == prototype.kind && left == prototype.left && top == prototype.top &&
+                width == prototype.width && height == prototype.height &&
+                Arrays.equals(xOffsets, prototype.xOffsets) && Arrays.equals(yOffsets, prototype.yOffsets);
+    }
+
+    @Override
+    public int hashCode() {
+        return ((kind * 31 + width) * 31 + height) * 31 + Arrays.hashCode(xOffsets) * 31 + Arrays.hashCode(yOffsets);
+    }
+}
@@ -0,0 +1,598 @@
+package store;
+
+import bounding.BoundingBox;
+import bounding.Point;
+import rendering.DensityRaster;
+import rendering.LevelOfDetail;
+import shapes.Circle;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <h1>ShapeStore</h1>
+ * <p>Columnar storage of shapes. Instead of keeping an object graph per shape, every characteristic of the shapes<br>
+ * is kept in its own primitive array (structure of arrays), indexed by the row of the shape.<br>
+ * Stores center coordinates, packed ARGB colors, filled state as a bit set, bounds as x,y,width,height quadruples<br>
+ * and the vertices of quadrilaterals in a single flat buffer of x,y pairs.<br>
+ * Rendering walks the arrays sequentially and does not allocate objects per shape. Rendering only reads the arrays,<br>
+ * so several threads may render the same store at once. Hit testing only looks at the rows registered in the cell<br>
+ * of a RowGrid containing the point, which is kept up to date as rows move and rotate.
+ * Supports the same special actions as the shape classes: rectangles and squares move by 10 units, quadrilaterals<br>
+ * rotate by 90 degrees</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ * @see Shape
+ */
+public class ShapeStore {
+
+    /**Kind of rows storing a rectangle*/
+    public static final byte RECTANGLE = 0;
+
+    /**Kind of rows storing a square*/
+    public static final byte SQUARE = 1;
+
+    /**Kind of rows storing a circle*/
+    public static final byte CIRCLE = 2;
+
+    /**Kind of rows storing a quadrilateral*/
+    public static final byte QUADRILATERAL = 3;
+
+    /**Stores names displayed for each kind*/
+    private static final String[] LABELS = {"Rectangle", "Square", "Circle", "Quadrilateral"};
+
+    /**Stores default initial capacity*/
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**Stores size of the color cache, has to be power of two*/
+    private static final int COLOR_CACHE_SIZE = 256;
+
+    /**Stores kind of each row*/
+    private byte[] kinds;
+
+    /**Stores center x,y coordinates of each row*/
+    private int[] xCenters, yCenters;
+
+    /**Stores packed ARGB color of each row*/
+    private int[] colors;
+
+    /**Stores filled state of each row*/
+    private final BitSet filled;
+
+    /**Stores bounds of each row as x, y, width, height*/
+    private int[] bounds;
+
+    /**Stores width and height of rectangles and squares, radius of circles*/
+    private int[] dimensions;
+
+    /**Stores offset of the first vertex of each quadrilateral row within the vertex buffer*/
+    private int[] vertexOffsets;
+
+    /**Stores number of vertices of each quadrilateral row*/
+    private int[] vertexCounts;
+
+    /**Stores vertices of quadrilaterals as x,y pairs*/
+    private int[] vertices;
+
+    /**Stores number of used ints of the vertex buffer*/
+    private int vertexSize;
+
+    /**Stores number of rows*/
+    private int size;
+
+    /**Stores highest number of vertices of a single quadrilateral row*/
+    private int maxVertexCount;
+
+    /**Stores spatial index of the rows used for hit testing*/
+    private final RowGrid grid;
+
+    /**Stores number of rows registered in the grid, a new row is registered once its bounds are set*/
+    private int indexedRows;
+
+    /**
+     * Default constructor
+     */
+    public ShapeStore(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to initialize the store with given capacity
+     *
+     * @param capacity expected number of rows
+     */
+    public ShapeStore(int capacity){
+        capacity = Math.max(capacity, 1);
+        kinds = new byte[capacity];
+        xCenters = new int[capacity];
+        yCenters = new int[capacity];
+        colors = new int[capacity];
+        filled = new BitSet(capacity);
+        bounds = new int[capacity * 4];
+        dimensions = new int[capacity * 2];
+        vertexOffsets = new int[capacity];
+        vertexCounts = new int[capacity];
+        vertices = new int[capacity * 2];
+        grid = new RowGrid();
+    }
+
+    /**
+     * Encodes shape object into a new row. The shape object is not retained
+     *
+     * @param shape shape object
+     * @return row of the shape
+     */
+    public int add(Shape shape){
+        int argb = argb(shape.getDisplayColor());
+        int row;
+        if(shape instanceof Rectangle){
+            Rectangle rect = (Rectangle) shape;
+            row = addRectangle(shape instanceof Square ? SQUARE : RECTANGLE, argb,
+                    rect.getxCenter(), rect.getyCenter(), rect.getWidth(), rect.getHeight());
+        } else if(shape instanceof Circle){
+            row = addCircle(argb, shape.getxCenter(), shape.getyCenter(), ((Circle) shape).getRadius());
+        } else if(shape instanceof Quadrilateral){
+            Quadrilateral quad = (Quadrilateral) shape;
+            Point center = quad.getCenterPoint();
+            row = addQuadrilateral(argb, center.getX(), center.getY(), quad.getXCoordinates(), quad.getYCoordinates());
+        } else {
+            throw new IllegalArgumentException("Unsupported shape: " + shape.getClass().getName());
+        }
+        filled.set(row, shape.isFilled());
+        return row;
+    }
+
+    /**
+     * Adds rectangle or square row
+     *
+     * @param kind RECTANGLE or SQUARE
+     * @param argb packed ARGB color
+     * @param xCenter x coordinate of center of the shape
+     * @param yCenter y coordinate of center of the shape
+     * @param width width of the shape
+     * @param height height of the shape
+     * @return row of the shape
+     */
+    public int addRectangle(byte kind, int argb, int xCenter, int yCenter, int width, int height){
+        if(kind != RECTANGLE && kind != SQUARE) throw new IllegalArgumentException("Not a rectangular kind: " + kind);
+        int row = newRow(kind, argb, xCenter, yCenter);
+        dimensions[row * 2] = width;
+        dimensions[row * 2 + 1] = height;
+        setBounds(row, xCenter - width / 2, yCenter - height / 2, width, height);
+        return row;
+    }
+
+    /**
+     * Adds circle row
+     *
+     * @param argb packed ARGB color
+     * @param xCenter x coordinate of center of the shape
+     * @param yCenter y coordinate of center of the shape
+     * @param radius radius of the circle
+     * @return row of the shape
+     */
+    public int addCircle(int argb, int xCenter, int yCenter, int radius){
+        int row = newRow(CIRCLE, argb, xCenter, yCenter);
+        dimensions[row * 2] = radius;
+        setBounds(row, xCenter - radius, yCenter - radius, radius * 2, radius * 2);
+        return row;
+    }
+
+    /**
+     * Adds quadrilateral row
+     *
+     * @param argb packed ARGB color
+     * @param xCenter x coordinate of center of the shape
+     * @param yCenter y coordinate of center of the shape
+     * @param xCoordinates x coordinates of the vertices
+     * @param yCoordinates y coordinates of the vertices
+     * @return row of the shape
+     */
+    public int addQuadrilateral(int argb, int xCenter, int yCenter, int[] xCoordinates, int[] yCoordinates){
+        if(xCoordinates.length != yCoordinates.length) throw new IllegalArgumentException("Vertex arrays differ in length");
+        return addQuadrilateral(argb, xCenter, yCenter, xCoordinates, yCoordinates, xCoordinates.length);
+    }
+
+    /**
+     * Adds quadrilateral row out of the first vertices of given arrays. Lets callers reuse the arrays
+     *
+     * @param argb packed ARGB color
+     * @param xCenter x coordinate of center of the shape
+     * @param yCenter y coordinate of center of the shape
+     * @param xCoordinates x coordinates of the vertices
+     * @param yCoordinates y coordinates of the vertices
+     * @param count number of vertices
+     * @return row of the shape
+     */
+    public int addQuadrilateral(int argb, int xCenter, int yCenter, int[] xCoordinates, int[] yCoordinates, int count){
+        if(count > xCoordinates.length || count > yCoordinates.length){
+            throw new IllegalArgumentException("Vertex arrays shorter than " + count);
+        }
+        int row = newRow(QUADRILATERAL, argb, xCenter, yCenter);
+        if(vertexSize + count * 2 > vertices.length){
+            vertices = Arrays.copyOf(vertices, Math.max(vertices.length * 2, vertexSize + count * 2));
+        }
+        vertexOffsets[row] = vertexSize;
+        vertexCounts[row] = count;
+        for(int i = 0; i < count; i++){
+            vertices[vertexSize++] = xCoordinates[i];
+            vertices[vertexSize++] = yCoordinates[i];
+        }
+        maxVertexCount = Math.max(maxVertexCount, count);
+        updatePolygonBounds(row);
+        return row;
+    }
+
+    /**
+     * Getter method to retrieve number of rows
+     *
+     * @return number of rows(int)
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Getter method to retrieve kind of the row
+     *
+     * @param row row of the shape
+     * @return RECTANGLE, SQUARE, CIRCLE or QUADRILATERAL
+     */
+    public byte getKind(int row){
+        return kinds[row];
+    }
+
+    /**
+     * Retrieves name displayed for the row
+     *
+     * @param row row of the shape
+     * @return name of the shape kind
+     */
+    public String getLabel(int row){
+        return LABELS[kinds[row]];
+    }
+
+    /**
+     * Getter method to retrieve packed ARGB color of the row
+     *
+     * @param row row of the shape
+     * @return packed ARGB color
+     */
+    public int getColor(int row){
+        return colors[row];
+    }
+
+    /**
+     * Checks whether the row is filled with color
+     *
+     * @param row row of the shape
+     * @return filled state
+     */
+    public boolean isFilled(int row){
+        return filled.get(row);
+    }
+
+    /**
+     * Getter method to retrieve x coordinate of top left corner of the row bounds
+     *
+     * @param row row of the shape
+     * @return x coordinate(int)
+     */
+    public int getBoundsX(int row){
+        return bounds[row * 4];
+    }
+
+    /**
+     * Getter method to retrieve y coordinate of top left corner of the row bounds
+     *
+     * @param row row of the shape
+     * @return y coordinate(int)
+     */
+    public int getBoundsY(int row){
+        return bounds[row * 4 + 1];
+    }
+
+    /**
+     * Getter method to retrieve width of the row bounds
+     *
+     * @param row row of the shape
+     * @return width(int)
+     */
+    public int getBoundsWidth(int row){
+        return bounds[row * 4 + 2];
+    }
+
+    /**
+     * Getter method to retrieve height of the row bounds
+     *
+     * @param row row of the shape
+     * @return height(int)
+     */
+    public int getBoundsHeight(int row){
+        return bounds[row * 4 + 3];
+    }
+
+    /**
+     * Setter method to set filled state of the row
+     *
+     * @param row row of the shape
+     * @param isFilled filled state
+     */
+    public void setFilled(int row, boolean isFilled){
+        filled.set(row, isFilled);
+    }
+
+    /**
+     * Toggles filled state of the row
+     *
+     * @param row row of the shape
+     */
+    public void toggleFilled(int row){
+        filled.flip(row);
+    }
+
+    /**
+     * Performs special action of the row: moves rectangles and squares by 10 units horizontally to the right,<br>
+     * rotates quadrilaterals by 90 degrees. Circles have no special action
+     *
+     * @param row row of the shape
+     */
+    public void performSpecialAction(int row){
+        switch(kinds[row]){
+            case RECTANGLE:
+            case SQUARE:
+                xCenters[row] += 10;
+                setBounds(row, xCenters[row] - dimensions[row * 2] / 2, bounds[row * 4 + 1], bounds[row * 4 + 2],
+                        bounds[row * 4 + 3]);
+                break;
+            case QUADRILATERAL:
+                rotateNinetyDegrees(row);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Finds the first row starting from given row which bounds contain given point. Only the rows of the grid cell<br>
+     * containing the point are tested. Used to iterate hit rows without allocation, also while changing them:<br>
+     * <code>for(int row = store.findNext(x, y, 0); row &gt;= 0; row = store.findNext(x, y, row + 1))</code>
+     *
+     * @param x x coordinate(int)
+     * @param y y coordinate(int)
+     * @param fromRow row to start searching from
+     * @return row containing the point or -1 if there is none
+     */
+    public int findNext(int x, int y, int fromRow){
+        RowGrid.Cell cell = grid.cellAt(x, y);
+        if(cell == null) return -1;
+        int[] b = bounds, rows = cell.rows;
+        for(int index = cell.indexOf(fromRow); index < cell.size; index++){
+            int row = rows[index], i = row * 4;
+            if(x >= b[i] && x <= b[i] + b[i + 2] && y >= b[i + 1] && y <= b[i + 1] + b[i + 3]) return row;
+        }
+        return -1;
+    }
+
+    /**
+     * Renders rows in the order they were added. Rows outside of the clip area are skipped
+     *
+     * @param g used for rendering of the shapes
+     * @param clip clip area, null to render every row
+     * @param metrics FontMetrics used to draw names, null if names are not displayed
+     * @param displayBoundingBox whether to draw bounding boxes
+     */
+    public void render(Graphics g, java.awt.Rectangle clip, FontMetrics metrics, boolean displayBoundingBox){
+        render(g, clip, metrics, displayBoundingBox, null);
+    }
+
+    /**
+     * Renders rows in the order they were added. Rows outside of the clip area are skipped.
+     * With level of detail, rows too small on screen are drawn as pixels of a density raster after the other rows,<br>
+     * and small rows are drawn without name and bounding box
+     *
+     * @param g used for rendering of the shapes
+     * @param clip clip area, null to render every row
+     * @param metrics FontMetrics used to draw names, null if names are not displayed
+     * @param displayBoundingBox whether to draw bounding boxes
+     * @param lod level of detail settings, null to render every row in full detail. Requires Graphics2D
+     */
+    public void render(Graphics g, java.awt.Rectangle clip, FontMetrics metrics, boolean displayBoundingBox,
+                       LevelOfDetail lod){
+        double scale = lod != null ? LevelOfDetail.scaleOf(g) : 1;
+        AffineTransform transform = lod != null ? ((Graphics2D) g).getTransform() : null;
+        DensityRaster raster = lod != null ? lod.beginRaster((Graphics2D) g) : null;
+        Color[] colorCache = new Color[COLOR_CACHE_SIZE];
+        int[] polygonX = new int[maxVertexCount], polygonY = new int[maxVertexCount];
+        int currentColor = 0;
+        boolean colorSet = false;
+        for(int row = 0; row < size; row++){
+            int i = row * 4;
+            int x = bounds[i], y = bounds[i + 1], width = bounds[i + 2], height = bounds[i + 3];
+            if(clip != null){
+                int labelWidth = 0, ascent = 0, descent = 0;
+                if(metrics != null){
+                    labelWidth = metrics.stringWidth(LABELS[kinds[row]]);
+                    ascent = metrics.getAscent();
+                    descent = metrics.getDescent();
+                }
+                if(!clip.intersects(x, y - ascent, width + 1 + labelWidth, height + 1 + ascent + descent)) continue;
+            }
+            if(lod != null && lod.collapses(width, height, scale)){
+                LevelOfDetail.collapse(raster, transform, colors[row], x, y, width, height, scale);
+                continue;
+            }
+            if(!colorSet || colors[row] != currentColor){
+                currentColor = colors[row];
+                colorSet = true;
+                g.setColor(color(colorCache, currentColor));
+            }
+            renderRow(g, row, x, y, width, height, polygonX, polygonY);
+            if(lod != null && !lod.showsDecorations(width, height, scale)) continue;
+            if(metrics != null) g.drawString(LABELS[kinds[row]], xCenters[row], yCenters[row]);
+            if(displayBoundingBox) BoundingBox.drawBox(g, x, y, width, height);
+        }
+        if(raster != null) raster.drawTo((Graphics2D) g);
+    }
+
+    /**
+     * Renders geometry of the row
+     *
+     * @param g used for rendering of the shape
+     * @param row row of the shape
+     * @param x x coordinate of top left corner of the bounds
+     * @param y y coordinate of top left corner of the bounds
+     * @param width width of the bounds
+     * @param height height of the bounds
+     * @param polygonX reusable array for x coordinates of the vertices
+     * @param polygonY reusable array for y coordinates of the vertices
+     */
+    private void renderRow(Graphics g, int row, int x, int y, int width, int height, int[] polygonX, int[] polygonY){
+        boolean isFilled = filled.get(row);
+        switch(kinds[row]){
+            case RECTANGLE:
+            case SQUARE:
+                if(isFilled) g.fillRect(x, y, width, height);
+                else g.drawRect(x, y, width, height);
+                break;
+            case CIRCLE:
+                if(isFilled) g.fillOval(x, y, width, height);
+                else g.drawOval(x, y, width, height);
+                break;
+            default:
+                int count = vertexCounts[row];
+                int offset = vertexOffsets[row];
+                for(int v = 0; v < count; v++){
+                    polygonX[v] = vertices[offset + v * 2];
+                    polygonY[v] = vertices[offset + v * 2 + 1];
+                }
+                if(isFilled) g.fillPolygon(polygonX, polygonY, count);
+                else g.drawPolygon(polygonX, polygonY, count);
+                break;
+        }
+    }
+
+    /**
+     * Rotates vertices of the quadrilateral row clockwise by 90 degrees around its center, the same way<br>
+     * Quadrilateral does, and updates its bounds. Quarter turns of whole coordinates are exact, so the vertices<br>
+     * are turned in place
+     *
+     * @param row row of the shape
+     */
+    private void rotateNinetyDegrees(int row){
+        int xCenter = xCenters[row], yCenter = yCenters[row];
+        int offset = vertexOffsets[row];
+        for(int v = 0; v < vertexCounts[row]; v++){
+            int xP = vertices[offset + v * 2] - xCenter;
+            int yP = vertices[offset + v * 2 + 1] - yCenter;
+            vertices[offset + v * 2] = xCenter - yP;
+            vertices[offset + v * 2 + 1] = yCenter + xP;
+        }
+        updatePolygonBounds(row);
+    }
+
+    /**
+     * Calculates bounds of the quadrilateral row out of its vertices
+     *
+     * @param row row of the shape
+     */
+    private void updatePolygonBounds(int row){
+        int offset = vertexOffsets[row];
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for(int v = 0; v < vertexCounts[row]; v++){
+            int vx = vertices[offset + v * 2], vy = vertices[offset + v * 2 + 1];
+            minX = Math.min(minX, vx);
+            maxX = Math.max(maxX, vx);
+            minY = Math.min(minY, vy);
+            maxY = Math.max(maxY, vy);
+        }
+        if(vertexCounts[row] == 0) minX = minY = maxX = maxY = 0;
+        setBounds(row, minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Stores bounds of the row and moves it within the grid, a new row is registered in the grid
+     *
+     * @param row row of the shape
+     * @param x x coordinate of top left corner
+     * @param y y coordinate of top left corner
+     * @param width width of the bounds
+     * @param height height of the bounds
+     */
+    private void setBounds(int row, int x, int y, int width, int height){
+        int i = row * 4;
+        if(row < indexedRows){
+            grid.move(row, bounds[i], bounds[i + 1], bounds[i + 2], bounds[i + 3], x, y, width, height);
+        } else {
+            grid.insert(row, x, y, width, height);
+            indexedRows = row + 1;
+        }
+        bounds[i] = x;
+        bounds[i + 1] = y;
+        bounds[i + 2] = width;
+        bounds[i + 3] = height;
+    }
+
+    /**
+     * Appends new row, growing the arrays when necessary
+     *
+     * @param kind kind of the shape
+     * @param argb packed ARGB color
+     * @param xCenter x coordinate of center of the shape
+     * @param yCenter y coordinate of center of the shape
+     * @return row of the shape
+     */
+    private int newRow(byte kind, int argb, int xCenter, int yCenter){
+        if(size == kinds.length){
+            int capacity = kinds.length * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            xCenters = Arrays.copyOf(xCenters, capacity);
+            yCenters = Arrays.copyOf(yCenters, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+            bounds = Arrays.copyOf(bounds, capacity * 4);
+            dimensions = Arrays.copyOf(dimensions, capacity * 2);
+            vertexOffsets = Arrays.copyOf(vertexOffsets, capacity);
+            vertexCounts = Arrays.copyOf(vertexCounts, capacity);
+        }
+        int row = size++;
+        kinds[row] = kind;
+        xCenters[row] = xCenter;
+        yCenters[row] = yCenter;
+        colors[row] = argb;
+        return row;
+    }
+
+    /**
+     * Retrieves Color object for given packed ARGB value. Recently used values are cached
+     *
+     * @param colorCache cache of recently used colors
+     * @param argb packed ARGB color
+     * @return Color object
+     */
+    private static Color color(Color[] colorCache, int argb){
+        int slot = (argb ^ (argb >>> 8) ^ (argb >>> 16)) & (COLOR_CACHE_SIZE - 1);
+        Color cached = colorCache[slot];
+        if(cached == null || cached.getRGB() != argb){
+            cached = new Color(argb, true);
+            colorCache[slot] = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Packs color into ARGB value, missing color is stored as black
+     *
+     * @param color Color object or null
+     * @return packed ARGB color
+     */
+    private static int argb(Color color){
+        return color == null ? 0xFF000000 : color.getRGB();
+    }
+}
@@ -0,0 +1,180 @@
+package collision;
+
+import bounding.Point;
+import org.junit.Test;
+import shapes.Circle;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>CollisionEngineTest</h1>
+ * <p>Checks the colliding pairs against a brute force test of every pair of a small random scene, both for the<br>
+ * first sweep and for the pairs kept across moves, rotations, removals and additions, sequentially and with the<br>
+ * bands swept in parallel</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class CollisionEngineTest {
+
+    /**Stores size of the square world the shapes are spread over*/
+    private static final int WORLD_SIZE = 400;
+
+    @Test(timeout = 30_000)
+    public void pairsMatchBruteForceAcrossChanges(){
+        checkAcrossChanges(new CollisionEngine(new ForkJoinPool(1)), 1);
+    }
+
+    @Test(timeout = 30_000)
+    public void parallelSweepMatchesBruteForce(){
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SweepAndPrune broadPhase = new SweepAndPrune(4, pool);
+            Random random = new Random(3);
+            List<Shape> shapes = new ArrayList<>();
+            for(int i = 0; i < 300; i++){
+                Shape shape = createShape(random);
+                shapes.add(shape);
+                broadPhase.insert(shape);
+            }
+            assertSamePairs("first sweep", bruteForce(shapes), pairsOf(broadPhase, shapes));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Changes a random scene frame by frame and compares the pairs of the engine with brute force after every frame
+     *
+     * @param engine empty engine
+     * @param seed seed of the random generator
+     */
+    private static void checkAcrossChanges(CollisionEngine engine, long seed){
+        Random random = new Random(seed);
+        List<Shape> shapes = new ArrayList<>();
+        for(int i = 0; i < 300; i++){
+            Shape shape = createShape(random);
+            shapes.add(shape);
+            engine.add(shape);
+        }
+        assertSamePairs("first sweep", bruteForce(shapes), pairsOf(engine, shapes));
+        for(int frame = 0; frame < 40; frame++){
+            int changes = frame % 10 == 9 ? 100 : 1 + random.nextInt(12);
+            for(int c = 0; c < changes; c++){
+                int i = random.nextInt(shapes.size());
+                Shape shape = shapes.get(i);
+                switch(random.nextInt(4)){
+                    case 0:
+                        engine.remove(shape);
+                        Shape added = createShape(random);
+                        shapes.set(i, added);
+                        engine.add(added);
+                        break;
+                    case 1:
+                        if(shape instanceof Quadrilateral) ((Quadrilateral) shape).rotateNinetyDegrees();
+                        engine.update(shape);
+                        break;
+                    default:
+                        if(shape instanceof Rectangle) ((Rectangle) shape).moveXUnits(random.nextInt(81) - 40);
+                        engine.update(shape);
+                        break;
+                }
+            }
+            assertSamePairs("frame " + frame, bruteForce(shapes), pairsOf(engine, shapes));
+        }
+    }
+
+    /**
+     * Compares pairs, reporting the missing and the unexpected ones on failure
+     *
+     * @param message description of the compared pairs
+     * @param expected pairs found by brute force
+     * @param actual pairs reported
+     */
+    private static void assertSamePairs(String message, Set<Long> expected, Set<Long> actual){
+        Set<Long> missing = new HashSet<>(expected), unexpected = new HashSet<>(actual);
+        missing.removeAll(actual);
+        unexpected.removeAll(expected);
+        assertTrue(message + ": missing " + missing + ", unexpected " + unexpected,
+                missing.isEmpty() && unexpected.isEmpty());
+    }
+
+    /**
+     * Finds colliding pairs by testing every pair of shapes
+     *
+     * @param shapes shapes of the scene
+     * @return pairs as indexes of both shapes
+     */
+    private static Set<Long> bruteForce(List<Shape> shapes){
+        Set<Long> pairs = new HashSet<>();
+        for(int i = 0; i < shapes.size(); i++){
+            for(int j = i + 1; j < shapes.size(); j++){
+                if(NarrowPhase.intersects(shapes.get(i), shapes.get(j))) pairs.add(key(i, j));
+            }
+        }
+        return pairs;
+    }
+
+    private static Set<Long> pairsOf(CollisionEngine engine, List<Shape> shapes){
+        IdentityHashMap<Shape, Integer> indexes = indexesOf(shapes);
+        Set<Long> pairs = new HashSet<>();
+        engine.forEachCollidingPair((first, second) ->
+                assertTrue("reported twice", pairs.add(key(indexes.get(first), indexes.get(second)))));
+        return pairs;
+    }
+
+    private static Set<Long> pairsOf(SweepAndPrune broadPhase, List<Shape> shapes){
+        IdentityHashMap<Shape, Integer> indexes = indexesOf(shapes);
+        Set<Long> pairs = new HashSet<>();
+        broadPhase.forEachCollision((first, second) ->
+                assertTrue("reported twice", pairs.add(key(indexes.get(first), indexes.get(second)))));
+        return pairs;
+    }
+
+    private static IdentityHashMap<Shape, Integer> indexesOf(List<Shape> shapes){
+        IdentityHashMap<Shape, Integer> indexes = new IdentityHashMap<>();
+        for(int i = 0; i < shapes.size(); i++){
+            indexes.put(shapes.get(i), i);
+        }
+        return indexes;
+    }
+
+    private static long key(int first, int second){
+        return (long) Math.min(first, second) << 32 | Math.max(first, second);
+    }
+
+    /**
+     * Creates a random rectangle, square, circle or quadrilateral
+     *
+     * @param random random generator
+     * @return shape object
+     */
+    private static Shape createShape(Random random){
+        int x = random.nextInt(WORLD_SIZE), y = random.nextInt(WORLD_SIZE), size = 4 + random.nextInt(36);
+        switch(random.nextInt(4)){
+            case 0: return new Rectangle(Color.RED, x, y, size, 4 + random.nextInt(36));
+            case 1: return new Square(Color.GREEN, x, y, size);
+            case 2: return new Circle(Color.BLUE, x, y, size / 2);
+            default:
+                int r = size / 2;
+                return new Quadrilateral(Color.ORANGE, new Point(x, y), new Point[]{
+                        new Point(x - 1 - random.nextInt(r), y - 1 - random.nextInt(r)),
+                        new Point(x + 1 + random.nextInt(r), y - 1 - random.nextInt(r)),
+                        new Point(x + 1 + random.nextInt(r), y + 1 + random.nextInt(r)),
+                        new Point(x - 1 - random.nextInt(r), y + 1 + random.nextInt(r))});
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package events;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>ChangeEventStreamTest</h1>
+ * <p>Tests of the ring buffer: wrapping with several producers and consumers, and producers of a full buffer<br>
+ * while the stream is not running or a consumer keeps failing</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class ChangeEventStreamTest {
+
+    /**Stores number of producer threads*/
+    private static final int PRODUCERS = 4;
+
+    /**Stores number of events published by every producer*/
+    private static final int EVENTS = 50_000;
+
+    @Test(timeout = 60_000)
+    public void multipleProducersDeliverEveryEventInOrderToEveryConsumer() throws InterruptedException {
+        ChangeEventStream stream = new ChangeEventStream(256, false);
+        OrderChecker yielding = new OrderChecker(), blocking = new OrderChecker();
+        ChangeEventStream.Subscription first = stream.addConsumer("yielding", yielding, new YieldingWaitStrategy());
+        ChangeEventStream.Subscription second = stream.addConsumer("blocking", blocking, new BlockingWaitStrategy());
+        stream.start();
+
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCERS];
+        for(int p = 0; p < PRODUCERS; p++){
+            int producer = p;
+            producers[p] = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for(int i = 0; i < EVENTS; i++){
+                    stream.publish(ChangeType.FILL_CHANGED, null, producer, i, 1, 1);
+                }
+            });
+            producers[p].start();
+        }
+        ready.countDown();
+        for(Thread producer : producers){
+            producer.join();
+        }
+        stream.flush();
+        stream.halt();
+
+        for(OrderChecker checker : new OrderChecker[]{yielding, blocking}){
+            assertEquals(0, checker.outOfOrder);
+            assertEquals(PRODUCERS * EVENTS, checker.received);
+            for(int p = 0; p < PRODUCERS; p++){
+                assertEquals(EVENTS - 1, checker.last[p]);
+            }
+        }
+        assertEquals(PRODUCERS * EVENTS - 1, stream.getCursor());
+        assertEquals(0, first.getFailureCount());
+        assertEquals(0, second.getFailureCount());
+        assertFalse(first.isRunning());
+    }
+
+    @Test(timeout = 10_000)
+    public void fullBufferFailsBeforeStart(){
+        ChangeEventStream stream = new ChangeEventStream(4, false);
+        stream.addConsumer("idle", (event, sequence, endOfBatch) -> {}, new SleepingWaitStrategy());
+        for(int i = 0; i < 4; i++){
+            stream.publish(ChangeType.ADDED, null, i, 0, 1, 1);
+        }
+        assertFalse(stream.tryPublish(ChangeType.ADDED, null, 4, 0, 1, 1));
+        assertEquals(1, stream.getRejectedCount());
+        try {
+            stream.publish(ChangeType.ADDED, null, 4, 0, 1, 1);
+            fail("Publishing to a full buffer of a stream which is not started has to fail");
+        } catch (IllegalStateException expected) {
+            assertEquals(3, stream.getCursor());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void haltReleasesProducers(){
+        ChangeEventStream stream = new ChangeEventStream(8, false);
+        AtomicLong received = new AtomicLong();
+        stream.addConsumer("counter", (event, sequence, endOfBatch) -> received.incrementAndGet(),
+                new BlockingWaitStrategy());
+        stream.start();
+        stream.publish(ChangeType.ADDED, null, 0, 0, 1, 1);
+        stream.flush();
+        stream.halt();
+        for(int i = 0; i < 100; i++){
+            stream.publish(ChangeType.ADDED, null, i, 0, 1, 1);
+        }
+        assertEquals(1, received.get());
+        assertEquals(8, stream.getRemainingCapacity());
+    }
+
+    @Test(timeout = 10_000)
+    public void failingConsumerDoesNotStallProducers(){
+        ChangeEventStream stream = new ChangeEventStream(8, false);
+        ChangeEventStream.Subscription subscription = stream.addConsumer("failing", (event, sequence, endOfBatch) -> {
+            throw new AssertionError("consumer failure " + sequence);
+        }, new YieldingWaitStrategy());
+        stream.start();
+        for(int i = 0; i < 1_000; i++){
+            stream.publish(ChangeType.ADDED, null, i, 0, 1, 1);
+        }
+        stream.flush();
+        stream.halt();
+        assertEquals(1_000, subscription.getFailureCount());
+        assertTrue(subscription.getLastFailure() instanceof AssertionError);
+    }
+
+    /**
+     * Consumer checking that the events of every producer arrive in publishing order
+     */
+    private static final class OrderChecker implements ChangeConsumer {
+
+        /**Stores last counter received from every producer*/
+        private final int[] last = new int[PRODUCERS];
+
+        /**Stores statistics, written by the consumer thread only*/
+        private int received, outOfOrder;
+
+        private OrderChecker(){
+            Arrays.fill(last, -1);
+        }
+
+        @Override
+        public void onEvent(ChangeEvent event, long sequence, boolean endOfBatch) {
+            if(event.getY() != last[event.getX()] + 1) outOfOrder++;
+            last[event.getX()] = event.getY();
+            received++;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package persistence;
+
+import bounding.BoundingBox;
+import bounding.Point;
+import manager.ShapesManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import shapes.Circle;
+import shapes.ColorPalette;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.ShapeGroup;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>MutationJournalTest</h1>
+ * <p>Tests of the journal: recovery of a log with a torn last record, undo and redo across a restart,<br>
+ * snapshots keeping the rotation of quadrilaterals and rejection of shapes which cannot be journaled</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class MutationJournalTest {
+
+    /**Stores directory of the journal, deleted after every test*/
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal-test");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)){
+            for(Path path : stream){
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test(timeout = 10_000)
+    public void truncatedLogReplaysCompleteRecordsOnly() throws IOException {
+        ShapesManager manager = new ShapesManager();
+        MutationJournal journal = MutationJournal.open(directory, manager, 0, 0);
+        List<String> states = new ArrayList<>();
+        for(int i = 0; i < 5; i++){
+            Rectangle rect = new Rectangle(Color.RED, 40 * i, 50, 20, 10);
+            manager.addShape(rect);
+            states.add(stateOf(manager));
+            rect.updateFilled();
+            states.add(stateOf(manager));
+        }
+        journal.close();
+
+        Path log = directory.resolve("journal-0.log");
+        try(FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)){
+            channel.truncate(channel.size() - 3);
+        }
+
+        ShapesManager recovered = new ShapesManager();
+        journal = MutationJournal.open(directory, recovered, 0, 0);
+        assertEquals(states.size() - 1, journal.getReplayedCount());
+        assertEquals(states.get(states.size() - 2), stateOf(recovered));
+
+        recovered.addShape(new Circle(Color.BLUE, 300, 300, 15));
+        String appended = stateOf(recovered);
+        journal.close();
+
+        ShapesManager reopened = new ShapesManager();
+        journal = MutationJournal.open(directory, reopened, 0, 0);
+        assertEquals(states.size(), journal.getReplayedCount());
+        assertEquals(appended, stateOf(reopened));
+        journal.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void undoAndRedoRoundTripAcrossRestart() throws IOException {
+        ShapesManager manager = new ShapesManager();
+        MutationJournal journal = MutationJournal.open(directory, manager, 5, 0);
+        Rectangle rect = new Rectangle(Color.RED, 100, 100, 30, 20);
+        Circle circle = new Circle(null, 200, 120, 12);
+        Quadrilateral quad = quadrilateral(300, 200);
+        manager.addShape(rect);
+        manager.addShape(circle);
+        manager.addShape(quad);
+        quad.rotate(37.5);
+        rect.performSpecialAction();
+        circle.setColorIndex(ColorPalette.getShared().indexOf(new Color(20, 40, 60)));
+        quad.updateFilled();
+        manager.removeShape(rect);
+        int actions = 8;
+        String done = stateOf(manager);
+        journal.close();
+
+        ShapesManager recovered = new ShapesManager();
+        journal = MutationJournal.open(directory, recovered, 5, 0);
+        assertEquals(done, stateOf(recovered));
+        int undone = 0;
+        while(journal.undo()){
+            undone++;
+        }
+        assertEquals(actions, undone);
+        assertTrue(recovered.getShapes().isEmpty());
+        int redone = 0;
+        while(journal.redo()){
+            redone++;
+        }
+        assertEquals(actions, redone);
+        assertEquals(done, stateOf(recovered));
+        journal.close();
+
+        ShapesManager reopened = new ShapesManager();
+        journal = MutationJournal.open(directory, reopened, 5, 0);
+        assertEquals(done, stateOf(reopened));
+        journal.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void snapshotKeepsRotationOfQuadrilaterals() throws IOException {
+        ShapesManager manager = new ShapesManager();
+        MutationJournal journal = MutationJournal.open(directory, manager, 5, 0);
+        Quadrilateral quad = quadrilateral(150, 150);
+        manager.addShape(quad);
+        quad.rotate(37.5);
+        journal.snapshot();
+        quad.rotate(22.5);
+        String rotated = stateOf(manager);
+        journal.close();
+
+        ShapesManager recovered = new ShapesManager();
+        journal = MutationJournal.open(directory, recovered, 5, 0);
+        assertEquals(1, journal.getGeneration());
+        assertEquals(rotated, stateOf(recovered));
+        Quadrilateral restored = (Quadrilateral) recovered.getShapes().get(0);
+        assertEquals(60, restored.getRotation(), 1e-9);
+
+        Quadrilateral expected = quadrilateral(150, 150);
+        expected.rotate(60);
+        assertArrayEquals(expected.getXCoordinates(), restored.getXCoordinates());
+        assertArrayEquals(expected.getYCoordinates(), restored.getYCoordinates());
+        journal.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void groupsAreRejected() throws IOException {
+        ShapesManager manager = new ShapesManager();
+        MutationJournal journal = MutationJournal.open(directory, manager, 5, 0);
+        ShapeGroup group = new ShapeGroup();
+        group.add(new Rectangle(Color.RED, 10, 10, 5, 5));
+        try {
+            manager.addShape(group);
+            fail("Adding a group to a journaled manager has to fail");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(manager.getShapes().isEmpty());
+        }
+        journal.close();
+    }
+
+    /**
+     * Creates a quadrilateral around given center
+     *
+     * @param x x coordinate of the center
+     * @param y y coordinate of the center
+     * @return Quadrilateral object
+     */
+    private static Quadrilateral quadrilateral(int x, int y){
+        return new Quadrilateral(new Color(10, 200, 30), new Point(x, y), new Point[]{
+                new Point(x - 16, y), new Point(x, y - 17), new Point(x + 18, y + 2), new Point(x - 1, y + 19)});
+    }
+
+    /**
+     * Describes every shape of the manager, sorted so that drawing order does not matter:
+     * undoing a removal adds the shape back on top
+     *
+     * @param manager ShapesManager object
+     * @return description of the scene
+     */
+    private static String stateOf(ShapesManager manager){
+        List<String> shapes = new ArrayList<>();
+        for(Shape shape : manager.getShapes()){
+            StringBuilder state = new StringBuilder(shape.getClass().getSimpleName())
+                    .append(shape.isFilled() ? " filled " : " ").append(shape.getColorIndex() == 0 ? "-" :
+                            Integer.toHexString(shape.getColor().getRGB()));
+            BoundingBox box = shape.getBoundingBox();
+            state.append(' ').append(box.getX()).append(',').append(box.getY()).append(',').append(box.getWidth())
+                    .append(',').append(box.getHeight());
+            if(shape instanceof Quadrilateral){
+                Quadrilateral quad = (Quadrilateral) shape;
+                state.append(Arrays.toString(quad.getXCoordinates())).append(Arrays.toString(quad.getYCoordinates()));
+            }
+            shapes.add(state.toString());
+        }
+        shapes.sort(null);
+        return shapes.toString();
+    }
+}
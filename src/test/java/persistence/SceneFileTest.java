@@ -0,0 +1,179 @@
+package persistence;
+
+import bounding.BoundingBox;
+import bounding.Point;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import shapes.Circle;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+import store.ShapeStore;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>SceneFileTest</h1>
+ * <p>Tests of the scene format: shapes saved and mapped back are decoded into equal shapes and fed into a store<br>
+ * as the same rows, rotated quadrilaterals keep rotating like the saved ones and truncated files are rejected</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class SceneFileTest {
+
+    /**Stores colors of the shapes, few enough not to fill the shared palette*/
+    private static final Color[] COLORS = {Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE, null};
+
+    /**Stores the scene file, deleted after every test*/
+    private Path path;
+
+    @Before
+    public void createFile() throws IOException {
+        path = Files.createTempFile("scene-test", ".scene");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test(timeout = 30_000)
+    public void mappedShapesMatchSavedShapes() throws IOException {
+        List<Shape> shapes = createScene(new Random(23), 5_000);
+        SceneFile.save(path, shapes);
+        SceneFile scene = SceneFile.open(path);
+        assertEquals(shapes.size(), scene.size());
+        for(int i = shapes.size() - 1; i >= 0; i--){
+            assertSameShape("shape " + i, shapes.get(i), scene.getShape(i));
+        }
+        assertSame(scene.getShape(7), scene.getShapes().get(7));
+    }
+
+    @Test(timeout = 30_000)
+    public void loadedRowsMatchRowsOfSavedShapes() throws IOException {
+        List<Shape> shapes = createScene(new Random(29), 3_000);
+        SceneFile.save(path, shapes);
+        ShapeStore expected = new ShapeStore(), actual = new ShapeStore();
+        for(Shape shape : shapes){
+            expected.add(shape);
+        }
+        SceneFile.open(path).loadInto(actual);
+        assertEquals(expected.size(), actual.size());
+        for(int row = 0; row < expected.size(); row++){
+            String message = "row " + row;
+            assertEquals(message, expected.getKind(row), actual.getKind(row));
+            assertEquals(message, expected.isFilled(row), actual.isFilled(row));
+            assertEquals(message, expected.getBoundsX(row), actual.getBoundsX(row));
+            assertEquals(message, expected.getBoundsY(row), actual.getBoundsY(row));
+            assertEquals(message, expected.getBoundsWidth(row), actual.getBoundsWidth(row));
+            assertEquals(message, expected.getBoundsHeight(row), actual.getBoundsHeight(row));
+            if(shapes.get(row).getColor() != null) assertEquals(message, expected.getColor(row), actual.getColor(row));
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void loadedQuadrilateralsKeepRotatingLikeSavedOnes() throws IOException {
+        Quadrilateral saved = createQuadrilateral(new Random(31), Color.BLUE);
+        saved.rotate(33.3);
+        saved.rotateNinetyDegrees();
+        SceneFile.save(path, Arrays.asList(saved));
+        Quadrilateral loaded = (Quadrilateral) SceneFile.open(path).getShape(0);
+        for(int i = 0; i < 50; i++){
+            saved.rotate(17.9);
+            loaded.rotate(17.9);
+        }
+        assertArrayEquals(saved.getXCoordinates(), loaded.getXCoordinates());
+        assertArrayEquals(saved.getYCoordinates(), loaded.getYCoordinates());
+    }
+
+    @Test(timeout = 30_000)
+    public void truncatedFilesAreRejected() throws IOException {
+        SceneFile.save(path, createScene(new Random(37), 20));
+        long size = Files.size(path);
+        for(long truncated : new long[]{size - 1, size - 8, 40, 31, 0}){
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)){
+                channel.truncate(truncated);
+            }
+            try {
+                SceneFile.open(path);
+                fail("file truncated to " + truncated + " bytes was opened");
+            } catch(IOException expected) {
+                // Rejected as corrupted or not a scene file
+            }
+        }
+    }
+
+    /**
+     * Creates random rectangles, squares, circles and quadrilaterals, some of them filled, some without color and<br>
+     * some quadrilaterals rotated by quarter turns and arbitrary angles
+     *
+     * @param random random generator
+     * @param count number of shapes
+     * @return shapes in drawing order
+     */
+    private static List<Shape> createScene(Random random, int count){
+        List<Shape> shapes = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            Color color = COLORS[random.nextInt(COLORS.length)];
+            int x = random.nextInt(4_000) - 2_000, y = random.nextInt(4_000) - 2_000, size = 2 + random.nextInt(100);
+            Shape shape;
+            switch(random.nextInt(4)){
+                case 0: shape = new Rectangle(color, x, y, size, 2 + random.nextInt(100)); break;
+                case 1: shape = new Square(color, x, y, size); break;
+                case 2: shape = new Circle(color, x, y, size / 2); break;
+                default:
+                    Quadrilateral quad = createQuadrilateral(random, color);
+                    if(random.nextBoolean()) quad.rotateNinetyDegrees();
+                    if(random.nextBoolean()) quad.rotate(random.nextDouble() * 720 - 360);
+                    shape = quad;
+                    break;
+            }
+            if(random.nextBoolean()) shape.updateFilled();
+            shapes.add(shape);
+        }
+        return shapes;
+    }
+
+    private static Quadrilateral createQuadrilateral(Random random, Color color){
+        int x = random.nextInt(4_000) - 2_000, y = random.nextInt(4_000) - 2_000, r = 2 + random.nextInt(50);
+        Point center = new Point(x, y);
+        Point[] points = {new Point(x - 1 - random.nextInt(r), y - 1 - random.nextInt(r)),
+                new Point(x + 1 + random.nextInt(r), y - 1 - random.nextInt(r)),
+                new Point(x + 1 + random.nextInt(r), y + 1 + random.nextInt(r)),
+                new Point(x - 1 - random.nextInt(r), y + 1 + random.nextInt(r))};
+        return color != null ? new Quadrilateral(color, center, points) : new Quadrilateral(center, points);
+    }
+
+    private static void assertSameShape(String message, Shape expected, Shape actual){
+        assertEquals(message, expected.getClass(), actual.getClass());
+        assertEquals(message, expected.getColor(), actual.getColor());
+        assertEquals(message, expected.isFilled(), actual.isFilled());
+        assertEquals(message, expected.getxCenter(), actual.getxCenter());
+        assertEquals(message, expected.getyCenter(), actual.getyCenter());
+        BoundingBox expectedBox = expected.getBoundingBox(), actualBox = actual.getBoundingBox();
+        assertEquals(message, expectedBox.getX(), actualBox.getX());
+        assertEquals(message, expectedBox.getY(), actualBox.getY());
+        assertEquals(message, expectedBox.getWidth(), actualBox.getWidth());
+        assertEquals(message, expectedBox.getHeight(), actualBox.getHeight());
+        if(expected instanceof Quadrilateral){
+            Quadrilateral expectedQuad = (Quadrilateral) expected, actualQuad = (Quadrilateral) actual;
+            assertEquals(message, expectedQuad.getRotation(), actualQuad.getRotation(), 0);
+            assertArrayEquals(message, expectedQuad.getXCoordinates(), actualQuad.getXCoordinates());
+            assertArrayEquals(message, expectedQuad.getYCoordinates(), actualQuad.getYCoordinates());
+        }
+    }
+}
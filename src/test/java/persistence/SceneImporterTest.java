@@ -0,0 +1,164 @@
+package persistence;
+
+import bounding.BoundingBox;
+import org.junit.Test;
+import shapes.Shape;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>SceneImporterTest</h1>
+ * <p>Tests of the streaming importer: quoted CSV fields, escaped JSON strings and skipped values, text read one<br>
+ * char at a time and input truncated at every position, which has to be reported as malformed</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class SceneImporterTest {
+
+    /**Stores a CSV scene of one shape of every kind*/
+    private static final String CSV = "kind,color,filled,xCenter,yCenter\n" +
+            "rectangle,#FF0000,true,100,200,40,20\n" +
+            "square,,false,-50,60,30\n" +
+            "circle,#800000FF,true,0,0,15\n" +
+            "quadrilateral,#00FF00,false,10,10,0,0,20,0,20,20,0,20\n";
+
+    /**Stores a JSON scene of one shape of every kind*/
+    private static final String JSON = "[\n" +
+            "{\"kind\":\"rectangle\",\"color\":\"#FF0000\",\"filled\":true,\"x\":100,\"y\":200," +
+            "\"width\":40,\"height\":20},\n" +
+            "{\"kind\":\"square\",\"color\":null,\"filled\":false,\"x\":-50,\"y\":60,\"size\":30},\n" +
+            "{\"kind\":\"circle\",\"color\":\"#800000FF\",\"filled\":true,\"x\":0,\"y\":0,\"radius\":15},\n" +
+            "{\"kind\":\"quadrilateral\",\"color\":\"#00FF00\",\"filled\":false,\"x\":10,\"y\":10," +
+            "\"vertices\":[[0,0],[20,0],[20,20],[0,20]]}\n" +
+            "]\n";
+
+    @Test(timeout = 10_000)
+    public void quotedCsvFieldsAreUnquoted() throws IOException {
+        String quoted = "\"kind\",\"color\",\"filled\",\"xCenter\",\"yCenter\"\n" +
+                "\"rectangle\",\"#FF0000\",\"true\",100,200,\"40\",20\n" +
+                "square, \"\" ,false,-50,60,30\n" +
+                "\"circle\" ,#800000FF,true,\"0\",0,15\n" +
+                "quadrilateral,\"#00FF00\",false,10,10,0,0,20,0,20,20,0,\"20\"\n";
+        assertSameShapes(importText(CSV, SceneImporter.Format.CSV), importText(quoted, SceneImporter.Format.CSV));
+        assertMalformed("rectangle,\"#FF0000,true,100,200,40,20\n", SceneImporter.Format.CSV, "line 1");
+        assertMalformed(CSV + "circle,\"#FF0000\"x,true,0,0,15\n", SceneImporter.Format.CSV, "line 6");
+        assertMalformed(CSV + "\"cir\"\"cle\",,true,0,0,15\n", SceneImporter.Format.CSV, "Unknown kind: cir\"cle");
+    }
+
+    @Test(timeout = 10_000)
+    public void escapedJsonStringsAndUnknownValuesAreParsed() throws IOException {
+        String escaped = "{\"k\\u0069nd\":\"circ\\u006Ce\",\"note\":\"a \\\"}\\\" b\",\"color\":\"#800000FF\"," +
+                "\"extra\":{\"list\":[1,\"]\",{\"x\":2}],\"flag\":null},\"filled\":true,\"x\":0,\"y\":0," +
+                "\"radius\":15}\n{\"kind\":\"square\",\"x\":-50,\"y\":60,\"size\":30}";
+        List<Shape> expected = importText(JSON, SceneImporter.Format.JSON);
+        List<Shape> actual = importText(escaped, SceneImporter.Format.JSON);
+        assertEquals(2, actual.size());
+        assertSameShape("circle", expected.get(2), actual.get(0));
+        assertSameShape("square", expected.get(1), actual.get(1));
+        assertEquals(0, importText("[ ]", SceneImporter.Format.JSON).size());
+    }
+
+    @Test(timeout = 10_000)
+    public void textReadOneCharAtATimeGivesSameShapes() throws IOException {
+        for(SceneImporter.Format format : SceneImporter.Format.values()){
+            String text = format == SceneImporter.Format.CSV ? CSV : JSON;
+            List<Shape> expected = importText(text, format), actual = new ArrayList<>();
+            new SceneImporter(1).importScene(new OneCharReader(text), format, actual::addAll);
+            assertSameShapes(expected, actual);
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void truncatedInputIsMalformedOrAPrefixOfTheScene() throws IOException {
+        for(SceneImporter.Format format : SceneImporter.Format.values()){
+            String text = format == SceneImporter.Format.CSV ? CSV : JSON;
+            List<Shape> complete = importText(text, format);
+            for(int length = 0; length < text.length(); length++){
+                List<Shape> shapes = new ArrayList<>();
+                try {
+                    new SceneImporter(1).importScene(new StringReader(text.substring(0, length)), format,
+                            shapes::addAll);
+                } catch(IOException e) {
+                    assertTrue(format + " cut at " + length + ": " + e.getMessage(),
+                            e.getMessage().startsWith("Malformed record at line "));
+                }
+                assertTrue(format + " cut at " + length, shapes.size() <= complete.size());
+                if(format == SceneImporter.Format.JSON){
+                    assertSameShapes(complete.subList(0, shapes.size()), shapes);
+                } else {
+                    int whole = Math.max(0, shapes.size() - 1);
+                    assertSameShapes(complete.subList(0, whole), shapes.subList(0, whole));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void batchesGrowUpToTheBatchSize() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 2_000; i++){
+            text.append("circle,#0000FF,false,").append(i).append(",0,5\n");
+        }
+        List<Integer> sizes = new ArrayList<>();
+        long total = new SceneImporter(600).importScene(new StringReader(text.toString()), SceneImporter.Format.CSV,
+                batch -> sizes.add(batch.size()));
+        assertEquals(2_000, total);
+        assertEquals("[256, 512, 600, 600, 32]", sizes.toString());
+    }
+
+    private static List<Shape> importText(String text, SceneImporter.Format format) throws IOException {
+        List<Shape> shapes = new ArrayList<>();
+        new SceneImporter().importScene(new StringReader(text), format, shapes::addAll);
+        return shapes;
+    }
+
+    private static void assertMalformed(String text, SceneImporter.Format format, String part){
+        try {
+            importText(text, format);
+            fail("imported malformed text: " + text);
+        } catch(IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(part));
+        }
+    }
+
+    private static void assertSameShapes(List<Shape> expected, List<Shape> actual){
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++){
+            assertSameShape("shape " + i, expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertSameShape(String message, Shape expected, Shape actual){
+        assertEquals(message, expected.getClass(), actual.getClass());
+        assertEquals(message, expected.getColor(), actual.getColor());
+        assertEquals(message, expected.isFilled(), actual.isFilled());
+        BoundingBox expectedBox = expected.getBoundingBox(), actualBox = actual.getBoundingBox();
+        assertEquals(message, expectedBox.getX(), actualBox.getX());
+        assertEquals(message, expectedBox.getY(), actualBox.getY());
+        assertEquals(message, expectedBox.getWidth(), actualBox.getWidth());
+        assertEquals(message, expectedBox.getHeight(), actualBox.getHeight());
+    }
+
+    /**
+     * Reader handing over at most one char per read, so every value crosses the end of the read buffer
+     */
+    private static final class OneCharReader extends FilterReader {
+
+        private OneCharReader(String text){
+            super(new StringReader(text));
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, 1));
+        }
+    }
+}
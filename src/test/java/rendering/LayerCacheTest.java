@@ -0,0 +1,77 @@
+package rendering;
+
+import manager.ShapesManager;
+import org.junit.Test;
+import shapes.Rectangle;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>LayerCacheTest</h1>
+ * <p>Tests the static layer drawn by the tiles of a TiledRenderer: the frame matches a frame rendered without the<br>
+ * cache, before and after a change, and the image is rendered once for every tile instead of once per tile</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class LayerCacheTest {
+
+    /**Stores size of the square frame*/
+    private static final int FRAME_SIZE = 512;
+
+    @Test(timeout = 60_000)
+    public void tiledFramePreparesLayerOnceAndMatchesPlainFrame(){
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+            ShapesManager plain = createScene(font), cached = createScene(font);
+            LayerCache cache = new LayerCache(60_000);
+            cached.setLayerCache(cache);
+            TiledRenderer plainRenderer = new TiledRenderer(128, pool), cachedRenderer = new TiledRenderer(128, pool);
+
+            assertSamePixels(plainRenderer.render(plain, FRAME_SIZE, FRAME_SIZE, null, font, Color.BLACK),
+                    cachedRenderer.render(cached, FRAME_SIZE, FRAME_SIZE, null, font, Color.BLACK));
+            assertEquals(1, cache.getRebuildCount());
+
+            plain.getShapes().get(7).updateFilled();
+            cached.getShapes().get(7).updateFilled();
+            plain.getShapes().get(11).performSpecialAction();
+            cached.getShapes().get(11).performSpecialAction();
+            assertSamePixels(plainRenderer.render(plain, FRAME_SIZE, FRAME_SIZE, null, font, Color.BLACK),
+                    cachedRenderer.render(cached, FRAME_SIZE, FRAME_SIZE, null, font, Color.BLACK));
+            assertEquals(1, cache.getRebuildCount());
+            assertTrue(cache.getHotAreaCount() > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ShapesManager createScene(Font font){
+        ShapesManager manager = new ShapesManager();
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        manager.setLabelMetrics(g.getFontMetrics(font));
+        g.dispose();
+        Random random = new Random(9);
+        for(int i = 0; i < 2_000; i++){
+            Rectangle rect = new Rectangle(new Color(random.nextInt(0xFFFFFF)), random.nextInt(FRAME_SIZE),
+                    random.nextInt(FRAME_SIZE), 4 + random.nextInt(40), 4 + random.nextInt(40));
+            if(i % 3 == 0) rect.updateFilled();
+            manager.addShape(rect);
+        }
+        manager.setDisplayName(true);
+        return manager;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual){
+        for(int y = 0; y < FRAME_SIZE; y++){
+            for(int x = 0; x < FRAME_SIZE; x++){
+                if(expected.getRGB(x, y) != actual.getRGB(x, y)) fail("pixel " + x + "," + y + " differs");
+            }
+        }
+    }
+}
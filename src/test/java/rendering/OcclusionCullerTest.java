@@ -0,0 +1,182 @@
+package rendering;
+
+import bounding.Point;
+import manager.ShapesManager;
+import org.junit.Test;
+import shapes.Circle;
+import shapes.ColorPalette;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>OcclusionCullerTest</h1>
+ * <p>Tests that culling is conservative: frames rendered with the culler match frames rendered without it pixel<br>
+ * by pixel, with names and bounding boxes, on plain and on scaled antialiased Graphics, while occluders move, stop<br>
+ * being filled and are recolored with translucent colors. Shapes placed under occluders are really skipped</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class OcclusionCullerTest {
+
+    /**Stores size of the square frame*/
+    private static final int FRAME_SIZE = 600;
+
+    /**Stores opaque colors of the scene and the color of the occluders later replaced by a translucent one*/
+    private static final Color[] COLORS = {Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE, Color.MAGENTA};
+    private static final Color OCCLUDER_COLOR = new Color(0x13, 0x57, 0x9B);
+
+    @Test(timeout = 60_000)
+    public void culledFramesMatchPlainFramesAcrossChanges(){
+        ShapesManager plain = createScene(), culled = createScene();
+        culled.setOcclusionCuller(new OcclusionCuller());
+        assertTrue(culled.getOcclusionCuller().size() > 0);
+        assertSameFrames("initial scene", plain, culled);
+        assertTrue("no shape was culled", CountingCircle.countPaints(culled) < CountingCircle.countPaints(plain));
+
+        Random random = new Random(83);
+        List<Shape> plainShapes = plain.getShapes(), culledShapes = culled.getShapes();
+        for(int round = 0; round < 6; round++){
+            for(int change = 0; change < 15; change++){
+                int i = random.nextInt(plainShapes.size());
+                Shape plainShape = plainShapes.get(i), culledShape = culledShapes.get(i);
+                switch(random.nextInt(3)){
+                    case 0:
+                        plainShape.updateFilled();
+                        culledShape.updateFilled();
+                        break;
+                    case 1:
+                        int dx = random.nextInt(41) - 20;
+                        if(plainShape instanceof Rectangle) ((Rectangle) plainShape).moveXUnits(dx);
+                        if(culledShape instanceof Rectangle) ((Rectangle) culledShape).moveXUnits(dx);
+                        break;
+                    default:
+                        int index = ColorPalette.getShared().indexOf(new Color(0x80FF0000 | i, true));
+                        plainShape.setColorIndex(index);
+                        culledShape.setColorIndex(index);
+                        break;
+                }
+            }
+            assertSameFrames("round " + round, plain, culled);
+        }
+
+        ColorPalette palette = ColorPalette.getShared();
+        palette.setColor(palette.indexOf(OCCLUDER_COLOR), new Color(0x4013579B, true));
+        assertSameFrames("translucent occluders", plain, culled);
+    }
+
+    /**
+     * Renders both scenes on plain and on scaled antialiased Graphics and compares the frames
+     *
+     * @param message description of the scenes
+     * @param plain scene rendered without the culler
+     * @param culled scene rendered with the culler
+     */
+    private static void assertSameFrames(String message, ShapesManager plain, ShapesManager culled){
+        AffineTransform scaled = AffineTransform.getScaleInstance(0.75, 0.75);
+        scaled.translate(13.5, -7.25);
+        for(AffineTransform transform : new AffineTransform[]{new AffineTransform(), scaled}){
+            BufferedImage expected = render(plain, transform), actual = render(culled, transform);
+            for(int y = 0; y < FRAME_SIZE; y++){
+                for(int x = 0; x < FRAME_SIZE; x++){
+                    if(expected.getRGB(x, y) != actual.getRGB(x, y)){
+                        fail(message + ", transform " + transform + ": pixel " + x + "," + y + " differs");
+                    }
+                }
+            }
+        }
+    }
+
+    private static BufferedImage render(ShapesManager manager, AffineTransform transform){
+        BufferedImage image = new BufferedImage(FRAME_SIZE, FRAME_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 12));
+        g.setColor(Color.BLACK);
+        g.setClip(0, 0, FRAME_SIZE, FRAME_SIZE);
+        if(!transform.isIdentity()){
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.transform(transform);
+        }
+        manager.drawShapes(g);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Creates scene of random shapes, of large filled rectangles and of shapes placed under them before them
+     *
+     * @return manager displaying names and bounding boxes
+     */
+    private static ShapesManager createScene(){
+        Random random = new Random(89);
+        ShapesManager manager = new ShapesManager();
+        for(int i = 0; i < 60; i++){
+            int x = 80 + random.nextInt(FRAME_SIZE - 160), y = 80 + random.nextInt(FRAME_SIZE - 160);
+            Color color = COLORS[random.nextInt(COLORS.length)];
+            manager.addShape(new CountingCircle(color, x + random.nextInt(11) - 5, y + random.nextInt(11) - 5,
+                    2 + random.nextInt(6)));
+            manager.addShape(new Quadrilateral(color, new Point(x, y), new Point[]{new Point(x - 4, y - 3),
+                    new Point(x + 5, y - 2), new Point(x + 3, y + 4), new Point(x - 2, y + 5)}));
+            Rectangle rect = new Rectangle(color, random.nextInt(FRAME_SIZE), random.nextInt(FRAME_SIZE),
+                    4 + random.nextInt(50), 4 + random.nextInt(50));
+            if(random.nextBoolean()) rect.updateFilled();
+            manager.addShape(rect);
+            Rectangle occluder = i % 4 == 0 ? new Square(OCCLUDER_COLOR, x, y, 100 + random.nextInt(60)) :
+                    new Rectangle(i % 2 == 0 ? OCCLUDER_COLOR : color, x, y, 100 + random.nextInt(100),
+                            100 + random.nextInt(100));
+            occluder.updateFilled();
+            manager.addShape(occluder);
+            manager.addShape(new CountingCircle(color, random.nextInt(FRAME_SIZE), random.nextInt(FRAME_SIZE),
+                    2 + random.nextInt(30)));
+        }
+        manager.setDisplayName(true);
+        manager.setDisplayBoundingBox(true);
+        return manager;
+    }
+
+    /**
+     * Circle counting how often its name is drawn, which happens once for every time it is painted
+     */
+    private static final class CountingCircle extends Circle {
+
+        private int paints;
+
+        private CountingCircle(Color color, int xCenter, int yCenter, int radius){
+            super(color, xCenter, yCenter, radius);
+        }
+
+        @Override
+        public void displayName(Graphics g){
+            paints++;
+            super.displayName(g);
+        }
+
+        /**
+         * Renders the scene once and counts the circles painted
+         *
+         * @param manager scene of the circles
+         * @return number of painted circles
+         */
+        private static int countPaints(ShapesManager manager){
+            for(Shape shape : manager.getShapes()){
+                if(shape instanceof CountingCircle) ((CountingCircle) shape).paints = 0;
+            }
+            render(manager, new AffineTransform());
+            int paints = 0;
+            for(Shape shape : manager.getShapes()){
+                if(shape instanceof CountingCircle) paints += ((CountingCircle) shape).paints;
+            }
+            return paints;
+        }
+    }
+}
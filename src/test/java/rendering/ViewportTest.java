@@ -0,0 +1,121 @@
+package rendering;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>ViewportTest</h1>
+ * <p>Tests of the camera: screen pixels translated to world coordinates and back onto the same pixels for views<br>
+ * across the whole zoom range, zooming around a fixed point and the visible area covering the screen</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class ViewportTest {
+
+    /**Stores size of the screen the views are tested on*/
+    private static final int WIDTH = 800, HEIGHT = 600;
+
+    @Test(timeout = 10_000)
+    public void worldPointsOfPixelsMapBackOntoThePixels(){
+        Random random = new Random(41);
+        for(int view = 0; view < 500; view++){
+            Viewport viewport = createView(random);
+            for(int i = 0; i < 100; i++){
+                int screenX = random.nextInt(WIDTH), screenY = random.nextInt(HEIGHT);
+                Rectangle world = new Rectangle(viewport.toWorldX(screenX), viewport.toWorldY(screenY), 1, 1);
+                Rectangle screen = viewport.toScreen(world);
+                assertTrue(describe(viewport) + " pixel " + screenX + "," + screenY + " maps to " + world +
+                        " shown at " + screen, screen.contains(screenX, screenY));
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void screenCoordinatesMatchTheInverseTransform() throws Exception {
+        Random random = new Random(43);
+        for(int view = 0; view < 500; view++){
+            Viewport viewport = createView(random);
+            for(int i = 0; i < 100; i++){
+                int screenX = random.nextInt(WIDTH), screenY = random.nextInt(HEIGHT);
+                Point2D world = viewport.getTransform().inverseTransform(new Point2D.Double(screenX, screenY), null);
+                assertEquals(describe(viewport), (int) Math.floor(world.getX()), viewport.toWorldX(screenX));
+                assertEquals(describe(viewport), (int) Math.floor(world.getY()), viewport.toWorldY(screenY));
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void zoomKeepsTheWorldPointUnderThePointer(){
+        Random random = new Random(47);
+        for(int view = 0; view < 500; view++){
+            Viewport viewport = createView(random);
+            int screenX = random.nextInt(WIDTH), screenY = random.nextInt(HEIGHT);
+            double zoom = viewport.getZoom();
+            double worldX = viewport.getOriginX() + screenX / zoom, worldY = viewport.getOriginY() + screenY / zoom;
+            double factor = Math.exp(random.nextGaussian());
+            viewport.zoomAt(factor, screenX, screenY);
+            double newZoom = viewport.getZoom();
+            assertEquals(Math.max(Viewport.MIN_ZOOM, Math.min(Viewport.MAX_ZOOM, zoom * factor)), newZoom,
+                    newZoom * 1e-12);
+            assertEquals(worldX, viewport.getOriginX() + screenX / newZoom, Math.abs(worldX) * 1e-12 + 1e-9);
+            assertEquals(worldY, viewport.getOriginY() + screenY / newZoom, Math.abs(worldY) * 1e-12 + 1e-9);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void visibleAreaCoversTheScreen(){
+        Random random = new Random(53);
+        for(int view = 0; view < 500; view++){
+            Viewport viewport = createView(random);
+            Rectangle visible = viewport.getVisibleArea(WIDTH, HEIGHT);
+            assertTrue(describe(viewport), visible.contains(viewport.toWorldX(0), viewport.toWorldY(0)));
+            assertTrue(describe(viewport),
+                    visible.contains(viewport.toWorldX(WIDTH - 1), viewport.toWorldY(HEIGHT - 1)));
+            assertTrue(describe(viewport), viewport.toScreen(visible).contains(new Rectangle(0, 0, WIDTH, HEIGHT)));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void changesBumpTheVersion(){
+        Viewport viewport = new Viewport();
+        long version = viewport.getVersion();
+        viewport.pan(10, -5);
+        assertEquals(version + 1, viewport.getVersion());
+        assertEquals(-10, viewport.getOriginX(), 0);
+        assertEquals(5, viewport.getOriginY(), 0);
+        viewport.zoomAt(2, 100, 100);
+        viewport.setView(0, 0, 1);
+        assertEquals(version + 3, viewport.getVersion());
+        try {
+            viewport.setView(0, 0, Viewport.MAX_ZOOM * 2);
+            fail("zoom out of range was set");
+        } catch(IllegalArgumentException expected) {
+            assertEquals(version + 3, viewport.getVersion());
+        }
+    }
+
+    /**
+     * Creates a view of random fractional origin and a zoom spread evenly on a logarithmic scale across the<br>
+     * allowed range
+     *
+     * @param random random generator
+     * @return viewport object
+     */
+    private static Viewport createView(Random random){
+        double logMin = Math.log(Viewport.MIN_ZOOM), logMax = Math.log(Viewport.MAX_ZOOM);
+        double zoom = Math.exp(logMin + random.nextDouble() * (logMax - logMin));
+        Viewport viewport = new Viewport();
+        viewport.setView(random.nextDouble() * 200_000 - 100_000, random.nextDouble() * 200_000 - 100_000, zoom);
+        return viewport;
+    }
+
+    private static String describe(Viewport viewport){
+        return "view " + viewport.getOriginX() + "," + viewport.getOriginY() + " at zoom " + viewport.getZoom();
+    }
+}
@@ -0,0 +1,132 @@
+package shapes;
+
+import org.junit.Test;
+
+import java.awt.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>ColorPaletteTest</h1>
+ * <p>Tests of the palette: equal colors share an entry, a full palette maps new colors to close entries without<br>
+ * growing past the largest index, and replacing an entry bumps the version, recolors its shapes and discards the<br>
+ * approximations made before</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class ColorPaletteTest {
+
+    @Test(timeout = 10_000)
+    public void equalColorsShareAnEntry(){
+        ColorPalette palette = new ColorPalette();
+        assertEquals(ColorPalette.NO_COLOR, palette.indexOf(null));
+        assertNull(palette.getColor(ColorPalette.NO_COLOR));
+        int red = palette.indexOf(Color.RED);
+        assertEquals(red, palette.indexOf(new Color(255, 0, 0)));
+        assertEquals(red, palette.indexOf(0xFFFF0000));
+        assertNotEquals(red, palette.indexOf(0x80FF0000));
+        assertEquals(3, palette.size());
+        assertEquals(0, palette.getVersion());
+    }
+
+    @Test(timeout = 30_000)
+    public void fullPaletteApproximatesNewColors(){
+        ColorPalette palette = new ColorPalette();
+        for(int i = 1; i < ColorPalette.MAX_COLORS; i++){
+            assertEquals(i, palette.indexOf(0xFF000000 | i << 8));
+        }
+        assertEquals(ColorPalette.MAX_COLORS, palette.size());
+        assertEquals(0, palette.getApproximatedCount());
+
+        int sameBucket = palette.indexOf(0xFF123405);
+        assertCloseTo(0xFF123405, palette.getColor(sameBucket).getRGB());
+        int emptyBucket = palette.indexOf(0xFF1234F0);
+        assertEquals(nearest(palette, 0xFF1234F0), emptyBucket);
+        assertEquals(0xFF123400, palette.getColor(emptyBucket).getRGB());
+        assertEquals(emptyBucket, palette.indexOf(0xFF1234F0));
+        assertEquals(3, palette.getApproximatedCount());
+        assertEquals(ColorPalette.MAX_COLORS, palette.size());
+        assertEquals(0xFF000000 | 0x4321 << 8, palette.getColor(palette.indexOf(0xFF432100)).getRGB());
+    }
+
+    @Test(timeout = 30_000)
+    public void replacingAnEntryDiscardsApproximations(){
+        ColorPalette palette = new ColorPalette();
+        for(int i = 1; i < ColorPalette.MAX_COLORS; i++){
+            palette.indexOf(0xFF000000 | i << 8);
+        }
+        int approximated = palette.indexOf(0xFF1234F0);
+        int version = palette.getVersion();
+        palette.setColor(approximated, Color.WHITE);
+        assertEquals(version + 1, palette.getVersion());
+        assertEquals(approximated, palette.indexOf(0xFFFFFFFF));
+        int replaced = palette.indexOf(0xFF1234F0);
+        assertNotEquals(approximated, replaced);
+        assertEquals(nearest(palette, 0xFF1234F0), replaced);
+        try {
+            palette.setColor(ColorPalette.NO_COLOR, Color.RED);
+            fail("replaced the entry of shapes without color");
+        } catch(IndexOutOfBoundsException expected) {
+            assertEquals(version + 1, palette.getVersion());
+        }
+        try {
+            palette.setColor(approximated, null);
+            fail("replaced an entry by null");
+        } catch(IllegalArgumentException expected) {
+            assertEquals(version + 1, palette.getVersion());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void replacingAnEntryRecolorsItsShapes(){
+        ColorPalette palette = ColorPalette.getShared();
+        Color original = new Color(0x2468AC), replacement = new Color(0x80ACE024, true);
+        Rectangle first = new Rectangle(original, 10, 10, 20, 20);
+        Circle second = new Circle(original, 50, 50, 10);
+        int version = palette.getVersion();
+        palette.setColor(first.getDisplayColorIndex(), replacement);
+        assertTrue(palette.getVersion() > version);
+        assertEquals(replacement, first.getDisplayColor());
+        assertEquals(replacement, second.getDisplayColor());
+        assertEquals(first.getDisplayColorIndex(), palette.indexOf(replacement));
+    }
+
+    /**
+     * Asserts every color channel of the entry is in the same 16 values as the color and the alpha in the same 64
+     *
+     * @param argb packed ARGB color looked up
+     * @param entry packed ARGB color of the entry found
+     */
+    private static void assertCloseTo(int argb, int entry){
+        for(int shift = 0; shift < 24; shift += 8){
+            assertEquals(Integer.toHexString(entry), argb >>> shift + 4 & 0xF, entry >>> shift + 4 & 0xF);
+        }
+        assertEquals(Integer.toHexString(entry), argb >>> 30, entry >>> 30);
+    }
+
+    /**
+     * Finds the entry nearest to the color over all four channels by testing every entry
+     *
+     * @param palette palette object
+     * @param argb packed ARGB color
+     * @return palette index
+     */
+    private static int nearest(ColorPalette palette, int argb){
+        int best = ColorPalette.NO_COLOR;
+        long bestDistance = Long.MAX_VALUE;
+        for(int index = ColorPalette.NO_COLOR + 1; index < palette.size(); index++){
+            int entry = palette.getColor(index).getRGB();
+            long distance = 0;
+            for(int shift = 0; shift < 32; shift += 8){
+                long delta = (argb >>> shift & 0xFF) - (entry >>> shift & 0xFF);
+                distance += delta * delta;
+            }
+            if(distance < bestDistance){
+                bestDistance = distance;
+                best = index;
+            }
+        }
+        return best;
+    }
+}
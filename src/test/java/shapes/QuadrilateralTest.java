@@ -0,0 +1,152 @@
+package shapes;
+
+import bounding.BoundingBox;
+import bounding.Point;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>QuadrilateralTest</h1>
+ * <p>Tests of the accumulated rotation: quarter turns are exact integer turns of the original vertices, the rest<br>
+ * of an angle is applied to the exactly turned vertices, rotations adding up to quarter turns snap to them and<br>
+ * the bounds always match the vertices</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class QuadrilateralTest {
+
+    @Test(timeout = 10_000)
+    public void quarterTurnsAreExact(){
+        Random random = new Random(59);
+        for(int i = 0; i < 1_000; i++){
+            Quadrilateral quad = createQuadrilateral(random);
+            int[] xs = quad.getXCoordinates().clone(), ys = quad.getYCoordinates().clone();
+            int turns = random.nextInt(9) - 4;
+            if(random.nextBoolean()){
+                quad.rotate(turns * 90);
+            } else {
+                for(int t = 0; t < Math.floorMod(turns, 4); t++){
+                    quad.rotateNinetyDegrees();
+                }
+            }
+            int xCenter = quad.getCenterPoint().getX(), yCenter = quad.getCenterPoint().getY();
+            for(int t = 0; t < Math.floorMod(turns, 4); t++){
+                for(int v = 0; v < xs.length; v++){
+                    int x = xs[v];
+                    xs[v] = xCenter - (ys[v] - yCenter);
+                    ys[v] = yCenter + (x - xCenter);
+                }
+            }
+            assertArrayEquals(xs, quad.getXCoordinates());
+            assertArrayEquals(ys, quad.getYCoordinates());
+            assertEquals(Math.floorMod(turns, 4) * 90, quad.getRotation(), 0);
+            assertBoundsMatchVertices(quad);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void restOfTheAngleIsAppliedToTheTurnedVertices(){
+        Random random = new Random(61);
+        for(int i = 0; i < 1_000; i++){
+            long seed = random.nextLong();
+            int turns = random.nextInt(4);
+            double rest = random.nextDouble() * 90;
+            Quadrilateral rotated = createQuadrilateral(new Random(seed));
+            rotated.rotate(turns * 90 + rest);
+            Quadrilateral turned = createQuadrilateral(new Random(seed));
+            for(int t = 0; t < turns; t++){
+                turned.rotateNinetyDegrees();
+            }
+            Quadrilateral expected = new Quadrilateral(Color.RED, turned.getCenterPoint(),
+                    toPoints(turned.getXCoordinates(), turned.getYCoordinates()));
+            expected.rotate(rest);
+            assertArrayEquals(expected.getXCoordinates(), rotated.getXCoordinates());
+            assertArrayEquals(expected.getYCoordinates(), rotated.getYCoordinates());
+            assertEquals(turns * 90 + rest, rotated.getRotation(), 1e-9);
+            assertBoundsMatchVertices(rotated);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void rotationsAddingUpToQuarterTurnsSnapToThem(){
+        Random random = new Random(67);
+        for(int i = 0; i < 200; i++){
+            Quadrilateral quad = createQuadrilateral(random), reference = createQuadrilateral(new Random(i));
+            int[] xs = quad.getXCoordinates().clone(), ys = quad.getYCoordinates().clone();
+            for(int step = 0; step < 3_600; step++){
+                quad.rotate(0.1);
+            }
+            assertEquals(0, quad.getRotation(), 0);
+            assertArrayEquals(xs, quad.getXCoordinates());
+            assertArrayEquals(ys, quad.getYCoordinates());
+            double angle = random.nextDouble() * 720 - 360;
+            quad.rotate(angle);
+            quad.rotate(-angle);
+            assertEquals(0, quad.getRotation(), 0);
+            assertArrayEquals(xs, quad.getXCoordinates());
+            assertArrayEquals(ys, quad.getYCoordinates());
+            for(int step = 0; step < 9; step++){
+                reference.rotate(10);
+            }
+            assertEquals(90, reference.getRotation(), 0);
+            assertBoundsMatchVertices(reference);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void invalidAnglesAreRejected(){
+        Quadrilateral quad = createQuadrilateral(new Random(71));
+        for(double angle : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}){
+            try {
+                quad.rotate(angle);
+                fail("rotated by " + angle);
+            } catch(IllegalArgumentException expected) {
+                assertEquals(0, quad.getRotation(), 0);
+            }
+        }
+    }
+
+    /**
+     * Creates quadrilateral with random vertices on every side of its center
+     *
+     * @param random random generator
+     * @return shape object
+     */
+    private static Quadrilateral createQuadrilateral(Random random){
+        int x = random.nextInt(2_000) - 1_000, y = random.nextInt(2_000) - 1_000, r = 2 + random.nextInt(300);
+        return new Quadrilateral(Color.RED, new Point(x, y), new Point[]{
+                new Point(x - 1 - random.nextInt(r), y - 1 - random.nextInt(r)),
+                new Point(x + 1 + random.nextInt(r), y - 1 - random.nextInt(r)),
+                new Point(x + 1 + random.nextInt(r), y + 1 + random.nextInt(r)),
+                new Point(x - 1 - random.nextInt(r), y + 1 + random.nextInt(r))});
+    }
+
+    private static Point[] toPoints(int[] xs, int[] ys){
+        Point[] points = new Point[xs.length];
+        for(int i = 0; i < xs.length; i++){
+            points[i] = new Point(xs[i], ys[i]);
+        }
+        return points;
+    }
+
+    private static void assertBoundsMatchVertices(Quadrilateral quad){
+        int[] xs = quad.getXCoordinates(), ys = quad.getYCoordinates();
+        int minX = xs[0], maxX = xs[0], minY = ys[0], maxY = ys[0];
+        for(int i = 1; i < xs.length; i++){
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        BoundingBox box = quad.getBoundingBox();
+        assertEquals(minX, box.getX());
+        assertEquals(minY, box.getY());
+        assertEquals(maxX - minX, box.getWidth());
+        assertEquals(maxY - minY, box.getHeight());
+    }
+}
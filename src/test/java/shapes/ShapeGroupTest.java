@@ -0,0 +1,158 @@
+package shapes;
+
+import bounding.BoundingBox;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>ShapeGroupTest</h1>
+ * <p>Tests of the bounding volume hierarchy of nested groups: leaves found at a point against a test of every leaf<br>
+ * placed by the transforms of all its groups, while groups move and rotate and leaves move, are added and removed</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class ShapeGroupTest {
+
+    @Test(timeout = 30_000)
+    public void leavesAtPointsMatchEveryLeafAcrossChanges(){
+        Random random = new Random(73);
+        ShapeGroup root = new ShapeGroup();
+        List<ShapeGroup> groups = new ArrayList<>();
+        List<Shape> leaves = new ArrayList<>();
+        groups.add(root);
+        fill(root, 3, random, groups, leaves);
+        for(int round = 0; round < 40; round++){
+            for(int change = 0; change < 10; change++){
+                ShapeGroup group = groups.get(random.nextInt(groups.size()));
+                switch(random.nextInt(5)){
+                    case 0:
+                        group.translate(random.nextInt(41) - 20, random.nextInt(41) - 20);
+                        break;
+                    case 1:
+                        group.rotateNinetyDegrees();
+                        break;
+                    case 2:
+                        group.rotate(random.nextDouble() * 360 - 180);
+                        break;
+                    case 3:
+                        Shape added = createLeaf(random);
+                        group.add(added);
+                        leaves.add(added);
+                        break;
+                    default:
+                        Shape leaf = leaves.get(random.nextInt(leaves.size()));
+                        if(leaf instanceof Rectangle) ((Rectangle) leaf).moveXUnits(random.nextInt(81) - 40);
+                        else if(leaf.getObserver() != null && leaves.size() > 1){
+                            ((ShapeGroup) leaf.getObserver()).remove(leaf);
+                            leaves.remove(leaf);
+                        }
+                        break;
+                }
+            }
+            BoundingBox box = root.getBoundingBox();
+            for(int query = 0; query < 200; query++){
+                int x = box.getX() - 10 + random.nextInt(box.getWidth() + 21);
+                int y = box.getY() - 10 + random.nextInt(box.getHeight() + 21);
+                assertEquals("leaves at " + x + "," + y + " after round " + round, leavesAt(root, x, y),
+                        root.findLeavesAt(x, y));
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void boxOfTheGroupCoversItsPlacedLeaves(){
+        Random random = new Random(79);
+        ShapeGroup root = new ShapeGroup();
+        List<ShapeGroup> groups = new ArrayList<>();
+        groups.add(root);
+        fill(root, 3, random, groups, new ArrayList<>());
+        for(int change = 0; change < 200; change++){
+            ShapeGroup group = groups.get(random.nextInt(groups.size()));
+            if(random.nextBoolean()) group.rotate(random.nextDouble() * 360 - 180);
+            else group.translate(random.nextInt(41) - 20, random.nextInt(41) - 20);
+            BoundingBox box = root.getBoundingBox();
+            java.awt.Rectangle bounds = new java.awt.Rectangle(box.getX(), box.getY(), box.getWidth(),
+                    box.getHeight());
+            root.forEachLeaf(null, (leaf, transform) -> {
+                BoundingBox leafBox = leaf.getBoundingBox();
+                java.awt.Rectangle placed = transform.createTransformedShape(new java.awt.Rectangle(leafBox.getX(),
+                        leafBox.getY(), leafBox.getWidth(), leafBox.getHeight())).getBounds();
+                assertTrue(placed + " outside of " + bounds, bounds.contains(placed));
+            });
+        }
+    }
+
+    /**
+     * Fills the group with leaves and nested groups down to given depth
+     *
+     * @param group group to fill
+     * @param depth number of levels of nested groups below the group
+     * @param random random generator
+     * @param groups receives the nested groups
+     * @param leaves receives the leaves
+     */
+    private static void fill(ShapeGroup group, int depth, Random random, List<ShapeGroup> groups, List<Shape> leaves){
+        for(int i = 0; i < 6; i++){
+            if(depth > 0 && i % 2 == 0){
+                ShapeGroup child = new ShapeGroup();
+                fill(child, depth - 1, random, groups, leaves);
+                group.add(child);
+                groups.add(child);
+            } else {
+                Shape leaf = createLeaf(random);
+                group.add(leaf);
+                leaves.add(leaf);
+            }
+        }
+    }
+
+    private static Shape createLeaf(Random random){
+        int x = random.nextInt(400), y = random.nextInt(400), size = 4 + random.nextInt(60);
+        return random.nextBoolean() ? new Rectangle(Color.RED, x, y, size, 4 + random.nextInt(60)) :
+                new Circle(Color.BLUE, x, y, size / 2);
+    }
+
+    /**
+     * Finds leaves at the point by placing every leaf with the transforms of all its groups, in drawing order
+     *
+     * @param group group placed in the coordinates of the point
+     * @param x x coordinate of the point
+     * @param y y coordinate of the point
+     * @return leaves which bounding box contains the point
+     */
+    private static List<Shape> leavesAt(ShapeGroup group, int x, int y){
+        List<Shape> leaves = new ArrayList<>();
+        collectLeavesAt(group, new AffineTransform(), x, y, leaves);
+        return leaves;
+    }
+
+    private static void collectLeavesAt(ShapeGroup group, AffineTransform outer, int x, int y, List<Shape> leaves){
+        AffineTransform transform = new AffineTransform(outer);
+        transform.concatenate(group.getTransform());
+        for(Shape child : group.getChildren()){
+            if(child instanceof ShapeGroup){
+                collectLeavesAt((ShapeGroup) child, transform, x, y, leaves);
+                continue;
+            }
+            Point2D point = new Point2D.Double(x, y);
+            try {
+                transform.inverseTransform(point, point);
+            } catch (NoninvertibleTransformException e) {
+                continue;
+            }
+            BoundingBox box = child.getBoundingBox();
+            if(point.getX() >= box.getX() && point.getX() <= box.getX() + box.getWidth() &&
+                    point.getY() >= box.getY() && point.getY() <= box.getY() + box.getHeight()) leaves.add(child);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package spatial;
+
+import bounding.BoundingBox;
+import org.junit.Test;
+import shapes.Rectangle;
+import shapes.Shape;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>UniformGridTest</h1>
+ * <p>Tests the grid against a test of every shape while shapes are inserted, moved and removed. Small cells make<br>
+ * the open addressing table of cells create and delete many cells, so removals shift colliding cells back, wrap<br>
+ * around the end of the table and let the table grow and shrink again</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class UniformGridTest {
+
+    /**Stores size of the square world the shapes are spread over, centered on the origin*/
+    private static final int WORLD_SIZE = 1_000;
+
+    @Test(timeout = 30_000)
+    public void queriesMatchEveryShapeAcrossInsertsMovesAndRemovals(){
+        Random random = new Random(17);
+        UniformGrid grid = new UniformGrid(8);
+        List<Shape> shapes = new ArrayList<>();
+        for(int round = 0; round < 60; round++){
+            int inserts = round < 30 ? 120 : 20;
+            for(int i = 0; i < inserts; i++){
+                Shape shape = createRectangle(random);
+                shapes.add(shape);
+                grid.insert(shape);
+            }
+            for(int i = 0; i < 40 && !shapes.isEmpty(); i++){
+                Rectangle rect = (Rectangle) shapes.get(random.nextInt(shapes.size()));
+                rect.moveXUnits(random.nextInt(201) - 100);
+                grid.update(rect);
+            }
+            int removals = round < 30 ? 20 : 120;
+            for(int i = 0; i < removals && !shapes.isEmpty(); i++){
+                grid.remove(shapes.remove(random.nextInt(shapes.size())));
+            }
+            assertEquals(shapes.size(), grid.size());
+            for(int query = 0; query < 50; query++){
+                int x = random.nextInt(WORLD_SIZE) - WORLD_SIZE / 2, y = random.nextInt(WORLD_SIZE) - WORLD_SIZE / 2;
+                assertEquals("shapes at " + x + "," + y, shapesAt(shapes, x, y), grid.queryPoint(x, y));
+                int width = random.nextInt(200), height = random.nextInt(200);
+                assertEquals("shapes in " + x + "," + y + " " + width + "x" + height,
+                        shapesIn(shapes, x, y, width, height), grid.queryRegion(x, y, width, height));
+            }
+        }
+        for(Shape shape : new ArrayList<>(shapes)){
+            grid.remove(shape);
+        }
+        assertEquals(0, grid.size());
+        assertTrue(grid.queryRegion(-WORLD_SIZE, -WORLD_SIZE, WORLD_SIZE * 2, WORLD_SIZE * 2).isEmpty());
+    }
+
+    @Test(timeout = 30_000)
+    public void findAfterSkipsShapesDrawnBeforeTheOrder(){
+        UniformGrid grid = new UniformGrid();
+        Shape below = new Rectangle(Color.RED, 50, 50, 40, 40);
+        Shape above = new Rectangle(Color.BLUE, 55, 55, 40, 40);
+        grid.insert(below);
+        grid.insert(above);
+        assertSame(below, grid.findAfter(60, 60, -1, shape -> true));
+        assertSame(above, grid.findAfter(60, 60, grid.orderOf(below), shape -> true));
+        assertNull(grid.findAfter(60, 60, grid.orderOf(above), shape -> true));
+        assertNull(grid.findAfter(60, 60, -1, shape -> shape.getColor() == Color.GREEN));
+    }
+
+    @Test(timeout = 30_000)
+    public void clearedAndRemovedShapesCanBeInsertedAgain(){
+        UniformGrid grid = new UniformGrid(8);
+        Shape first = new Rectangle(Color.RED, 0, 0, 100, 100);
+        Shape second = new Rectangle(Color.BLUE, 10, 10, 20, 20);
+        grid.insert(first);
+        grid.insert(second);
+        grid.remove(first);
+        assertFalse(grid.contains(first));
+        assertEquals(-1, grid.orderOf(first));
+        grid.insert(first);
+        assertTrue(grid.orderOf(first) > grid.orderOf(second));
+        assertEquals(Arrays.asList(second, first), grid.queryPoint(15, 15));
+        grid.clear();
+        assertEquals(0, grid.size());
+        assertTrue(grid.queryPoint(15, 15).isEmpty());
+        assertNull(grid.findAfter(15, 15, -1, shape -> true));
+        grid.insert(second);
+        assertEquals(Collections.singletonList(second), grid.queryRegion(-50, -50, 100, 100));
+    }
+
+    /**
+     * Creates a random rectangle, the list of shapes keeps them in the order they are inserted in
+     *
+     * @param random random generator
+     * @return shape object
+     */
+    private static Shape createRectangle(Random random){
+        return new Rectangle(Color.RED, random.nextInt(WORLD_SIZE) - WORLD_SIZE / 2,
+                random.nextInt(WORLD_SIZE) - WORLD_SIZE / 2, 1 + random.nextInt(60), 1 + random.nextInt(60));
+    }
+
+    private static List<Shape> shapesAt(List<Shape> shapes, int x, int y){
+        List<Shape> result = new ArrayList<>();
+        for(Shape shape : shapes){
+            if(shape.getBoundingBox().isWithinBounds(x, y)) result.add(shape);
+        }
+        return result;
+    }
+
+    private static List<Shape> shapesIn(List<Shape> shapes, int x, int y, int width, int height){
+        List<Shape> result = new ArrayList<>();
+        for(Shape shape : shapes){
+            BoundingBox box = shape.getBoundingBox();
+            if(box.getX() <= x + width && box.getX() + box.getWidth() >= x &&
+                    box.getY() <= y + height && box.getY() + box.getHeight() >= y) result.add(shape);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package store;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>InstanceBatchTest</h1>
+ * <p>Tests hit testing of instances through their grid against a test of every instance, while instances are<br>
+ * moved between the queries</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class InstanceBatchTest {
+
+    @Test(timeout = 30_000)
+    public void findNextMatchesEveryInstanceAcrossMoves(){
+        Random random = new Random(5);
+        InstanceBatch batch = new InstanceBatch(ShapePrototype.rectangle(40, 300));
+        for(int i = 0; i < 5_000; i++){
+            batch.add(random.nextInt(2_000), random.nextInt(2_000), 0, (byte) 0);
+        }
+        for(int query = 0; query < 500; query++){
+            for(int change = 0; change < 20; change++){
+                int instance = random.nextInt(batch.size());
+                if(change % 2 == 0) batch.performSpecialAction(instance);
+                else batch.moveTo(instance, random.nextInt(2_000), random.nextInt(2_000));
+            }
+            int x = random.nextInt(2_000), y = random.nextInt(2_000);
+            List<Integer> expected = new ArrayList<>(), actual = new ArrayList<>();
+            for(int instance = 0; instance < batch.size(); instance++){
+                int left = batch.getBoundsX(instance), top = batch.getBoundsY(instance);
+                if(x >= left && x <= left + 40 && y >= top && y <= top + 300) expected.add(instance);
+            }
+            for(int instance = batch.findNext(x, y, 0); instance >= 0; instance = batch.findNext(x, y, instance + 1)){
+                actual.add(instance);
+            }
+            assertEquals("instances at " + x + "," + y, expected, actual);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package store;
+
+import bounding.BoundingBox;
+import bounding.Point;
+import org.junit.Test;
+import shapes.Circle;
+import shapes.Quadrilateral;
+import shapes.Rectangle;
+import shapes.Shape;
+import shapes.Square;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * <h1>ShapeStoreTest</h1>
+ * <p>Tests of the columnar store: hit testing through the grid of rows against a test of every row, while rows<br>
+ * move and rotate between the queries, and the special actions and filled toggles of rows against the same<br>
+ * changes of the shape objects the rows were added from</p>
+ *
+ * @author Levan.Voronin
+ * @version 1.0.0
+ */
+public class ShapeStoreTest {
+
+    /**Stores size of the square world the rows are spread over*/
+    private static final int WORLD_SIZE = 2_000;
+
+    /**Stores edge length of the images the rows and their shape objects are rendered to*/
+    private static final int IMAGE_SIZE = 640;
+
+    @Test(timeout = 30_000)
+    public void findNextMatchesEveryRowAcrossSpecialActions(){
+        Random random = new Random(11);
+        ShapeStore store = new ShapeStore(16);
+        for(int i = 0; i < 5_000; i++){
+            int x = random.nextInt(WORLD_SIZE), y = random.nextInt(WORLD_SIZE), size = 4 + random.nextInt(300);
+            switch(random.nextInt(4)){
+                case 0: store.addRectangle(ShapeStore.RECTANGLE, 0xFF0000FF, x, y, size, 4 + random.nextInt(60)); break;
+                case 1: store.addRectangle(ShapeStore.SQUARE, 0xFF00FF00, x, y, size, size); break;
+                case 2: store.addCircle(0xFFFF0000, x, y, size / 2); break;
+                default:
+                    store.addQuadrilateral(0xFF000000, x, y, new int[]{x - size, x + 5, x + size / 2, x - 3},
+                            new int[]{y - 4, y - size / 3, y + size, y + 7});
+                    break;
+            }
+        }
+        for(int query = 0; query < 500; query++){
+            for(int change = 0; change < 20; change++){
+                store.performSpecialAction(random.nextInt(store.size()));
+            }
+            int x = random.nextInt(WORLD_SIZE + 200) - 100, y = random.nextInt(WORLD_SIZE + 200) - 100;
+            List<Integer> expected = new ArrayList<>(), actual = new ArrayList<>();
+            for(int row = 0; row < store.size(); row++){
+                if(contains(store, row, x, y)) expected.add(row);
+            }
+            for(int row = store.findNext(x, y, 0); row >= 0; row = store.findNext(x, y, row + 1)){
+                actual.add(row);
+            }
+            assertEquals("rows at " + x + "," + y, expected, actual);
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void rowsMovedWhileIteratingAreFoundOnce(){
+        ShapeStore store = new ShapeStore();
+        for(int i = 0; i < 40; i++){
+            store.addRectangle(ShapeStore.RECTANGLE, 0xFF0000FF, 250 + i, 100, 30, 30);
+        }
+        int found = 0;
+        for(int row = store.findNext(256, 100, 0); row >= 0; row = store.findNext(256, 100, row + 1)){
+            store.performSpecialAction(row);
+            found++;
+        }
+        assertEquals(22, found);
+    }
+
+    @Test(timeout = 30_000)
+    public void rowsFollowTheirShapeObjectsAcrossRotationsAndToggles(){
+        Random random = new Random(5);
+        ShapeStore store = new ShapeStore();
+        List<Shape> shapes = new ArrayList<>();
+        for(int i = 0; i < 200; i++){
+            Shape shape = createShape(random);
+            if(random.nextBoolean()) shape.updateFilled();
+            shapes.add(shape);
+            assertEquals(i, store.add(shape));
+        }
+        for(int round = 0; round < 9; round++){
+            for(int row = 0; row < shapes.size(); row++){
+                Shape shape = shapes.get(row);
+                if(random.nextInt(3) > 0){
+                    shape.performSpecialAction();
+                    store.performSpecialAction(row);
+                }
+                if(random.nextInt(3) == 0){
+                    shape.updateFilled();
+                    store.toggleFilled(row);
+                }
+                BoundingBox box = shape.getBoundingBox();
+                String message = "row " + row + " after round " + round;
+                assertEquals(message, box.getX(), store.getBoundsX(row));
+                assertEquals(message, box.getY(), store.getBoundsY(row));
+                assertEquals(message, box.getWidth(), store.getBoundsWidth(row));
+                assertEquals(message, box.getHeight(), store.getBoundsHeight(row));
+                assertEquals(message, shape.isFilled(), store.isFilled(row));
+            }
+            assertSamePixels("round " + round, renderShapes(shapes), renderStore(store));
+        }
+    }
+
+    /**
+     * Creates a random rectangle, square, circle or quadrilateral with vertices on both sides of its center
+     *
+     * @param random random generator
+     * @return shape object
+     */
+    private static Shape createShape(Random random){
+        int x = 100 + random.nextInt(400), y = 100 + random.nextInt(400), size = 8 + random.nextInt(80);
+        Color color = new Color(random.nextInt(0x1000000));
+        switch(random.nextInt(4)){
+            case 0: return new Rectangle(color, x, y, size, 8 + random.nextInt(80));
+            case 1: return new Square(color, x, y, size);
+            case 2: return new Circle(color, x, y, size / 2);
+            default:
+                int r = size / 2;
+                return new Quadrilateral(color, new Point(x, y), new Point[]{
+                        new Point(x - 1 - random.nextInt(r), y - 1 - random.nextInt(r)),
+                        new Point(x + 1 + random.nextInt(r), y - 1 - random.nextInt(r)),
+                        new Point(x + 1 + random.nextInt(r), y + 1 + random.nextInt(r)),
+                        new Point(x - 1 - random.nextInt(r), y + 1 + random.nextInt(r))});
+        }
+    }
+
+    private static BufferedImage renderShapes(List<Shape> shapes){
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.createGraphics();
+        for(Shape shape : shapes){
+            g.setColor(shape.getDisplayColor());
+            if(shape.isFilled()) shape.fillShape(g);
+            else shape.drawShape(g);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage renderStore(ShapeStore store){
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.createGraphics();
+        store.render(g, null, null, false);
+        g.dispose();
+        return image;
+    }
+
+    private static void assertSamePixels(String message, BufferedImage expected, BufferedImage actual){
+        for(int y = 0; y < IMAGE_SIZE; y++){
+            for(int x = 0; x < IMAGE_SIZE; x++){
+                if(expected.getRGB(x, y) != actual.getRGB(x, y)){
+                    fail(message + ": pixel " + x + "," + y + " differs");
+                }
+            }
+        }
+    }
+
+    private static boolean contains(ShapeStore store, int row, int x, int y){
+        int left = store.getBoundsX(row), top = store.getBoundsY(row);
+        return x >= left && x <= left + store.getBoundsWidth(row) && y >= top && y <= top + store.getBoundsHeight(row);
+    }
+}